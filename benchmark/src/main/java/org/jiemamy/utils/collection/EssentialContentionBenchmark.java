@@ -0,0 +1,118 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * 複数スレッドから共有した{@link EssentialQueue}と{@link EssentialStack}の、実装ごとのスループットのベンチマーク。
+ * 
+ * <p>
+ * 各スレッドは要素を1つ追加し、続けて1つ取り出す操作を繰り返す。
+ * {@link #implementation}が{@code synchronized}の場合は単一スレッド用の実装を
+ * {@link EssentialQueues#synchronizedQueue(EssentialQueue)}、{@link EssentialStacks#synchronizedStack(EssentialStack)}
+ * で同期化したものを、{@code concurrent}の場合は{@link ConcurrentEssentialQueue}と{@link ConcurrentEssentialStack}を、
+ * {@code elimination}の場合は消去によるバックオフを行う{@link ConcurrentEssentialStack}を用いる
+ * （キューは{@code concurrent}と同じ）。
+ * </p>
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar EssentialContentionBenchmark -t 8
+ * </pre>
+ * 
+ * @version $Id$
+ * @author daisuke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class EssentialContentionBenchmark {
+	
+	/** 実装の種類 */
+	@Param({
+		"synchronized",
+		"concurrent",
+		"elimination"
+	})
+	public String implementation;
+	
+	/** 消去配列の大きさ */
+	@Param("4")
+	public int eliminationCapacity;
+	
+	/** 追加する要素 */
+	private final Object element = new Object();
+	
+	private EssentialQueue<Object> queue;
+	
+	private EssentialStack<Object> stack;
+	
+
+	/**
+	 * キューに要素を追加し、取り出す。
+	 * 
+	 * @return 取り出した要素
+	 */
+	@Benchmark
+	public Object queue() {
+		queue.enqueue(element);
+		return queue.dequeue();
+	}
+	
+	/**
+	 * ベンチマークを初期化する。
+	 */
+	@Setup
+	public void setUp() {
+		if ("synchronized".equals(implementation)) {
+			queue = EssentialQueues.synchronizedQueue(EssentialQueues.newArrayEssentialQueue());
+			stack = EssentialStacks.synchronizedStack(EssentialStacks.newArrayEssentialStack());
+		} else if ("concurrent".equals(implementation)) {
+			queue = EssentialQueues.newConcurrentEssentialQueue();
+			stack = EssentialStacks.newConcurrentEssentialStack();
+		} else if ("elimination".equals(implementation)) {
+			queue = EssentialQueues.newConcurrentEssentialQueue();
+			stack = EssentialStacks.newConcurrentEssentialStack(eliminationCapacity);
+		} else {
+			throw new IllegalArgumentException(implementation);
+		}
+	}
+	
+	/**
+	 * スタックに要素を追加し、取り出す。
+	 * 
+	 * @return 取り出した要素
+	 */
+	@Benchmark
+	public Object stack() {
+		stack.push(element);
+		return stack.pop();
+	}
+}
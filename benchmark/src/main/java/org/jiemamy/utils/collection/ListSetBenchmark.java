@@ -0,0 +1,102 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link ListSet}の実装ごとの、要素の追加による構築時間のベンチマーク。
+ * 
+ * <p>
+ * {@link #size}個の異なる要素と、その半数の重複した要素を順に追加する。
+ * {@link ArrayListSet}は要素数の2乗に、{@link HashIndexedListSet}は要素数に比例した時間となる。
+ * </p>
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar ListSetBenchmark
+ * </pre>
+ * 
+ * @version $Id$
+ * @author daisuke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListSetBenchmark {
+	
+	/** 異なる要素の数 */
+	@Param({
+		"1000",
+		"10000",
+		"50000"
+	})
+	public int size;
+	
+	/** 追加する要素 */
+	private String[] elements;
+	
+
+	/**
+	 * {@link ArrayListSet}を構築する。
+	 * 
+	 * @return 構築した{@link ListSet}
+	 */
+	@Benchmark
+	public ListSet<String> buildArrayListSet() {
+		return build(new ArrayListSet<String>());
+	}
+	
+	/**
+	 * {@link HashIndexedListSet}を構築する。
+	 * 
+	 * @return 構築した{@link ListSet}
+	 */
+	@Benchmark
+	public ListSet<String> buildHashIndexedListSet() {
+		return build(new HashIndexedListSet<String>());
+	}
+	
+	/**
+	 * ベンチマークを初期化する。
+	 */
+	@Setup
+	public void setUp() {
+		elements = new String[size + size / 2];
+		for (int i = 0; i < elements.length; i++) {
+			// 後半は前半の要素と重複する
+			elements[i] = "column" + (i < size ? i : (i - size) * 2);
+		}
+	}
+	
+	private ListSet<String> build(ListSet<String> listSet) {
+		for (String element : elements) {
+			listSet.add(element);
+		}
+		return listSet;
+	}
+}
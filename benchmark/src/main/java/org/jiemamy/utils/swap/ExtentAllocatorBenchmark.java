@@ -0,0 +1,92 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link ExtentAllocator}による領域の割り当てと解放のベンチマーク。
+ * 
+ * <p>
+ * {@link #liveCount}個のエクステントを生存させた状態で、ランダムに選んだエクステントの解放と、
+ * 新たなエクステントの割り当てを1回行う平均処理時間を計測する。
+ * 空き領域の探索が生存数に比例しないことを、{@link #liveCount}による処理時間の変化で確認する。
+ * </p>
+ * 
+ * <p>{@link ExtentAllocator}はスレッドセーフではないため、アロケータはスレッドごとに生成する。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExtentAllocatorBenchmark {
+	
+	/** 生存させるエクステントの数 */
+	@Param({
+		"1000",
+		"200000"
+	})
+	public int liveCount;
+	
+	private ExtentAllocator allocator;
+	
+	private Random random;
+	
+	/** 生存しているエクステント */
+	private Extent[] live;
+	
+
+	/**
+	 * ランダムに選んだエクステントを解放し、新たなエクステントを割り当てる。
+	 * 
+	 * @return 割り当てたエクステント
+	 */
+	@Benchmark
+	public Extent churn() {
+		int index = random.nextInt(live.length);
+		allocator.free(live[index]);
+		live[index] = allocator.allocate(16 + random.nextInt(256));
+		return live[index];
+	}
+	
+	/**
+	 * ベンチマークを初期化する。
+	 */
+	@Setup
+	public void setUp() {
+		allocator = new ExtentAllocator();
+		random = new Random(SwapObjectBenchmark.SEED);
+		live = new Extent[liveCount];
+		for (int i = 0; i < liveCount; i++) {
+			live[i] = allocator.allocate(16 + random.nextInt(256));
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * スワップのベンチマークを、スレッド数を変えながら実行するランチャ。
+ * 
+ * <p>
+ * 計測結果を比較できるよう、フォーク数、ウォームアップ、計測回数、ヒープサイズを固定して実行する。
+ * スレッド数はシステムプロパティ{@value #THREADS_PROPERTY}にカンマ区切りで指定する（デフォルトは{@value #DEFAULT_THREADS}）。
+ * 結果はスレッド数ごとに{@code target/jmh-swap-t<スレッド数>.json}へ出力する。
+ * </p>
+ * 
+ * <pre>
+ * java -Dswap.benchmark.threads=1,4 -cp target/benchmarks.jar org.jiemamy.utils.swap.SwapBenchmarkRunner [正規表現]
+ * </pre>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public final class SwapBenchmarkRunner {
+	
+	/** スレッド数を指定するシステムプロパティ */
+	public static final String THREADS_PROPERTY = "swap.benchmark.threads";
+	
+	/** デフォルトのスレッド数 */
+	public static final String DEFAULT_THREADS = "1,2,4,8";
+	
+	/** デフォルトで実行するベンチマークの正規表現 */
+	static final String DEFAULT_INCLUDE = "org\\.jiemamy\\.utils\\.swap\\..*Benchmark";
+	
+
+	/**
+	 * ベンチマークを実行する。
+	 * 
+	 * @param args 実行するベンチマークの正規表現。省略した場合は全てのスワップのベンチマーク
+	 * @throws RunnerException ベンチマークの実行に失敗した場合
+	 */
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : DEFAULT_INCLUDE;
+		for (String token : System.getProperty(THREADS_PROPERTY, DEFAULT_THREADS).split(",")) {
+			int threads = Integer.parseInt(token.trim());
+			Options options = new OptionsBuilder() //
+				.include(include) //
+				.threads(threads) //
+				.forks(2) //
+				.warmupIterations(5) //
+				.warmupTime(TimeValue.seconds(1)) //
+				.measurementIterations(5) //
+				.measurementTime(TimeValue.seconds(1)) //
+				.jvmArgs("-Xms2g", "-Xmx2g") //
+				.resultFormat(ResultFormatType.JSON) //
+				.result("target/jmh-swap-t" + threads + ".json") //
+				.build();
+			new Runner(options).run();
+		}
+	}
+	
+	private SwapBenchmarkRunner() {
+	}
+}
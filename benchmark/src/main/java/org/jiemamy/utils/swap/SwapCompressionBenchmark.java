@@ -0,0 +1,185 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.jiemamy.utils.swap.SwapObjectBenchmark.Cursor;
+
+/**
+ * {@link DeflateCompressor}による圧縮の有無、圧縮レベルごとの、{@link SwapObject}の生成、取得のベンチマーク。
+ * 
+ * <p>
+ * RealObject のバイト列は、少数の語を並べた圧縮の効く内容と、乱数による圧縮の効かない内容から選ぶ。
+ * 圧縮の効かない内容では、圧縮を試みて諦める処理の負荷を計測する。
+ * 初期化時に生成した{@link SwapObject}が使用する領域のバイト数を標準出力へ出力し、圧縮率の比較に用いる。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwapCompressionBenchmark {
+	
+	/** 圧縮の効く内容を生成する際に並べる語 */
+	private static final String[] WORDS = {
+		"table",
+		"column",
+		"index",
+		"constraint",
+		"foreign",
+		"primary",
+		"key",
+		"varchar",
+		"integer",
+		"null"
+	};
+	
+	/** 圧縮レベル。{@code off}の場合は圧縮しない */
+	@Param({
+		"off",
+		"1",
+		"6",
+		"9"
+	})
+	public String compression;
+	
+	/** RealObject の内容。{@code text}は圧縮の効く内容、{@code random}は圧縮の効かない内容 */
+	@Param({
+		"text",
+		"random"
+	})
+	public String content;
+	
+	/** RealObject のバイト長 */
+	@Param({
+		"1024",
+		"16384"
+	})
+	public int payloadSize;
+	
+	/** 生きている{@link SwapObject}の数 */
+	@Param({
+		"1000"
+	})
+	public int liveObjects;
+	
+	private SwapStore store;
+	
+	/** 弱参照が回収されないよう、RealObject を強参照で保持する */
+	private byte[][] payloads;
+	
+	private SwapObject<byte[]>[] swapObjects;
+	
+
+	/**
+	 * {@link SwapObject}を生成する。シリアライズ、圧縮、書き込みを含む。
+	 * 
+	 * @param cursor スレッドごとのカーソル
+	 * @return 生成した{@link SwapObject}
+	 * @throws SwapException シリアライズに失敗した場合
+	 */
+	@Benchmark
+	public SwapObject<byte[]> construct(Cursor cursor) throws SwapException {
+		return new SwapObject<byte[]>(payloads[cursor.next(liveObjects)], SwapCodecs.byteArray(), store);
+	}
+	
+	/**
+	 * RealObject に到達できない{@link SwapObject}から RealObject を取得する。読み込み、展開、デシリアライズを含む。
+	 * 
+	 * @param cursor スレッドごとのカーソル
+	 * @return RealObject
+	 * @throws SwapException デシリアライズに失敗した場合
+	 */
+	@Benchmark
+	public byte[] getMiss(Cursor cursor) throws SwapException {
+		SwapObject<byte[]> swapObject = swapObjects[cursor.next(liveObjects)];
+		swapObject.ref.clear();
+		return swapObject.get();
+	}
+	
+	/**
+	 * ベンチマークを初期化する。
+	 * 
+	 * @throws SwapException スワップストアの生成に失敗した場合
+	 */
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setUp() throws SwapException {
+		SwapStoreConfig config = new SwapStoreConfig();
+		if ("off".equals(compression) == false) {
+			config.setCompressionEnabled(true);
+			config.setCompressionLevel(Integer.parseInt(compression));
+		}
+		store = new SwapStore(config);
+		Random random = new Random(SwapObjectBenchmark.SEED);
+		payloads = new byte[liveObjects][];
+		swapObjects = new SwapObject[liveObjects];
+		for (int i = 0; i < liveObjects; i++) {
+			payloads[i] = "text".equals(content) ? text(random) : bytes(random);
+			swapObjects[i] = new SwapObject<byte[]>(payloads[i], SwapCodecs.byteArray(), store);
+		}
+		System.out.println("live bytes: " + store.getLiveBytes() + " (compression=" + compression + ", content="
+				+ content + ", payloadSize=" + payloadSize + ")");
+	}
+	
+	/**
+	 * ベンチマークの情報を破棄する。
+	 */
+	@TearDown
+	public void tearDown() {
+		swapObjects = null;
+		payloads = null;
+		store.dispose();
+	}
+	
+	private byte[] bytes(Random random) {
+		byte[] bytes = new byte[payloadSize];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+	
+	private byte[] text(Random random) {
+		byte[] bytes = new byte[payloadSize];
+		int position = 0;
+		while (position < payloadSize) {
+			String word = WORDS[random.nextInt(WORDS.length)];
+			for (int i = 0; i < word.length() && position < payloadSize; i++) {
+				bytes[position++] = (byte) word.charAt(i);
+			}
+			if (position < payloadSize) {
+				bytes[position++] = ' ';
+			}
+		}
+		return bytes;
+	}
+}
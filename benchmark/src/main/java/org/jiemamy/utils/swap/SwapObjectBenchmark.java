@@ -0,0 +1,208 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * {@link SwapObject}の生成、取得、更新のベンチマーク。
+ * 
+ * <p>
+ * {@link #liveObjects}個の{@link SwapObject}を生きたまま保持したスワップストアに対して、各操作の平均処理時間を計測する。
+ * RealObject のバイト列は固定のシードから生成するため、計測ごとに同じ内容となる。
+ * スレッド数は{@link SwapBenchmarkRunner}で指定し、シャード数は{@link #shardCount}で切り替える。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwapObjectBenchmark {
+	
+	/** RealObject のバイト列を生成する乱数のシード */
+	static final long SEED = 0x4A49454D414D59L;
+	
+	/** RealObject のバイト長 */
+	@Param({
+		"64",
+		"1024",
+		"16384"
+	})
+	public int payloadSize;
+	
+	/** 生きている{@link SwapObject}の数 */
+	@Param({
+		"100",
+		"1000",
+		"10000"
+	})
+	public int liveObjects;
+	
+	/** スワップストアのシャード数。複数のスレッドで実行した場合の、シャードのロックの競合の緩和を比較する。 */
+	@Param({
+		"1",
+		"8"
+	})
+	public int shardCount;
+	
+	private SwapStore store;
+	
+	/** 弱参照が回収されないよう、RealObject を強参照で保持する */
+	private byte[][] payloads;
+	
+	private SwapObject<byte[]>[] swapObjects;
+	
+
+	/**
+	 * {@link SwapObject}を生成する。
+	 * 
+	 * @param cursor スレッドごとのカーソル
+	 * @return 生成した{@link SwapObject}
+	 * @throws SwapException シリアライズに失敗した場合
+	 */
+	@Benchmark
+	public SwapObject<byte[]> construct(Cursor cursor) throws SwapException {
+		return new SwapObject<byte[]>(payloads[cursor.next(liveObjects)], SwapCodecs.byteArray(), store);
+	}
+	
+	/**
+	 * RealObject に到達可能な{@link SwapObject}から RealObject を取得する。
+	 * 
+	 * @param cursor スレッドごとのカーソル
+	 * @return RealObject
+	 * @throws SwapException デシリアライズに失敗した場合
+	 */
+	@Benchmark
+	public byte[] getHit(Cursor cursor) throws SwapException {
+		return swapObjects[cursor.next(liveObjects)].get();
+	}
+	
+	/**
+	 * RealObject に到達できない{@link SwapObject}から RealObject を取得する。
+	 * 
+	 * <p>弱参照を明示的にクリアし、スワップファイルからのデシリアライズを強制する。</p>
+	 * 
+	 * @param cursor スレッドごとのカーソル
+	 * @return RealObject
+	 * @throws SwapException デシリアライズに失敗した場合
+	 */
+	@Benchmark
+	public byte[] getMiss(Cursor cursor) throws SwapException {
+		SwapObject<byte[]> swapObject = swapObjects[cursor.next(liveObjects)];
+		swapObject.ref.clear();
+		return swapObject.get();
+	}
+	
+	/**
+	 * ベンチマークを初期化する。
+	 * 
+	 * @throws SwapException スワップストアの生成に失敗した場合
+	 */
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setUp() throws SwapException {
+		SwapStoreConfig config = new SwapStoreConfig();
+		config.setShardCount(shardCount);
+		store = new SwapStore(config);
+		Random random = new Random(SEED);
+		payloads = new byte[liveObjects][payloadSize];
+		swapObjects = new SwapObject[liveObjects];
+		for (int i = 0; i < liveObjects; i++) {
+			random.nextBytes(payloads[i]);
+			swapObjects[i] = new SwapObject<byte[]>(payloads[i], SwapCodecs.byteArray(), store);
+		}
+	}
+	
+	/**
+	 * ベンチマークの情報を破棄する。
+	 */
+	@TearDown
+	public void tearDown() {
+		swapObjects = null;
+		payloads = null;
+		store.dispose();
+	}
+	
+	/**
+	 * {@link SwapObject}の RealObject を更新する。
+	 * 
+	 * @param cursor スレッドごとのカーソル
+	 * @throws SwapException シリアライズに失敗した場合
+	 */
+	@Benchmark
+	public void update(Cursor cursor) throws SwapException {
+		int i = cursor.next(liveObjects);
+		swapObjects[i].update(payloads[i]);
+	}
+	
+
+	/**
+	 * 操作対象の{@link SwapObject}を選ぶ、スレッドごとのカーソル。
+	 * 
+	 * <p>生きている{@link SwapObject}を素数の間隔で巡回し、同じ対象への連続したアクセスを避ける。
+	 * 巡回の開始位置はスレッドごとにずらす。</p>
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		
+		private static final int STRIDE = 7919;
+		
+		private static final AtomicInteger THREADS = new AtomicInteger();
+		
+		private int position;
+		
+
+		/**
+		 * カーソルを初期化する。
+		 */
+		@Setup
+		public void setUp() {
+			position = THREADS.getAndIncrement() * STRIDE / 2;
+		}
+		
+
+		/**
+		 * 次の添字を取得する。
+		 * 
+		 * @param bound 添字の上限
+		 * @return {@code 0}以上{@code bound}未満の添字
+		 */
+		int next(int bound) {
+			position = (position + STRIDE) % bound;
+			return position;
+		}
+	}
+}
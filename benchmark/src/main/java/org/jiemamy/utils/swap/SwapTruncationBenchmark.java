@@ -0,0 +1,120 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * {@link Swapper}によるスワップファイルの切り詰めのベンチマーク。
+ * 
+ * <p>
+ * {@link #liveObjects}個の{@link SwapObject}が生きているスワップファイルの終端に RealObject を書き込み、
+ * その領域を解放して切り詰めるまでの平均処理時間を計測する。
+ * 領域の解放は、{@link SwapObject}が GC された際に参照キュー監視スレッドが行う処理と同じ手順で、呼び出し元のスレッドで行う。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SwapTruncationBenchmark {
+	
+	/** RealObject のバイト長 */
+	@Param({
+		"64",
+		"1024",
+		"16384"
+	})
+	public int payloadSize;
+	
+	/** 生きている{@link SwapObject}の数 */
+	@Param({
+		"100",
+		"1000",
+		"10000"
+	})
+	public int liveObjects;
+	
+	private SwapStore store;
+	
+	private byte[] payload;
+	
+	/** 生きている{@link SwapObject}が GC されないよう保持する */
+	private SwapObject<?>[] swapObjects;
+	
+
+	/**
+	 * スワップファイルの終端に書き込んだ RealObject の領域を解放し、スワップファイルを切り詰める。
+	 * 
+	 * @return 書き込んだ{@link SwapObject}
+	 * @throws SwapException シリアライズに失敗した場合
+	 */
+	@Benchmark
+	public SwapObject<byte[]> swapAndTruncate() throws SwapException {
+		SwapObject<byte[]> tail = new SwapObject<byte[]>(payload, SwapCodecs.byteArray(), store);
+		SwapReference swapRef = tail.swapRef;
+		SwapShard shard = swapRef.shard;
+		synchronized (shard) {
+			if (shard.swapRefSet.remove(swapRef)) {
+				store.swapper.release(shard, swapRef.extent);
+				shard.truncate();
+			}
+		}
+		return tail;
+	}
+	
+	/**
+	 * ベンチマークを初期化する。
+	 * 
+	 * @throws SwapException スワップストアの生成に失敗した場合
+	 */
+	@Setup
+	public void setUp() throws SwapException {
+		store = new SwapStore(new SwapStoreConfig());
+		Random random = new Random(SwapObjectBenchmark.SEED);
+		payload = new byte[payloadSize];
+		random.nextBytes(payload);
+		swapObjects = new SwapObject<?>[liveObjects];
+		for (int i = 0; i < liveObjects; i++) {
+			swapObjects[i] = new SwapObject<byte[]>(payload, SwapCodecs.byteArray(), store);
+		}
+	}
+	
+	/**
+	 * ベンチマークの情報を破棄する。
+	 */
+	@TearDown
+	public void tearDown() {
+		swapObjects = null;
+		store.dispose();
+	}
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link EssentialQueue}の循環配列を用いた実装。
+ * 
+ * <p>要素は長さが2の累乗の配列に循環して格納するため、{@link LinkedEssentialQueue}と異なり、
+ * 容量の拡張時を除いて要素の追加・取り出しでオブジェクトを生成しない。</p>
+ * 
+ * <p>{@link #enqueue(EssentialQueue)}に{@link ArrayEssentialQueue}を与えた場合は、
+ * 要素を1つずつ取り出さず、配列の連続した区間をまとめて複写する。</p>
+ * 
+ * <p>このクラスはスレッドセーフではない。</p>
+ * 
+ * @param <E> 要素の型
+ * @version $Id$
+ * @author daisuke
+ */
+public class ArrayEssentialQueue<E> implements EssentialQueue<E> {
+	
+	/** デフォルトの初期容量 */
+	public static final int DEFAULT_CAPACITY = 16;
+	
+	private static final int MAX_CAPACITY = 1 << 30;
+	
+
+	private static int capacityFor(int capacity) {
+		if (capacity > MAX_CAPACITY) {
+			throw new OutOfMemoryError();
+		}
+		int result = 2;
+		while (result < capacity) {
+			result <<= 1;
+		}
+		return result;
+	}
+	
+
+	private Object[] elements;
+	
+	/** 次に取り出す要素の位置 */
+	private int head;
+	
+	private int size;
+	
+	/** 構造的な変更の回数 */
+	private int modCount;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 */
+	public ArrayEssentialQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param initialCapacity 初期容量
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
+	 */
+	public ArrayEssentialQueue(int initialCapacity) {
+		Validate.isTrue(initialCapacity >= 0);
+		elements = new Object[capacityFor(initialCapacity)];
+	}
+	
+	public void clear() {
+		int mask = elements.length - 1;
+		for (int i = 0; i < size; i++) {
+			elements[(head + i) & mask] = null;
+		}
+		head = 0;
+		size = 0;
+		modCount++;
+	}
+	
+	public E dequeue() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		@SuppressWarnings("unchecked")
+		E element = (E) elements[head];
+		elements[head] = null;
+		head = (head + 1) & (elements.length - 1);
+		size--;
+		modCount++;
+		return element;
+	}
+	
+	public void enqueue(E element) {
+		if (size == elements.length) {
+			resize(size + 1);
+		}
+		elements[(head + size) & (elements.length - 1)] = element;
+		size++;
+		modCount++;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>読み込み元のキューは空になる。</p>
+	 * 
+	 * @throws IllegalArgumentException 引数に{@code null}またはこのキュー自身を与えた場合
+	 */
+	public void enqueue(EssentialQueue<E> queue) {
+		Validate.notNull(queue);
+		Validate.isTrue(queue != this);
+		if (queue instanceof ArrayEssentialQueue<?>) {
+			transferFrom((ArrayEssentialQueue<E>) queue);
+			return;
+		}
+		ensureCapacity(size + queue.size());
+		while (queue.isEmpty() == false) {
+			enqueue(queue.dequeue());
+		}
+	}
+	
+	/**
+	 * 指定した数の要素を、再割り当てなしに格納できるよう容量を拡張する。
+	 * 
+	 * @param minCapacity 必要な容量
+	 */
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > elements.length) {
+			resize(minCapacity);
+		}
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+	
+	public E peek() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		@SuppressWarnings("unchecked")
+		E element = (E) elements[head];
+		return element;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		int mask = elements.length - 1;
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			Object element = elements[(head + i) & mask];
+			sb.append(element == this ? "(this Collection)" : String.valueOf(element));
+		}
+		return sb.append(']').toString();
+	}
+	
+	/**
+	 * 要素を先頭から順に、配列の先頭から詰めて複写する。
+	 * 
+	 * @param dest 複写先の配列
+	 * @param destPos 複写先の開始位置
+	 */
+	private void copyTo(Object[] dest, int destPos) {
+		int first = Math.min(size, elements.length - head);
+		System.arraycopy(elements, head, dest, destPos, first);
+		System.arraycopy(elements, 0, dest, destPos + first, size - first);
+	}
+	
+	/**
+	 * 先頭から{@code index}番目の要素を削除し、後続の要素を前方へ詰める。
+	 * 
+	 * @param index 先頭からの位置
+	 */
+	private void removeAt(int index) {
+		int mask = elements.length - 1;
+		for (int i = index; i < size - 1; i++) {
+			elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+		}
+		elements[(head + size - 1) & mask] = null;
+		size--;
+		modCount++;
+	}
+	
+	/**
+	 * 配列を必要な容量以上の2の累乗に拡張し、要素を配列の先頭から詰め直す。
+	 * 
+	 * @param minCapacity 必要な容量
+	 */
+	private void resize(int minCapacity) {
+		Object[] resized = new Object[capacityFor(Math.max(minCapacity, elements.length * 2))];
+		copyTo(resized, 0);
+		elements = resized;
+		head = 0;
+	}
+	
+	/**
+	 * 読み込み元のキューの要素を、連続した区間ごとにこのキューの末尾へ複写し、読み込み元を空にする。
+	 * 
+	 * @param source 読み込み元のキュー
+	 */
+	private void transferFrom(ArrayEssentialQueue<E> source) {
+		if (source.size == 0) {
+			return;
+		}
+		if (size == 0 && source.size > elements.length) {
+			// 空のキューには、配列ごと引き取る
+			Object[] taken = source.elements;
+			elements = taken;
+			head = source.head;
+			size = source.size;
+			source.elements = new Object[Math.min(taken.length, DEFAULT_CAPACITY)];
+			source.head = 0;
+			source.size = 0;
+			source.modCount++;
+			modCount++;
+			return;
+		}
+		ensureCapacity(size + source.size);
+		
+		// 複写元の要素の区間と複写先の空き区間は、それぞれ配列の末尾で折り返す場合があるため、
+		// 折り返しのない区間ごとに複写する（高々3回）
+		Object[] src = source.elements;
+		int srcPos = source.head;
+		int destPos = (head + size) & (elements.length - 1);
+		int remaining = source.size;
+		while (remaining > 0) {
+			int length = Math.min(remaining, Math.min(src.length - srcPos, elements.length - destPos));
+			System.arraycopy(src, srcPos, elements, destPos, length);
+			srcPos = (srcPos + length) & (src.length - 1);
+			destPos = (destPos + length) & (elements.length - 1);
+			remaining -= length;
+		}
+		size += source.size;
+		modCount++;
+		source.clear();
+	}
+	
+
+	/**
+	 * キューの先頭から順に要素を走査するイテレータ。
+	 * 
+	 * @version $Id$
+	 * @author daisuke
+	 */
+	private class Itr implements Iterator<E> {
+		
+		private int cursor;
+		
+		private int last = -1;
+		
+		private int expectedModCount = modCount;
+		
+
+		public boolean hasNext() {
+			return cursor < size;
+		}
+		
+		public E next() {
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			last = cursor++;
+			@SuppressWarnings("unchecked")
+			E element = (E) elements[(head + last) & (elements.length - 1)];
+			return element;
+		}
+		
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeAt(last);
+			cursor = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
+	}
+}
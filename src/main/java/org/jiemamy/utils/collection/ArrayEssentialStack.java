@@ -18,15 +18,22 @@
  */
 package org.jiemamy.utils.collection;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.EmptyStackException;
 import java.util.Iterator;
-import java.util.Stack;
+import java.util.NoSuchElementException;
 
 import org.apache.commons.lang.Validate;
 
 /**
- * {@link EssentialStack}の既存スタック実装を用いた実装。
+ * {@link EssentialStack}の配列を用いた実装。
+ * 
+ * <p>{@link java.util.Stack}と異なり、このクラスは同期化されない。
+ * 複数のスレッドから同時にアクセスする場合は、外部で同期化を行う必要がある。</p>
+ * 
+ * <p>要素を格納する配列が不足した場合は、現在の容量に拡張係数を乗じた容量まで拡張する。</p>
  * 
  * @param <E> 要素の型
  * @version $Id$
@@ -34,18 +41,38 @@ import org.apache.commons.lang.Validate;
  */
 public class ArrayEssentialStack<E> implements EssentialStack<E> {
 	
+	/** デフォルトの初期容量 */
+	public static final int DEFAULT_CAPACITY = 10;
+	
+	/** デフォルトの拡張係数 */
+	public static final double DEFAULT_GROWTH_FACTOR = 1.5;
+	
 	/** 10% room for growth */
-	@SuppressWarnings("unused")
 	private static final double GROWTH_FACTOR = 1.1;
 	
-	private final Stack<E> stack;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	
+
+	private static int capacityFor(int size) {
+		return (int) Math.min(size * GROWTH_FACTOR, MAX_ARRAY_SIZE);
+	}
+	
+
+	private Object[] elements;
+	
+	private int size;
+	
+	private final double growthFactor;
+	
+	/** 構造的な変更の回数 */
+	private int modCount;
 	
 
 	/**
 	 * インスタンスを生成する。
 	 */
 	public ArrayEssentialStack() {
-		stack = new Stack<E>();
+		this(DEFAULT_CAPACITY);
 	}
 	
 	/**
@@ -56,13 +83,10 @@ public class ArrayEssentialStack<E> implements EssentialStack<E> {
 	 */
 	public ArrayEssentialStack(Collection<? extends E> collection) {
 		Validate.notNull(collection);
-//		int size = collection.size();
-//		int capacity = (int) Math.min(size * GROWTH_FACTOR, Integer.MAX_VALUE);
-		
-//		stack = new Stack<E>(capacity);
-		stack = new Stack<E>();
+		elements = new Object[capacityFor(collection.size())];
+		growthFactor = DEFAULT_GROWTH_FACTOR;
 		for (E element : collection) {
-			stack.push(element);
+			push(element);
 		}
 	}
 	
@@ -74,88 +98,239 @@ public class ArrayEssentialStack<E> implements EssentialStack<E> {
 	 */
 	public ArrayEssentialStack(EssentialStack<? extends E> source) {
 		Validate.notNull(source);
-//		stack = new ArrayStack<E>(source.size());
-		stack = new Stack<E>();
+		elements = new Object[capacityFor(source.size())];
+		growthFactor = DEFAULT_GROWTH_FACTOR;
 		for (E element : source) {
-			stack.push(element);
+			push(element);
 		}
 	}
 	
 	/**
 	 * インスタンスを生成する。
 	 * 
-	 * @param initialSize 初期サイズ
-	 * @throws IllegalArgumentException if the specified initial size is negative
-	 * @deprecated 初期サイズは指定できない。現在、引数は無視される。
+	 * @param initialCapacity 初期容量
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
 	 */
-	@Deprecated
-	public ArrayEssentialStack(int initialSize) {
-		Validate.isTrue(initialSize >= 0);
-		stack = new Stack<E>();
+	public ArrayEssentialStack(int initialCapacity) {
+		this(initialCapacity, DEFAULT_GROWTH_FACTOR);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param initialCapacity 初期容量
+	 * @param growthFactor 容量が不足した際に現在の容量に乗じる拡張係数
+	 * @throws IllegalArgumentException {@code initialCapacity}に負数を与えた場合、
+	 * または{@code growthFactor}に{@code 1.0}以下の値を与えた場合
+	 */
+	public ArrayEssentialStack(int initialCapacity, double growthFactor) {
+		Validate.isTrue(initialCapacity >= 0);
+		Validate.isTrue(growthFactor > 1.0);
+		elements = new Object[initialCapacity];
+		this.growthFactor = growthFactor;
 	}
 	
 	public void clear() {
-		stack.clear();
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+		modCount++;
+	}
+	
+	/**
+	 * 指定した数の要素を、再割り当てなしに格納できるよう容量を拡張する。
+	 * 
+	 * @param minCapacity 必要な容量
+	 */
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > elements.length) {
+			grow(minCapacity);
+		}
 	}
 	
 	public E get(int n) {
-		return stack.get(n);
+		checkIndex(n, size);
+		return elementAt(n);
 	}
 	
 	public void insert(int index, E element) {
-		stack.add(index, element);
+		checkIndex(index, size + 1);
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, index, elements, index + 1, size - index);
+		elements[index] = element;
+		size++;
+		modCount++;
 	}
 	
 	public boolean isEmpty() {
-		return stack.isEmpty();
+		return size == 0;
 	}
 	
 	public Iterator<E> iterator() {
-		return stack.iterator();
+		return new Itr();
 	}
 	
 	public E peek() {
-		return stack.peek();
+		if (size == 0) {
+			throw new EmptyStackException();
+		}
+		return elementAt(size - 1);
 	}
 	
 	public E peek(int n) {
-		try {
-			return stack.get(stack.size() - n - 1);
-		} catch (EmptyStackException e) {
-			throw new IndexOutOfBoundsException("Index: " + n + ", Size: " + size());
+		if (n < 0 || n >= size) {
+			throw new IndexOutOfBoundsException("Index: " + n + ", Size: " + size);
 		}
+		return elementAt(size - n - 1);
 	}
 	
 	public E pop() {
-		return stack.pop();
+		if (size == 0) {
+			throw new EmptyStackException();
+		}
+		E element = elementAt(--size);
+		elements[size] = null;
+		modCount++;
+		return element;
 	}
 	
 	public void push(E element) {
-		stack.push(element);
+		if (size == elements.length) {
+			grow(size + 1);
+		}
+		elements[size++] = element;
+		modCount++;
 	}
 	
 	public boolean remove(E element) {
-		return stack.remove(element);
+		for (int i = 0; i < size; i++) {
+			if (element == null ? elements[i] == null : element.equals(elements[i])) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	public E remove(int n) {
-		return stack.remove(n);
+		checkIndex(n, size);
+		E element = elementAt(n);
+		removeAt(n);
+		return element;
 	}
 	
 	public EssentialStack<E> reverse() {
-		EssentialStack<E> result = new ArrayEssentialStack<E>();
-		for (E element : stack) {
-			result.insert(0, element);
+		ArrayEssentialStack<E> result = new ArrayEssentialStack<E>(size, growthFactor);
+		for (int i = size - 1; i >= 0; i--) {
+			result.push(elementAt(i));
 		}
 		return result;
 	}
 	
 	public int size() {
-		return stack.size();
+		return size;
 	}
 	
 	@Override
 	public String toString() {
-		return stack.toString();
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(elements[i] == this ? "(this Stack)" : String.valueOf(elements[i]));
+		}
+		return sb.append(']').toString();
+	}
+	
+	/**
+	 * 容量を要素数まで縮小する。
+	 */
+	public void trimToSize() {
+		if (size < elements.length) {
+			elements = Arrays.copyOf(elements, size);
+		}
+	}
+	
+	private void checkIndex(int index, int bound) {
+		if (index < 0 || index >= bound) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private E elementAt(int index) {
+		return (E) elements[index];
+	}
+	
+	/**
+	 * 容量を拡張係数に従って拡張する。
+	 * 
+	 * @param minCapacity 必要な容量
+	 * @throws OutOfMemoryError 必要な容量が配列の上限を超える場合
+	 */
+	private void grow(int minCapacity) {
+		if (minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE) {
+			throw new OutOfMemoryError();
+		}
+		int capacity = (int) Math.min(elements.length * growthFactor, MAX_ARRAY_SIZE);
+		if (capacity < minCapacity) {
+			// 容量が小さい場合、係数を乗じても増えないことがある
+			capacity = Math.max(minCapacity, DEFAULT_CAPACITY);
+		}
+		elements = Arrays.copyOf(elements, capacity);
+	}
+	
+	private void removeAt(int index) {
+		int moved = size - index - 1;
+		if (moved > 0) {
+			System.arraycopy(elements, index + 1, elements, index, moved);
+		}
+		elements[--size] = null;
+		modCount++;
+	}
+	
+
+	/**
+	 * スタックの下から順に要素を走査するイテレータ。
+	 * 
+	 * @version $Id$
+	 * @author daisuke
+	 */
+	private class Itr implements Iterator<E> {
+		
+		private int cursor;
+		
+		private int last = -1;
+		
+		private int expectedModCount = modCount;
+		
+
+		public boolean hasNext() {
+			return cursor < size;
+		}
+		
+		public E next() {
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			last = cursor++;
+			return elementAt(last);
+		}
+		
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeAt(last);
+			cursor = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
 	}
 }
@@ -18,20 +18,45 @@
  */
 package org.jiemamy.utils.collection;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
 
-import com.google.common.collect.Lists;
+import org.apache.commons.lang.Validate;
 
 /**
  * リストのような属性を持つマップクラス。
  * 
  * <p>通常の {@link Map} の機能に加えて、 {@link Map#values()} に対する
- * {@link List} ライクなインターフェイスを持つ。</p>
+ * {@link List} ライクなインターフェイスを持つ。値は挿入順に並び、既存のキーに対する {@link #put(Object, Object)} は
+ * 値を置き換えるのみで、順序を変えない。</p>
+ * 
+ * <p>
+ * エントリは挿入順に並べたキー、値、ハッシュ値の配列に格納し、キーの検索には線形探査のオープンアドレス法による
+ * ハッシュ表を用いる。ハッシュ表はエントリの位置のみを保持するため、1エントリあたりのメモリ使用量は
+ * {@link java.util.HashMap}と{@link java.util.ArrayList}を併用する場合より小さい。
+ * キーの検索は定数時間で行われる。<br>
+ * 削除したエントリは墓標として残し、墓標が増えた時点で配列を詰め直す。
+ * 墓標が残っている間は、位置ごとの生存エントリ数を Fenwick 木で管理し、{@link #get(int)}などの位置指定のアクセスは
+ * 墓標を飛ばした位置を対数時間で求める。墓標が無い場合、位置指定のアクセスは定数時間で行われる。
+ * 配列の詰め直しは変更操作でのみ行い、読み込み操作は内部の状態を変更しない。
+ * </p>
+ * 
+ * <p>このクラスはスレッドセーフではない。</p>
  * 
  * @param <K> キーの型
  * @param <V> 値の型
@@ -39,25 +64,95 @@ import com.google.common.collect.Lists;
  * @author j5ik2o
  */
 @SuppressWarnings("serial")
-public class ArrayMap<K, V> extends HashMap<K, V> {
+public class ArrayMap<K, V> extends AbstractMap<K, V> implements Serializable {
+	
+	private static final int DEFAULT_CAPACITY = 8;
 	
-	private List<V> valueList = Lists.newArrayList();
+	/** 削除されたエントリのキーを表す墓標 */
+	private static final Object TOMBSTONE = new Object();
+	
+	/** 空きスロット */
+	private static final int EMPTY = 0;
+	
+
+	private static boolean eq(Object o1, Object o2) {
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+	
+	private static int hash(Object key) {
+		int h = key == null ? 0 : key.hashCode();
+		return h ^ (h >>> 16);
+	}
+	
+	private static int slotCapacityFor(int capacity) {
+		int slotCapacity = 4;
+		while (slotCapacity * 3 / 4 < capacity) {
+			slotCapacity <<= 1;
+		}
+		return slotCapacity;
+	}
+	
+
+	/** 挿入順のキー。削除されたエントリは{@link #TOMBSTONE} */
+	private transient Object[] keys;
+	
+	/** 挿入順の値 */
+	private transient Object[] values;
+	
+	/** 挿入順のキーのハッシュ値 */
+	private transient int[] hashes;
+	
+	/** ハッシュ表。エントリの位置に{@code 1}を加えた値を保持し、{@code 0}は空きスロットを表す */
+	private transient int[] slots;
+	
+	/** 使用済みのエントリの位置の数（墓標を含む） */
+	private transient int end;
+	
+	/** エントリ数 */
+	private transient int size;
+	
+	/** 墓標の数 */
+	private transient int deleted;
+	
+	/** 位置ごとの生存エントリ数を保持する Fenwick 木。墓標が無い場合は{@code null} */
+	private transient int[] liveCounts;
+	
+	/** 構造的な変更の回数 */
+	private transient int modCount;
+	
+	private transient Set<Map.Entry<K, V>> entrySet;
+	
+	private transient ValueList valueList;
 	
 
 	/**
 	 * インスタンスを生成する。
 	 */
 	public ArrayMap() {
+		this(DEFAULT_CAPACITY);
 	}
 	
 	/**
 	 * インスタンスを生成する。
 	 * 
 	 * @param capacity キャパシティ
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
 	 */
 	public ArrayMap(int capacity) {
-		super(capacity);
-		valueList = Lists.newArrayListWithCapacity(capacity);
+		Validate.isTrue(capacity >= 0);
+		init(capacity);
+	}
+	
+	@Override
+	public void clear() {
+		Arrays.fill(keys, 0, end, null);
+		Arrays.fill(values, 0, end, null);
+		Arrays.fill(slots, EMPTY);
+		end = 0;
+		size = 0;
+		deleted = 0;
+		liveCounts = null;
+		modCount++;
 	}
 	
 	/**
@@ -67,7 +162,7 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @return List#contains(Object)の戻り値
 	 */
 	public boolean contains(Object o) {
-		return valueList.contains(o);
+		return containsValue(o);
 	}
 	
 	/**
@@ -77,7 +172,30 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @return List#containsAll(Collection)の戻り値
 	 */
 	public boolean containsAll(Collection<?> c) {
-		return valueList.containsAll(c);
+		return values().containsAll(c);
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return findSlot(key, hash(key)) >= 0;
+	}
+	
+	@Override
+	public boolean containsValue(Object value) {
+		for (int i = 0; i < end; i++) {
+			if (keys[i] != TOMBSTONE && eq(values[i], value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
 	}
 	
 	/**
@@ -86,8 +204,16 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @param index List#get(int)の引数
 	 * @return List#get(int)の戻り値
 	 */
+	@SuppressWarnings("unchecked")
 	public V get(int index) {
-		return valueList.get(index);
+		return (V) values[positionOf(index)];
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		int slot = findSlot(key, hash(key));
+		return slot < 0 ? null : (V) values[slots[slot] - 1];
 	}
 	
 	/**
@@ -97,7 +223,12 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @return　{@link List#indexOf(Object)}の戻り値
 	 */
 	public int indexOf(Object o) {
-		return valueList.indexOf(o);
+		return values().indexOf(o);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
 	}
 	
 	/**
@@ -106,7 +237,7 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @return {@link List#iterator()}の戻り値
 	 */
 	public Iterator<V> iterator() {
-		return valueList.iterator();
+		return values().iterator();
 	}
 	
 	/**
@@ -116,7 +247,7 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @return {@link List#lastIndexOf(Object)}の戻り値
 	 */
 	public int lastIndexOf(Object o) {
-		return valueList.lastIndexOf(o);
+		return values().lastIndexOf(o);
 	}
 	
 	/**
@@ -125,7 +256,7 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @return {@link List#listIterator()}の戻り値
 	 */
 	public ListIterator<V> listIterator() {
-		return valueList.listIterator();
+		return values().listIterator();
 	}
 	
 	/**
@@ -135,23 +266,53 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @return {@link List#listIterator(int)}の戻り値
 	 */
 	public ListIterator<V> listIterator(int index) {
-		return valueList.listIterator(index);
+		return values().listIterator(index);
 	}
 	
 	@Override
+	@SuppressWarnings("unchecked")
 	public V put(K key, V value) {
-		V result = super.put(key, value);
-		valueList.add(value);
-		return result;
+		int hash = hash(key);
+		int slot = findSlot(key, hash);
+		if (slot >= 0) {
+			// 既存のキーは、順序を変えずに値のみ置き換える
+			int position = slots[slot] - 1;
+			V old = (V) values[position];
+			values[position] = value;
+			return old;
+		}
+		
+		ensureCapacity(size + 1);
+		int position = end++;
+		keys[position] = key;
+		values[position] = value;
+		hashes[position] = hash;
+		insertSlot(hash, position);
+		if (liveCounts != null) {
+			addLiveCount(position, 1);
+		}
+		size++;
+		modCount++;
+		return null;
 	}
 	
 	@Override
+	@SuppressWarnings("unchecked")
 	public V remove(Object key) {
-		V result = super.remove(key);
-		if (result != null) {
-			valueList.remove(result);
+		int slot = findSlot(key, hash(key));
+		if (slot < 0) {
+			return null;
 		}
-		return result;
+		int position = slots[slot] - 1;
+		V old = (V) values[position];
+		removeAt(slot, position);
+		compactIfSparse();
+		return old;
+	}
+	
+	@Override
+	public int size() {
+		return size;
 	}
 	
 	/**
@@ -162,7 +323,7 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @return {@link List#subList(int, int)}の戻り値
 	 */
 	public List<V> subList(int fromIndex, int toIndex) {
-		return valueList.subList(fromIndex, toIndex);
+		return values().subList(fromIndex, toIndex);
 	}
 	
 	/**
@@ -173,7 +334,7 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T>T[] toArray() {
-		return (T[]) valueList.toArray();
+		return (T[]) values().toArray();
 	}
 	
 	/**
@@ -184,7 +345,439 @@ public class ArrayMap<K, V> extends HashMap<K, V> {
 	 * @return {@link List#toArray(Object[])}の戻り値
 	 */
 	public <T>T[] toArray(T[] values) {
-		return valueList.toArray(values);
+		return values().toArray(values);
+	}
+	
+	/**
+	 * 値を挿入順に並べた{@link List}のビューを取得する。
+	 * 
+	 * <p>ビューに対する{@link List#set(int, Object)}は対応するエントリの値を置き換え、
+	 * {@link List#remove(int)}は対応するエントリを削除する。値のみを追加することはできない。</p>
+	 * 
+	 * @return 値のビュー
+	 */
+	@Override
+	public List<V> values() {
+		if (valueList == null) {
+			valueList = new ValueList();
+		}
+		return valueList;
+	}
+	
+	/**
+	 * Fenwick 木の、指定した位置の生存エントリ数に加算する。
+	 * 
+	 * @param position エントリの位置
+	 * @param delta 加算する値
+	 */
+	private void addLiveCount(int position, int delta) {
+		for (int i = position + 1; i < liveCounts.length; i += i & -i) {
+			liveCounts[i] += delta;
+		}
+	}
+	
+	/**
+	 * 現在のエントリから Fenwick 木を構築する。
+	 */
+	private void buildLiveCounts() {
+		int[] counts = new int[keys.length + 1];
+		for (int position = 0; position < end; position++) {
+			if (keys[position] != TOMBSTONE) {
+				counts[position + 1]++;
+			}
+		}
+		for (int i = 1; i < counts.length; i++) {
+			int parent = i + (i & -i);
+			if (parent < counts.length) {
+				counts[parent] += counts[i];
+			}
+		}
+		liveCounts = counts;
+	}
+	
+	/**
+	 * 墓標を取り除いてエントリを詰め直し、ハッシュ表を再構築する。
+	 * 
+	 * <p>エントリの位置が変わるため、走査中のイテレータは無効になる。</p>
+	 */
+	private void compact() {
+		int to = 0;
+		for (int from = 0; from < end; from++) {
+			if (keys[from] != TOMBSTONE) {
+				keys[to] = keys[from];
+				values[to] = values[from];
+				hashes[to] = hashes[from];
+				to++;
+			}
+		}
+		Arrays.fill(keys, to, end, null);
+		Arrays.fill(values, to, end, null);
+		end = to;
+		deleted = 0;
+		liveCounts = null;
+		modCount++;
+		rehash(slots.length);
+	}
+	
+	/**
+	 * 墓標がエントリの位置の半数を超えている場合は、エントリを詰め直す。
+	 */
+	private void compactIfSparse() {
+		if (deleted > (end >>> 1)) {
+			compact();
+		}
+	}
+	
+	/**
+	 * 指定したエントリ数を格納できるよう、配列とハッシュ表を拡張する。
+	 * 
+	 * @param capacity 必要なエントリ数
+	 */
+	private void ensureCapacity(int capacity) {
+		if (end == keys.length) {
+			if (deleted > 0 && deleted >= (end >>> 2)) {
+				compact();
+			} else {
+				int grown = Math.max(keys.length * 2, DEFAULT_CAPACITY);
+				keys = Arrays.copyOf(keys, grown);
+				values = Arrays.copyOf(values, grown);
+				hashes = Arrays.copyOf(hashes, grown);
+				if (liveCounts != null) {
+					buildLiveCounts();
+				}
+			}
+		}
+		if (slots.length * 3 / 4 < capacity) {
+			rehash(slotCapacityFor(capacity));
+		}
+	}
+	
+	/**
+	 * キーのハッシュ表上のスロットを検索する。
+	 * 
+	 * @param key キー
+	 * @param hash キーのハッシュ値
+	 * @return スロット。キーが含まれていない場合は{@code -1}
+	 */
+	private int findSlot(Object key, int hash) {
+		int mask = slots.length - 1;
+		for (int i = hash & mask;; i = (i + 1) & mask) {
+			int slot = slots[i];
+			if (slot == EMPTY) {
+				return -1;
+			}
+			int position = slot - 1;
+			if (hashes[position] == hash && eq(keys[position], key)) {
+				return i;
+			}
+		}
+	}
+	
+	private void init(int capacity) {
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		hashes = new int[capacity];
+		slots = new int[slotCapacityFor(capacity)];
+	}
+	
+	private void insertSlot(int hash, int position) {
+		int mask = slots.length - 1;
+		int i = hash & mask;
+		while (slots[i] != EMPTY) {
+			i = (i + 1) & mask;
+		}
+		slots[i] = position + 1;
+	}
+	
+	/**
+	 * 挿入順の位置から、墓標を含むエントリの位置を求める。
+	 * 
+	 * @param index 挿入順の位置
+	 * @return エントリの位置
+	 * @throws IndexOutOfBoundsException 位置が範囲外の場合
+	 */
+	private int positionOf(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		if (deleted == 0) {
+			return index;
+		}
+		// 生存エントリ数の累積が index + 1 に達する最小の位置を探す
+		int position = 0;
+		int remaining = index + 1;
+		for (int step = Integer.highestOneBit(liveCounts.length - 1); step > 0; step >>>= 1) {
+			int next = position + step;
+			if (next < liveCounts.length && liveCounts[next] < remaining) {
+				position = next;
+				remaining -= liveCounts[next];
+			}
+		}
+		return position;
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int count = in.readInt();
+		init(count);
+		for (int i = 0; i < count; i++) {
+			@SuppressWarnings("unchecked")
+			K key = (K) in.readObject();
+			@SuppressWarnings("unchecked")
+			V value = (V) in.readObject();
+			put(key, value);
+		}
+	}
+	
+	private void rehash(int slotCapacity) {
+		slots = new int[slotCapacity];
+		for (int position = 0; position < end; position++) {
+			if (keys[position] != TOMBSTONE) {
+				insertSlot(hashes[position], position);
+			}
+		}
+	}
+	
+	/**
+	 * エントリを削除し、墓標に置き換える。
+	 * 
+	 * <p>ハッシュ表からは後続のスロットを前方へ詰めて取り除くため、ハッシュ表に墓標は残らない。
+	 * 最初の墓標を残す際に、位置指定のアクセスに用いる Fenwick 木を構築する。</p>
+	 * 
+	 * @param slot エントリのスロット
+	 * @param position エントリの位置
+	 */
+	private void removeAt(int slot, int position) {
+		keys[position] = TOMBSTONE;
+		values[position] = null;
+		if (liveCounts == null) {
+			buildLiveCounts();
+		} else {
+			addLiveCount(position, -1);
+		}
+		deleted++;
+		size--;
+		modCount++;
+		
+		int mask = slots.length - 1;
+		int hole = slot;
+		for (int i = (slot + 1) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+			int home = hashes[slots[i] - 1] & mask;
+			// 本来のスロットから見て、穴が現在のスロットより手前にあれば穴へ移動する
+			if (((i - home) & mask) >= ((i - hole) & mask)) {
+				slots[hole] = slots[i];
+				hole = i;
+			}
+		}
+		slots[hole] = EMPTY;
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (int i = 0; i < end; i++) {
+			if (keys[i] != TOMBSTONE) {
+				out.writeObject(keys[i]);
+				out.writeObject(values[i]);
+			}
+		}
+	}
+	
+
+	/**
+	 * エントリのビュー。
+	 * 
+	 * @version $Id$
+	 * @author j5ik2o
+	 */
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+		
+		@Override
+		public void clear() {
+			ArrayMap.this.clear();
+		}
+		
+		@Override
+		public boolean contains(Object o) {
+			if (o instanceof Map.Entry == false) {
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			int slot = findSlot(entry.getKey(), hash(entry.getKey()));
+			return slot >= 0 && eq(values[slots[slot] - 1], entry.getValue());
+		}
+		
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator();
+		}
+		
+		@Override
+		public boolean remove(Object o) {
+			if (contains(o) == false) {
+				return false;
+			}
+			ArrayMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+			return true;
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+	
+	/**
+	 * エントリを挿入順に走査するイテレータ。
+	 * 
+	 * <p>走査中の削除は墓標を残すのみで、エントリを詰め直さない。</p>
+	 * 
+	 * @version $Id$
+	 * @author j5ik2o
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+		
+		private int next;
+		
+		private int last = -1;
+		
+		private int expectedModCount = modCount;
+		
+
+		EntryIterator() {
+			skipTombstones();
+		}
+		
+		public boolean hasNext() {
+			return next < end;
+		}
+		
+		public Map.Entry<K, V> next() {
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next >= end) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			skipTombstones();
+			return new EntryView(last);
+		}
+		
+		public void remove() {
+			if (last < 0) {
+				throw new IllegalStateException();
+			}
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeAt(findSlot(keys[last], hashes[last]), last);
+			expectedModCount = modCount;
+			last = -1;
+		}
+		
+		private void skipTombstones() {
+			while (next < end && keys[next] == TOMBSTONE) {
+				next++;
+			}
+		}
 	}
 	
+	/**
+	 * 位置を指定したエントリのビュー。
+	 * 
+	 * @version $Id$
+	 * @author j5ik2o
+	 */
+	private class EntryView implements Map.Entry<K, V> {
+		
+		private final int position;
+		
+
+		EntryView(int position) {
+			this.position = position;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Map.Entry == false) {
+				return false;
+			}
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+			return eq(getKey(), other.getKey()) && eq(getValue(), other.getValue());
+		}
+		
+		@SuppressWarnings("unchecked")
+		public K getKey() {
+			return (K) keys[position];
+		}
+		
+		@SuppressWarnings("unchecked")
+		public V getValue() {
+			return (V) values[position];
+		}
+		
+		@Override
+		public int hashCode() {
+			K key = getKey();
+			V value = getValue();
+			return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+		}
+		
+		@SuppressWarnings("unchecked")
+		public V setValue(V value) {
+			V old = (V) values[position];
+			values[position] = value;
+			return old;
+		}
+		
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+	
+	/**
+	 * 値を挿入順に並べた{@link List}のビュー。
+	 * 
+	 * @version $Id$
+	 * @author j5ik2o
+	 */
+	private class ValueList extends AbstractList<V> implements RandomAccess {
+		
+		@Override
+		public void clear() {
+			ArrayMap.this.clear();
+		}
+		
+		@Override
+		public V get(int index) {
+			return ArrayMap.this.get(index);
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public V remove(int index) {
+			int position = positionOf(index);
+			V old = (V) values[position];
+			removeAt(findSlot(keys[position], hashes[position]), position);
+			compactIfSparse();
+			this.modCount++;
+			return old;
+		}
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public V set(int index, V element) {
+			int position = positionOf(index);
+			V old = (V) values[position];
+			values[position] = element;
+			return old;
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+	}
 }
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link EssentialQueue}のスレッドセーフな実装。
+ * 
+ * <p>Michael と Scott によるノンブロッキングなキューのアルゴリズムを用い、
+ * 要素の追加・取り出しはロックを獲得せず、CAS操作のみで行う。
+ * 先頭には常に要素を持たない番兵ノードを置き、取り出された要素のノードが次の番兵となる。</p>
+ * 
+ * <p>{@link #size()}はノードを走査するため、要素数に比例した時間がかかり、
+ * 並行して更新が行われている場合は正確な値を返さない。</p>
+ * 
+ * <p>{@link #iterator()}は弱い一貫性を持つ。イテレータは{@link java.util.ConcurrentModificationException}
+ * をスローせず、生成時点以降の変更を反映する場合も、しない場合もある。</p>
+ * 
+ * <p>{@code null}要素は格納できない。</p>
+ * 
+ * @param <E> 要素の型
+ * @version $Id$
+ * @author daisuke
+ */
+public class ConcurrentEssentialQueue<E> implements EssentialQueue<E> {
+	
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<ConcurrentEssentialQueue, Node> HEAD =
+			AtomicReferenceFieldUpdater.newUpdater(ConcurrentEssentialQueue.class, Node.class, "head");
+	
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<ConcurrentEssentialQueue, Node> TAIL =
+			AtomicReferenceFieldUpdater.newUpdater(ConcurrentEssentialQueue.class, Node.class, "tail");
+	
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+			AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+	
+
+	/** 番兵ノード */
+	private volatile Node<E> head;
+	
+	/** 末尾のノード、またはその手前のノード */
+	private volatile Node<E> tail;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 */
+	public ConcurrentEssentialQueue() {
+		head = tail = new Node<E>(null);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>並行して追加された要素は、削除されずに残る場合がある。</p>
+	 */
+	public void clear() {
+		while (poll() != null) {
+			// 空になるまで取り出す
+		}
+	}
+	
+	public E dequeue() {
+		E element = poll();
+		if (element == null) {
+			throw new NoSuchElementException();
+		}
+		return element;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	public void enqueue(E element) {
+		Validate.notNull(element);
+		Node<E> node = new Node<E>(element);
+		append(node, node);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>読み込み元のキューから取り出した要素を連結したノード列を作成し、1回のCAS操作で末尾に連結する。
+	 * したがって、他のスレッドから転送途中の要素の一部のみが見えることはない。</p>
+	 * 
+	 * @throws IllegalArgumentException 引数に{@code null}またはこのキュー自身を与えた場合、
+	 * または読み込み元のキューが{@code null}要素を含む場合
+	 */
+	public void enqueue(EssentialQueue<E> queue) {
+		Validate.notNull(queue);
+		Validate.isTrue(queue != this);
+		boolean concurrent = queue instanceof ConcurrentEssentialQueue<?>;
+		if (concurrent == false) {
+			for (E element : queue) {
+				Validate.notNull(element);
+			}
+		}
+		Node<E> first = null;
+		Node<E> last = null;
+		for (;;) {
+			E element;
+			if (concurrent) {
+				element = ((ConcurrentEssentialQueue<E>) queue).poll();
+			} else {
+				element = queue.isEmpty() ? null : queue.dequeue();
+			}
+			if (element == null) {
+				break;
+			}
+			Node<E> node = new Node<E>(element);
+			if (first == null) {
+				first = node;
+			} else {
+				last.next = node;
+			}
+			last = node;
+		}
+		if (first != null) {
+			append(first, last);
+		}
+	}
+	
+	public boolean isEmpty() {
+		return first() == null;
+	}
+	
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+	
+	public E peek() {
+		Node<E> first = first();
+		if (first == null) {
+			throw new NoSuchElementException();
+		}
+		return first.item;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>要素数に比例した時間がかかる。</p>
+	 */
+	public int size() {
+		int count = 0;
+		for (Node<E> p = first(); p != null; p = p.next) {
+			if (p.item != null && ++count == Integer.MAX_VALUE) {
+				break;
+			}
+		}
+		return count;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (E element : this) {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(element);
+		}
+		return sb.append(']').toString();
+	}
+	
+	/**
+	 * 連結済みのノード列を末尾に連結する。
+	 * 
+	 * @param first 連結するノード列の先頭
+	 * @param last 連結するノード列の末尾
+	 */
+	@SuppressWarnings("unchecked")
+	private void append(Node<E> first, Node<E> last) {
+		for (;;) {
+			Node<E> t = tail;
+			Node<E> next = t.next;
+			if (t != tail) {
+				continue;
+			}
+			if (next == null) {
+				if (NEXT.compareAndSet(t, null, first)) {
+					// 失敗した場合は、他のスレッドが既に末尾を進めている
+					TAIL.compareAndSet(this, t, last);
+					return;
+				}
+			} else {
+				// 末尾が遅れているため、他のスレッドの追加を助ける
+				TAIL.compareAndSet(this, t, next);
+			}
+		}
+	}
+	
+	/**
+	 * 先頭の要素のノードを取得する。
+	 * 
+	 * @return 先頭の要素のノード。キューが空の場合は{@code null}
+	 */
+	private Node<E> first() {
+		for (;;) {
+			Node<E> first = head.next;
+			if (first == null || first.item != null) {
+				return first;
+			}
+			// 取り出し中のノード。番兵の更新を待たずに読み直す
+		}
+	}
+	
+	/**
+	 * キューから要素を1つ取り出す。
+	 * 
+	 * @return 取り出した要素。キューが空の場合は{@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	private E poll() {
+		for (;;) {
+			Node<E> h = head;
+			Node<E> t = tail;
+			Node<E> first = h.next;
+			if (h != head) {
+				continue;
+			}
+			if (first == null) {
+				return null;
+			}
+			if (h == t) {
+				// 末尾が遅れているため、他のスレッドの追加を助ける
+				TAIL.compareAndSet(this, t, first);
+				continue;
+			}
+			E element = first.item;
+			if (HEAD.compareAndSet(this, h, first)) {
+				// 取り出したノードは番兵となるため、要素への参照を切る
+				first.item = null;
+				return element;
+			}
+		}
+	}
+	
+
+	/**
+	 * キューの先頭から順に要素を走査するイテレータ。
+	 * 
+	 * @version $Id$
+	 * @author daisuke
+	 */
+	private class Itr implements Iterator<E> {
+		
+		private Node<E> nextNode;
+		
+		private E nextItem;
+		
+
+		Itr() {
+			advance(head);
+		}
+		
+		public boolean hasNext() {
+			return nextNode != null;
+		}
+		
+		public E next() {
+			if (nextNode == null) {
+				throw new NoSuchElementException();
+			}
+			E item = nextItem;
+			advance(nextNode);
+			return item;
+		}
+		
+		/**
+		 * 常に{@link UnsupportedOperationException}をスローする。
+		 * 
+		 * @throws UnsupportedOperationException 常に
+		 */
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+		/**
+		 * 指定したノード以降で、取り出されていない要素を持つノードへ進む。
+		 * 
+		 * @param from 起点のノード
+		 */
+		private void advance(Node<E> from) {
+			for (Node<E> p = from.next; p != null; p = p.next) {
+				E item = p.item;
+				if (item != null) {
+					nextNode = p;
+					nextItem = item;
+					return;
+				}
+			}
+			nextNode = null;
+			nextItem = null;
+		}
+	}
+	
+	/**
+	 * キューのノード。
+	 * 
+	 * @param <E> 要素の型
+	 * @version $Id$
+	 * @author daisuke
+	 */
+	private static class Node<E> {
+		
+		volatile E item;
+		
+		volatile Node<E> next;
+		
+
+		Node(E item) {
+			this.item = item;
+		}
+	}
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import java.util.EmptyStackException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link EssentialStack}のスレッドセーフな実装。
+ * 
+ * <p>Treiber のノンブロッキングなスタックのアルゴリズムを用い、{@link #push(Object)}と{@link #pop()}は
+ * ロックを獲得せず、先頭ノードに対するCAS操作のみで行う。</p>
+ * 
+ * <p>消去配列の大きさを指定して生成した場合は、先頭ノードに対するCAS操作が競合した際に消去によるバックオフを行う。
+ * 競合した{@link #push(Object)}は消去配列に要素を置いて短時間待機し、同じく競合した{@link #pop()}がそれを
+ * 受け取ることで、両者はスタックに触れずに完了する。競合が激しい場合に、先頭ノードへのアクセスが集中することを避ける。</p>
+ * 
+ * <p>ノードは一度スタックに連結された後は変更しない。{@link #insert(int, Object)}や{@link #remove(int)}などの
+ * 位置を指定した操作は、対象より上のノードを複製したノード列を作成し、1回のCAS操作で先頭を置き換える。
+ * そのため、これらの操作は対象より上の要素数に比例した時間がかかる。</p>
+ * 
+ * <p>{@link #iterator()}は生成時点のスタックの内容を下から順に返し、以降の変更を反映しない。
+ * イテレータは{@link java.util.ConcurrentModificationException}をスローしない。</p>
+ * 
+ * @param <E> 要素の型
+ * @version $Id$
+ * @author daisuke
+ */
+public class ConcurrentEssentialStack<E> implements EssentialStack<E> {
+	
+	private final AtomicReference<Node<E>> top = new AtomicReference<Node<E>>();
+	
+	/** 消去配列。消去を行わない場合は{@code null} */
+	private final EliminationArray<E> elimination;
+	
+
+	/**
+	 * 消去によるバックオフを行わないインスタンスを生成する。
+	 */
+	public ConcurrentEssentialStack() {
+		elimination = null;
+	}
+	
+	/**
+	 * 消去によるバックオフを行うインスタンスを生成する。
+	 * 
+	 * <p>消去配列の大きさは、スタックに並行してアクセスするスレッド数の半分程度が目安となる。</p>
+	 * 
+	 * @param eliminationCapacity 消去配列の大きさ
+	 * @throws IllegalArgumentException 引数に{@code 1}未満の値を与えた場合
+	 */
+	public ConcurrentEssentialStack(int eliminationCapacity) {
+		Validate.isTrue(eliminationCapacity >= 1);
+		elimination = new EliminationArray<E>(eliminationCapacity);
+	}
+	
+	public void clear() {
+		top.set(null);
+	}
+	
+	public E get(int n) {
+		Node<E> t = top.get();
+		int size = sizeOf(t);
+		checkIndex(n, size);
+		return nodeAt(t, size - n - 1).item;
+	}
+	
+	public void insert(int n, E element) {
+		for (;;) {
+			Node<E> t = top.get();
+			int size = sizeOf(t);
+			if (n < 0 || n > size) {
+				throw new IndexOutOfBoundsException("Index: " + n + ", Size: " + size);
+			}
+			int depth = size - n;
+			Node<E> base = new Node<E>(element, nodeAt(t, depth));
+			if (top.compareAndSet(t, copyAbove(t, depth, base))) {
+				return;
+			}
+		}
+	}
+	
+	public boolean isEmpty() {
+		return top.get() == null;
+	}
+	
+	public Iterator<E> iterator() {
+		return new SnapshotIterator<E>(top.get());
+	}
+	
+	public E peek() {
+		Node<E> t = top.get();
+		if (t == null) {
+			throw new EmptyStackException();
+		}
+		return t.item;
+	}
+	
+	public E peek(int n) {
+		Node<E> t = top.get();
+		int size = sizeOf(t);
+		checkIndex(n, size);
+		return nodeAt(t, n).item;
+	}
+	
+	public E pop() {
+		for (;;) {
+			Node<E> t = top.get();
+			if (t == null) {
+				throw new EmptyStackException();
+			}
+			if (top.compareAndSet(t, t.next)) {
+				return t.item;
+			}
+			if (elimination != null) {
+				Node<E> node = elimination.take();
+				if (node != null) {
+					return node.item;
+				}
+			}
+		}
+	}
+	
+	public void push(E element) {
+		Node<E> node = new Node<E>(element);
+		for (;;) {
+			Node<E> t = top.get();
+			node.link(t);
+			if (top.compareAndSet(t, node)) {
+				return;
+			}
+			if (elimination != null && elimination.offer(node)) {
+				return;
+			}
+		}
+	}
+	
+	public boolean remove(E element) {
+		for (;;) {
+			Node<E> t = top.get();
+			// 下から検索するため、上から走査して最後に見つかった位置を用いる
+			int depth = -1;
+			int i = 0;
+			for (Node<E> p = t; p != null; p = p.next, i++) {
+				if (element == null ? p.item == null : element.equals(p.item)) {
+					depth = i;
+				}
+			}
+			if (depth < 0) {
+				return false;
+			}
+			if (top.compareAndSet(t, copyAbove(t, depth, nodeAt(t, depth).next))) {
+				return true;
+			}
+		}
+	}
+	
+	public E remove(int n) {
+		for (;;) {
+			Node<E> t = top.get();
+			int size = sizeOf(t);
+			checkIndex(n, size);
+			int depth = size - n - 1;
+			Node<E> target = nodeAt(t, depth);
+			if (top.compareAndSet(t, copyAbove(t, depth, target.next))) {
+				return target.item;
+			}
+		}
+	}
+	
+	public EssentialStack<E> reverse() {
+		ConcurrentEssentialStack<E> result =
+				elimination == null ? new ConcurrentEssentialStack<E>() : new ConcurrentEssentialStack<E>(
+						elimination.capacity());
+		for (Node<E> p = top.get(); p != null; p = p.next) {
+			result.push(p.item);
+		}
+		return result;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>各ノードが自身以下の要素数を保持するため、定数時間で取得できる。</p>
+	 */
+	public int size() {
+		return sizeOf(top.get());
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (E element : this) {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(element == this ? "(this Stack)" : String.valueOf(element));
+		}
+		return sb.append(']').toString();
+	}
+	
+	private void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+	
+	/**
+	 * 先頭から{@code count}個のノードを複製し、指定したノードの上に同じ順序で積んだノード列を作成する。
+	 * 
+	 * @param t 先頭ノード
+	 * @param count 複製するノードの数
+	 * @param base 複製したノードを積むノード
+	 * @return 作成したノード列の先頭ノード
+	 */
+	private Node<E> copyAbove(Node<E> t, int count, Node<E> base) {
+		Object[] items = new Object[count];
+		Node<E> p = t;
+		for (int i = 0; i < count; i++) {
+			items[i] = p.item;
+			p = p.next;
+		}
+		Node<E> result = base;
+		for (int i = count - 1; i >= 0; i--) {
+			@SuppressWarnings("unchecked")
+			E item = (E) items[i];
+			result = new Node<E>(item, result);
+		}
+		return result;
+	}
+	
+	private Node<E> nodeAt(Node<E> t, int depth) {
+		Node<E> p = t;
+		for (int i = 0; i < depth; i++) {
+			p = p.next;
+		}
+		return p;
+	}
+	
+	private int sizeOf(Node<E> t) {
+		return t == null ? 0 : t.size;
+	}
+	
+
+	/**
+	 * 競合した{@link #push(Object)}と{@link #pop()}を組み合わせる消去配列。
+	 * 
+	 * <p>各スロットは空、または{@link #pop()}による受け取りを待つノードを保持する。</p>
+	 * 
+	 * @param <E> 要素の型
+	 * @version $Id$
+	 * @author daisuke
+	 */
+	private static class EliminationArray<E> {
+		
+		/** {@link #offer(Node)}でノードの受け取りを待つ回数 */
+		private static final int SPINS = 64;
+		
+		private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+			
+			@Override
+			protected Random initialValue() {
+				return new Random();
+			}
+		};
+		
+
+		private final AtomicReferenceArray<Node<E>> slots;
+		
+
+		EliminationArray(int capacity) {
+			slots = new AtomicReferenceArray<Node<E>>(capacity);
+		}
+		
+		int capacity() {
+			return slots.length();
+		}
+		
+		/**
+		 * 無作為に選んだスロットにノードを置き、{@link #take()}による受け取りを短時間待つ。
+		 * 
+		 * @param node 置くノード
+		 * @return 受け取られた場合は{@code true}、そうでない場合は{@code false}
+		 */
+		boolean offer(Node<E> node) {
+			int index = RANDOM.get().nextInt(slots.length());
+			if (slots.compareAndSet(index, null, node) == false) {
+				return false;
+			}
+			for (int i = 0; i < SPINS; i++) {
+				if (slots.get(index) != node) {
+					return true;
+				}
+			}
+			// 取り下げに失敗した場合は、直前に受け取られている
+			return slots.compareAndSet(index, node, null) == false;
+		}
+		
+		/**
+		 * 無作為に選んだスロットから、受け取りを待つノードを受け取る。
+		 * 
+		 * @return 受け取ったノード。待っているノードがない場合は{@code null}
+		 */
+		Node<E> take() {
+			int index = RANDOM.get().nextInt(slots.length());
+			Node<E> node = slots.get(index);
+			if (node != null && slots.compareAndSet(index, node, null)) {
+				return node;
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * スタックのノード。
+	 * 
+	 * <p>スタックに連結された後は変更されない。</p>
+	 * 
+	 * @param <E> 要素の型
+	 * @version $Id$
+	 * @author daisuke
+	 */
+	private static class Node<E> {
+		
+		final E item;
+		
+		Node<E> next;
+		
+		/** このノード以下の要素数 */
+		int size;
+		
+
+		Node(E item) {
+			this.item = item;
+		}
+		
+		Node(E item, Node<E> next) {
+			this.item = item;
+			link(next);
+		}
+		
+		/**
+		 * 連結前に、下のノードを設定する。
+		 * 
+		 * @param next 下のノード
+		 */
+		void link(Node<E> next) {
+			this.next = next;
+			size = next == null ? 1 : next.size + 1;
+		}
+	}
+	
+	/**
+	 * 生成時点のスタックの内容を、下から順に返すイテレータ。
+	 * 
+	 * @param <E> 要素の型
+	 * @version $Id$
+	 * @author daisuke
+	 */
+	private static class SnapshotIterator<E> implements Iterator<E> {
+		
+		private final Object[] items;
+		
+		private int cursor;
+		
+
+		SnapshotIterator(Node<E> t) {
+			items = new Object[t == null ? 0 : t.size];
+			int i = items.length;
+			for (Node<E> p = t; p != null; p = p.next) {
+				items[--i] = p.item;
+			}
+		}
+		
+		public boolean hasNext() {
+			return cursor < items.length;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (cursor >= items.length) {
+				throw new NoSuchElementException();
+			}
+			return (E) items[cursor++];
+		}
+		
+		/**
+		 * 常に{@link UnsupportedOperationException}をスローする。
+		 * 
+		 * @throws UnsupportedOperationException 常に
+		 */
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import java.util.Iterator;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link EssentialQueue}のユーティリティクラス。
+ * 
+ * @version $Id$
+ * @author daisuke
+ */
+public final class EssentialQueues {
+	
+	/**
+	 * {@link ArrayEssentialQueue}の新しいインスタンスを作成する。
+	 * 
+	 * @param <E> {@link ArrayEssentialQueue}の要素型
+	 * @return {@link ArrayEssentialQueue}の新しいインスタンス
+	 * @see ArrayEssentialQueue#ArrayEssentialQueue()
+	 */
+	public static <E>ArrayEssentialQueue<E> newArrayEssentialQueue() {
+		return new ArrayEssentialQueue<E>();
+	}
+	
+	/**
+	 * {@link ArrayEssentialQueue}の新しいインスタンスを作成する。
+	 * 
+	 * @param <E> {@link ArrayEssentialQueue}の要素型
+	 * @param initialCapacity 初期容量
+	 * @return {@link ArrayEssentialQueue}の新しいインスタンス
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
+	 * @see ArrayEssentialQueue#ArrayEssentialQueue(int)
+	 */
+	public static <E>ArrayEssentialQueue<E> newArrayEssentialQueue(int initialCapacity) {
+		return new ArrayEssentialQueue<E>(initialCapacity);
+	}
+	
+	/**
+	 * {@link ConcurrentEssentialQueue}の新しいインスタンスを作成する。
+	 * 
+	 * @param <E> {@link ConcurrentEssentialQueue}の要素型
+	 * @return {@link ConcurrentEssentialQueue}の新しいインスタンス
+	 * @see ConcurrentEssentialQueue#ConcurrentEssentialQueue()
+	 */
+	public static <E>ConcurrentEssentialQueue<E> newConcurrentEssentialQueue() {
+		return new ConcurrentEssentialQueue<E>();
+	}
+	
+	/**
+	 * {@link LinkedEssentialQueue}の新しいインスタンスを作成する。
+	 * 
+	 * @param <E> {@link LinkedEssentialQueue}の要素型
+	 * @return {@link LinkedEssentialQueue}の新しいインスタンス
+	 */
+	public static <E>LinkedEssentialQueue<E> newLinkedEssentialQueue() {
+		return new LinkedEssentialQueue<E>();
+	}
+	
+	/**
+	 * 指定したキューを基にした、同期化されたキューを返す。
+	 * 
+	 * <p>各操作は返したキュー自身をロックして行う。イテレータを用いる場合は、
+	 * 走査の間、利用者が返したキューをロックする必要がある。</p>
+	 * 
+	 * @param <E> 要素の型
+	 * @param queue 同期化するキュー
+	 * @return 同期化されたキュー
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	public static <E>EssentialQueue<E> synchronizedQueue(EssentialQueue<E> queue) {
+		Validate.notNull(queue);
+		return new SynchronizedEssentialQueue<E>(queue);
+	}
+	
+	private EssentialQueues() {
+	}
+	
+
+	/**
+	 * 同期化されたキュー。
+	 * 
+	 * @param <E> 要素の型
+	 * @version $Id$
+	 * @author daisuke
+	 */
+	private static class SynchronizedEssentialQueue<E> implements EssentialQueue<E> {
+		
+		private final EssentialQueue<E> queue;
+		
+
+		SynchronizedEssentialQueue(EssentialQueue<E> queue) {
+			this.queue = queue;
+		}
+		
+		public synchronized void clear() {
+			queue.clear();
+		}
+		
+		public synchronized E dequeue() {
+			return queue.dequeue();
+		}
+		
+		public synchronized void enqueue(E element) {
+			queue.enqueue(element);
+		}
+		
+		public synchronized void enqueue(EssentialQueue<E> source) {
+			queue.enqueue(source);
+		}
+		
+		public synchronized boolean isEmpty() {
+			return queue.isEmpty();
+		}
+		
+		public Iterator<E> iterator() {
+			return queue.iterator();
+		}
+		
+		public synchronized E peek() {
+			return queue.peek();
+		}
+		
+		public synchronized int size() {
+			return queue.size();
+		}
+		
+		@Override
+		public synchronized String toString() {
+			return queue.toString();
+		}
+	}
+}
@@ -18,6 +18,8 @@
  */
 package org.jiemamy.utils.collection;
 
+import java.util.Iterator;
+
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.Validate;
 
@@ -43,7 +45,7 @@ public final class EssentialStacks {
 	public static <E>EssentialStack<E> intersection(EssentialStack<? extends E> left, EssentialStack<? extends E> right) {
 		Validate.notNull(left);
 		Validate.notNull(right);
-		EssentialStack<E> result = new ArrayEssentialStack<E>(/*Math.min(left.size(), right.size())*/);
+		EssentialStack<E> result = new ArrayEssentialStack<E>(Math.min(left.size(), right.size()));
 		
 		int i = 0;
 		for (E leftElement : left) {
@@ -98,6 +100,121 @@ public final class EssentialStacks {
 		return new ArrayEssentialStack<E>();
 	}
 	
+	/**
+	 * {@link ConcurrentEssentialStack}の新しいインスタンスを作成する。
+	 * 
+	 * @param <E> {@link ConcurrentEssentialStack}の要素型
+	 * @return {@link ConcurrentEssentialStack}の新しいインスタンス
+	 * @see ConcurrentEssentialStack#ConcurrentEssentialStack()
+	 */
+	public static <E>ConcurrentEssentialStack<E> newConcurrentEssentialStack() {
+		return new ConcurrentEssentialStack<E>();
+	}
+	
+	/**
+	 * 消去によるバックオフを行う{@link ConcurrentEssentialStack}の新しいインスタンスを作成する。
+	 * 
+	 * @param <E> {@link ConcurrentEssentialStack}の要素型
+	 * @param eliminationCapacity 消去配列の大きさ
+	 * @return {@link ConcurrentEssentialStack}の新しいインスタンス
+	 * @throws IllegalArgumentException 引数に{@code 1}未満の値を与えた場合
+	 * @see ConcurrentEssentialStack#ConcurrentEssentialStack(int)
+	 */
+	public static <E>ConcurrentEssentialStack<E> newConcurrentEssentialStack(int eliminationCapacity) {
+		return new ConcurrentEssentialStack<E>(eliminationCapacity);
+	}
+	
+	/**
+	 * 指定したスタックを基にした、同期化されたスタックを返す。
+	 * 
+	 * <p>各操作は返したスタック自身をロックして行う。イテレータを用いる場合は、
+	 * 走査の間、利用者が返したスタックをロックする必要がある。</p>
+	 * 
+	 * @param <E> 要素の型
+	 * @param stack 同期化するスタック
+	 * @return 同期化されたスタック
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	public static <E>EssentialStack<E> synchronizedStack(EssentialStack<E> stack) {
+		Validate.notNull(stack);
+		return new SynchronizedEssentialStack<E>(stack);
+	}
+	
 	private EssentialStacks() {
 	}
+	
+
+	/**
+	 * 同期化されたスタック。
+	 * 
+	 * @param <E> 要素の型
+	 * @version $Id$
+	 * @author daisuke
+	 */
+	private static class SynchronizedEssentialStack<E> implements EssentialStack<E> {
+		
+		private final EssentialStack<E> stack;
+		
+
+		SynchronizedEssentialStack(EssentialStack<E> stack) {
+			this.stack = stack;
+		}
+		
+		public synchronized void clear() {
+			stack.clear();
+		}
+		
+		public synchronized E get(int n) {
+			return stack.get(n);
+		}
+		
+		public synchronized void insert(int n, E element) {
+			stack.insert(n, element);
+		}
+		
+		public synchronized boolean isEmpty() {
+			return stack.isEmpty();
+		}
+		
+		public Iterator<E> iterator() {
+			return stack.iterator();
+		}
+		
+		public synchronized E peek() {
+			return stack.peek();
+		}
+		
+		public synchronized E peek(int n) {
+			return stack.peek(n);
+		}
+		
+		public synchronized E pop() {
+			return stack.pop();
+		}
+		
+		public synchronized void push(E element) {
+			stack.push(element);
+		}
+		
+		public synchronized boolean remove(E element) {
+			return stack.remove(element);
+		}
+		
+		public synchronized E remove(int n) {
+			return stack.remove(n);
+		}
+		
+		public synchronized EssentialStack<E> reverse() {
+			return stack.reverse();
+		}
+		
+		public synchronized int size() {
+			return stack.size();
+		}
+		
+		@Override
+		public synchronized String toString() {
+			return stack.toString();
+		}
+	}
 }
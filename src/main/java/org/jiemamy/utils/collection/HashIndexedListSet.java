@@ -0,0 +1,202 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * {@link ArrayList}による順序と、{@link HashSet}による要素の索引を併せ持つ {@link ListSet}の実装クラス。
+ * 
+ * <p>
+ * {@link ArrayListSet}は要素の追加の度に{@link ArrayList#contains(Object)}で重複を調べるため、
+ * N 個の要素を追加するには O(N<sup>2</sup>) の時間がかかる。このクラスは要素の索引を併せて保持し、
+ * 重複の判定と{@link #contains(Object)}を定数時間で行うため、N 個の要素の追加は O(N) で完了する。<br>
+ * 索引は追加、挿入、置換、削除、イテレータによる削除の全てで順序と一致するよう更新される。
+ * </p>
+ * 
+ * <p>
+ * 要素の重複の扱いは{@link ArrayListSet}と同じである。{@link #add(Object)}と{@link #add(int, Object)}は
+ * 既に含まれている要素を無視し、{@link #set(int, Object)}は他の位置に含まれている要素を与えると
+ * {@link IllegalArgumentException}をスローする。<br>
+ * 要素の{@link Object#hashCode()}がこのコレクションに含まれている間に変化した場合の動作は保証しない。
+ * </p>
+ * 
+ * @param <E> 要素の型
+ * @version $Id$
+ * @author daisuke
+ */
+public class HashIndexedListSet<E> extends AbstractList<E> implements ListSet<E>, RandomAccess {
+	
+	private final ArrayList<E> list;
+	
+	private final HashSet<E> index;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 */
+	public HashIndexedListSet() {
+		list = Lists.newArrayList();
+		index = Sets.newHashSet();
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * <p>重複した要素は、最初に現れたもののみを追加する。</p>
+	 * 
+	 * @param elements 初期要素
+	 * @throws NullPointerException 引数に{@code null}を与えた場合
+	 */
+	public HashIndexedListSet(Collection<? extends E> elements) {
+		list = Lists.newArrayListWithCapacity(elements.size());
+		index = Sets.newHashSetWithExpectedSize(elements.size());
+		addAll(elements);
+	}
+	
+	@Override
+	public boolean add(E element) {
+		if (index.add(element) == false) {
+			return false;
+		}
+		list.add(element);
+		modCount++;
+		return true;
+	}
+	
+	@Override
+	public void add(int index, E element) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		if (this.index.add(element)) {
+			list.add(index, element);
+			modCount++;
+		}
+	}
+	
+	@Override
+	public void clear() {
+		list.clear();
+		index.clear();
+		modCount++;
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return index.contains(o);
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		HashIndexedListSet<?> other = (HashIndexedListSet<?>) obj;
+		return list.equals(other.list);
+	}
+	
+	@Override
+	public E get(int index) {
+		return list.get(index);
+	}
+	
+	@Override
+	public int hashCode() {
+		return list.hashCode();
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		return index.contains(o) ? list.indexOf(o) : -1;
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		// 重複が無いため、最初の位置と最後の位置は等しい
+		return indexOf(o);
+	}
+	
+	@Override
+	public E remove(int index) {
+		E removed = list.remove(index);
+		this.index.remove(removed);
+		modCount++;
+		return removed;
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		if (index.remove(o) == false) {
+			return false;
+		}
+		list.remove(o);
+		modCount++;
+		return true;
+	}
+	
+	@Override
+	public E set(int index, E element) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		E prev = list.get(index);
+		boolean same = prev == null ? element == null : prev.equals(element);
+		if (same == false) {
+			if (this.index.contains(element)) {
+				throw new IllegalArgumentException();
+			}
+			this.index.remove(prev);
+		}
+		// 等価な要素で置き換えた場合も、索引が保持するインスタンスを置き換える
+		this.index.remove(element);
+		this.index.add(element);
+		list.set(index, element);
+		return prev;
+	}
+	
+	@Override
+	public int size() {
+		return list.size();
+	}
+	
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		List<E> range = list.subList(fromIndex, toIndex);
+		for (E element : range) {
+			index.remove(element);
+		}
+		range.clear();
+		modCount++;
+	}
+}
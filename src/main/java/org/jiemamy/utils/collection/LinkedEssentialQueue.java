@@ -50,6 +50,12 @@ public class LinkedEssentialQueue<E> implements EssentialQueue<E> {
 	}
 	
 	public void enqueue(EssentialQueue<E> queue) {
+		if (queue instanceof LinkedEssentialQueue<?> && queue != this) {
+			LinkedList<E> source = ((LinkedEssentialQueue<E>) queue).linkedList;
+			linkedList.addAll(source);
+			source.clear();
+			return;
+		}
 		while (queue.isEmpty() == false) {
 			E element = queue.dequeue();
 			enqueue(element);
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link ByteBuffer}の内容をコピーせずに読み込む入力ストリーム。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class ByteBufferInputStream extends InputStream {
+	
+	private final ByteBuffer buffer;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param buffer 読み込むバッファ。位置からリミットまでが読み込まれる。
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	ByteBufferInputStream(ByteBuffer buffer) {
+		Validate.notNull(buffer);
+		this.buffer = buffer;
+	}
+	
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+	
+	@Override
+	public int read() {
+		if (buffer.hasRemaining() == false) {
+			return -1;
+		}
+		return buffer.get() & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		if (buffer.hasRemaining() == false) {
+			return -1;
+		}
+		int count = Math.min(len, buffer.remaining());
+		buffer.get(b, off, count);
+		return count;
+	}
+	
+	@Override
+	public long skip(long n) {
+		int count = (int) Math.max(0L, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + count);
+		return count;
+	}
+	
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * スワップするバイト列を{@link Deflater}で圧縮するクラス。
+ * 
+ * <p>
+ * 圧縮してもバイト長が小さくならない場合は、圧縮せずに書き込まれる。
+ * 圧縮の有無は{@link Extent}ごとに記録されるため、圧縮された領域と圧縮されていない領域は
+ * 同じスワップファイル内に共存できる。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class DeflateCompressor {
+	
+	/** 圧縮を試みる最小のバイト長 */
+	static final int MIN_COMPRESSION_LENGTH = 64;
+	
+	private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+		
+		@Override
+		protected Inflater initialValue() {
+			return new Inflater();
+		}
+	};
+	
+
+	/**
+	 * 圧縮されたバイト列を展開する。
+	 * 
+	 * @param buffer 圧縮されたバイト列
+	 * @param rawLength 圧縮前のバイト長
+	 * @return 展開したバイト列
+	 * @throws IOException 展開に失敗した場合
+	 */
+	static ByteBuffer inflate(ByteBuffer buffer, int rawLength) throws IOException {
+		byte[] input = toArray(buffer);
+		byte[] output = new byte[rawLength];
+		
+		Inflater inflater = INFLATER.get();
+		inflater.reset();
+		inflater.setInput(input);
+		try {
+			int length = 0;
+			while (length < rawLength && inflater.finished() == false) {
+				int count = inflater.inflate(output, length, rawLength - length);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += count;
+			}
+			if (length != rawLength) {
+				throw new IOException("Inflated size is not matched.");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Failed to inflate swapped data.", e);
+		}
+		return ByteBuffer.wrap(output);
+	}
+	
+	private static byte[] toArray(ByteBuffer buffer) {
+		if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+				&& buffer.remaining() == buffer.array().length) {
+			return buffer.array();
+		}
+		byte[] result = new byte[buffer.remaining()];
+		buffer.duplicate().get(result);
+		return result;
+	}
+	
+
+	/** 圧縮レベル */
+	final int level;
+	
+	private final ThreadLocal<Deflater> deflater = new ThreadLocal<Deflater>() {
+		
+		@Override
+		protected Deflater initialValue() {
+			return new Deflater(level);
+		}
+	};
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param level {@link Deflater}の圧縮レベル。{@link Deflater#DEFAULT_COMPRESSION}、または{@code 0}から{@code 9}の値。
+	 * @throws IllegalArgumentException 圧縮レベルが範囲外の場合
+	 */
+	DeflateCompressor(int level) {
+		Validate.isTrue(level == Deflater.DEFAULT_COMPRESSION
+				|| (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION));
+		this.level = level;
+	}
+	
+	/**
+	 * バイト列を圧縮する。
+	 * 
+	 * @param buffer 圧縮するバイト列
+	 * @return 圧縮したバイト列。圧縮によってバイト長が小さくならない場合は{@code null}
+	 */
+	ByteBuffer deflate(ByteBuffer buffer) {
+		int rawLength = buffer.remaining();
+		if (rawLength < MIN_COMPRESSION_LENGTH) {
+			return null;
+		}
+		
+		Deflater d = deflater.get();
+		d.reset();
+		d.setInput(toArray(buffer));
+		d.finish();
+		
+		// 圧縮前より長くなる場合は圧縮しないため、出力は圧縮前のバイト長を上限とする
+		byte[] output = new byte[rawLength];
+		int length = 0;
+		while (d.finished() == false && length < output.length) {
+			length += d.deflate(output, length, output.length - length);
+		}
+		if (d.finished() == false || length >= rawLength) {
+			return null;
+		}
+		return ByteBuffer.wrap(output, 0, length);
+	}
+	
+}
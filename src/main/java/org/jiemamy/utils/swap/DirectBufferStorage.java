@@ -0,0 +1,243 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * シリアライズしたバイト列をヒープ外のダイレクトバッファに保持する{@link SwapStorage}の実装。
+ * 
+ * <p>
+ * 記憶域は{@link DirectSlabPool}から取得した固定長のスラブを連結したものとして扱い、
+ * 位置はスラブの番号とスラブ内のオフセットに変換される。領域の割り当ては、ファイルによる記憶域と同様に
+ * {@link ExtentAllocator}が行う。<br>
+ * ファイル入出力を一切行わず、保持するバイト列はJavaヒープの外に置かれるためGCの走査対象にもならない。
+ * ディスクが低速だが、ネイティブメモリには余裕がある環境での使用を想定している。
+ * </p>
+ * 
+ * <p>
+ * 読み込みはロックを取得せず、スラブの内容をヒープ上のバッファへ複写して返す。<br>
+ * {@link #truncate(long)}で不要になった末尾のスラブはプールへ返却され、他の記憶域で再利用される。
+ * スラブのスライスを返すと、デコード中にスラブが返却、再利用されて内容が変わる可能性があるため、スライスは返さない。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class DirectBufferStorage implements SwapStorage {
+	
+	/** スラブを取得するプール */
+	private final DirectSlabPool pool;
+	
+	/** スラブ長 */
+	private final int slabSize;
+	
+	/** 使用中のスラブ。伸縮時は配列ごと置き換える。 */
+	private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+	
+	/** 閉じられているかどうか */
+	private boolean closed;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param pool スラブを取得するプール
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	DirectBufferStorage(DirectSlabPool pool) {
+		Validate.notNull(pool);
+		this.pool = pool;
+		slabSize = pool.slabSize;
+	}
+	
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		ByteBuffer[] current = slabs;
+		slabs = new ByteBuffer[0];
+		for (ByteBuffer slab : current) {
+			pool.release(slab);
+		}
+	}
+	
+	public void force() {
+		// 揮発性の記憶域のため、反映すべき記憶装置は無い
+	}
+	
+	public ByteBuffer read(Extent extent) throws IOException {
+		ByteBuffer[] current = slabs;
+		if (extent.end() > (long) current.length * slabSize) {
+			throw new IOException("Extent is out of allocated slabs: " + extent);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(extent.length);
+		transfer(current, extent.position, buffer, true);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public long size() {
+		return (long) slabs.length * slabSize;
+	}
+	
+	public void transferFrom(ReadableByteChannel source, Extent extent) throws IOException {
+		ByteBuffer[] current = ensureAllocated(extent.end());
+		long position = extent.position;
+		while (position < extent.end()) {
+			ByteBuffer slab = chunk(current, position, extent.end());
+			position += slab.remaining();
+			while (slab.hasRemaining()) {
+				if (source.read(slab) < 0) {
+					throw new EOFException("Unexpected end of channel.");
+				}
+			}
+		}
+	}
+	
+	public void transferTo(Extent extent, WritableByteChannel target) throws IOException {
+		ByteBuffer[] current = slabs;
+		if (extent.end() > (long) current.length * slabSize) {
+			throw new IOException("Extent is out of allocated slabs: " + extent);
+		}
+		long position = extent.position;
+		while (position < extent.end()) {
+			ByteBuffer slab = chunk(current, position, extent.end());
+			position += slab.remaining();
+			while (slab.hasRemaining()) {
+				target.write(slab);
+			}
+		}
+	}
+	
+	public synchronized void truncate(long size) {
+		ByteBuffer[] current = slabs;
+		int required = (int) ((size + slabSize - 1) / slabSize);
+		if (required >= current.length) {
+			return;
+		}
+		
+		slabs = Arrays.copyOf(current, required);
+		for (int i = required; i < current.length; i++) {
+			pool.release(current[i]);
+		}
+	}
+	
+	public void write(ByteBuffer buffer, long position) throws IOException {
+		ByteBuffer[] current = ensureAllocated(position + buffer.remaining());
+		transfer(current, position, buffer, false);
+	}
+	
+	public void write(ByteBuffer[] buffers, long position) throws IOException {
+		long length = 0L;
+		for (ByteBuffer buffer : buffers) {
+			length += buffer.remaining();
+		}
+		ByteBuffer[] current = ensureAllocated(position + length);
+		long offset = position;
+		for (ByteBuffer buffer : buffers) {
+			int remaining = buffer.remaining();
+			transfer(current, offset, buffer, false);
+			offset += remaining;
+		}
+	}
+	
+	/**
+	 * 指定した位置までのスラブが確保されていることを保証する。
+	 * 
+	 * @param end 必要な領域の終端位置
+	 * @return 確保済みのスラブ
+	 * @throws IOException 記憶域が閉じられている場合
+	 */
+	private synchronized ByteBuffer[] ensureAllocated(long end) throws IOException {
+		if (closed) {
+			throw new IOException("Storage is closed.");
+		}
+		ByteBuffer[] current = slabs;
+		int required = (int) ((end + slabSize - 1) / slabSize);
+		if (required <= current.length) {
+			return current;
+		}
+		
+		ByteBuffer[] grown = Arrays.copyOf(current, required);
+		for (int i = current.length; i < required; i++) {
+			grown[i] = pool.acquire();
+		}
+		slabs = grown;
+		return grown;
+	}
+	
+	/**
+	 * 指定した位置から、同じスラブに収まる範囲のバイト列を共有するバッファを取得する。
+	 * 
+	 * @param current 確保済みのスラブ
+	 * @param position 開始位置
+	 * @param end 終端位置
+	 * @return スラブの内容を共有するバッファ。位置とリミットは転送する範囲に設定されている
+	 */
+	private ByteBuffer chunk(ByteBuffer[] current, long position, long end) {
+		int index = (int) (position / slabSize);
+		int offset = (int) (position % slabSize);
+		int count = (int) Math.min(end - position, slabSize - offset);
+		ByteBuffer slab = current[index].duplicate();
+		slab.position(offset);
+		slab.limit(offset + count);
+		return slab;
+	}
+	
+	/**
+	 * スラブとバッファの間でバイト列を転送する。
+	 * 
+	 * @param current 確保済みのスラブ
+	 * @param position 転送を開始する記憶域内の位置
+	 * @param buffer 転送元、または転送先のバッファ
+	 * @param read スラブからバッファへ読み込む場合は{@code true}、バッファからスラブへ書き込む場合は{@code false}
+	 */
+	private void transfer(ByteBuffer[] current, long position, ByteBuffer buffer, boolean read) {
+		long pos = position;
+		while (buffer.hasRemaining()) {
+			int index = (int) (pos / slabSize);
+			int offset = (int) (pos % slabSize);
+			int count = Math.min(buffer.remaining(), slabSize - offset);
+			
+			ByteBuffer slab = current[index].duplicate();
+			slab.position(offset);
+			slab.limit(offset + count);
+			if (read) {
+				buffer.put(slab);
+			} else {
+				ByteBuffer src = buffer.duplicate();
+				src.limit(src.position() + count);
+				slab.put(src);
+				buffer.position(buffer.position() + count);
+			}
+			pos += count;
+		}
+	}
+	
+}
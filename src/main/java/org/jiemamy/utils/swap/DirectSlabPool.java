@@ -0,0 +1,128 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * 固定長のダイレクトバッファ（スラブ）を再利用するためのプール。
+ * 
+ * <p>
+ * ダイレクトバッファの確保はヒープ上のバッファに比べて高価で、解放はGCに依存するため、
+ * 不要になったスラブは破棄せずにプールへ返却し、次の確保で再利用する。<br>
+ * プールに保持するスラブ数の上限を超えて返却されたスラブは破棄され、参照が無くなった時点でネイティブメモリが解放される。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class DirectSlabPool {
+	
+	/** デフォルトのスラブ長 */
+	static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+	
+	/** スラブ長 */
+	final int slabSize;
+	
+	/** プールに保持するスラブ数の上限 */
+	private final int maxPooled;
+	
+	/** 再利用可能なスラブ */
+	private final Deque<ByteBuffer> pooled = new ArrayDeque<ByteBuffer>();
+	
+	/** 使用中のスラブ数 */
+	private int activeCount;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param slabSize スラブ長
+	 * @param maxPooled プールに保持するスラブ数の上限
+	 * @throws IllegalArgumentException 引数{@code slabSize}に{@code 1}未満の値を与えた場合
+	 * @throws IllegalArgumentException 引数{@code maxPooled}に負数を与えた場合
+	 */
+	DirectSlabPool(int slabSize, int maxPooled) {
+		Validate.isTrue(slabSize > 0);
+		Validate.isTrue(maxPooled >= 0);
+		this.slabSize = slabSize;
+		this.maxPooled = maxPooled;
+	}
+	
+	/**
+	 * スラブを取得する。
+	 * 
+	 * <p>プールに再利用可能なスラブがあればそれを返し、無ければ新たにダイレクトバッファを確保する。</p>
+	 * 
+	 * @return スラブ
+	 */
+	synchronized ByteBuffer acquire() {
+		ByteBuffer slab = pooled.pollFirst();
+		if (slab == null) {
+			slab = ByteBuffer.allocateDirect(slabSize);
+		}
+		slab.clear();
+		activeCount++;
+		return slab;
+	}
+	
+	/**
+	 * プールに保持しているスラブを全て破棄する。
+	 */
+	synchronized void clear() {
+		pooled.clear();
+	}
+	
+	/**
+	 * 使用中のスラブ数を取得する。
+	 * 
+	 * @return 使用中のスラブ数
+	 */
+	synchronized int getActiveCount() {
+		return activeCount;
+	}
+	
+	/**
+	 * プールに保持している再利用可能なスラブ数を取得する。
+	 * 
+	 * @return 再利用可能なスラブ数
+	 */
+	synchronized int getPooledCount() {
+		return pooled.size();
+	}
+	
+	/**
+	 * 使用しなくなったスラブをプールへ返却する。
+	 * 
+	 * @param slab スラブ
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	synchronized void release(ByteBuffer slab) {
+		Validate.notNull(slab);
+		activeCount--;
+		if (pooled.size() < maxPooled) {
+			pooled.addFirst(slab);
+		}
+	}
+	
+}
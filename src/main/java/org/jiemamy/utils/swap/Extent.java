@@ -0,0 +1,118 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * スワップファイル内の連続した領域（エクステント）を表す不変クラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class Extent {
+	
+	/** スワップファイル内での開始位置 */
+	final long position;
+	
+	/** バイト長 */
+	final int length;
+	
+	/** 圧縮されている場合は圧縮前のバイト長、圧縮されていない場合は{@code -1} */
+	final int rawLength;
+	
+	/** 領域に書き込んだ内容の世代番号 */
+	final int generation;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param position スワップファイル内での開始位置
+	 * @param length バイト長
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
+	 */
+	Extent(long position, int length) {
+		this(position, length, -1);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param position スワップファイル内での開始位置
+	 * @param length バイト長
+	 * @param rawLength 圧縮されている場合は圧縮前のバイト長、圧縮されていない場合は{@code -1}
+	 * @throws IllegalArgumentException 引数{@code position}, {@code length}に負数を与えた場合
+	 */
+	Extent(long position, int length, int rawLength) {
+		this(position, length, rawLength, 0);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param position スワップファイル内での開始位置
+	 * @param length ヘッダを含むバイト長
+	 * @param rawLength 圧縮されている場合は圧縮前のバイト長、圧縮されていない場合は{@code -1}
+	 * @param generation 領域に書き込んだ内容の世代番号
+	 * @throws IllegalArgumentException 引数{@code position}, {@code length}に負数を与えた場合
+	 */
+	Extent(long position, int length, int rawLength, int generation) {
+		Validate.isTrue(position >= 0);
+		Validate.isTrue(length >= 0);
+		this.position = position;
+		this.length = length;
+		this.rawLength = rawLength < 0 ? -1 : rawLength;
+		this.generation = generation;
+	}
+	
+	/**
+	 * この領域の終端位置（この領域に含まれない最初の位置）を取得する。
+	 * 
+	 * @return 終端位置
+	 */
+	long end() {
+		return position + length;
+	}
+	
+	/**
+	 * この領域に格納されたバイト列が圧縮されているかどうかを調べる。
+	 * 
+	 * @return 圧縮されている場合は{@code true}、そうでない場合は{@code false}
+	 */
+	boolean isCompressed() {
+		return rawLength >= 0;
+	}
+	
+	/**
+	 * この領域と同じ内容を、指定した位置へ移動した領域を取得する。
+	 * 
+	 * @param newPosition 移動先の開始位置
+	 * @return 領域
+	 */
+	Extent movedTo(long newPosition) {
+		return new Extent(newPosition, length, rawLength, generation);
+	}
+	
+	@Override
+	public String toString() {
+		return "[" + position + ", " + end() + ")";
+	}
+	
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * スワップファイル内の領域割り当てを管理するアロケータ。
+ * 
+ * <p>
+ * 空き領域を開始位置順と大きさ順の2つの木で管理し、割り当て要求に対しては要求サイズ以上で最小の空き領域を
+ * 返す（best-fit）。割り当て・解放はいずれも空き領域数 n に対して O(log n) で行われ、生存している
+ * エクステントの数には依存しない。<br>
+ * 解放された領域は前後の空き領域と結合され、終端に接する空き領域はファイル終端の縮小として扱われる。
+ * そのため、空き領域がファイル終端に接した状態で残ることはない。
+ * </p>
+ * 
+ * <p>このクラスはスレッドセーフではない。呼び出し側で排他制御を行うこと。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class ExtentAllocator {
+	
+	/** 開始位置をキー、バイト長を値とする空き領域のマップ */
+	private final TreeMap<Long, Long> freeByPosition = new TreeMap<Long, Long>();
+	
+	/** バイト長の昇順（同じ長さの場合は開始位置の昇順）に並べた空き領域のセット */
+	private final TreeSet<Block> freeBySize = new TreeSet<Block>(new BlockComparator());
+	
+	/** 使用中の領域の終端位置 */
+	private long end;
+	
+	/** 割り当て済みのバイト数 */
+	private long liveBytes;
+	
+
+	/**
+	 * 指定した長さの領域を割り当てる。
+	 * 
+	 * @param length 割り当てるバイト長
+	 * @return 割り当てた領域
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
+	 */
+	Extent allocate(int length) {
+		Validate.isTrue(length >= 0);
+		liveBytes += length;
+		
+		Block found = freeBySize.ceiling(new Block(-1L, length));
+		if (found == null) {
+			// 適合する空き領域が無いため、終端へ追加する
+			Extent extent = new Extent(end, length);
+			end += length;
+			return extent;
+		}
+		
+		removeFree(found.position, found.length);
+		if (found.length > length) {
+			addFree(found.position + length, found.length - length);
+		}
+		return new Extent(found.position, length);
+	}
+	
+	/**
+	 * 指定した位置より前にある空き領域から、指定した長さの領域を割り当てる。
+	 * 
+	 * <p>
+	 * 適合する空き領域のうち最小のもの（best-fit）を用いる。ファイル終端への追加は行わない。
+	 * 終端付近の領域を前方の空き領域へ移動し、ファイルを縮小する用途に用いる。
+	 * </p>
+	 * 
+	 * @param length 割り当てるバイト長
+	 * @param limit 割り当てる領域の開始位置の上限（この位置を含まない）
+	 * @return 割り当てた領域。適合する空き領域が無い場合は{@code null}
+	 * @throws IllegalArgumentException 引数{@code length}に負数を与えた場合
+	 */
+	Extent allocateBelow(int length, long limit) {
+		Validate.isTrue(length >= 0);
+		for (Block block : freeBySize.tailSet(new Block(-1L, length))) {
+			if (block.position < limit) {
+				liveBytes += length;
+				removeFree(block.position, block.length);
+				if (block.length > length) {
+					addFree(block.position + length, block.length - length);
+				}
+				return new Extent(block.position, length);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 使用中の領域の終端位置を取得する。
+	 * 
+	 * <p>スワップファイルはこの位置まで切り詰めることができる。</p>
+	 * 
+	 * @return 終端位置
+	 */
+	long end() {
+		return end;
+	}
+	
+	/**
+	 * 割り当て済みの領域を解放する。
+	 * 
+	 * <p>隣接する空き領域とは結合される。結合の結果、終端に接した場合は終端位置を縮小する。</p>
+	 * 
+	 * @param extent 解放する領域
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	void free(Extent extent) {
+		Validate.notNull(extent);
+		if (extent.length == 0) {
+			return;
+		}
+		liveBytes -= extent.length;
+		
+		long position = extent.position;
+		long length = extent.length;
+		
+		// 直前の空き領域との結合
+		Map.Entry<Long, Long> prev = freeByPosition.floorEntry(position);
+		if (prev != null && prev.getKey() + prev.getValue() == position) {
+			removeFree(prev.getKey(), prev.getValue());
+			position = prev.getKey();
+			length += prev.getValue();
+		}
+		
+		// 直後の空き領域との結合
+		Long nextLength = freeByPosition.get(position + length);
+		if (nextLength != null) {
+			removeFree(position + length, nextLength);
+			length += nextLength;
+		}
+		
+		if (position + length == end) {
+			end = position;
+		} else {
+			addFree(position, length);
+		}
+	}
+	
+	/**
+	 * 空き領域の数を取得する。
+	 * 
+	 * @return 空き領域の数
+	 */
+	int getFreeBlockCount() {
+		return freeByPosition.size();
+	}
+	
+	/**
+	 * 割り当て済みのバイト数を取得する。
+	 * 
+	 * @return 割り当て済みのバイト数
+	 */
+	long getLiveBytes() {
+		return liveBytes;
+	}
+	
+	/**
+	 * 指定した領域を割り当て済みとして確保する。
+	 * 
+	 * <p>終端より後ろの領域を指定した場合、現在の終端から指定した領域の開始位置までは空き領域となる。</p>
+	 * 
+	 * @param extent 確保する領域
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalStateException 指定した領域の一部が既に割り当て済みである場合
+	 */
+	void reserve(Extent extent) {
+		Validate.notNull(extent);
+		if (extent.length == 0) {
+			return;
+		}
+		
+		if (extent.position >= end) {
+			if (extent.position > end) {
+				addFree(end, extent.position - end);
+			}
+			end = extent.end();
+		} else {
+			Map.Entry<Long, Long> block = freeByPosition.floorEntry(extent.position);
+			if (block == null || block.getKey() + block.getValue() < extent.end()) {
+				throw new IllegalStateException("Extent is already allocated: " + extent);
+			}
+			long blockPosition = block.getKey();
+			long blockLength = block.getValue();
+			removeFree(blockPosition, blockLength);
+			if (extent.position > blockPosition) {
+				addFree(blockPosition, extent.position - blockPosition);
+			}
+			if (blockPosition + blockLength > extent.end()) {
+				addFree(extent.end(), blockPosition + blockLength - extent.end());
+			}
+		}
+		liveBytes += extent.length;
+	}
+	
+	private void addFree(long position, long length) {
+		freeByPosition.put(position, length);
+		freeBySize.add(new Block(position, length));
+	}
+	
+	private void removeFree(long position, long length) {
+		freeByPosition.remove(position);
+		freeBySize.remove(new Block(position, length));
+	}
+	
+
+	/**
+	 * 空き領域。
+	 */
+	private static class Block {
+		
+		final long position;
+		
+		final long length;
+		
+
+		Block(long position, long length) {
+			this.position = position;
+			this.length = length;
+		}
+	}
+	
+	/**
+	 * {@link Block}をバイト長、開始位置の順で比較するクラス。
+	 */
+	private static class BlockComparator implements Comparator<Block> {
+		
+		public int compare(Block o1, Block o2) {
+			if (o1.length != o2.length) {
+				return o1.length < o2.length ? -1 : 1;
+			}
+			if (o1.position != o2.position) {
+				return o1.position < o2.position ? -1 : 1;
+			}
+			return 0;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * スワップファイル内の各領域の先頭に書き込むヘッダの読み書きを行うユーティリティクラス。
+ * 
+ * <p>
+ * ヘッダは、後続するバイト列のバイト長、CRC32 チェックサム、世代番号をそれぞれ4バイトで保持する。<br>
+ * 世代番号は領域への書き込みごとに採番され、{@link Extent}にも記録される。解放されて別の RealObject に再利用された領域を
+ * 古いスワップ情報で読み込んだ場合は、世代番号の不一致として検出される。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class ExtentHeader {
+	
+	/** ヘッダのバイト長 */
+	static final int LENGTH = 12;
+	
+	/** チェックサムの計算に用いる一時領域のバイト長 */
+	private static final int CHUNK_SIZE = 8192;
+	
+
+	/**
+	 * バイト列のチェックサムを計算する。
+	 * 
+	 * <p>引数のバッファの位置は変更しない。</p>
+	 * 
+	 * @param buffer バイト列
+	 * @return CRC32 チェックサム
+	 */
+	static int checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		if (buffer.hasArray()) {
+			crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		} else {
+			// ダイレクトバッファ、マップされたバッファは一時領域へ複写しながら計算する
+			ByteBuffer src = buffer.duplicate();
+			byte[] chunk = new byte[Math.min(src.remaining(), CHUNK_SIZE)];
+			while (src.hasRemaining()) {
+				int count = Math.min(src.remaining(), chunk.length);
+				src.get(chunk, 0, count);
+				crc.update(chunk, 0, count);
+			}
+		}
+		return (int) crc.getValue();
+	}
+	
+	/**
+	 * バイト列に対するヘッダを生成する。
+	 * 
+	 * @param payload ヘッダに続けて書き込むバイト列
+	 * @param generation 世代番号
+	 * @return ヘッダ
+	 */
+	static ByteBuffer create(ByteBuffer payload, int generation) {
+		ByteBuffer header = ByteBuffer.allocate(LENGTH);
+		header.putInt(payload.remaining());
+		header.putInt(checksum(payload));
+		header.putInt(generation);
+		header.flip();
+		return header;
+	}
+	
+	/**
+	 * ヘッダに記録された世代番号を取得する。
+	 * 
+	 * @param header ヘッダ
+	 * @return 世代番号
+	 */
+	static int generationOf(ByteBuffer header) {
+		return header.getInt(header.position() + 8);
+	}
+	
+	/**
+	 * 領域から読み込んだバイト列のヘッダを検証し、ヘッダを除いたバイト列を取得する。
+	 * 
+	 * @param buffer 領域から読み込んだバイト列
+	 * @param extent 読み込んだ領域
+	 * @return ヘッダを除いたバイト列
+	 * @throws SwapCorruptedException ヘッダの内容が、読み込んだバイト列または領域と一致しない場合
+	 */
+	static ByteBuffer verify(ByteBuffer buffer, Extent extent) throws SwapCorruptedException {
+		if (buffer.remaining() != extent.length || extent.length < LENGTH) {
+			throw new SwapCorruptedException("Loaded size is not matched: " + extent);
+		}
+		int start = buffer.position();
+		int length = buffer.getInt(start);
+		int checksum = buffer.getInt(start + 4);
+		int generation = buffer.getInt(start + 8);
+		if (length != extent.length - LENGTH) {
+			throw new SwapCorruptedException("Payload length is not matched: " + extent);
+		}
+		if (generation != extent.generation) {
+			throw new SwapCorruptedException("Generation is not matched: " + extent + " (expected "
+					+ extent.generation + ", but was " + generation + ")");
+		}
+		
+		ByteBuffer payload = buffer.duplicate();
+		payload.position(start + LENGTH);
+		payload = payload.slice();
+		if (checksum(payload) != checksum) {
+			throw new SwapCorruptedException("Checksum is not matched: " + extent);
+		}
+		return payload;
+	}
+	
+	private ExtentHeader() {
+	}
+	
+}
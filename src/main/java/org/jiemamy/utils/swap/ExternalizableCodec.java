@@ -0,0 +1,98 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link Externalizable}を実装したクラスのための{@link SwapCodec}の実装。
+ * 
+ * <p>
+ * 変換対象のクラスはコーデック生成時に固定されるため、RealObject 自身のクラス記述子は書き込まれない。
+ * RealObject は{@link Externalizable#writeExternal(java.io.ObjectOutput)}が書き込んだ内容のみで表現される。
+ * </p>
+ * 
+ * @param <T> 変換の対象となるオブジェクトのクラス
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class ExternalizableCodec<T extends Externalizable> implements SwapCodec<T> {
+	
+	/** 変換の対象となるクラスの引数なしコンストラクタ */
+	private final Constructor<T> constructor;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param type 変換の対象となるクラス
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalArgumentException 引数のクラスが public な引数なしコンストラクタを持たない場合
+	 */
+	ExternalizableCodec(Class<T> type) {
+		Validate.notNull(type);
+		try {
+			constructor = type.getConstructor();
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(type.getName() + " must have public no-arg constructor.", e);
+		}
+	}
+	
+	public T decode(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+		T obj;
+		try {
+			obj = constructor.newInstance();
+		} catch (InstantiationException e) {
+			throw new IOException("Failed to instantiate " + constructor.getDeclaringClass().getName(), e);
+		} catch (IllegalAccessException e) {
+			throw new IOException("Failed to instantiate " + constructor.getDeclaringClass().getName(), e);
+		} catch (InvocationTargetException e) {
+			throw new IOException("Failed to instantiate " + constructor.getDeclaringClass().getName(), e);
+		}
+		
+		ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(buffer));
+		try {
+			obj.readExternal(ois);
+		} finally {
+			ois.close();
+		}
+		return obj;
+	}
+	
+	public ByteBuffer encode(T obj) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		try {
+			obj.writeExternal(oos);
+		} finally {
+			oos.close();
+		}
+		return ByteBuffer.wrap(baos.toByteArray());
+	}
+	
+}
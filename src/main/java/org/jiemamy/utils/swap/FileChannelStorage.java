@@ -0,0 +1,205 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link FileChannel}に対する位置指定の読み書きを用いた{@link SwapStorage}の実装。
+ * 
+ * <p>位置指定の読み書きはファイルチャネルの位置を変更しないため、ロックを取得せずに並行して行われる。
+ * 複数のバッファの書き込みも、位置指定の書き込みのみで行う。
+ * チャネル間の転送には{@link FileChannel#transferTo(long, long, WritableByteChannel)}を用いるため、
+ * OS が対応していればバイト列はカーネル内でコピーされる。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class FileChannelStorage implements SwapStorage {
+	
+	/** チャネル間の転送ができなかった場合に用いるバッファのバイト長 */
+	private static final int TRANSFER_BUFFER_SIZE = 8192;
+	
+	/** 複数のバッファをまとめて1回で書き込む、チャンクのバイト長の上限 */
+	private static final int CHUNK_SIZE = 1024 * 1024;
+	
+
+	/** スワップファイルの読み書きを行うファイルチャネル */
+	final FileChannel channel;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param file スワップファイル
+	 * @throws IOException スワップファイルを開けなかった場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	FileChannelStorage(File file) throws IOException {
+		Validate.notNull(file);
+		channel = new RandomAccessFile(file, "rw").getChannel();
+	}
+	
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	public void force() throws IOException {
+		channel.force(false);
+	}
+	
+	public ByteBuffer read(Extent extent) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(extent.length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, extent.position + buffer.position()) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+	
+	public long size() throws IOException {
+		return channel.size();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>{@link FileChannel#transferFrom(ReadableByteChannel, long, long)}はファイル終端より後ろへ書き込まず、
+	 * チャネルの終端との区別もできないため、転送できなかった場合はバッファを経由して書き込む。</p>
+	 */
+	public void transferFrom(ReadableByteChannel source, Extent extent) throws IOException {
+		long position = extent.position;
+		long end = extent.end();
+		ByteBuffer buffer = null;
+		while (position < end) {
+			long transferred = channel.transferFrom(source, position, end - position);
+			if (transferred == 0) {
+				if (buffer == null) {
+					buffer = ByteBuffer.allocate((int) Math.min(end - position, TRANSFER_BUFFER_SIZE));
+				}
+				buffer.clear();
+				buffer.limit((int) Math.min(end - position, buffer.capacity()));
+				if (source.read(buffer) < 0) {
+					throw new EOFException("Unexpected end of channel.");
+				}
+				buffer.flip();
+				transferred = buffer.remaining();
+				write(buffer, position);
+			}
+			position += transferred;
+		}
+	}
+	
+	public void transferTo(Extent extent, WritableByteChannel target) throws IOException {
+		long position = extent.position;
+		long end = extent.end();
+		while (position < end) {
+			long transferred = channel.transferTo(position, end - position, target);
+			if (transferred == 0 && position >= channel.size()) {
+				throw new EOFException("Extent is out of swap file: " + extent);
+			}
+			position += transferred;
+		}
+	}
+	
+	public void truncate(long size) throws IOException {
+		// 指定したバイト長より大きい場合のみ切り詰めるため、並行して呼び出されても拡張されることはない
+		if (channel.size() > size) {
+			channel.truncate(size);
+		}
+	}
+	
+	public void write(ByteBuffer buffer, long position) throws IOException {
+		long current = position;
+		while (buffer.hasRemaining()) {
+			current += channel.write(buffer, current);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>{@link FileChannel}には位置を指定した gathering write が無く、チャネルの位置を設定する書き込みは
+	 * チャネルのロックを必要とするため、位置を指定した書き込みのみを用いる。
+	 * バッファは最大{@value #CHUNK_SIZE}バイトのチャンクにまとめて書き込むため、書き込みの回数はバッファの数ではなく
+	 * 合計バイト長に比例する。チャンク以上の大きさのバッファは、コピーせずにそのまま書き込む。</p>
+	 */
+	public void write(ByteBuffer[] buffers, long position) throws IOException {
+		long total = 0L;
+		for (ByteBuffer buffer : buffers) {
+			total += buffer.remaining();
+		}
+		ByteBuffer chunk = null;
+		long current = position;
+		for (ByteBuffer buffer : buffers) {
+			while (buffer.hasRemaining()) {
+				if ((chunk == null || chunk.position() == 0) && buffer.remaining() >= CHUNK_SIZE) {
+					int length = buffer.remaining();
+					write(buffer, current);
+					current += length;
+					total -= length;
+					continue;
+				}
+				if (chunk == null) {
+					chunk = ByteBuffer.allocate((int) Math.min(total, CHUNK_SIZE));
+				}
+				int length = Math.min(buffer.remaining(), chunk.remaining());
+				ByteBuffer part = buffer.duplicate();
+				part.limit(part.position() + length);
+				chunk.put(part);
+				buffer.position(buffer.position() + length);
+				total -= length;
+				if (chunk.hasRemaining() == false) {
+					current = flush(chunk, current);
+				}
+			}
+		}
+		if (chunk != null && chunk.position() > 0) {
+			flush(chunk, current);
+		}
+	}
+	
+	/**
+	 * チャンクにまとめたバイト列を書き込み、チャンクを空にする。
+	 * 
+	 * @param chunk チャンク
+	 * @param position 書き込む位置
+	 * @return 書き込んだバイト列の終端位置
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	private long flush(ByteBuffer chunk, long position) throws IOException {
+		chunk.flip();
+		int length = chunk.remaining();
+		write(chunk, position);
+		chunk.clear();
+		return position + length;
+	}
+	
+}
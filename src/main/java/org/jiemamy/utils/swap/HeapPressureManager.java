@@ -0,0 +1,342 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.LogMarker;
+
+/**
+ * ヒープの使用率に応じて、{@link SwapCache}が保持する RealObject を追い出すマネージャ。
+ * 
+ * <p>
+ * ヒープのメモリプールに使用量の閾値を設定し、{@link MemoryPoolMXBean}の閾値超過通知を契機として使用率を評価する。
+ * GC 後の使用率が高水位点以上となった{@link Swapper}は逼迫状態となり、キャッシュへの新たなエントリの追加を停止した上で、
+ * 最も長い間使用されていないエントリから{@link #EVICTION_FRACTION}の割合ずつ追い出す。
+ * 追い出しは、直前の追い出しが GC に反映されるまで繰り返さない。<br>
+ * 逼迫状態の間は{@link #POLL_INTERVAL}ミリ秒ごとに使用率を評価し、低水位点を下回った時点でキャッシュを通常の動作に戻す。
+ * </p>
+ * 
+ * <p>
+ * メモリプールの閾値はJVM全体で共有されるため、登録された{@link Swapper}のうち最も低い高水位点を閾値として設定する。
+ * 監視スレッドは最初の登録時に開始し、全ての登録が解除されると終了する。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class HeapPressureManager implements NotificationListener, Runnable {
+	
+	/** 1回の評価で追い出すエントリの割合 */
+	static final double EVICTION_FRACTION = 0.25;
+	
+	/** 逼迫状態の間に使用率を評価する間隔（ミリ秒） */
+	static final long POLL_INTERVAL = 500L;
+	
+	/** シングルトンインスタンス */
+	static final HeapPressureManager INSTANCE = new HeapPressureManager(
+			(NotificationEmitter) ManagementFactory.getMemoryMXBean(), ManagementFactory.getMemoryPoolMXBeans(),
+			ManagementFactory.getGarbageCollectorMXBeans());
+	
+	private static Logger logger = LoggerFactory.getLogger(HeapPressureManager.class);
+	
+
+	/** 閾値超過通知を発行する{@link NotificationEmitter}。通知を受けない場合は{@code null} */
+	private final NotificationEmitter emitter;
+	
+	/** 使用量の閾値を設定できるヒープのメモリプール */
+	private final List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+	
+	/** GC の実行回数を取得する{@link GarbageCollectorMXBean} */
+	private final List<GarbageCollectorMXBean> collectors;
+	
+	/** 登録された{@link Swapper}と、その水位点 */
+	private final Map<Swapper, Registration> registrations = new LinkedHashMap<Swapper, Registration>();
+	
+	/** 監視スレッド。実行されていない場合は{@code null} */
+	private Thread thread;
+	
+	/** 通知リスナを登録したかどうか */
+	private boolean listening;
+	
+	/** 未処理の閾値超過通知があるかどうか */
+	private boolean notified;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param emitter 閾値超過通知を発行する{@link NotificationEmitter}。通知を受けない場合は{@code null}
+	 * @param memoryPools メモリプール
+	 * @param collectors GC の実行回数を取得する{@link GarbageCollectorMXBean}
+	 * @throws IllegalArgumentException 引数{@code memoryPools}, {@code collectors}に{@code null}を与えた場合
+	 */
+	HeapPressureManager(NotificationEmitter emitter, List<MemoryPoolMXBean> memoryPools,
+			List<GarbageCollectorMXBean> collectors) {
+		Validate.notNull(memoryPools);
+		Validate.notNull(collectors);
+		this.emitter = emitter;
+		this.collectors = collectors;
+		for (MemoryPoolMXBean pool : memoryPools) {
+			if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()) {
+				pools.add(pool);
+			}
+		}
+	}
+	
+	/**
+	 * 使用率を評価し、各{@link Swapper}の逼迫状態を更新する。
+	 * 
+	 * @param ratio ヒープの使用率
+	 * @param collectionCount GC の実行回数の合計
+	 */
+	void evaluate(double ratio, long collectionCount) {
+		List<Map.Entry<Swapper, Registration>> snapshot;
+		synchronized (this) {
+			snapshot = new ArrayList<Map.Entry<Swapper, Registration>>(registrations.entrySet());
+		}
+		for (Map.Entry<Swapper, Registration> entry : snapshot) {
+			SwapCache cache = entry.getKey().cache;
+			Registration registration = entry.getValue();
+			if (ratio >= registration.highWaterMark) {
+				if (registration.underPressure == false) {
+					registration.underPressure = true;
+					cache.setConstrained(true);
+					logger.info(LogMarker.LIFECYCLE, "Heap usage exceeded high-water mark: " + ratio);
+				}
+				// 直前の追い出しが GC に反映されるまでは追い出さない
+				if (registration.lastEvictionCount != collectionCount) {
+					registration.lastEvictionCount = collectionCount;
+					int evicted = cache.evictColdest(EVICTION_FRACTION);
+					logger.debug(LogMarker.LIFECYCLE, "Evicted " + evicted + " cached objects.");
+				}
+			} else if (registration.underPressure && ratio < registration.lowWaterMark) {
+				registration.underPressure = false;
+				cache.setConstrained(false);
+				logger.info(LogMarker.LIFECYCLE, "Heap usage fell below low-water mark: " + ratio);
+			}
+		}
+	}
+	
+	public void handleNotification(Notification notification, Object handback) {
+		String type = notification.getType();
+		if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)
+				|| MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)) {
+			synchronized (this) {
+				notified = true;
+				notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * {@link Swapper}を登録し、ヒープの使用率に応じたキャッシュの追い出しを開始する。
+	 * 
+	 * @param swapper 登録する{@link Swapper}
+	 * @param highWaterMark 逼迫状態とするヒープの使用率
+	 * @param lowWaterMark 逼迫状態を解除するヒープの使用率
+	 * @throws IllegalArgumentException 引数{@code swapper}に{@code null}を与えた場合
+	 * @throws IllegalArgumentException 水位点が{@code 0 < lowWaterMark < highWaterMark < 1}を満たさない場合
+	 */
+	synchronized void register(Swapper swapper, double highWaterMark, double lowWaterMark) {
+		Validate.notNull(swapper);
+		Validate.isTrue(0.0 < lowWaterMark && lowWaterMark < highWaterMark && highWaterMark < 1.0);
+		registrations.put(swapper, new Registration(highWaterMark, lowWaterMark));
+		updateThresholds();
+		
+		if (emitter != null && listening == false) {
+			emitter.addNotificationListener(this, null, null);
+			listening = true;
+		}
+		if (thread == null) {
+			thread = new Thread(this, "SwapHeapPressureMonitor");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+	
+	public void run() {
+		try {
+			while (true) {
+				synchronized (this) {
+					if (registrations.isEmpty()) {
+						break;
+					}
+					if (notified == false) {
+						wait(isUnderPressure() ? POLL_INTERVAL : 0L);
+					}
+					notified = false;
+					if (registrations.isEmpty()) {
+						break;
+					}
+				}
+				evaluate(usageRatio(), collectionCount());
+			}
+		} catch (InterruptedException e) {
+			// スレッド停止
+			logger.info(LogMarker.LIFECYCLE, "Shutting down because InterruptedException thrown.", e);
+		}
+		synchronized (this) {
+			thread = null;
+		}
+	}
+	
+	/**
+	 * {@link Swapper}の登録を解除する。
+	 * 
+	 * <p>逼迫状態であった場合は、キャッシュを通常の動作に戻す。</p>
+	 * 
+	 * @param swapper 登録を解除する{@link Swapper}
+	 */
+	synchronized void unregister(Swapper swapper) {
+		Registration registration = registrations.remove(swapper);
+		if (registration == null) {
+			return;
+		}
+		if (registration.underPressure) {
+			swapper.cache.setConstrained(false);
+		}
+		updateThresholds();
+		notifyAll();
+	}
+	
+	/**
+	 * GC の実行回数の合計を取得する。
+	 * 
+	 * @return GC の実行回数
+	 */
+	private long collectionCount() {
+		long count = 0L;
+		for (GarbageCollectorMXBean collector : collectors) {
+			count += Math.max(collector.getCollectionCount(), 0L);
+		}
+		return count;
+	}
+	
+	private boolean isUnderPressure() {
+		for (Registration registration : registrations.values()) {
+			if (registration.underPressure) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 各メモリプールに、登録された{@link Swapper}の最も低い高水位点を閾値として設定する。
+	 * 
+	 * <p>登録が無い場合は閾値を解除する。</p>
+	 */
+	private void updateThresholds() {
+		double highWaterMark = 1.0;
+		for (Registration registration : registrations.values()) {
+			highWaterMark = Math.min(highWaterMark, registration.highWaterMark);
+		}
+		for (MemoryPoolMXBean pool : pools) {
+			long max = pool.getUsage().getMax();
+			if (max <= 0) {
+				continue;
+			}
+			long threshold = registrations.isEmpty() ? 0L : (long) (max * highWaterMark);
+			pool.setUsageThreshold(threshold);
+			if (pool.isCollectionUsageThresholdSupported()) {
+				pool.setCollectionUsageThreshold(threshold);
+			}
+		}
+	}
+	
+	/**
+	 * ヒープの使用率を取得する。
+	 * 
+	 * <p>
+	 * 回収可能なオブジェクトによる一時的な使用量の増加で逼迫と判断しないよう、
+	 * 直前の GC 後の使用量を取得できるメモリプールはその値を用い、最も使用率の高いメモリプールの値を返す。
+	 * </p>
+	 * 
+	 * @return ヒープの使用率
+	 */
+	private double usageRatio() {
+		double ratio = 0.0;
+		boolean measured = false;
+		for (MemoryPoolMXBean pool : pools) {
+			long max = pool.getUsage().getMax();
+			if (max <= 0) {
+				continue;
+			}
+			MemoryUsage usage = pool.isCollectionUsageThresholdSupported() ? pool.getCollectionUsage() : null;
+			if (usage == null) {
+				usage = pool.getUsage();
+			}
+			ratio = Math.max(ratio, (double) usage.getUsed() / max);
+			measured = true;
+		}
+		if (measured == false) {
+			MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+			if (heap.getMax() > 0) {
+				ratio = (double) heap.getUsed() / heap.getMax();
+			}
+		}
+		return ratio;
+	}
+	
+
+	/**
+	 * 登録された{@link Swapper}の水位点と状態。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static final class Registration {
+		
+		/** 逼迫状態とするヒープの使用率 */
+		final double highWaterMark;
+		
+		/** 逼迫状態を解除するヒープの使用率 */
+		final double lowWaterMark;
+		
+		/** 逼迫状態かどうか */
+		volatile boolean underPressure;
+		
+		/** 直前に追い出しを行った時点の GC の実行回数 */
+		long lastEvictionCount = -1L;
+		
+
+		Registration(double highWaterMark, double lowWaterMark) {
+			this.highWaterMark = highWaterMark;
+			this.lowWaterMark = lowWaterMark;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * 処理時間の分布を表すヒストグラムのスナップショット。
+ * 
+ * <p>
+ * 処理時間（ナノ秒）は、2の冪ごとの区間をさらに8分割したバケットに集計される。
+ * そのため、パーセンタイル値は実際の値に対して最大で約12.5%大きく見積もられる。
+ * </p>
+ * 
+ * <p>このクラスは不変である。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public final class LatencyHistogram {
+	
+	/** 2の冪ごとの区間の分割数（ビット数） */
+	private static final int SUB_BUCKET_BITS = 3;
+	
+	/** 2の冪ごとの区間の分割数 */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	
+	/** バケット数 */
+	static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+	
+
+	/**
+	 * 処理時間を集計するバケットの番号を取得する。
+	 * 
+	 * @param nanos 処理時間（ナノ秒）
+	 * @return バケットの番号
+	 */
+	static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKET_COUNT) {
+			return (int) Math.max(nanos, 0L);
+		}
+		int octave = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (octave - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (octave - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + sub;
+	}
+	
+	/**
+	 * バケットに集計される処理時間の上限を取得する。
+	 * 
+	 * @param bucket バケットの番号
+	 * @return 処理時間の上限（ナノ秒）
+	 */
+	static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKET_COUNT) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKET_COUNT - 1;
+		long sub = bucket % SUB_BUCKET_COUNT;
+		return ((SUB_BUCKET_COUNT + sub + 1) << shift) - 1;
+	}
+	
+
+	/** 計測回数 */
+	private final long count;
+	
+	/** 処理時間の合計（ナノ秒） */
+	private final long totalNanos;
+	
+	/** 処理時間の最大値（ナノ秒） */
+	private final long maxNanos;
+	
+	/** バケットごとの計測回数 */
+	private final long[] counts;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param count 計測回数
+	 * @param totalNanos 処理時間の合計（ナノ秒）
+	 * @param maxNanos 処理時間の最大値（ナノ秒）
+	 * @param counts バケットごとの計測回数
+	 */
+	LatencyHistogram(long count, long totalNanos, long maxNanos, long[] counts) {
+		this.count = count;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+		this.counts = counts;
+	}
+	
+	/**
+	 * 計測回数を取得する。
+	 * 
+	 * @return 計測回数
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * 処理時間の最大値を取得する。
+	 * 
+	 * @return 処理時間の最大値（ナノ秒）
+	 */
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+	
+	/**
+	 * 処理時間の平均値を取得する。
+	 * 
+	 * @return 処理時間の平均値（ナノ秒）。計測回数が{@code 0}の場合は{@code 0}
+	 */
+	public double getMeanNanos() {
+		return count == 0 ? 0.0 : (double) totalNanos / count;
+	}
+	
+	/**
+	 * 処理時間の中央値を取得する。
+	 * 
+	 * @return 処理時間の中央値（ナノ秒）
+	 */
+	public long getMedianNanos() {
+		return getPercentileNanos(50.0);
+	}
+	
+	/**
+	 * 処理時間のパーセンタイル値を取得する。
+	 * 
+	 * @param percentile パーセンタイル（{@code 0}より大きく{@code 100}以下）
+	 * @return パーセンタイル値（ナノ秒）。計測回数が{@code 0}の場合は{@code 0}
+	 * @throws IllegalArgumentException 引数に範囲外の値を与えた場合
+	 */
+	public long getPercentileNanos(double percentile) {
+		Validate.isTrue(percentile > 0.0 && percentile <= 100.0);
+		long total = 0L;
+		for (long c : counts) {
+			total += c;
+		}
+		if (total == 0) {
+			return 0L;
+		}
+		long rank = (long) Math.ceil(total * percentile / 100.0);
+		long seen = 0L;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+	
+	/**
+	 * 処理時間の99パーセンタイル値を取得する。
+	 * 
+	 * @return 処理時間の99パーセンタイル値（ナノ秒）
+	 */
+	public long getPercentile99Nanos() {
+		return getPercentileNanos(99.0);
+	}
+	
+	/**
+	 * 処理時間の合計を取得する。
+	 * 
+	 * @return 処理時間の合計（ナノ秒）
+	 */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+	
+	@Override
+	public String toString() {
+		return "count=" + count + ", mean=" + (long) getMeanNanos() + "ns, p50=" + getMedianNanos() + "ns, p99="
+				+ getPercentile99Nanos() + "ns, max=" + maxNanos + "ns";
+	}
+	
+}
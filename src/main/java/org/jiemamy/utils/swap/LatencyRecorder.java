@@ -0,0 +1,86 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 処理時間を計測し、ヒストグラムに集計するクラス。
+ * 
+ * <p>このクラスはスレッドセーフである。計測はロックを用いずに行われる。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class LatencyRecorder {
+	
+	/** 計測回数 */
+	private final AtomicLong count = new AtomicLong();
+	
+	/** 処理時間の合計（ナノ秒） */
+	private final AtomicLong totalNanos = new AtomicLong();
+	
+	/** 処理時間の最大値（ナノ秒） */
+	private final AtomicLong maxNanos = new AtomicLong();
+	
+	/** バケットごとの計測回数 */
+	private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKET_COUNT);
+	
+
+	/**
+	 * 処理時間を記録する。
+	 * 
+	 * @param nanos 処理時間（ナノ秒）
+	 */
+	void record(long nanos) {
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		counts.incrementAndGet(LatencyHistogram.bucketOf(nanos));
+		long max = maxNanos.get();
+		while (nanos > max && maxNanos.compareAndSet(max, nanos) == false) {
+			max = maxNanos.get();
+		}
+	}
+	
+	/**
+	 * 指定した開始時刻からの経過時間を記録する。
+	 * 
+	 * @param startNanos {@link System#nanoTime()}で取得した開始時刻
+	 */
+	void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+	
+	/**
+	 * 現在のヒストグラムのスナップショットを取得する。
+	 * 
+	 * <p>計測と並行して取得した場合、各値は厳密には同時点のものではない。</p>
+	 * 
+	 * @return ヒストグラムのスナップショット
+	 */
+	LatencyHistogram snapshot() {
+		long[] snapshot = new long[counts.length()];
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = counts.get(i);
+		}
+		return new LatencyHistogram(count.get(), totalNanos.get(), maxNanos.get(), snapshot);
+	}
+	
+}
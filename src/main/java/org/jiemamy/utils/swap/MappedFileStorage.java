@@ -0,0 +1,245 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * スワップファイルを固定長のセグメント単位でメモリマップした{@link SwapStorage}の実装。
+ * 
+ * <p>
+ * 読み込みはロックを取得せず、マップされた領域の内容をヒープ上のバッファへ複写して返す。
+ * ページキャッシュに載っている領域の読み込みは、システムコールを伴わないメモリアクセスとなる。
+ * マップされた領域のスライスを返すと、検証やデコードの最中に領域が解放、再利用されて内容が変わる可能性があるため、
+ * スライスは返さない。<br>
+ * 既存のスワップファイルの内容は生成時にマップされ、書き込みによってスワップファイルが伸長する場合は、
+ * 必要なセグメントが追加でマップされる。
+ * </p>
+ * 
+ * <p>
+ * マップされた領域は移植性のある方法で解放できないため、この実装は{@link #truncate(long)}でスワップファイルを切り詰めない。
+ * 解放された領域は{@link ExtentAllocator}によって再利用される。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class MappedFileStorage implements SwapStorage {
+	
+	/** デフォルトのセグメント長 */
+	static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+	
+	/** スワップファイルのファイルチャネル */
+	private final FileChannel channel;
+	
+	/** セグメント長 */
+	private final int segmentSize;
+	
+	/** マップ済みのセグメント。伸長時は配列ごと置き換える。 */
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param file スワップファイル
+	 * @param segmentSize セグメント長
+	 * @throws IOException スワップファイルを開けなかった場合
+	 * @throws IllegalArgumentException 引数{@code file}に{@code null}を与えた場合
+	 * @throws IllegalArgumentException 引数{@code segmentSize}に{@code 1}未満の値を与えた場合
+	 */
+	MappedFileStorage(File file, int segmentSize) throws IOException {
+		Validate.notNull(file);
+		Validate.isTrue(segmentSize > 0);
+		channel = new RandomAccessFile(file, "rw").getChannel();
+		this.segmentSize = segmentSize;
+		
+		// 永続化されたスワップファイルを開き直した場合は、既存の内容をマップする
+		ensureMapped(channel.size());
+	}
+	
+	public void close() throws IOException {
+		segments = new MappedByteBuffer[0];
+		channel.close();
+	}
+	
+	public void force() {
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>領域の内容は、マップされた領域からヒープ上のバッファへ1回だけ複写する。
+	 * 読み込んだ側が領域を使い終えるまで解放を保留すれば複写を省けるが、全ての読み込みでシャードのロックを
+	 * 取得することになり、ロックを取得しない読み込みという利点が失われるため、そうしない。</p>
+	 */
+	public ByteBuffer read(Extent extent) throws IOException {
+		MappedByteBuffer[] current = segments;
+		if (extent.end() > (long) current.length * segmentSize) {
+			throw new IOException("Extent is out of mapped region: " + extent);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(extent.length);
+		transfer(current, extent.position, buffer, true);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public long size() {
+		return (long) segments.length * segmentSize;
+	}
+	
+	public void transferFrom(ReadableByteChannel source, Extent extent) throws IOException {
+		MappedByteBuffer[] current = ensureMapped(extent.end());
+		long position = extent.position;
+		while (position < extent.end()) {
+			ByteBuffer segment = chunk(current, position, extent.end());
+			position += segment.remaining();
+			while (segment.hasRemaining()) {
+				if (source.read(segment) < 0) {
+					throw new EOFException("Unexpected end of channel.");
+				}
+			}
+		}
+	}
+	
+	public void transferTo(Extent extent, WritableByteChannel target) throws IOException {
+		MappedByteBuffer[] current = segments;
+		if (extent.end() > (long) current.length * segmentSize) {
+			throw new IOException("Extent is out of mapped region: " + extent);
+		}
+		long position = extent.position;
+		while (position < extent.end()) {
+			ByteBuffer segment = chunk(current, position, extent.end());
+			position += segment.remaining();
+			while (segment.hasRemaining()) {
+				target.write(segment);
+			}
+		}
+	}
+	
+	public void truncate(long size) {
+		// マップ済みの領域は切り詰めない
+	}
+	
+	public void write(ByteBuffer buffer, long position) throws IOException {
+		MappedByteBuffer[] current = ensureMapped(position + buffer.remaining());
+		transfer(current, position, buffer, false);
+	}
+	
+	public void write(ByteBuffer[] buffers, long position) throws IOException {
+		long length = 0L;
+		for (ByteBuffer buffer : buffers) {
+			length += buffer.remaining();
+		}
+		MappedByteBuffer[] current = ensureMapped(position + length);
+		long offset = position;
+		for (ByteBuffer buffer : buffers) {
+			int remaining = buffer.remaining();
+			transfer(current, offset, buffer, false);
+			offset += remaining;
+		}
+	}
+	
+	/**
+	 * 指定した位置までのセグメントがマップされていることを保証する。
+	 * 
+	 * @param end 必要な領域の終端位置
+	 * @return マップ済みのセグメント
+	 * @throws IOException マップに失敗した場合
+	 */
+	private synchronized MappedByteBuffer[] ensureMapped(long end) throws IOException {
+		MappedByteBuffer[] current = segments;
+		int required = (int) ((end + segmentSize - 1) / segmentSize);
+		if (required <= current.length) {
+			return current;
+		}
+		
+		MappedByteBuffer[] grown = Arrays.copyOf(current, required);
+		for (int i = current.length; i < required; i++) {
+			grown[i] = channel.map(MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+		}
+		segments = grown;
+		return grown;
+	}
+	
+	/**
+	 * 指定した位置から、同じセグメントに収まる範囲のバイト列を共有するバッファを取得する。
+	 * 
+	 * @param current マップ済みのセグメント
+	 * @param position 開始位置
+	 * @param end 終端位置
+	 * @return セグメントの内容を共有するバッファ。位置とリミットは転送する範囲に設定されている
+	 */
+	private ByteBuffer chunk(MappedByteBuffer[] current, long position, long end) {
+		int index = (int) (position / segmentSize);
+		int offset = (int) (position % segmentSize);
+		int count = (int) Math.min(end - position, segmentSize - offset);
+		ByteBuffer segment = current[index].duplicate();
+		segment.position(offset);
+		segment.limit(offset + count);
+		return segment;
+	}
+	
+	/**
+	 * セグメントとバッファの間でバイト列を転送する。
+	 * 
+	 * @param current マップ済みのセグメント
+	 * @param position 転送を開始するスワップファイル内の位置
+	 * @param buffer 転送元、または転送先のバッファ
+	 * @param read セグメントからバッファへ読み込む場合は{@code true}、バッファからセグメントへ書き込む場合は{@code false}
+	 */
+	private void transfer(MappedByteBuffer[] current, long position, ByteBuffer buffer, boolean read) {
+		long pos = position;
+		while (buffer.hasRemaining()) {
+			int index = (int) (pos / segmentSize);
+			int offset = (int) (pos % segmentSize);
+			int count = Math.min(buffer.remaining(), segmentSize - offset);
+			
+			ByteBuffer segment = current[index].duplicate();
+			segment.position(offset);
+			segment.limit(offset + count);
+			if (read) {
+				buffer.put(segment);
+			} else {
+				ByteBuffer src = buffer.duplicate();
+				src.limit(src.position() + count);
+				segment.put(src);
+				buffer.position(buffer.position() + count);
+			}
+			pos += count;
+		}
+	}
+	
+}
@@ -19,17 +19,26 @@
 package org.jiemamy.utils.swap;
 
 import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EventObject;
+import java.util.List;
 
 /**
  * 参照イベント
  * 
+ * <p>到達可能性が変更された1つ以上の参照をまとめて通知する。</p>
+ * 
  * @version $Id$
  * @author Keisuke.K
  */
 @SuppressWarnings("serial")
 class ReferenceEvent extends EventObject {
 	
+	/** 到達可能性が変更された参照 */
+	private final transient List<Reference<?>> references;
+	
+
 	/**
 	 * インスタンスを生成する。
 	 * 
@@ -38,6 +47,27 @@ class ReferenceEvent extends EventObject {
 	 */
 	public <T> ReferenceEvent(Reference<T> source) {
 		super(source);
+		references = Collections.<Reference<?>> singletonList(source);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param source イベントの発生元
+	 * @param references 到達可能性が変更された参照のリスト
+	 */
+	public ReferenceEvent(Object source, List<? extends Reference<?>> references) {
+		super(source);
+		this.references = Collections.unmodifiableList(new ArrayList<Reference<?>>(references));
+	}
+	
+	/**
+	 * 到達可能性が変更された参照のリストを取得する。
+	 * 
+	 * @return 参照のリスト
+	 */
+	public List<Reference<?>> getReferences() {
+		return references;
 	}
 	
 }
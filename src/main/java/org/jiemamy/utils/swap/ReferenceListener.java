@@ -33,4 +33,11 @@ interface ReferenceListener {
 	 */
 	void referenceModified(ReferenceEvent event);
 	
+	/**
+	 * 参照キューが一定時間空であったことを通知する。
+	 * 
+	 * <p>保留している後処理を行う契機として用いる。</p>
+	 */
+	void referenceQueueIdle();
+	
 }
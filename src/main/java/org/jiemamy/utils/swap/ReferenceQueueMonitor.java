@@ -22,6 +22,7 @@ import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.lang.Validate;
 import org.slf4j.Logger;
@@ -37,12 +38,28 @@ import org.jiemamy.utils.LogMarker;
  * クラスに対し通知を行う。
  * </p>
  * 
+ * <p>
+ * 参照キューから取り出せる参照は、最大{@link #MAX_BATCH_SIZE}個までまとめて1回のイベントで通知する。
+ * GC によって多数の参照が一度に回収された場合でも、リスナはロックの取得や後処理をまとめて行うことができる。<br>
+ * また、参照キューが{@link #IDLE_INTERVAL}ミリ秒の間空であった場合は{@link ReferenceListener#referenceQueueIdle()}を通知する。
+ * </p>
+ * 
+ * <p>
+ * 監視スレッドは{@link #start(String)}で開始し、{@link #shutdown(long)}で停止する。
+ * </p>
+ * 
  * @param <T> 参照キューに指定する型
  * @version $Id$
  * @author Keisuke.K
  */
 final class ReferenceQueueMonitor<T> implements Runnable {
 	
+	/** 1回のイベントにまとめる参照の最大数 */
+	static final int MAX_BATCH_SIZE = 1024;
+	
+	/** 参照キューが空の場合に、{@link ReferenceListener#referenceQueueIdle()}を通知する間隔（ミリ秒） */
+	static final long IDLE_INTERVAL = 100L;
+	
 	private static Logger logger = LoggerFactory.getLogger(ReferenceQueueMonitor.class);
 	
 	/** 参照キュー */
@@ -52,7 +69,10 @@ final class ReferenceQueueMonitor<T> implements Runnable {
 	List<ReferenceListener> listeners;
 	
 	/** スレッド実行フラグ */
-	boolean running;
+	volatile boolean running;
+	
+	/** 監視スレッド */
+	private Thread thread;
 	
 
 	/**
@@ -64,25 +84,48 @@ final class ReferenceQueueMonitor<T> implements Runnable {
 	public ReferenceQueueMonitor(ReferenceQueue<T> queue) {
 		Validate.notNull(queue);
 		this.queue = queue;
-		this.listeners = new ArrayList<ReferenceListener>();
+		this.listeners = new CopyOnWriteArrayList<ReferenceListener>();
 		this.running = true;
 	}
 	
 	public void run() {
-		while (running) {
-			try {
-				Reference<? extends T> ref = queue.remove();
-				ReferenceEvent event = new ReferenceEvent(ref);
+		List<Reference<? extends T>> batch = new ArrayList<Reference<? extends T>>();
+		try {
+			while (running) {
+				Reference<? extends T> ref = queue.remove(IDLE_INTERVAL);
+				if (ref == null) {
+					for (ReferenceListener listener : listeners) {
+						try {
+							listener.referenceQueueIdle();
+						} catch (RuntimeException e) {
+							logger.error(LogMarker.BOUNDARY, "Error handling idle reference queue.", e);
+						}
+					}
+					continue;
+				}
 				
+				// 続けて取り出せる参照をまとめる
+				do {
+					batch.add(ref);
+				} while (batch.size() < MAX_BATCH_SIZE && (ref = queue.poll()) != null);
+				
+				ReferenceEvent event = new ReferenceEvent(queue, batch);
+				batch.clear();
 				for (ReferenceListener listener : listeners) {
-					listener.referenceModified(event);
+					try {
+						listener.referenceModified(event);
+					} catch (RuntimeException e) {
+						logger.error(LogMarker.BOUNDARY, "Error handling cleared references.", e);
+					}
 				}
-			} catch (InterruptedException e) {
-				// スレッド停止
+			}
+		} catch (InterruptedException e) {
+			// スレッド停止
+			if (running) {
 				logger.info(LogMarker.LIFECYCLE, "Shutting down because InterruptedException thrown.", e);
-				running = false;
 			}
 		}
+		running = false;
 	}
 	
 	/**
@@ -94,4 +137,53 @@ final class ReferenceQueueMonitor<T> implements Runnable {
 		listeners.add(listener);
 	}
 	
+	/**
+	 * 監視スレッドを停止し、終了を待機する。
+	 * 
+	 * <p>処理中のイベントの通知が完了するまで、最大で指定した時間だけ待機する。</p>
+	 * 
+	 * @param timeout 待機する最大時間（ミリ秒）
+	 * @return 監視スレッドが終了した場合は{@code true}、時間内に終了しなかった場合は{@code false}
+	 */
+	boolean shutdown(long timeout) {
+		Thread current;
+		synchronized (this) {
+			running = false;
+			current = thread;
+			thread = null;
+		}
+		if (current == null) {
+			return true;
+		}
+		current.interrupt();
+		if (current == Thread.currentThread()) {
+			return false;
+		}
+		try {
+			current.join(timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (current.isAlive()) {
+			return false;
+		}
+		logger.info(LogMarker.LIFECYCLE, "Shut down " + current.getName() + ".");
+		return true;
+	}
+	
+	/**
+	 * デーモンスレッドとして監視スレッドを開始する。
+	 * 
+	 * @param name スレッド名
+	 * @throws IllegalStateException 既に開始している場合、または停止した後に呼び出した場合
+	 */
+	synchronized void start(String name) {
+		if (thread != null || running == false) {
+			throw new IllegalStateException("Monitor is already started or shut down.");
+		}
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Java のシリアライズ機構を用いた{@link SwapCodec}の実装。
+ * 
+ * <p>{@link SwapObject}に対してコーデックを指定しなかった場合は、このコーデックが用いられる。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class SerializableCodec implements SwapCodec<Serializable> {
+	
+	/** シングルトンインスタンス */
+	static final SerializableCodec INSTANCE = new SerializableCodec();
+	
+
+	private SerializableCodec() {
+	}
+	
+	public Serializable decode(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+		ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(buffer));
+		try {
+			return (Serializable) ois.readObject();
+		} finally {
+			ois.close();
+		}
+	}
+	
+	public ByteBuffer encode(Serializable obj) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		try {
+			oos.writeObject(obj);
+		} finally {
+			oos.close();
+		}
+		return ByteBuffer.wrap(baos.toByteArray());
+	}
+	
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link SwapObject}と{@link Swapper}の間に位置する、RealObject のメモリ上のキャッシュ。
+ * 
+ * <p>
+ * {@link SwapObject}は RealObject を弱参照でしか保持しないため、GC が発生するたびに RealObject は破棄され、
+ * 次回のアクセス時にはデシリアライズが必要となる。このキャッシュは最近使用された RealObject を強参照で保持し、
+ * 使用されていない RealObject のみをスワップファイルへ追い出す。
+ * </p>
+ * 
+ * <p>
+ * キャッシュの上限は、エントリ数と合計バイト長（シリアライズ後のバイト長）で指定する。
+ * エントリ数の上限を超えた場合は、最も長い間使用されていないエントリから順に追い出す（LRU）。
+ * 合計バイト長の上限を超えた場合は、最も長い間使用されていない{@value #EVICTION_CANDIDATES}個のエントリを候補とし、
+ * その中で最もバイト長の大きいエントリから順に追い出す。最後に追加、更新したエントリは候補としない。
+ * そのため、合計バイト長を指定した場合は、使用されていない大きな RealObject ほど先に追い出される。
+ * いずれの上限も指定しない場合、RealObject は保持されないが、ヒット/ミスの回数は記録される。
+ * </p>
+ * 
+ * <p>
+ * キャッシュ済みの RealObject へのヒットはロックを取得せず、前回並べ替えた後に初めて使用された場合のみ、
+ * エントリに使用された時刻（アクセス順の番号）を記録する。
+ * エントリの並べ替えは追い出しの際にまとめて行い、前回並べ替えた後に使用されたエントリを末尾へ移してから追い出す。
+ * そのため、追い出しの順序は厳密な LRU ではなく、その近似となる。
+ * ヒット回数はスレッドごとに異なるストライプへ記録するため、ヒットが共有のカウンタで競合することはない。
+ * </p>
+ * 
+ * <p>
+ * ヒープが逼迫している間は{@link #setConstrained(boolean)}によって新たなエントリの追加を停止し、
+ * {@link #evictColdest(double)}で最も長い間使用されていないエントリを追い出すことができる。
+ * 追い出された RealObject は既にスワップファイルへ書き込まれているため、強参照を手放すだけで GC の対象となる。
+ * </p>
+ * 
+ * <p>このクラスはスレッドセーフである。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class SwapCache {
+	
+	/** 合計バイト長の上限を超えた場合に、追い出すエントリを選ぶ候補の数 */
+	private static final int EVICTION_CANDIDATES = 4;
+	
+	/** ヒット回数を分散して記録するストライプの数。2の累乗とする。 */
+	private static final int HIT_STRIPES = 16;
+	
+	/** 隣接するストライプが同じキャッシュラインに載らないよう、ストライプの間に空ける要素数 */
+	private static final int STRIPE_PADDING = 8;
+	
+
+	/** 最大エントリ数。{@code 0}の場合は無制限 */
+	private final int maxEntries;
+	
+	/** 最大合計バイト長。{@code 0}の場合は無制限 */
+	private final long maxBytes;
+	
+	/** キャッシュのエントリ。末尾へ並べ替えられた順に並ぶ。このインスタンスで同期して読み書きする。 */
+	private final LinkedHashMap<SwapReference, Entry> entries = new LinkedHashMap<SwapReference, Entry>();
+	
+	/** ロックを取得せずにエントリを参照するための索引。{@link #entries}と同じエントリを、このインスタンスで同期して更新する。 */
+	private final ConcurrentHashMap<SwapReference, Entry> index = new ConcurrentHashMap<SwapReference, Entry>();
+	
+	/** エントリが使用された順序を表す番号の、最後に発行した値 */
+	private final AtomicLong clock = new AtomicLong();
+	
+	/** キャッシュしているエントリのバイト長の合計 */
+	private long bytes;
+	
+	/** 新たなエントリの追加を停止しているかどうか */
+	private boolean constrained;
+	
+	/** デシリアライズせずに RealObject を取得できた回数。スレッドごとのストライプに分散して記録する。 */
+	private final AtomicLongArray hitCounts = new AtomicLongArray(HIT_STRIPES * STRIPE_PADDING);
+	
+	/** RealObject のデシリアライズが必要となった回数 */
+	private final AtomicLong missCount = new AtomicLong();
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param maxEntries 最大エントリ数。{@code 0}の場合は無制限
+	 * @param maxBytes 最大合計バイト長。{@code 0}の場合は無制限
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
+	 */
+	SwapCache(int maxEntries, long maxBytes) {
+		Validate.isTrue(maxEntries >= 0);
+		Validate.isTrue(maxBytes >= 0);
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+	
+	/**
+	 * キャッシュしている全てのエントリを破棄する。
+	 */
+	synchronized void clear() {
+		entries.clear();
+		index.clear();
+		bytes = 0L;
+	}
+	
+	/**
+	 * 最も長い間使用されていないエントリから順に、指定した割合のエントリを追い出す。
+	 * 
+	 * @param fraction 追い出すエントリの割合
+	 * @return 追い出したエントリ数
+	 * @throws IllegalArgumentException 引数に{@code 0}以上{@code 1}以下でない値を与えた場合
+	 */
+	synchronized int evictColdest(double fraction) {
+		Validate.isTrue(fraction >= 0.0 && fraction <= 1.0);
+		int count = (int) Math.ceil(entries.size() * fraction);
+		for (int i = 0; i < count; i++) {
+			evictEldest();
+		}
+		return count;
+	}
+	
+	/**
+	 * キャッシュしているエントリのバイト長の合計を取得する。
+	 * 
+	 * @return バイト長の合計
+	 */
+	synchronized long getBytes() {
+		return bytes;
+	}
+	
+	/**
+	 * デシリアライズせずに RealObject を取得できた回数を取得する。
+	 * 
+	 * @return ヒット回数
+	 */
+	long getHitCount() {
+		long total = 0L;
+		for (int i = 0; i < HIT_STRIPES; i++) {
+			total += hitCounts.get(i * STRIPE_PADDING);
+		}
+		return total;
+	}
+	
+	/**
+	 * RealObject のデシリアライズが必要となった回数を取得する。
+	 * 
+	 * @return ミス回数
+	 */
+	long getMissCount() {
+		return missCount.get();
+	}
+	
+	/**
+	 * キャッシュしているエントリ数を取得する。
+	 * 
+	 * @return エントリ数
+	 */
+	synchronized int getSize() {
+		return entries.size();
+	}
+	
+	/**
+	 * デシリアライズせずに RealObject を取得できたことを記録し、エントリを最近使用されたものとして扱う。
+	 * 
+	 * <p>同じ RealObject のエントリがキャッシュ済みの場合は、ロックを取得しない。
+	 * 並べ替えはエントリが前回並べ替えた後に使用されたかどうかのみを参照するため、使用された順序は前回並べ替えた後の
+	 * 最初のヒットでのみ記録し、以降のヒットでは何も書き込まない。
+	 * スワップ情報が設定される前の{@link SwapObject}のヒットは、回数のみを記録する。</p>
+	 * 
+	 * @param swapRef スワップ情報。設定される前の場合は{@code null}
+	 * @param obj RealObject
+	 */
+	void hit(SwapReference swapRef, Object obj) {
+		hitCounts.incrementAndGet((int) (Thread.currentThread().getId() & (HIT_STRIPES - 1)) * STRIPE_PADDING);
+		if (swapRef == null) {
+			return;
+		}
+		Entry entry = index.get(swapRef);
+		if (entry != null && entry.value == obj) {
+			if (entry.accessed == entry.ordered) {
+				entry.accessed = clock.incrementAndGet();
+			}
+			return;
+		}
+		put(swapRef, obj);
+	}
+	
+	/**
+	 * 新たなエントリの追加を停止しているかどうかを取得する。
+	 * 
+	 * @return 停止している場合は{@code true}、そうでない場合は{@code false}
+	 */
+	synchronized boolean isConstrained() {
+		return constrained;
+	}
+	
+	/**
+	 * キャッシュが有効かどうかを取得する。
+	 * 
+	 * @return 最大エントリ数、最大合計バイト長のいずれかが指定されている場合は{@code true}、そうでない場合は{@code false}
+	 */
+	boolean isEnabled() {
+		return maxEntries > 0 || maxBytes > 0;
+	}
+	
+	/**
+	 * RealObject のデシリアライズが必要となったことを記録し、デシリアライズした RealObject をキャッシュする。
+	 * 
+	 * @param swapRef スワップ情報
+	 * @param obj デシリアライズした RealObject
+	 */
+	void miss(SwapReference swapRef, Object obj) {
+		missCount.incrementAndGet();
+		put(swapRef, obj);
+	}
+	
+	/**
+	 * RealObject をキャッシュし、上限を超えたエントリを追い出す。
+	 * 
+	 * <p>エントリの重みには、スワップ情報が示すシリアライズ後のバイト長（圧縮されている場合は圧縮前のバイト長）を用いる。
+	 * 新たなエントリの追加を停止している場合は、既にキャッシュしているエントリの更新のみを行う。
+	 * スワップ情報が設定される前の場合は、何もしない。</p>
+	 * 
+	 * @param swapRef スワップ情報。設定される前の場合は{@code null}
+	 * @param obj RealObject
+	 */
+	void put(SwapReference swapRef, Object obj) {
+		if (isEnabled() == false || swapRef == null) {
+			return;
+		}
+		Extent extent = swapRef.extent;
+		int weight = extent.isCompressed() ? extent.rawLength : extent.length - ExtentHeader.LENGTH;
+		
+		synchronized (this) {
+			if (constrained && entries.containsKey(swapRef) == false) {
+				// ヒープの逼迫中は、新たなエントリを追加しない
+				return;
+			}
+			Entry entry = new Entry(obj, weight, clock.incrementAndGet());
+			// 既存のエントリを置き換える場合も末尾へ移す
+			Entry old = entries.remove(swapRef);
+			if (old != null) {
+				bytes -= old.weight;
+			}
+			entries.put(swapRef, entry);
+			index.put(swapRef, entry);
+			bytes += weight;
+			evict();
+		}
+	}
+	
+	/**
+	 * エントリをキャッシュから取り除く。
+	 * 
+	 * @param swapRef スワップ情報
+	 */
+	synchronized void remove(SwapReference swapRef) {
+		Entry old = entries.remove(swapRef);
+		if (old != null) {
+			index.remove(swapRef);
+			bytes -= old.weight;
+		}
+	}
+	
+	/**
+	 * 新たなエントリの追加を停止するかどうかを設定する。
+	 * 
+	 * @param constrained 停止する場合は{@code true}、再開する場合は{@code false}
+	 */
+	synchronized void setConstrained(boolean constrained) {
+		this.constrained = constrained;
+	}
+	
+	/**
+	 * 上限を超えている間、エントリを追い出す。
+	 * 
+	 * <p>合計バイト長の上限を超えている場合はバイト長の大きいエントリを優先し、
+	 * エントリ数の上限のみを超えている場合は最も長い間使用されていないエントリから追い出す。</p>
+	 */
+	private void evict() {
+		while (entries.isEmpty() == false && isOverflowed()) {
+			if (maxBytes > 0 && bytes > maxBytes) {
+				evictHeaviest();
+			} else {
+				evictEldest();
+			}
+		}
+	}
+	
+	/**
+	 * 最も長い間使用されていないエントリを1つ追い出す。
+	 */
+	private void evictEldest() {
+		reorder();
+		Map.Entry<SwapReference, Entry> eldest = entries.entrySet().iterator().next();
+		evict(eldest.getKey(), eldest.getValue());
+	}
+	
+	/**
+	 * 最も長い間使用されていないエントリのうち、最もバイト長の大きいエントリを1つ追い出す。
+	 * 
+	 * <p>先頭から{@value #EVICTION_CANDIDATES}個までの、前回並べ替えた後に使用されていないエントリを候補とする。
+	 * 末尾のエントリは、他に候補が無い場合のみ追い出す。</p>
+	 */
+	private void evictHeaviest() {
+		reorder();
+		Iterator<Map.Entry<SwapReference, Entry>> itr = entries.entrySet().iterator();
+		Map.Entry<SwapReference, Entry> victim = itr.next();
+		for (int i = 1; i < EVICTION_CANDIDATES && itr.hasNext(); i++) {
+			Map.Entry<SwapReference, Entry> candidate = itr.next();
+			Entry entry = candidate.getValue();
+			if (itr.hasNext() == false) {
+				// 最後に追加、更新したエントリ
+				break;
+			}
+			if (entry.accessed == entry.ordered && entry.weight > victim.getValue().weight) {
+				victim = candidate;
+			}
+		}
+		evict(victim.getKey(), victim.getValue());
+	}
+	
+	private void evict(SwapReference swapRef, Entry entry) {
+		entries.remove(swapRef);
+		index.remove(swapRef);
+		bytes -= entry.weight;
+	}
+	
+	private boolean isOverflowed() {
+		return (maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && bytes > maxBytes);
+	}
+	
+	/**
+	 * 先頭のエントリが、前回並べ替えた後に使用されていないエントリとなるまで並べ替える。
+	 * 
+	 * <p>先頭から順に、前回並べ替えた後に使用されたエントリを末尾へ移す。
+	 * 並べ替え中にも使用され続けて使用されていないエントリが見つからない場合に備え、並べ替えはエントリ数までに制限する。</p>
+	 */
+	private void reorder() {
+		for (int rotations = entries.size(); rotations > 0; rotations--) {
+			Iterator<Map.Entry<SwapReference, Entry>> itr = entries.entrySet().iterator();
+			Map.Entry<SwapReference, Entry> eldest = itr.next();
+			SwapReference swapRef = eldest.getKey();
+			Entry entry = eldest.getValue();
+			long accessed = entry.accessed;
+			if (accessed == entry.ordered) {
+				return;
+			}
+			itr.remove();
+			entry.ordered = accessed;
+			entries.put(swapRef, entry);
+		}
+	}
+	
+
+	/**
+	 * キャッシュのエントリ。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static final class Entry {
+		
+		/** キャッシュしている RealObject */
+		final Object value;
+		
+		/** エントリの重み（バイト長） */
+		final int weight;
+		
+		/** 最後に使用された順序。ロックを取得せずに更新される。 */
+		volatile long accessed;
+		
+		/** 最後に末尾へ並べ替えた時点の{@link #accessed}。{@link SwapCache}で同期して書き込み、ヒットの際はロックを取得せずに読み込む。 */
+		volatile long ordered;
+		
+
+		Entry(Object value, int weight, long accessed) {
+			this.value = value;
+			this.weight = weight;
+			this.accessed = accessed;
+			ordered = accessed;
+		}
+	}
+}
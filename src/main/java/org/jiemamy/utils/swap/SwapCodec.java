@@ -0,0 +1,64 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link SwapObject}がスワップする RealObject とバイト列の相互変換を行うコーデックのインターフェイス。
+ * 
+ * <p>
+ * 標準では Java のシリアライズ機構を用いるが、頻繁にスワップされる型に対して専用のコーデックを与えることで、
+ * スワップ処理を高速化し、スワップファイル上のバイト長を削減することができる。
+ * 提供されているコーデックは{@link SwapCodecs}から取得できる。
+ * </p>
+ * 
+ * <p>実装はスレッドセーフでなければならない。</p>
+ * 
+ * @param <T> 変換の対象となるオブジェクトのクラス
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public interface SwapCodec<T extends Serializable> {
+	
+	/**
+	 * バイト列からオブジェクトを復元する。
+	 * 
+	 * <p>引数のバッファは、位置からリミットまでが{@link #encode(Serializable)}の結果と同じ内容を持つ。
+	 * バッファの内容を変更してはならない。</p>
+	 * 
+	 * @param buffer 復元するバイト列
+	 * @return 復元したオブジェクト
+	 * @throws IOException 復元に失敗した場合
+	 * @throws ClassNotFoundException 復元するオブジェクトのクラスが見つからない場合
+	 */
+	T decode(ByteBuffer buffer) throws IOException, ClassNotFoundException;
+	
+	/**
+	 * オブジェクトをバイト列に変換する。
+	 * 
+	 * @param obj 変換するオブジェクト
+	 * @return 変換結果のバイト列を位置からリミットまでに保持するバッファ
+	 * @throws IOException 変換に失敗した場合
+	 */
+	ByteBuffer encode(T obj) throws IOException;
+	
+}
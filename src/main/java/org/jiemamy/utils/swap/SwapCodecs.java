@@ -0,0 +1,194 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link SwapCodec}のユーティリティクラス。
+ * 
+ * <p>
+ * プリミティブ配列のコーデックは、配列の要素をそのままバイト列として書き込む。
+ * 配列の長さはスワップファイル上のバイト長から求めるため、書き込まれない。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public final class SwapCodecs {
+	
+	private static final SwapCodec<byte[]> BYTE_ARRAY = new ByteArrayCodec();
+	
+	private static final SwapCodec<char[]> CHAR_ARRAY = new CharArrayCodec();
+	
+	private static final SwapCodec<int[]> INT_ARRAY = new IntArrayCodec();
+	
+	private static final SwapCodec<long[]> LONG_ARRAY = new LongArrayCodec();
+	
+	private static final SwapCodec<double[]> DOUBLE_ARRAY = new DoubleArrayCodec();
+	
+
+	/**
+	 * {@code byte[]}のためのコーデックを取得する。
+	 * 
+	 * @return コーデック
+	 */
+	public static SwapCodec<byte[]> byteArray() {
+		return BYTE_ARRAY;
+	}
+	
+	/**
+	 * {@code char[]}のためのコーデックを取得する。
+	 * 
+	 * @return コーデック
+	 */
+	public static SwapCodec<char[]> charArray() {
+		return CHAR_ARRAY;
+	}
+	
+	/**
+	 * {@code double[]}のためのコーデックを取得する。
+	 * 
+	 * @return コーデック
+	 */
+	public static SwapCodec<double[]> doubleArray() {
+		return DOUBLE_ARRAY;
+	}
+	
+	/**
+	 * {@link Externalizable}を実装したクラスのためのコーデックを取得する。
+	 * 
+	 * @param <T> 変換の対象となるオブジェクトのクラス
+	 * @param type 変換の対象となるクラス
+	 * @return コーデック
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalArgumentException 引数のクラスが public な引数なしコンストラクタを持たない場合
+	 */
+	public static <T extends Externalizable>SwapCodec<T> externalizable(Class<T> type) {
+		return new ExternalizableCodec<T>(type);
+	}
+	
+	/**
+	 * {@code int[]}のためのコーデックを取得する。
+	 * 
+	 * @return コーデック
+	 */
+	public static SwapCodec<int[]> intArray() {
+		return INT_ARRAY;
+	}
+	
+	/**
+	 * {@code long[]}のためのコーデックを取得する。
+	 * 
+	 * @return コーデック
+	 */
+	public static SwapCodec<long[]> longArray() {
+		return LONG_ARRAY;
+	}
+	
+	/**
+	 * Java のシリアライズ機構を用いるコーデックを取得する。
+	 * 
+	 * @param <T> 変換の対象となるオブジェクトのクラス
+	 * @return コーデック
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Serializable>SwapCodec<T> serializable() {
+		return (SwapCodec<T>) (SwapCodec<?>) SerializableCodec.INSTANCE;
+	}
+	
+	private SwapCodecs() {
+	}
+	
+
+	private static class ByteArrayCodec implements SwapCodec<byte[]> {
+		
+		public byte[] decode(ByteBuffer buffer) {
+			byte[] result = new byte[buffer.remaining()];
+			buffer.duplicate().get(result);
+			return result;
+		}
+		
+		public ByteBuffer encode(byte[] obj) {
+			return ByteBuffer.wrap(obj);
+		}
+	}
+	
+	private static class CharArrayCodec implements SwapCodec<char[]> {
+		
+		public char[] decode(ByteBuffer buffer) {
+			char[] result = new char[buffer.remaining() / 2];
+			buffer.asCharBuffer().get(result);
+			return result;
+		}
+		
+		public ByteBuffer encode(char[] obj) {
+			ByteBuffer buffer = ByteBuffer.allocate(obj.length * 2);
+			buffer.asCharBuffer().put(obj);
+			return buffer;
+		}
+	}
+	
+	private static class DoubleArrayCodec implements SwapCodec<double[]> {
+		
+		public double[] decode(ByteBuffer buffer) {
+			double[] result = new double[buffer.remaining() / 8];
+			buffer.asDoubleBuffer().get(result);
+			return result;
+		}
+		
+		public ByteBuffer encode(double[] obj) {
+			ByteBuffer buffer = ByteBuffer.allocate(obj.length * 8);
+			buffer.asDoubleBuffer().put(obj);
+			return buffer;
+		}
+	}
+	
+	private static class IntArrayCodec implements SwapCodec<int[]> {
+		
+		public int[] decode(ByteBuffer buffer) {
+			int[] result = new int[buffer.remaining() / 4];
+			buffer.asIntBuffer().get(result);
+			return result;
+		}
+		
+		public ByteBuffer encode(int[] obj) {
+			ByteBuffer buffer = ByteBuffer.allocate(obj.length * 4);
+			buffer.asIntBuffer().put(obj);
+			return buffer;
+		}
+	}
+	
+	private static class LongArrayCodec implements SwapCodec<long[]> {
+		
+		public long[] decode(ByteBuffer buffer) {
+			long[] result = new long[buffer.remaining() / 8];
+			buffer.asLongBuffer().get(result);
+			return result;
+		}
+		
+		public ByteBuffer encode(long[] obj) {
+			ByteBuffer buffer = ByteBuffer.allocate(obj.length * 8);
+			buffer.asLongBuffer().put(obj);
+			return buffer;
+		}
+	}
+}
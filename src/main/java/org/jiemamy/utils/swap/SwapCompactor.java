@@ -0,0 +1,318 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.LogMarker;
+
+/**
+ * スワップファイルの断片化を解消するコンパクタ。
+ * 
+ * <p>
+ * 領域の解放はファイル終端に接した空き領域しか縮小しないため、ファイルの途中に生じた空き領域は
+ * そのままでは回収されない。コンパクタはファイル終端に近い生存領域から順に、それより前方の空き領域へ移動し、
+ * 移動によって終端に接した空き領域を切り詰めることでスワップファイルを縮小する。
+ * </p>
+ * 
+ * <p>
+ * 領域の移動は、新しい領域の割り当て、内容の複写、スワップ情報の切り替え、古い領域の解放の順で行う。
+ * 複写はシャードのロックを保持せずに行うため、コンパクション中も他の{@link SwapObject}の読み書きは妨げられない。
+ * 複写中に対象の{@link SwapObject}が更新された場合、移動は取り消される。
+ * 内容の書き込みが完了していない領域は、移動の対象としない。
+ * 読み込み側は、読み込み中に領域が切り替えられていないかを確認し、切り替えられていた場合は読み直す。
+ * </p>
+ * 
+ * <p>
+ * 断片化率（使用中の領域の終端位置に対する空き領域の割合）が閾値を超えたシャードは、
+ * バックグラウンドのコンパクションスレッドによって自動的にコンパクションされる。
+ * </p>
+ * 
+ * <p>
+ * スワップファイルの縮小は{@link SwapStorage#truncate(long)}に委ねるため、切り詰めを行わない記憶域
+ * （{@link MappedFileStorage}）では、コンパクションは生存領域を前方へ移動するのみで、スワップファイルは縮小しない。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class SwapCompactor implements Runnable {
+	
+	private static Logger logger = LoggerFactory.getLogger(SwapCompactor.class);
+	
+	/** 終端位置の降順に並べるコンパレータ */
+	private static final Comparator<Relocation> DESCENDING = new Comparator<Relocation>() {
+		
+		public int compare(Relocation o1, Relocation o2) {
+			long p1 = o1.from.position;
+			long p2 = o2.from.position;
+			return p1 > p2 ? -1 : p1 < p2 ? 1 : 0;
+		}
+	};
+	
+
+	/**
+	 * シャードの断片化率を取得する。
+	 * 
+	 * <p>シャードで同期した状態で呼び出すこと。</p>
+	 * 
+	 * @param shard シャード
+	 * @return 使用中の領域の終端位置に対する空き領域の割合。空のシャードの場合は{@code 0}
+	 */
+	static double getFragmentation(SwapShard shard) {
+		long end = shard.allocator.end();
+		if (end == 0) {
+			return 0.0;
+		}
+		return (double) (end - shard.allocator.getLiveBytes()) / end;
+	}
+	
+
+	/** コンパクション対象の{@link Swapper} */
+	private final Swapper swapper;
+	
+	/** 自動コンパクションを行う断片化率の閾値。{@code 0}の場合は自動コンパクションを行わない */
+	private volatile double threshold;
+	
+	/** シャードごとの、前回のコンパクション後に残った空き領域のバイト数。シャードで同期をとる。 */
+	private final long[] remainingFreeBytes;
+	
+	/** コンパクションが要求されているかどうか。このインスタンスで同期をとる。 */
+	private boolean requested;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param swapper コンパクション対象の{@link Swapper}
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	SwapCompactor(Swapper swapper) {
+		Validate.notNull(swapper);
+		this.swapper = swapper;
+		remainingFreeBytes = new long[swapper.shards.length];
+	}
+	
+	/**
+	 * シャードのコンパクションを行う。
+	 * 
+	 * @param shard シャード
+	 * @return 縮小したバイト長
+	 */
+	long compact(SwapShard shard) {
+		List<Relocation> relocations = new ArrayList<Relocation>();
+		long before;
+		long freeBytes;
+		synchronized (shard) {
+			before = shard.allocator.end();
+			freeBytes = before - shard.allocator.getLiveBytes();
+			if (shard.allocator.getFreeBlockCount() == 0) {
+				remainingFreeBytes[shard.index] = 0L;
+				return 0L;
+			}
+			for (SwapReference swapRef : shard.swapRefSet) {
+				relocations.add(new Relocation(swapRef, swapRef.extent));
+			}
+		}
+		Collections.sort(relocations, DESCENDING);
+		
+		for (Relocation relocation : relocations) {
+			if (swapper.closed || relocate(shard, relocation) == false) {
+				break;
+			}
+		}
+		
+		synchronized (shard) {
+			shard.truncate();
+			long reclaimed = before - shard.allocator.end();
+			
+			// コンパクション中に解放された領域は、次回のコンパクションの対象とする
+			long remaining = shard.allocator.end() - shard.allocator.getLiveBytes();
+			remainingFreeBytes[shard.index] = Math.min(remaining, Math.max(freeBytes - reclaimed, 0L));
+			logger.debug(LogMarker.LIFECYCLE, "Compacted swap shard #" + shard.index + ": " + reclaimed + " bytes");
+			return reclaimed;
+		}
+	}
+	
+	/**
+	 * シャードの自動コンパクションが必要かどうかを調べる。
+	 * 
+	 * <p>
+	 * 断片化率が閾値を超え、かつ前回のコンパクション以降に空き領域が増えている場合にコンパクションが必要と判断する。
+	 * 移動できない小さな空き領域しか残っていないシャードに対して、コンパクションを繰り返さないためである。
+	 * シャードで同期した状態で呼び出すこと。
+	 * </p>
+	 * 
+	 * @param shard シャード
+	 * @return コンパクションが必要な場合は{@code true}、そうでない場合は{@code false}
+	 */
+	boolean isRequired(SwapShard shard) {
+		double current = threshold;
+		if (current <= 0.0) {
+			return false;
+		}
+		long freeBytes = shard.allocator.end() - shard.allocator.getLiveBytes();
+		if (freeBytes < remainingFreeBytes[shard.index]) {
+			remainingFreeBytes[shard.index] = freeBytes;
+		}
+		return freeBytes > remainingFreeBytes[shard.index] && getFragmentation(shard) > current;
+	}
+	
+	/**
+	 * バックグラウンドのコンパクションを要求する。
+	 */
+	synchronized void request() {
+		requested = true;
+		notifyAll();
+	}
+	
+	public void run() {
+		try {
+			while (true) {
+				synchronized (this) {
+					while (requested == false) {
+						wait();
+					}
+					requested = false;
+				}
+				for (SwapShard shard : swapper.shards) {
+					boolean required;
+					synchronized (shard) {
+						required = isRequired(shard);
+					}
+					if (required) {
+						try {
+							compact(shard);
+						} catch (RuntimeException e) {
+							// コンパクションスレッドを終了させず、次の要求で再度コンパクションする
+							logger.error(LogMarker.BOUNDARY, "Error compacting swap shard #" + shard.index, e);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// スレッド停止
+			logger.info(LogMarker.LIFECYCLE, "Shutting down because InterruptedException thrown.", e);
+		}
+	}
+	
+	/**
+	 * 自動コンパクションを行う断片化率の閾値を設定する。
+	 * 
+	 * @param threshold 断片化率の閾値。{@code 0}の場合は自動コンパクションを行わない
+	 * @throws IllegalArgumentException 引数に{@code 0}以上{@code 1}未満でない値を与えた場合
+	 */
+	void setThreshold(double threshold) {
+		Validate.isTrue(threshold >= 0.0 && threshold < 1.0);
+		this.threshold = threshold;
+	}
+	
+	/**
+	 * 生存領域を前方の空き領域へ移動する。
+	 * 
+	 * @param shard シャード
+	 * @param relocation 移動対象
+	 * @return コンパクションを継続する場合は{@code true}、中断する場合は{@code false}
+	 */
+	private boolean relocate(SwapShard shard, Relocation relocation) {
+		SwapReference swapRef = relocation.swapRef;
+		Extent from = relocation.from;
+		
+		Extent to;
+		synchronized (shard) {
+			if (shard.allocator.getFreeBlockCount() == 0) {
+				// 移動先となる空き領域が無い
+				return false;
+			}
+			if (swapRef.extent != from || shard.swapRefSet.contains(swapRef) == false) {
+				// 既に更新、または解放されている
+				return true;
+			}
+			if (shard.writingExtents.contains(from)) {
+				// 内容の書き込みが完了していないため、複写できない
+				return true;
+			}
+			to = shard.allocator.allocateBelow(from.length, from.position);
+			if (to == null) {
+				return true;
+			}
+			to = from.movedTo(to.position);
+		}
+		
+		// 内容の複写
+		try {
+			ByteBuffer buffer = shard.storage.read(from);
+			shard.storage.write(buffer, to.position);
+		} catch (IOException e) {
+			logger.error(LogMarker.BOUNDARY, "Error relocating swap extent: " + from, e);
+			synchronized (shard) {
+				swapper.release(shard, to);
+			}
+			return false;
+		} catch (RuntimeException e) {
+			synchronized (shard) {
+				swapper.release(shard, to);
+			}
+			throw e;
+		}
+		
+		// スワップ情報の切り替え
+		synchronized (shard) {
+			if (swapRef.extent == from && shard.swapRefSet.contains(swapRef)) {
+				swapRef.extent = to;
+				swapper.release(shard, from);
+			} else {
+				// 複写中に更新、または解放された
+				swapper.release(shard, to);
+			}
+		}
+		return true;
+	}
+	
+
+	/**
+	 * 領域の移動対象。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static final class Relocation {
+		
+		/** 移動するスワップ情報 */
+		final SwapReference swapRef;
+		
+		/** 移動元の領域 */
+		final Extent from;
+		
+
+		Relocation(SwapReference swapRef, Extent from) {
+			this.swapRef = swapRef;
+			this.from = from;
+		}
+	}
+}
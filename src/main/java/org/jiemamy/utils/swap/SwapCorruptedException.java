@@ -0,0 +1,45 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+/**
+ * スワップファイルから読み込んだバイト列が破損している場合にスローされる例外クラス。
+ * 
+ * <p>
+ * 領域の先頭に記録されたバイト長、チェックサム、世代番号のいずれかが、読み込んだ内容または{@link SwapObject}が
+ * 保持しているスワップ情報と一致しない場合にスローされる。書き込みの途中で異常終了した場合や、
+ * 解放済みの領域を誤って参照した場合に発生する。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+@SuppressWarnings("serial")
+public class SwapCorruptedException extends SwapException {
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param message 例外メッセージ
+	 */
+	public SwapCorruptedException(String message) {
+		super(message);
+	}
+	
+}
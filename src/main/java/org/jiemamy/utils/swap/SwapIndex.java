@@ -0,0 +1,670 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * 永続化されたスワップストアの、キーとスワップ済み RealObject の領域の対応を管理するインデックス。
+ * 
+ * <p>
+ * インデックスは{@link #write()}によってスワップファイルと同じディレクトリのインデックスファイルへ書き出され、
+ * JVM の再起動後に{@link #load()}で読み込むことで、キーを指定して{@link SwapObject}を再接続できる。<br>
+ * インデックスファイルは一時ファイルへ書き込んだ後に置き換えるため、書き込み中に異常終了しても直前のインデックスが残る。
+ * </p>
+ * 
+ * <p>
+ * 書き出したインデックスが参照している領域は、次のインデックスの書き込みが完了するまで解放されない。
+ * 更新によって不要になった領域が再利用されて上書きされることはないため、異常終了した場合でも、
+ * 最後に書き出したインデックスの内容はスワップファイルから復元できる。<br>
+ * 内容の書き込みが完了していない領域はインデックスに書き出さず、前回書き出した領域を引き続き参照する。
+ * </p>
+ * 
+ * <p>
+ * {@link #exportTo(WritableByteChannel)}は、束縛されたキーと領域の一覧に続けて各領域のバイト列をそのまま書き出す。
+ * 領域のバイト列はデシリアライズせずに{@link SwapStorage}からチャネルへ直接転送され、
+ * {@link #importFrom(ReadableByteChannel)}で別のスワップストアへ取り込むことができる。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class SwapIndex {
+	
+	/** インデックスファイルの名前 */
+	static final String INDEX_FILE_NAME = "jiemamy-swap.idx";
+	
+	/** スワップストアのディレクトリのロックに用いるファイルの名前 */
+	static final String LOCK_FILE_NAME = "jiemamy-swap.lock";
+	
+	/** インデックスファイルの識別子 */
+	private static final int MAGIC = 0x4A535849;
+	
+	/** インデックスファイルの形式のバージョン */
+	private static final int VERSION = 2;
+	
+	/** エクスポートの識別子 */
+	private static final int EXPORT_MAGIC = 0x4A535845;
+	
+	/** エクスポートの形式のバージョン */
+	private static final int EXPORT_VERSION = 1;
+	
+	/** エクスポートのヘッダ（キーと領域の一覧）のバイト長の上限 */
+	static final int MAX_EXPORT_HEADER_LENGTH = 64 * 1024 * 1024;
+	
+
+	/**
+	 * 永続化されたスワップストアの、シャードのスワップファイルを取得する。
+	 * 
+	 * @param directory スワップストアのディレクトリ
+	 * @param index シャードの番号
+	 * @return スワップファイル
+	 */
+	static File getDataFile(File directory, int index) {
+		return new File(directory, "jiemamy-swap-" + index + ".dat");
+	}
+	
+	private static ByteBuffer readFully(ReadableByteChannel source, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (source.read(buffer) < 0) {
+				throw new EOFException("Unexpected end of channel.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+	
+	private static void writeFully(WritableByteChannel target, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			target.write(buffer);
+		}
+	}
+	
+
+	/** インデックスファイル */
+	private final File file;
+	
+	/** スワップ処理を行う{@link Swapper} */
+	private final Swapper swapper;
+	
+	/** キーと、束縛されたスワップ情報の対応 */
+	private final Map<String, SwapReference> bindings = new HashMap<String, SwapReference>();
+	
+	/** キーと、最後に書き出したインデックスの項目の対応 */
+	private Map<String, Entry> committedEntries = new HashMap<String, Entry>();
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param file インデックスファイル
+	 * @param swapper スワップ処理を行う{@link Swapper}
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	SwapIndex(File file, Swapper swapper) {
+		Validate.notNull(file);
+		Validate.notNull(swapper);
+		this.file = file;
+		this.swapper = swapper;
+	}
+	
+	/**
+	 * キーに束縛された{@link SwapObject}を取得する。
+	 * 
+	 * <p>
+	 * 束縛された{@link SwapObject}に到達できる場合はそれを返す。到達できない場合は、
+	 * 同じ領域を参照する{@link SwapObject}を新たに生成し、キーに束縛し直して返す。
+	 * 生成した{@link SwapObject}は RealObject を保持しておらず、最初の{@link SwapObject#get()}で読み込みを行う。
+	 * </p>
+	 * 
+	 * @param <T> RealObject の型
+	 * @param key キー
+	 * @param codec RealObject とバイト列の相互変換を行うコーデック
+	 * @return {@link SwapObject}。キーが束縛されていない場合は{@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized <T extends Serializable>SwapObject<T> attach(String key, SwapCodec<T> codec) {
+		SwapReference swapRef = bindings.get(key);
+		if (swapRef == null) {
+			return null;
+		}
+		
+		SwapShard shard = swapRef.shard;
+		synchronized (shard) {
+			SwapObject<?> current = swapRef.get();
+			if (current != null) {
+				return (SwapObject<T>) current;
+			}
+			
+			SwapObject<T> swapObj = new SwapObject<T>(swapper, codec, null);
+			SwapReference attached = new SwapReference(swapObj, swapper.swapRefQueue, shard, swapRef.extent);
+			attached.key = key;
+			swapRef.key = null;
+			shard.swapRefSet.remove(swapRef);
+			shard.swapRefSet.add(attached);
+			swapObj.swapRef = attached;
+			bindings.put(key, attached);
+			return swapObj;
+		}
+	}
+	
+	/**
+	 * {@link SwapObject}をキーに束縛する。
+	 * 
+	 * <p>
+	 * キーに束縛された{@link SwapObject}は、到達不能となってもスワップファイル内の領域が解放されず、
+	 * {@link #attach(String, SwapCodec)}で再接続できる。既にキーに別の{@link SwapObject}が束縛されている場合は置き換え、
+	 * {@link SwapObject}が別のキーに束縛されている場合は、そのキーの束縛を解く。
+	 * </p>
+	 * 
+	 * @param key キー
+	 * @param swapObj 束縛する{@link SwapObject}
+	 */
+	synchronized void bind(String key, SwapObject<?> swapObj) {
+		SwapReference swapRef = swapObj.swapRef;
+		SwapReference previous = bindings.get(key);
+		if (previous == swapRef) {
+			return;
+		}
+		if (previous != null) {
+			detach(previous);
+		}
+		
+		synchronized (swapRef.shard) {
+			if (swapRef.key != null) {
+				bindings.remove(swapRef.key);
+			}
+			swapRef.key = key;
+		}
+		bindings.put(key, swapRef);
+	}
+	
+	/**
+	 * 束縛されている全ての{@link SwapObject}を、キーと共にチャネルへ書き出す。
+	 * 
+	 * <p>
+	 * 書き出す内容は呼び出し時点の束縛と領域のスナップショットであり、書き出し中に更新やコンパクションが行われても、
+	 * スナップショットの領域はエクスポートが完了するまで解放されない。
+	 * 束縛された領域への内容の書き込みが完了していない場合は、完了を待ってからスナップショットをとる。
+	 * 領域のバイト列は{@link SwapStorage#transferTo(Extent, WritableByteChannel)}で転送し、デシリアライズは行わない。
+	 * エクスポート中は、キーの束縛とインデックスの書き出しは待機する。
+	 * </p>
+	 * 
+	 * @param target 書き込み先のチャネル
+	 * @return 書き出した{@link SwapObject}の数
+	 * @throws IOException 書き出しに失敗した場合、書き込みの完了を待つ間に割り込まれた場合、
+	 * またはキーと領域の一覧が{@value #MAX_EXPORT_HEADER_LENGTH}バイトを超える場合
+	 */
+	synchronized int exportTo(WritableByteChannel target) throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		for (SwapShard shard : swapper.shards) {
+			synchronized (shard) {
+				awaitWritten(shard);
+				Set<Extent> exporting = new HashSet<Extent>();
+				for (Map.Entry<String, SwapReference> binding : bindings.entrySet()) {
+					SwapReference swapRef = binding.getValue();
+					if (swapRef.shard == shard) {
+						entries.add(new Entry(binding.getKey(), shard.index, swapRef.extent));
+						exporting.add(swapRef.extent);
+					}
+				}
+				shard.exportingExtents = exporting;
+			}
+		}
+		
+		try {
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(header);
+			out.writeInt(entries.size());
+			for (Entry entry : entries) {
+				out.writeUTF(entry.key);
+				out.writeInt(entry.extent.length);
+				out.writeInt(entry.extent.rawLength);
+				out.writeInt(entry.extent.generation);
+			}
+			out.flush();
+			if (header.size() > MAX_EXPORT_HEADER_LENGTH) {
+				throw new IOException("Too many swap objects to export: " + entries.size());
+			}
+			byte[] bytes = header.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(bytes);
+			
+			ByteBuffer prefix = ByteBuffer.allocate(12);
+			prefix.putInt(EXPORT_MAGIC).putInt(EXPORT_VERSION).putInt(bytes.length).flip();
+			writeFully(target, prefix);
+			writeFully(target, ByteBuffer.wrap(bytes));
+			ByteBuffer checksum = ByteBuffer.allocate(8);
+			checksum.putLong(crc.getValue()).flip();
+			writeFully(target, checksum);
+			
+			for (Entry entry : entries) {
+				swapper.shards[entry.shardIndex].storage.transferTo(entry.extent, target);
+			}
+			return entries.size();
+		} finally {
+			for (SwapShard shard : swapper.shards) {
+				synchronized (shard) {
+					shard.exportingExtents = null;
+					releaseDeferred(shard);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 束縛されているキーの一覧を取得する。
+	 * 
+	 * @return キーの{@link Set}のコピー
+	 */
+	synchronized Set<String> getKeys() {
+		return new HashSet<String>(bindings.keySet());
+	}
+	
+	/**
+	 * {@link #exportTo(WritableByteChannel)}で書き出された{@link SwapObject}を、チャネルから取り込む。
+	 * 
+	 * <p>
+	 * 取り込んだ{@link SwapObject}は、エクスポート時と同じキーに束縛され、{@link #attach(String, SwapCodec)}で取得できる。
+	 * 既に同じキーが束縛されている場合は置き換える。領域はこのスワップストアのアロケータで新たに割り当て、
+	 * バイト列は{@link SwapStorage#transferFrom(ReadableByteChannel, Extent)}で直接書き込む。
+	 * 途中で失敗した場合、それまでに取り込んだ{@link SwapObject}は束縛されたまま残る。
+	 * </p>
+	 * 
+	 * @param source 読み込み元のチャネル
+	 * @return 取り込んだ{@link SwapObject}の数
+	 * @throws IOException 読み込みに失敗した場合
+	 * @throws SwapException エクスポートの形式が不正な場合、またはスワップファイルが最大バイト長を超える場合
+	 */
+	synchronized int importFrom(ReadableByteChannel source) throws IOException, SwapException {
+		ByteBuffer prefix = readFully(source, 12);
+		if (prefix.getInt() != EXPORT_MAGIC || prefix.getInt() != EXPORT_VERSION) {
+			throw new SwapException("Unsupported swap export.");
+		}
+		int headerLength = prefix.getInt();
+		if (headerLength < 4 || headerLength > MAX_EXPORT_HEADER_LENGTH) {
+			// 破損したバイト長でバッファを確保しないよう、チェックサムの検証より前に範囲を確認する
+			throw new SwapException("Swap export is corrupted.");
+		}
+		ByteBuffer header = readFully(source, headerLength + 8);
+		CRC32 crc = new CRC32();
+		crc.update(header.array(), 0, headerLength);
+		header.position(headerLength);
+		if (header.getLong() != crc.getValue()) {
+			throw new SwapException("Swap export is corrupted.");
+		}
+		
+		List<Entry> entries = new ArrayList<Entry>();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array(), 0, headerLength));
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String key = in.readUTF();
+			int length = in.readInt();
+			int rawLength = in.readInt();
+			int generation = in.readInt();
+			if (length < ExtentHeader.LENGTH) {
+				throw new SwapException("Swap export is corrupted.");
+			}
+			SwapShard shard = swapper.shards[(key.hashCode() & Integer.MAX_VALUE) % swapper.shards.length];
+			entries.add(new Entry(key, shard.index, new Extent(0L, length, rawLength, generation)));
+		}
+		
+		for (Entry entry : entries) {
+			SwapShard shard = swapper.shards[entry.shardIndex];
+			Extent extent;
+			synchronized (shard) {
+				extent = swapper.allocate(shard, entry.extent.length, entry.extent.rawLength, entry.extent.generation);
+			}
+			try {
+				shard.storage.transferFrom(source, extent);
+			} catch (IOException e) {
+				synchronized (shard) {
+					swapper.release(shard, extent);
+				}
+				throw e;
+			}
+			
+			SwapReference previous = bindings.get(entry.key);
+			if (previous != null) {
+				detach(previous);
+			}
+			synchronized (shard) {
+				// 取り込んだ領域は、再接続されるまで参照先の無いスワップ情報として保持する
+				SwapReference swapRef = new SwapReference(null, null, shard, extent);
+				swapRef.key = entry.key;
+				shard.swapRefSet.add(swapRef);
+				bindings.put(entry.key, swapRef);
+			}
+		}
+		return entries.size();
+	}
+	
+	/**
+	 * インデックスファイルを読み込み、キーの束縛を復元する。
+	 * 
+	 * <p>
+	 * インデックスが参照している領域をアロケータに確保済みとして登録し、それ以外の領域は空き領域とする。
+	 * インデックスファイルが存在しない場合は、空のスワップストアとして初期化する。
+	 * </p>
+	 * 
+	 * @throws IOException インデックスファイルの読み込みに失敗した場合
+	 * @throws SwapException インデックスファイルが破損している場合、またはシャード数が一致しない場合
+	 */
+	synchronized void load() throws IOException, SwapException {
+		List<Entry> entries = new ArrayList<Entry>();
+		if (file.exists()) {
+			CRC32 crc = new CRC32();
+			DataInputStream in =
+					new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+					throw new SwapException("Unsupported swap index: " + file);
+				}
+				int shardCount = in.readInt();
+				if (shardCount != swapper.shards.length) {
+					throw new SwapException("Shard count is not matched: " + shardCount + " (expected "
+							+ swapper.shards.length + ")");
+				}
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					String key = in.readUTF();
+					int shardIndex = in.readInt();
+					long position = in.readLong();
+					int length = in.readInt();
+					int rawLength = in.readInt();
+					int generation = in.readInt();
+					if (shardIndex < 0 || shardIndex >= shardCount || position < 0 || length < 0) {
+						throw new SwapException("Swap index is corrupted: " + file);
+					}
+					entries.add(new Entry(key, shardIndex, new Extent(position, length, rawLength, generation)));
+				}
+				long checksum = crc.getValue();
+				if (in.readLong() != checksum) {
+					throw new SwapException("Swap index is corrupted: " + file);
+				}
+			} catch (EOFException e) {
+				throw new SwapException("Swap index is corrupted: " + file, e);
+			} finally {
+				in.close();
+			}
+		}
+		
+		for (SwapShard shard : swapper.shards) {
+			synchronized (shard) {
+				shard.committedExtents = new HashSet<Extent>();
+			}
+		}
+		for (Entry entry : entries) {
+			SwapShard shard = swapper.shards[entry.shardIndex];
+			synchronized (shard) {
+				long before = shard.allocator.end();
+				try {
+					shard.allocator.reserve(entry.extent);
+				} catch (IllegalStateException e) {
+					throw new SwapException("Swap index is corrupted: " + file, e);
+				}
+				swapper.usedSize.addAndGet(shard.allocator.end() - before);
+				committedEntries.put(entry.key, entry);
+				
+				// 再接続されるまでは、参照先の無いスワップ情報として保持する
+				SwapReference swapRef = new SwapReference(null, null, shard, entry.extent);
+				swapRef.key = entry.key;
+				shard.swapRefSet.add(swapRef);
+				shard.committedExtents.add(entry.extent);
+				bindings.put(entry.key, swapRef);
+			}
+		}
+		for (SwapShard shard : swapper.shards) {
+			synchronized (shard) {
+				shard.truncate();
+			}
+		}
+	}
+	
+	/**
+	 * キーの束縛を解く。
+	 * 
+	 * <p>束縛されていた{@link SwapObject}が既に到達不能である場合は、その領域を解放する。</p>
+	 * 
+	 * @param key キー
+	 * @return 束縛を解いた場合は{@code true}、キーが束縛されていなかった場合は{@code false}
+	 */
+	synchronized boolean unbind(String key) {
+		SwapReference swapRef = bindings.remove(key);
+		if (swapRef == null) {
+			return false;
+		}
+		detach(swapRef);
+		return true;
+	}
+	
+	/**
+	 * インデックスファイルを書き出す。
+	 * 
+	 * <p>
+	 * スワップファイルへの書き込みを記憶装置へ反映させた後に、インデックスファイルを置き換える。
+	 * 書き出しが完了した時点で、前回のインデックスのみが参照していた領域の解放を行う。
+	 * </p>
+	 * 
+	 * <p>
+	 * 更新中のため内容の書き込みが完了していない領域は、記憶装置へ反映させることができないため、
+	 * そのキーには前回書き出した領域を書き出す。前回書き出した領域は、前回のインデックスから参照されているため解放されていない。
+	 * 前回書き出していないキーは、今回は書き出さない。
+	 * </p>
+	 * 
+	 * @throws IOException 書き出しに失敗した場合
+	 */
+	synchronized void write() throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		List<Entry> previousEntries = new ArrayList<Entry>();
+		for (SwapShard shard : swapper.shards) {
+			synchronized (shard) {
+				Set<Extent> pending = new HashSet<Extent>();
+				for (Map.Entry<String, SwapReference> binding : bindings.entrySet()) {
+					SwapReference swapRef = binding.getValue();
+					if (swapRef.shard != shard) {
+						continue;
+					}
+					if (shard.writingExtents.contains(swapRef.extent)) {
+						Entry previous = committedEntries.get(binding.getKey());
+						if (previous != null) {
+							previousEntries.add(previous);
+						}
+						continue;
+					}
+					entries.add(new Entry(binding.getKey(), shard.index, swapRef.extent));
+					pending.add(swapRef.extent);
+				}
+				shard.pendingExtents = pending;
+			}
+		}
+		for (Entry previous : previousEntries) {
+			// 前回書き出した領域は、キーが別のシャードへ束縛し直されている場合もある
+			SwapShard shard = swapper.shards[previous.shardIndex];
+			synchronized (shard) {
+				shard.pendingExtents.add(previous.extent);
+			}
+			entries.add(previous);
+		}
+		
+		boolean succeeded = false;
+		try {
+			for (SwapShard shard : swapper.shards) {
+				shard.storage.force();
+			}
+			
+			File tmpFile = new File(file.getPath() + ".tmp");
+			FileOutputStream fos = new FileOutputStream(tmpFile);
+			try {
+				CRC32 crc = new CRC32();
+				DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fos), crc));
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(swapper.shards.length);
+				out.writeInt(entries.size());
+				for (Entry entry : entries) {
+					out.writeUTF(entry.key);
+					out.writeInt(entry.shardIndex);
+					out.writeLong(entry.extent.position);
+					out.writeInt(entry.extent.length);
+					out.writeInt(entry.extent.rawLength);
+					out.writeInt(entry.extent.generation);
+				}
+				out.writeLong(crc.getValue());
+				out.flush();
+				fos.getFD().sync();
+			} finally {
+				fos.close();
+			}
+			if (tmpFile.renameTo(file) == false && (file.delete() == false || tmpFile.renameTo(file) == false)) {
+				throw new IOException("Cannot replace swap index: " + file);
+			}
+			Map<String, Entry> written = new HashMap<String, Entry>();
+			for (Entry entry : entries) {
+				written.put(entry.key, entry);
+			}
+			committedEntries = written;
+			succeeded = true;
+		} finally {
+			for (SwapShard shard : swapper.shards) {
+				synchronized (shard) {
+					if (succeeded) {
+						shard.committedExtents = shard.pendingExtents;
+					}
+					shard.pendingExtents = null;
+					releaseDeferred(shard);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * シャード内の束縛された領域への、内容の書き込みが完了するまで待機する。
+	 * 
+	 * <p>引数{@code shard}で同期した状態で呼び出すこと。</p>
+	 * 
+	 * @param shard シャード
+	 * @throws InterruptedIOException 待機中に割り込まれた場合
+	 */
+	private void awaitWritten(SwapShard shard) throws InterruptedIOException {
+		while (true) {
+			boolean writing = false;
+			for (SwapReference swapRef : bindings.values()) {
+				if (swapRef.shard == shard && shard.writingExtents.contains(swapRef.extent)) {
+					writing = true;
+					break;
+				}
+			}
+			if (writing == false) {
+				return;
+			}
+			try {
+				shard.wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+	}
+	
+	/**
+	 * スワップ情報のキーの束縛を解き、到達不能であれば領域を解放する。
+	 * 
+	 * @param swapRef スワップ情報
+	 */
+	private void detach(SwapReference swapRef) {
+		SwapShard shard = swapRef.shard;
+		synchronized (shard) {
+			swapRef.key = null;
+			if (swapRef.get() == null && shard.swapRefSet.remove(swapRef)) {
+				swapper.release(shard, swapRef.extent);
+				shard.truncate();
+			}
+		}
+	}
+	
+	/**
+	 * 保留していた解放のうち、インデックスから参照されなくなり、エクスポート中でもない領域を解放する。
+	 * 
+	 * <p>引数{@code shard}で同期した状態で呼び出すこと。</p>
+	 * 
+	 * @param shard シャード
+	 */
+	private void releaseDeferred(SwapShard shard) {
+		List<Extent> deferred = new ArrayList<Extent>(shard.deferredExtents);
+		shard.deferredExtents.clear();
+		for (Extent extent : deferred) {
+			swapper.release(shard, extent);
+		}
+		shard.truncate();
+	}
+	
+
+	/**
+	 * インデックスの1項目。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static final class Entry {
+		
+		/** キー */
+		final String key;
+		
+		/** シャードの番号 */
+		final int shardIndex;
+		
+		/** 領域 */
+		final Extent extent;
+		
+
+		Entry(String key, int shardIndex, Extent extent) {
+			this.key = key;
+			this.shardIndex = shardIndex;
+			this.extent = extent;
+		}
+	}
+}
@@ -21,6 +21,10 @@ package org.jiemamy.utils.swap;
 import java.io.Serializable;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.apache.commons.lang.Validate;
 
 /**
  * ある RealObject をスワップの対象とし、管理するクラス。
@@ -33,23 +37,60 @@ import java.lang.ref.WeakReference;
  * </p>
  * 
  * <p>
+ * スワップストアでキャッシュを有効にしている場合、最近使用された RealObject はキャッシュによって強参照で保持されるため、
+ * GC によって破棄されず、デシリアライズを行わずに取得することができる。
+ * </p>
+ * 
+ * <p>
+ * {@link #get()}はロックを取得しない。RealObject へ到達可能な場合は弱参照の volatile 読み込みのみで RealObject を返し、
+ * 到達できない場合は、同時に呼び出したスレッドのうち1つだけがスワップファイルから読み込み、他のスレッドはその完了を待つ。
+ * </p>
+ * 
+ * <p>
  * また、スワップしている RealObject の内容が変わった場合、必ず{@link SwapObject#update(Serializable) }を呼ぶ必要がある。
  * </p>
  * 
+ * <p>
+ * スワップ先のスワップファイルは{@link SwapStore}で指定する。指定しなかった場合は{@link SwapStore#getDefault()}が用いられる。
+ * </p>
+ * 
+ * <p>
+ * RealObject とバイト列の相互変換には{@link SwapCodec}を用いる。コーデックを指定しなかった場合は、
+ * Java のシリアライズ機構が用いられる。
+ * </p>
+ * 
  * @param <T> スワップの対象なるオブジェクトのクラス
  * @version $Id$
  * @author Keisuke.K
  */
 public class SwapObject<T extends Serializable> {
 	
-	/** スワップファイル内でのスワップ済み RealObject の位置 */
-	long position;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<SwapObject, Reference> REF =
+			AtomicReferenceFieldUpdater.newUpdater(SwapObject.class, Reference.class, "ref");
 	
-	/** スワップファイル内でのスワップ済み RealObject のバイト長 */
-	int length;
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<SwapObject, Loader> LOADER =
+			AtomicReferenceFieldUpdater.newUpdater(SwapObject.class, Loader.class, "loader");
 	
-	/** スワップする RealObject への参照 */
-	Reference<T> ref;
+
+	/** スワップ処理を行う{@link Swapper} */
+	final Swapper swapper;
+	
+	/** RealObject とバイト列の相互変換を行うコーデック */
+	final SwapCodec<T> codec;
+	
+	/** スワップファイル内でのスワップ済み RealObject の領域を保持する、{@link Swapper}が管理する参照 */
+	volatile SwapReference swapRef;
+	
+	/** スワップする RealObject への参照。置き換えは{@link #publish(Reference, Serializable)}または更新時に行う。 */
+	volatile Reference<T> ref;
+	
+	/** スワップファイルからの読み込み中の{@link Loader}。読み込み中でない場合は{@code null} */
+	private volatile Loader<T> loader;
+	
+	/** 更新を直列化するロック。遅延書き込みの書き込みスレッドはこのロックを取得しない。 */
+	private final Object updateLock = new Object();
 	
 
 	/**
@@ -61,28 +102,106 @@ public class SwapObject<T extends Serializable> {
 	 * @throws SwapException シリアライズに失敗した場合
 	 */
 	public SwapObject(T obj) throws SwapException {
+		this(obj, SwapCodecs.<T> serializable(), Swapper.INSTANCE);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * <p>{@link Swapper}へシリアライズ要求を行う前に、RealObjectへの弱参照を保持する。</p>
+	 * 
+	 * @param obj スワップの対象とするオブジェクト
+	 * @param codec RealObject とバイト列の相互変換を行うコーデック
+	 * @throws SwapException シリアライズに失敗した場合
+	 * @throws IllegalArgumentException 引数{@code codec}に{@code null}を与えた場合
+	 */
+	public SwapObject(T obj, SwapCodec<T> codec) throws SwapException {
+		this(obj, codec, Swapper.INSTANCE);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * <p>{@link Swapper}へシリアライズ要求を行う前に、RealObjectへの弱参照を保持する。</p>
+	 * 
+	 * @param obj スワップの対象とするオブジェクト
+	 * @param codec RealObject とバイト列の相互変換を行うコーデック
+	 * @param store スワップ先のスワップストア
+	 * @throws SwapException シリアライズに失敗した場合
+	 * @throws IllegalArgumentException 引数{@code codec}, {@code store}に{@code null}を与えた場合
+	 */
+	public SwapObject(T obj, SwapCodec<T> codec, SwapStore store) throws SwapException {
+		this(obj, codec, store == null ? null : store.swapper);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * <p>{@link Swapper}へシリアライズ要求を行う前に、RealObjectへの弱参照を保持する。</p>
+	 * 
+	 * @param obj スワップの対象とするオブジェクト
+	 * @param store スワップ先のスワップストア
+	 * @throws SwapException シリアライズに失敗した場合
+	 * @throws IllegalArgumentException 引数{@code store}に{@code null}を与えた場合
+	 */
+	public SwapObject(T obj, SwapStore store) throws SwapException {
+		this(obj, SwapCodecs.<T> serializable(), store);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * <p>{@link Swapper}へシリアライズ要求を行う前に、RealObjectへの弱参照を保持する。</p>
+	 * 
+	 * @param obj スワップの対象とするオブジェクト
+	 * @param codec RealObject とバイト列の相互変換を行うコーデック
+	 * @param swapper スワップ処理を行う{@link Swapper}
+	 * @throws SwapException シリアライズに失敗した場合
+	 * @throws IllegalArgumentException 引数{@code codec}, {@code swapper}に{@code null}を与えた場合
+	 */
+	SwapObject(T obj, SwapCodec<T> codec, Swapper swapper) throws SwapException {
+		this(swapper, codec, obj);
+		swapper.serialize(this, obj);
+	}
+	
+	/**
+	 * スワップを行わずにインスタンスを生成する。
+	 * 
+	 * <p>RealObjectへの弱参照のみを保持する。スワップは呼び出し側で{@link SwapObjects}によってまとめて行うこと。</p>
+	 * 
+	 * @param swapper スワップ処理を行う{@link Swapper}
+	 * @param codec RealObject とバイト列の相互変換を行うコーデック
+	 * @param obj スワップの対象とするオブジェクト
+	 * @throws IllegalArgumentException 引数{@code codec}, {@code swapper}に{@code null}を与えた場合
+	 */
+	SwapObject(Swapper swapper, SwapCodec<T> codec, T obj) {
+		Validate.notNull(codec);
+		Validate.notNull(swapper);
+		this.codec = codec;
+		this.swapper = swapper;
 		ref = new WeakReference<T>(obj);
-		Swapper.INSTANCE.serialize(this, obj);
 	}
 	
 	/**
 	 * スワップ済みのオブジェクトを取得する。
 	 * 
 	 * <p>RealObject への弱参照が到達可能な場合、到達した RealObject を返す。
-	 * 到達できない場合は{@link Swapper }へ RealObject のデシリアライズ要求を委譲する。</p>
+	 * 到達できない場合は{@link Swapper }へ RealObject のデシリアライズ要求を委譲する。
+	 * いずれの場合も、取得した RealObject は最近使用されたものとしてキャッシュされる。</p>
+	 * 
+	 * <p>同じインスタンスに対して複数のスレッドが同時にデシリアライズを必要とした場合、
+	 * 読み込みは1度だけ行われ、全てのスレッドが同じ RealObject を受け取る。</p>
 	 * 
 	 * @return スワップ済みのオブジェクト
 	 * @throws SwapException デシリアライズに失敗した場合
 	 */
-	public synchronized T get() throws SwapException {
+	public T get() throws SwapException {
 		T obj = ref.get();
-		
-		if (obj == null) {
-			obj = Swapper.INSTANCE.deserialize(this);
-			ref = new WeakReference<T>(obj);
+		if (obj != null) {
+			swapper.cache.hit(swapRef, obj);
+			return obj;
 		}
-		
-		return obj;
+		return load();
 	}
 	
 	/**
@@ -92,12 +211,149 @@ public class SwapObject<T extends Serializable> {
 	 * RealObject が更新され、そのオブジェクトをスワップ情報にも更新しなければならない場合は
 	 * 必ずこのメソッドを呼ぶ必要がある。</p>
 	 * 
+	 * <p>スワップストアで遅延書き込みを有効にしている場合、このメソッドは書き込みの完了を待たずに復帰する。
+	 * 書き込みの完了を待つ場合は{@link SwapStore#flush()}を呼ぶ。</p>
+	 * 
+	 * <p>同じインスタンスへの更新は直列化され、保持される RealObject とスワップファイルへ書き込まれる RealObject は
+	 * 最後に呼び出された更新のものとなる。</p>
+	 * 
 	 * @param obj 更新する RealObject
 	 * @throws SwapException シリアライズに失敗した場合
 	 */
-	public synchronized void update(T obj) throws SwapException {
-		ref = new WeakReference<T>(obj);
-		Swapper.INSTANCE.reserialize(this, obj);
+	public void update(T obj) throws SwapException {
+		synchronized (updateLock) {
+			if (swapper.writeBehind == null) {
+				synchronized (this) {
+					ref = new WeakReference<T>(obj);
+					swapper.reserialize(this, obj);
+				}
+				return;
+			}
+			// 書き込みスレッドはこのインスタンスで同期をとるため、このインスタンスでは同期せずに要求する。
+			// 参照の置き換えと要求を同じロックの中で行い、最後に設定した RealObject が最後に書き込まれるようにする。
+			ref = new WeakReference<T>(obj);
+			swapper.submit(this, obj);
+		}
+	}
+	
+	/**
+	 * 読み込んだ RealObject への参照を設定する。
+	 * 
+	 * <p>読み込みを開始した後に参照が置き換えられていた場合は、より新しい RealObject が設定されているため、設定しない。</p>
+	 * 
+	 * @param expected 読み込みを開始した時点の参照
+	 * @param obj 読み込んだ RealObject
+	 * @return 設定した場合は{@code true}、そうでない場合は{@code false}
+	 */
+	boolean publish(Reference<T> expected, T obj) {
+		return REF.compareAndSet(this, expected, new WeakReference<T>(obj));
+	}
+	
+	/**
+	 * スワップファイルから RealObject を読み込む。
+	 * 
+	 * <p>読み込み中の{@link Loader}が無ければ自身が読み込みを行い、あればその完了を待つ。</p>
+	 * 
+	 * @return RealObject
+	 * @throws SwapException デシリアライズに失敗した場合
+	 */
+	private T load() throws SwapException {
+		while (true) {
+			Loader<T> current = loader;
+			if (current != null) {
+				return current.await();
+			}
+			
+			Reference<T> expected = ref;
+			T obj = expected.get();
+			if (obj != null) {
+				swapper.cache.hit(swapRef, obj);
+				return obj;
+			}
+			
+			Loader<T> created = new Loader<T>();
+			if (LOADER.compareAndSet(this, null, created) == false) {
+				continue;
+			}
+			try {
+				obj = swapper.deserialize(this);
+				if (publish(expected, obj) == false) {
+					// 読み込み中に更新された場合は、更新後の RealObject を返す
+					T updated = ref.get();
+					if (updated != null) {
+						obj = updated;
+					}
+				}
+				created.complete(obj);
+				return obj;
+			} catch (SwapException e) {
+				created.fail(e);
+				throw e;
+			} catch (RuntimeException e) {
+				created.fail(new SwapException(e));
+				throw e;
+			} catch (Error e) {
+				created.fail(new SwapException(e));
+				throw e;
+			} finally {
+				LOADER.compareAndSet(this, created, null);
+			}
+		}
+	}
+	
+
+	/**
+	 * 1回のデシリアライズの完了を待ち合わせるラッチ。
+	 * 
+	 * @param <T> RealObject の型
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static final class Loader<T> {
+		
+		private final CountDownLatch latch = new CountDownLatch(1);
+		
+		private T obj;
+		
+		private SwapException failure;
+		
+
+		/**
+		 * デシリアライズの完了を待ち、結果を取得する。
+		 * 
+		 * <p>待機中に割り込まれても待機を続け、完了後に割り込み状態を復元する。</p>
+		 * 
+		 * @return デシリアライズした RealObject
+		 * @throws SwapException デシリアライズに失敗した場合
+		 */
+		T await() throws SwapException {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					latch.await();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			if (failure != null) {
+				throw new SwapException(failure.getMessage(), failure);
+			}
+			return obj;
+		}
+		
+		void complete(T obj) {
+			this.obj = obj;
+			latch.countDown();
+		}
+		
+		void fail(SwapException failure) {
+			this.failure = failure;
+			latch.countDown();
+		}
 	}
 	
 }
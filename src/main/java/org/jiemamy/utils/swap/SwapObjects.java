@@ -0,0 +1,229 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link SwapObject}のユーティリティクラス。
+ * 
+ * <p>
+ * 大量の RealObject を1つずつ{@link SwapObject}にすると、オブジェクトごとにロックの取得、領域の割り当て、
+ * 小さな書き込みが行われる。{@link #swapAll(Collection)}は、RealObject のシリアライズを並行して行い、
+ * 全体で1つの連続した領域を割り当て、まとめて書き込む。
+ * </p>
+ * 
+ * <p>
+ * 同様に、多数の{@link SwapObject}を順に{@link SwapObject#get()}すると、ランダムな位置の読み込みが多数発生する。
+ * {@link #prefetch(Collection)}は、これらの領域をファイル内の位置順に並べて少数の連続した読み込みにまとめ、
+ * RealObject を先読みする。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public final class SwapObjects {
+	
+	/** シリアライズの並列度 */
+	private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+	
+	/** シリアライズを並行して行う最小の要素数 */
+	private static final int PARALLEL_THRESHOLD = 64;
+	
+	/** シリアライズ、先読みを行うスレッドプール */
+	private static ExecutorService executor;
+	
+
+	/**
+	 * 複数の{@link SwapObject}の RealObject を先読みする。
+	 * 
+	 * <p>
+	 * RealObject へ到達できない{@link SwapObject}の領域をファイル内の位置順に並べ、近接する領域を
+	 * 1回の連続した読み込みにまとめて読み込む。まとめた読み込みが複数ある場合は、スレッドプールで並行して読み込む。
+	 * 読み込んだ RealObject は{@link SwapObject}に設定され、以降の{@link SwapObject#get()}は
+	 * デシリアライズを行わずに RealObject を返す。
+	 * </p>
+	 * 
+	 * <p>
+	 * 先読みした RealObject は弱参照で保持されるため、キャッシュが無効なスワップストアでは、
+	 * 取得までの間に GC によって破棄される場合がある。確実に保持したい場合はスワップストアのキャッシュを有効にすること。
+	 * 先読みできなかった{@link SwapObject}は、{@link SwapObject#get()}で通常どおり読み込まれる。
+	 * </p>
+	 * 
+	 * @param swapObjs 先読みする{@link SwapObject}のコレクション
+	 * @return 先読みした RealObject の数
+	 * @throws SwapException スワップストアが破棄されている場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合、または{@code null}要素を含む場合
+	 */
+	public static int prefetch(Collection<? extends SwapObject<?>> swapObjs) throws SwapException {
+		Validate.noNullElements(swapObjs);
+		
+		Map<Swapper, List<SwapObject<?>>> swapObjsBySwapper = new LinkedHashMap<Swapper, List<SwapObject<?>>>();
+		for (SwapObject<?> swapObj : swapObjs) {
+			List<SwapObject<?>> list = swapObjsBySwapper.get(swapObj.swapper);
+			if (list == null) {
+				list = new ArrayList<SwapObject<?>>();
+				swapObjsBySwapper.put(swapObj.swapper, list);
+			}
+			list.add(swapObj);
+		}
+		
+		int count = 0;
+		for (Map.Entry<Swapper, List<SwapObject<?>>> entry : swapObjsBySwapper.entrySet()) {
+			count += SwapPrefetcher.prefetch(entry.getKey(), entry.getValue(), PARALLELISM <= 1 ? null : getExecutor());
+		}
+		return count;
+	}
+	
+	/**
+	 * 複数の RealObject をまとめてスワップの対象とする。
+	 * 
+	 * <p>スワップ先は{@link SwapStore#getDefault()}、コーデックは Java のシリアライズ機構が用いられる。</p>
+	 * 
+	 * @param <T> スワップの対象なるオブジェクトのクラス
+	 * @param objs スワップの対象とするオブジェクトのコレクション
+	 * @return 引数のコレクションの反復順に並んだ{@link SwapObject}のリスト
+	 * @throws SwapException シリアライズに失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	public static <T extends Serializable>List<SwapObject<T>> swapAll(Collection<? extends T> objs)
+			throws SwapException {
+		return swapAll(objs, SwapCodecs.<T> serializable(), Swapper.INSTANCE);
+	}
+	
+	/**
+	 * 複数の RealObject をまとめてスワップの対象とする。
+	 * 
+	 * <p>スワップ先は{@link SwapStore#getDefault()}が用いられる。</p>
+	 * 
+	 * @param <T> スワップの対象なるオブジェクトのクラス
+	 * @param objs スワップの対象とするオブジェクトのコレクション
+	 * @param codec RealObject とバイト列の相互変換を行うコーデック
+	 * @return 引数のコレクションの反復順に並んだ{@link SwapObject}のリスト
+	 * @throws SwapException シリアライズに失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	public static <T extends Serializable>List<SwapObject<T>> swapAll(Collection<? extends T> objs,
+			SwapCodec<T> codec) throws SwapException {
+		return swapAll(objs, codec, Swapper.INSTANCE);
+	}
+	
+	/**
+	 * 複数の RealObject をまとめてスワップの対象とする。
+	 * 
+	 * @param <T> スワップの対象なるオブジェクトのクラス
+	 * @param objs スワップの対象とするオブジェクトのコレクション
+	 * @param codec RealObject とバイト列の相互変換を行うコーデック
+	 * @param store スワップ先のスワップストア
+	 * @return 引数のコレクションの反復順に並んだ{@link SwapObject}のリスト
+	 * @throws SwapException シリアライズに失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	public static <T extends Serializable>List<SwapObject<T>> swapAll(Collection<? extends T> objs,
+			SwapCodec<T> codec, SwapStore store) throws SwapException {
+		Validate.notNull(store);
+		return swapAll(objs, codec, store.swapper);
+	}
+	
+	/**
+	 * 複数の RealObject をまとめてスワップの対象とする。
+	 * 
+	 * <p>コーデックは Java のシリアライズ機構が用いられる。</p>
+	 * 
+	 * @param <T> スワップの対象なるオブジェクトのクラス
+	 * @param objs スワップの対象とするオブジェクトのコレクション
+	 * @param store スワップ先のスワップストア
+	 * @return 引数のコレクションの反復順に並んだ{@link SwapObject}のリスト
+	 * @throws SwapException シリアライズに失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	public static <T extends Serializable>List<SwapObject<T>> swapAll(Collection<? extends T> objs,
+			SwapStore store) throws SwapException {
+		return swapAll(objs, SwapCodecs.<T> serializable(), store);
+	}
+	
+	/**
+	 * 複数の RealObject をまとめてスワップの対象とする。
+	 * 
+	 * @param <T> スワップの対象なるオブジェクトのクラス
+	 * @param objs スワップの対象とするオブジェクトのコレクション
+	 * @param codec RealObject とバイト列の相互変換を行うコーデック
+	 * @param swapper スワップ処理を行う{@link Swapper}
+	 * @return 引数のコレクションの反復順に並んだ{@link SwapObject}のリスト
+	 * @throws SwapException シリアライズに失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	static <T extends Serializable>List<SwapObject<T>> swapAll(Collection<? extends T> objs, SwapCodec<T> codec,
+			Swapper swapper) throws SwapException {
+		Validate.notNull(objs);
+		Validate.notNull(codec);
+		Validate.notNull(swapper);
+		
+		List<T> list = new ArrayList<T>(objs);
+		List<SwapObject<T>> swapObjs = new ArrayList<SwapObject<T>>(list.size());
+		for (T obj : list) {
+			swapObjs.add(new SwapObject<T>(swapper, codec, obj));
+		}
+		
+		if (list.size() < PARALLEL_THRESHOLD || PARALLELISM <= 1) {
+			swapper.serializeAll(swapObjs, list, null, 1);
+		} else {
+			swapper.serializeAll(swapObjs, list, getExecutor(), PARALLELISM);
+		}
+		return swapObjs;
+	}
+	
+	/**
+	 * シリアライズ、先読みを行うスレッドプールを取得する。
+	 * 
+	 * <p>スレッドプールは初回の呼び出し時に生成され、デーモンスレッドで構成される。</p>
+	 * 
+	 * @return スレッドプール
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+				
+				private final AtomicInteger count = new AtomicInteger();
+				
+
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "SwapObjectWorker-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	private SwapObjects() {
+	}
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.LogMarker;
+
+/**
+ * 複数の{@link SwapObject}の RealObject を先読みするクラス。
+ * 
+ * <p>
+ * 先読み対象の領域をシャードごとにファイル内の位置順に並べ、近接する領域を1回の連続した読み込みにまとめる。
+ * まとめた読み込みごとにデシリアライズを行い、{@link SwapObject}の弱参照とキャッシュに RealObject を設定する。
+ * これにより、多数の{@link SwapObject#get()}によるランダムな位置の読み込みを、少数の連続した読み込みに置き換える。
+ * </p>
+ * 
+ * <p>
+ * 先読みは最善努力で行われる。読み込み中に領域が移動、更新された{@link SwapObject}や、
+ * 読み込みに失敗した{@link SwapObject}は先読みされず、次回の{@link SwapObject#get()}で通常どおり読み込まれる。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class SwapPrefetcher {
+	
+	private static Logger logger = LoggerFactory.getLogger(SwapPrefetcher.class);
+	
+	/** 1回の読み込みにまとめる領域間の隙間の最大バイト長 */
+	static final int MAX_GAP = 64 * 1024;
+	
+	/** 1回の読み込みの最大バイト長 */
+	static final int MAX_RUN_LENGTH = 8 * 1024 * 1024;
+	
+	/** 開始位置の昇順に並べるコンパレータ */
+	private static final Comparator<Target> ASCENDING = new Comparator<Target>() {
+		
+		public int compare(Target o1, Target o2) {
+			long p1 = o1.extent.position;
+			long p2 = o2.extent.position;
+			return p1 < p2 ? -1 : p1 > p2 ? 1 : 0;
+		}
+	};
+	
+
+	/**
+	 * 同じ{@link Swapper}に属する{@link SwapObject}の RealObject を先読みする。
+	 * 
+	 * @param swapper {@link Swapper}
+	 * @param swapObjs 先読みする{@link SwapObject}
+	 * @param executor 読み込みを並行して行う{@link ExecutorService}。呼び出し元のスレッドで行う場合は{@code null}
+	 * @return 先読みした RealObject の数
+	 * @throws SwapException スワップストアが閉じられている場合
+	 */
+	static int prefetch(Swapper swapper, List<SwapObject<?>> swapObjs, ExecutorService executor)
+			throws SwapException {
+		if (swapper.closed) {
+			throw new SwapException("Swap store is closed.");
+		}
+		
+		// 読み込みが必要な領域をシャードごとに集める
+		Map<SwapShard, List<Target>> targetsByShard = new LinkedHashMap<SwapShard, List<Target>>();
+		for (SwapObject<?> swapObj : swapObjs) {
+			SwapReference swapRef = swapObj.swapRef;
+			if (swapRef == null || swapObj.ref.get() != null) {
+				continue;
+			}
+			WriteBehindQueue queue = swapper.writeBehind;
+			if (queue != null && queue.getPending(swapRef) != null) {
+				continue;
+			}
+			List<Target> targets = targetsByShard.get(swapRef.shard);
+			if (targets == null) {
+				targets = new ArrayList<Target>();
+				targetsByShard.put(swapRef.shard, targets);
+			}
+			targets.add(new Target(swapObj, swapRef.extent));
+		}
+		
+		// 位置順に並べ、近接する領域をまとめる
+		List<Run> runs = new ArrayList<Run>();
+		for (Map.Entry<SwapShard, List<Target>> entry : targetsByShard.entrySet()) {
+			List<Target> targets = entry.getValue();
+			Collections.sort(targets, ASCENDING);
+			Run run = null;
+			for (Target target : targets) {
+				if (run == null || run.canAppend(target) == false) {
+					run = new Run(entry.getKey());
+					runs.add(run);
+				}
+				run.append(target);
+			}
+		}
+		
+		if (executor == null || runs.size() <= 1) {
+			int count = 0;
+			for (Run run : runs) {
+				count += run.load(swapper);
+			}
+			return count;
+		}
+		return loadParallel(swapper, runs, executor);
+	}
+	
+	private static int loadParallel(final Swapper swapper, List<Run> runs, ExecutorService executor)
+			throws SwapException {
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for (final Run run : runs) {
+			futures.add(executor.submit(new Callable<Integer>() {
+				
+				public Integer call() {
+					return run.load(swapper);
+				}
+			}));
+		}
+		int count = 0;
+		try {
+			for (Future<Integer> future : futures) {
+				count += future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SwapException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new SwapException(cause);
+		}
+		return count;
+	}
+	
+	/**
+	 * 読み込んだ RealObject を{@link SwapObject}に設定する。
+	 * 
+	 * <p>読み込み中に{@link SwapObject}が更新された場合や、既に RealObject へ到達可能な場合は設定しない。</p>
+	 * 
+	 * @param <T> スワップ対象となる RealObject のクラス
+	 * @param swapper {@link Swapper}
+	 * @param swapObj {@link SwapObject}
+	 * @param buffer 領域から読み込んだバイト列
+	 * @param extent 読み込んだ領域
+	 * @return 設定した場合は{@code true}、そうでない場合は{@code false}
+	 * @throws SwapException デシリアライズに失敗した場合
+	 */
+	private static <T extends Serializable>boolean warm(Swapper swapper, SwapObject<T> swapObj, ByteBuffer buffer,
+			Extent extent) throws SwapException {
+		T obj = swapper.decode(swapObj, buffer, extent);
+		Reference<T> current = swapObj.ref;
+		if (swapObj.swapRef.extent != extent || current.get() != null || swapObj.publish(current, obj) == false) {
+			return false;
+		}
+		swapper.cache.miss(swapObj.swapRef, obj);
+		return true;
+	}
+	
+	private SwapPrefetcher() {
+	}
+	
+
+	/**
+	 * 先読み対象。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static final class Target {
+		
+		/** 先読みする{@link SwapObject} */
+		final SwapObject<?> swapObj;
+		
+		/** 先読みする領域 */
+		final Extent extent;
+		
+
+		Target(SwapObject<?> swapObj, Extent extent) {
+			this.swapObj = swapObj;
+			this.extent = extent;
+		}
+	}
+	
+	/**
+	 * 1回の連続した読み込みにまとめた先読み対象。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static final class Run {
+		
+		/** 読み込むシャード */
+		final SwapShard shard;
+		
+		/** 先読み対象。開始位置の昇順に並ぶ。 */
+		final List<Target> targets = new ArrayList<Target>();
+		
+		/** 読み込む範囲の開始位置 */
+		long start;
+		
+		/** 読み込む範囲の終端位置 */
+		long end;
+		
+
+		Run(SwapShard shard) {
+			this.shard = shard;
+		}
+		
+		void append(Target target) {
+			if (targets.isEmpty()) {
+				start = target.extent.position;
+			}
+			targets.add(target);
+			end = Math.max(end, target.extent.end());
+		}
+		
+		boolean canAppend(Target target) {
+			return target.extent.position - end <= MAX_GAP
+					&& Math.max(end, target.extent.end()) - start <= MAX_RUN_LENGTH;
+		}
+		
+		/**
+		 * 範囲を1回で読み込み、各先読み対象の RealObject を設定する。
+		 * 
+		 * @param swapper {@link Swapper}
+		 * @return 先読みした RealObject の数
+		 */
+		int load(Swapper swapper) {
+			ByteBuffer buffer;
+			try {
+				buffer = shard.storage.read(new Extent(start, (int) (end - start)));
+			} catch (IOException e) {
+				logger.warn(LogMarker.BOUNDARY, "Error prefetching swap objects.", e);
+				return 0;
+			}
+			
+			int count = 0;
+			for (Target target : targets) {
+				Extent extent = target.extent;
+				int offset = (int) (extent.position - start);
+				if (offset + extent.length > buffer.limit()) {
+					continue;
+				}
+				ByteBuffer slice = buffer.duplicate();
+				slice.limit(offset + extent.length);
+				slice.position(offset);
+				try {
+					if (warm(swapper, target.swapObj, slice.slice(), extent)) {
+						count++;
+					}
+				} catch (SwapException e) {
+					// 読み込み中に領域が移動、再利用された場合は、次回の取得時に読み込む
+					logger.debug(LogMarker.BOUNDARY, "Skipped prefetching swap object.", e);
+				}
+			}
+			return count;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * {@link SwapObject}への弱参照と、その{@link SwapObject}が使用しているスワップファイル内の領域を保持する参照クラス。
+ * 
+ * <p>
+ * {@link SwapObject}が到達不能となった後も、参照キューから取り出されたこの参照を通じて
+ * 使用していた領域を解放することができる。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class SwapReference extends WeakReference<SwapObject<?>> {
+	
+	/** スワップ済み RealObject が格納されているシャード */
+	final SwapShard shard;
+	
+	/** スワップ済み RealObject が格納されている領域 */
+	volatile Extent extent;
+	
+	/** 永続化されたスワップストアで束縛されているキー。束縛されていない場合は{@code null}。{@link #shard}で同期して読み書きする。 */
+	String key;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param swapObj 参照先の{@link SwapObject}
+	 * @param queue 参照キュー
+	 * @param shard スワップ済み RealObject が格納されているシャード
+	 * @param extent スワップ済み RealObject が格納されている領域
+	 */
+	SwapReference(SwapObject<?> swapObj, ReferenceQueue<? super SwapObject<?>> queue, SwapShard shard, Extent extent) {
+		super(swapObj, queue);
+		this.shard = shard;
+		this.extent = extent;
+	}
+	
+}
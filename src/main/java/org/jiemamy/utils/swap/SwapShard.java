@@ -0,0 +1,167 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.LogMarker;
+
+/**
+ * スワップファイルを分割した単位（シャード）。
+ * 
+ * <p>
+ * シャードはそれぞれ独立した記憶域、アロケータ、スワップ情報を持つ。
+ * スワップ情報の更新はシャードのインスタンスで同期をとるため、異なるシャードに対する読み書きは並行して行われる。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class SwapShard {
+	
+	private static Logger logger = LoggerFactory.getLogger(SwapShard.class);
+	
+	/** スワップファイル内でのシャードの番号 */
+	final int index;
+	
+	/** スワップファイルの読み書きを行う記憶域 */
+	final SwapStorage storage;
+	
+	/** スワップファイル内の領域を管理するアロケータ */
+	final ExtentAllocator allocator = new ExtentAllocator();
+	
+	/** スワップ情報を一元管理する参照Set */
+	final Set<SwapReference> swapRefSet = new HashSet<SwapReference>();
+	
+	/** 永続化されたインデックスが参照している領域。インデックスを持たない場合は{@code null} */
+	Set<Extent> committedExtents;
+	
+	/** 書き込み中のインデックスが参照している領域。書き込み中でない場合は{@code null} */
+	Set<Extent> pendingExtents;
+	
+	/** エクスポート中の領域。エクスポート中でない場合は{@code null} */
+	Set<Extent> exportingExtents;
+	
+	/** インデックスから参照されているため、解放を保留している領域 */
+	final List<Extent> deferredExtents = new ArrayList<Extent>();
+	
+	/** スワップ情報に公開済みで、内容の書き込みが完了していない領域。書き込みの完了は、このインスタンスで通知される。 */
+	final Set<Extent> writingExtents = new HashSet<Extent>();
+	
+	/** 書き込み中に解放されたため、書き込みの完了時に解放する領域 */
+	final Set<Extent> abandonedExtents = new HashSet<Extent>();
+	
+	/** 切り詰めの処理時間 */
+	private final LatencyRecorder truncateLatency;
+	
+	/** 最後に切り詰めを行った時刻（ナノ秒） */
+	private long lastTruncateNanos = System.nanoTime();
+	
+	/** 切り詰めを保留しているかどうか */
+	private boolean truncatePending;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param index シャードの番号
+	 * @param storage スワップファイルの読み書きを行う記憶域
+	 * @param truncateLatency 切り詰めの処理時間を記録する{@link LatencyRecorder}
+	 * @throws IllegalArgumentException 引数{@code storage}, {@code truncateLatency}に{@code null}を与えた場合
+	 */
+	SwapShard(int index, SwapStorage storage, LatencyRecorder truncateLatency) {
+		Validate.notNull(storage);
+		Validate.notNull(truncateLatency);
+		this.index = index;
+		this.storage = storage;
+		this.truncateLatency = truncateLatency;
+	}
+	
+	/**
+	 * インデックスから参照されている、またはエクスポート中であるため、解放してはならない領域かどうかを調べる。
+	 * 
+	 * <p>このインスタンスで同期した状態で呼び出すこと。</p>
+	 * 
+	 * @param extent 領域
+	 * @return 解放してはならない場合は{@code true}、そうでない場合は{@code false}
+	 */
+	boolean isPinned(Extent extent) {
+		return (committedExtents != null && committedExtents.contains(extent))
+				|| (pendingExtents != null && pendingExtents.contains(extent))
+				|| (exportingExtents != null && exportingExtents.contains(extent));
+	}
+	
+	/**
+	 * スワップファイルを、使用中の領域の終端位置まで切り詰める。
+	 * 
+	 * <p>
+	 * 切り詰めと並行して新たな領域が割り当てられることを防ぐため、このインスタンスで同期した状態で呼び出すこと。
+	 * </p>
+	 */
+	void truncate() {
+		long start = System.nanoTime();
+		truncatePending = false;
+		lastTruncateNanos = start;
+		try {
+			storage.truncate(allocator.end());
+			truncateLatency.recordSince(start);
+		} catch (IOException e) {
+			logger.error(LogMarker.BOUNDARY, "Error truncating swap file channel.", e);
+		}
+	}
+	
+	/**
+	 * 保留している切り詰めがあれば、切り詰めを行う。
+	 * 
+	 * <p>このインスタンスで同期した状態で呼び出すこと。</p>
+	 */
+	void truncateIfPending() {
+		if (truncatePending) {
+			truncate();
+		}
+	}
+	
+	/**
+	 * 前回の切り詰めから指定した時間が経過している場合は切り詰めを行い、そうでない場合は切り詰めを保留する。
+	 * 
+	 * <p>
+	 * 保留した切り詰めは、次にこのメソッドが呼ばれた時点で時間が経過していれば、または{@link #truncateIfPending()}によって行われる。
+	 * 短時間に多数の領域が解放された場合に、切り詰めのシステムコールをまとめるために用いる。
+	 * このインスタンスで同期した状態で呼び出すこと。
+	 * </p>
+	 * 
+	 * @param intervalNanos 切り詰めの最小間隔（ナノ秒）
+	 */
+	void truncateLazily(long intervalNanos) {
+		if (System.nanoTime() - lastTruncateNanos >= intervalNanos) {
+			truncate();
+		} else {
+			truncatePending = true;
+		}
+	}
+	
+}
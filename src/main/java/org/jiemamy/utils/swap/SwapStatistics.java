@@ -0,0 +1,246 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.IOException;
+
+/**
+ * スワップストアの統計情報のスナップショット。
+ * 
+ * <p>
+ * スワップしているオブジェクトの数、スワップファイルのサイズ、{@link SwapObject#get()}のキャッシュヒット率、
+ * 参照キューの未処理数、シリアライズ・デシリアライズ・切り詰めの処理時間の分布を保持する。
+ * ヒープとディスクの使い分けを調整するために用いる。
+ * </p>
+ * 
+ * <p>各値はスワップ処理と並行して取得されるため、厳密には同時点のものではない。このクラスは不変である。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public final class SwapStatistics {
+	
+	/** スワップしているオブジェクトの数 */
+	private final long objectCount;
+	
+	/** スワップファイルのバイト長 */
+	private final long fileSize;
+	
+	/** スワップファイル内で使用中の領域のバイト数 */
+	private final long liveBytes;
+	
+	/** キャッシュのヒット回数 */
+	private final long cacheHitCount;
+	
+	/** キャッシュのミス回数 */
+	private final long cacheMissCount;
+	
+	/** キャッシュのエントリ数 */
+	private final int cacheSize;
+	
+	/** キャッシュしているバイト数 */
+	private final long cacheBytes;
+	
+	/** 遅延書き込み待ちの更新要求の数 */
+	private final int pendingWriteCount;
+	
+	/** GC によって回収されたが、まだ解放されていないスワップ情報の数 */
+	private final int referenceQueueBacklog;
+	
+	/** シリアライズの処理時間 */
+	private final LatencyHistogram serializeLatency;
+	
+	/** デシリアライズの処理時間 */
+	private final LatencyHistogram deserializeLatency;
+	
+	/** スワップファイルの切り詰めの処理時間 */
+	private final LatencyHistogram truncateLatency;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param swapper 統計情報を取得する{@link Swapper}
+	 * @throws IOException スワップファイルのバイト長の取得に失敗した場合
+	 */
+	SwapStatistics(Swapper swapper) throws IOException {
+		long objects = 0L;
+		long live = 0L;
+		int backlog = 0;
+		for (SwapShard shard : swapper.shards) {
+			synchronized (shard) {
+				objects += shard.swapRefSet.size();
+				live += shard.allocator.getLiveBytes();
+				for (SwapReference swapRef : shard.swapRefSet) {
+					if (swapRef.get() == null && swapRef.key == null) {
+						backlog++;
+					}
+				}
+			}
+		}
+		objectCount = objects;
+		liveBytes = live;
+		referenceQueueBacklog = backlog;
+		fileSize = swapper.size();
+		
+		SwapCache cache = swapper.cache;
+		cacheHitCount = cache.getHitCount();
+		cacheMissCount = cache.getMissCount();
+		cacheSize = cache.getSize();
+		cacheBytes = cache.getBytes();
+		
+		WriteBehindQueue queue = swapper.writeBehind;
+		pendingWriteCount = queue == null ? 0 : queue.size();
+		
+		serializeLatency = swapper.serializeLatency.snapshot();
+		deserializeLatency = swapper.deserializeLatency.snapshot();
+		truncateLatency = swapper.truncateLatency.snapshot();
+	}
+	
+	/**
+	 * キャッシュしている RealObject のバイト数を取得する。
+	 * 
+	 * @return キャッシュしているバイト数
+	 */
+	public long getCacheBytes() {
+		return cacheBytes;
+	}
+	
+	/**
+	 * デシリアライズを行わずに RealObject を取得できた回数を取得する。
+	 * 
+	 * @return キャッシュのヒット回数
+	 */
+	public long getCacheHitCount() {
+		return cacheHitCount;
+	}
+	
+	/**
+	 * {@link SwapObject#get()}のうち、デシリアライズを行わずに RealObject を取得できた割合を取得する。
+	 * 
+	 * @return キャッシュのヒット率。{@link SwapObject#get()}が呼ばれていない場合は{@code 0}
+	 */
+	public double getCacheHitRate() {
+		long total = cacheHitCount + cacheMissCount;
+		return total == 0 ? 0.0 : (double) cacheHitCount / total;
+	}
+	
+	/**
+	 * RealObject の取得にデシリアライズが必要となった回数を取得する。
+	 * 
+	 * @return キャッシュのミス回数
+	 */
+	public long getCacheMissCount() {
+		return cacheMissCount;
+	}
+	
+	/**
+	 * キャッシュしている RealObject の数を取得する。
+	 * 
+	 * @return キャッシュのエントリ数
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+	
+	/**
+	 * デシリアライズの処理時間の分布を取得する。
+	 * 
+	 * <p>キャッシュにヒットした取得は含まない。</p>
+	 * 
+	 * @return デシリアライズの処理時間
+	 */
+	public LatencyHistogram getDeserializeLatency() {
+		return deserializeLatency;
+	}
+	
+	/**
+	 * スワップファイルのバイト長を取得する。
+	 * 
+	 * @return スワップファイルのバイト長
+	 */
+	public long getFileSize() {
+		return fileSize;
+	}
+	
+	/**
+	 * スワップファイル内で使用中の領域のバイト数を取得する。
+	 * 
+	 * @return 使用中の領域のバイト数
+	 */
+	public long getLiveBytes() {
+		return liveBytes;
+	}
+	
+	/**
+	 * スワップしているオブジェクトの数を取得する。
+	 * 
+	 * @return スワップしているオブジェクトの数
+	 */
+	public long getObjectCount() {
+		return objectCount;
+	}
+	
+	/**
+	 * 遅延書き込み待ちの更新要求の数を取得する。
+	 * 
+	 * @return 遅延書き込み待ちの更新要求の数
+	 */
+	public int getPendingWriteCount() {
+		return pendingWriteCount;
+	}
+	
+	/**
+	 * GC によって{@link SwapObject}が回収されたが、参照キュー監視スレッドがまだ解放していないスワップ情報の数を取得する。
+	 * 
+	 * @return 参照キューの未処理数
+	 */
+	public int getReferenceQueueBacklog() {
+		return referenceQueueBacklog;
+	}
+	
+	/**
+	 * シリアライズの処理時間の分布を取得する。
+	 * 
+	 * <p>{@link SwapObjects}による一括スワップは、1回のシリアライズとして記録される。</p>
+	 * 
+	 * @return シリアライズの処理時間
+	 */
+	public LatencyHistogram getSerializeLatency() {
+		return serializeLatency;
+	}
+	
+	/**
+	 * スワップファイルの切り詰めの処理時間の分布を取得する。
+	 * 
+	 * @return 切り詰めの処理時間
+	 */
+	public LatencyHistogram getTruncateLatency() {
+		return truncateLatency;
+	}
+	
+	@Override
+	public String toString() {
+		return "objects=" + objectCount + ", fileSize=" + fileSize + ", liveBytes=" + liveBytes + ", cacheHitRate="
+				+ getCacheHitRate() + ", pendingWrites=" + pendingWriteCount + ", backlog=" + referenceQueueBacklog
+				+ ", serialize=[" + serializeLatency + "], deserialize=[" + deserializeLatency + "], truncate=["
+				+ truncateLatency + "]";
+	}
+	
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * スワップ済みのバイト列を格納する記憶域のインターフェイス。
+ * 
+ * <p>記憶域内の領域の割り当ては{@link ExtentAllocator}が行い、このインターフェイスは読み書きのみを担う。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+interface SwapStorage {
+	
+	/**
+	 * 記憶域を閉じる。
+	 * 
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	void close() throws IOException;
+	
+	/**
+	 * これまでに書き込んだ内容を、記憶装置へ確実に反映させる。
+	 * 
+	 * <p>揮発性の記憶域では何もしない。</p>
+	 * 
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	void force() throws IOException;
+	
+	/**
+	 * 指定した領域のバイト列を読み込む。
+	 * 
+	 * <p>戻り値のバッファは、位置が{@code 0}、リミットが読み込めたバイト長に設定されている。
+	 * バッファは記憶域と内容を共有しないため、読み込んだ後に領域が解放、再利用されても内容は変わらない。</p>
+	 * 
+	 * @param extent 読み込む領域
+	 * @return 読み込んだバイト列
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	ByteBuffer read(Extent extent) throws IOException;
+	
+	/**
+	 * 記憶域のサイズを取得する。
+	 * 
+	 * @return 記憶域のバイト長
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	long size() throws IOException;
+	
+	/**
+	 * チャネルから読み込んだバイト列を、指定した領域へ書き込む。
+	 * 
+	 * <p>実装は可能な限り Java ヒープ上のバッファを経由せずに転送する。</p>
+	 * 
+	 * @param source 読み込み元のチャネル
+	 * @param extent 書き込む領域
+	 * @throws EOFException 領域のバイト長を読み込む前にチャネルの終端に達した場合
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	void transferFrom(ReadableByteChannel source, Extent extent) throws IOException;
+	
+	/**
+	 * 指定した領域のバイト列を、チャネルへ書き込む。
+	 * 
+	 * <p>実装は可能な限り Java ヒープ上のバッファを経由せずに転送する。</p>
+	 * 
+	 * @param extent 読み込む領域
+	 * @param target 書き込み先のチャネル
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	void transferTo(Extent extent, WritableByteChannel target) throws IOException;
+	
+	/**
+	 * 記憶域を指定したサイズに切り詰める。
+	 * 
+	 * <p>実装によっては切り詰めを行わない場合がある。</p>
+	 * 
+	 * @param size 切り詰め後のバイト長
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	void truncate(long size) throws IOException;
+	
+	/**
+	 * バッファの残りの内容を、指定した位置から書き込む。
+	 * 
+	 * @param buffer 書き込むバイト列
+	 * @param position 書き込み位置
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	void write(ByteBuffer buffer, long position) throws IOException;
+	
+	/**
+	 * 複数のバッファの残りの内容を、指定した位置から連続して書き込む。
+	 * 
+	 * @param buffers 書き込むバイト列
+	 * @param position 書き込み位置
+	 * @throws IOException 入出力エラーが発生した場合
+	 */
+	void write(ByteBuffer[] buffers, long position) throws IOException;
+	
+}
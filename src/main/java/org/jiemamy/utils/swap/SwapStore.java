@@ -0,0 +1,749 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.Disposable;
+import org.jiemamy.utils.LogMarker;
+
+/**
+ * スワップファイルと、その領域管理を一組として扱うスワップストア。
+ * 
+ * <p>
+ * スワップストアはそれぞれ独立したスワップファイル、アロケータ、ロックを持つため、
+ * 異なるスワップストアを使用する{@link SwapObject}同士は互いの処理を待ち合わせない。<br>
+ * また、1つのスワップストアを複数のシャードに分割することで、同じスワップストア内でも並行して読み書きを行うことができる。<br>
+ * スワップファイルの代わりにヒープ外のダイレクトバッファへバイト列を保持するスワップストアは、
+ * {@link SwapStoreConfig#setOffHeap(boolean)}を指定して生成する。<br>
+ * {@link SwapObject}の生成時にスワップストアを指定しなかった場合は、{@link #getDefault()}で取得できる
+ * デフォルトのスワップストアが使用される。
+ * </p>
+ * 
+ * <p>
+ * 不要になったスワップストアは{@link #dispose()}で破棄する。破棄されたスワップストアを使用する
+ * {@link SwapObject}への操作は{@link SwapException}で失敗する。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public final class SwapStore implements Disposable {
+	
+	private static final SwapStore DEFAULT = new SwapStore(Swapper.INSTANCE);
+	
+	/** ダイレクトバッファを使用する際に、シャードあたりプールに保持するスラブ数 */
+	private static final int POOLED_SLABS_PER_SHARD = 4;
+	
+	/** MXBean の名前を一意にするため、登録ごとに発行する番号 */
+	private static final AtomicInteger MBEAN_SEQUENCE = new AtomicInteger();
+	
+	private static Logger logger = LoggerFactory.getLogger(SwapStore.class);
+	
+
+	/**
+	 * デフォルトのスワップストアを取得する。
+	 * 
+	 * <p>デフォルトのスワップストアは、システムの一時ディレクトリにスワップファイルを持つ。</p>
+	 * 
+	 * @return デフォルトのスワップストア
+	 */
+	public static SwapStore getDefault() {
+		return DEFAULT;
+	}
+	
+	private static void closeQuietly(FileChannel channel) {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			logger.warn(LogMarker.BOUNDARY, "Failed to close swap lock file.", e);
+		}
+	}
+	
+	private static Swapper createSwapper(SwapStorage[] storages, SwapStoreConfig config) {
+		Swapper swapper = new Swapper(storages);
+		swapper.maxSize = config.getMaxSize();
+		if (config.isCompressionEnabled()) {
+			swapper.setCompressor(new DeflateCompressor(config.getCompressionLevel()));
+		}
+		swapper.setCache(new SwapCache(config.getCacheMaxEntries(), config.getCacheMaxBytes()));
+		if (config.getCompactionThreshold() > 0.0 && config.isMemoryMapped() == false) {
+			// メモリマップしたスワップファイルは切り詰められないため、自動コンパクションは複写の負荷にしかならない
+			swapper.enableCompaction(config.getCompactionThreshold());
+		}
+		if (config.getWriteBehindCapacity() > 0) {
+			swapper.enableWriteBehind(config.getWriteBehindCapacity());
+		}
+		if (config.getHeapHighWaterMark() > 0.0) {
+			swapper.enableHeapPressure(config.getHeapHighWaterMark(), config.getHeapLowWaterMark());
+		}
+		return swapper;
+	}
+	
+	/**
+	 * 永続化されたスワップストアのディレクトリを、他のスワップストアが使用できないようロックする。
+	 * 
+	 * <p>スワップファイルとインデックスファイルの名前は固定であるため、同じディレクトリを複数のスワップストアで開くと、
+	 * 互いの領域やインデックスを上書きしてしまう。ロックは別のプロセス、同じ JVM 内の別のスワップストアのいずれに対しても有効である。</p>
+	 * 
+	 * @param directory スワップストアのディレクトリ
+	 * @return 取得したロック
+	 * @throws SwapException ロックファイルを開けなかった場合、または他のスワップストアがディレクトリを使用している場合
+	 */
+	private static FileLock lockDirectory(File directory) throws SwapException {
+		File file = new File(directory, SwapIndex.LOCK_FILE_NAME);
+		FileChannel channel = null;
+		FileLock lock = null;
+		try {
+			channel = new RandomAccessFile(file, "rw").getChannel();
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			// 同じ JVM 内の別のスワップストアがロックを保持している
+			lock = null;
+		} catch (IOException e) {
+			closeQuietly(channel);
+			throw new SwapException(e);
+		}
+		if (lock == null) {
+			closeQuietly(channel);
+			throw new SwapException("Swap directory is already in use: " + directory);
+		}
+		return lock;
+	}
+	
+
+	/** スワップ処理を行う{@link Swapper} */
+	final Swapper swapper;
+	
+	/** シャードごとのスワップファイル。ダイレクトバッファを使用する場合は空 */
+	private final File[] swapFiles;
+	
+	/** ダイレクトバッファのスラブを取得するプール。スワップファイルを使用する場合は{@code null} */
+	private final DirectSlabPool slabPool;
+	
+	/** キーとスワップ済みの領域の対応を管理するインデックス。永続化しない場合は{@code null} */
+	private final SwapIndex index;
+	
+	/** 永続化されたスワップストアのディレクトリのロック。永続化しない場合は{@code null} */
+	private final FileLock directoryLock;
+	
+	/** 登録した MXBean の名前。登録していない場合は{@code null} */
+	ObjectName mbeanName;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param directory スワップファイルを生成するディレクトリ
+	 * @throws SwapException スワップファイルの生成に失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	public SwapStore(File directory) throws SwapException {
+		this(directory, new SwapStoreConfig());
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * <p>{@link SwapStoreConfig#isOffHeap()}が{@code true}の場合、スワップファイルは生成せず、
+	 * 引数{@code directory}は使用されない。<br>
+	 * {@link SwapStoreConfig#isPersistent()}が{@code true}の場合、ディレクトリに既存のインデックスファイルがあれば読み込み、
+	 * キーに束縛されていた{@link SwapObject}を{@link #attach(String)}で再接続できる状態にする。
+	 * 永続化されたスワップストアは、{@link #dispose()}されるまでディレクトリをロックし、
+	 * 別のプロセスや同じ JVM 内の別のスワップストアが同じディレクトリを開くことを防ぐ。</p>
+	 * 
+	 * @param directory スワップファイルを生成するディレクトリ
+	 * @param config 設定
+	 * @throws SwapException スワップファイルの生成、またはインデックスファイルの読み込みに失敗した場合
+	 * @throws SwapException 永続化する場合で、ディレクトリが他のスワップストアによって使用されている場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalArgumentException 永続化とダイレクトバッファの使用を同時に指定した場合
+	 */
+	public SwapStore(File directory, SwapStoreConfig config) throws SwapException {
+		Validate.notNull(directory);
+		Validate.notNull(config);
+		Validate.isTrue(config.isPersistent() == false || config.isOffHeap() == false);
+		SwapStorage[] storages = new SwapStorage[config.getShardCount()];
+		FileLock lock = null;
+		if (config.isOffHeap()) {
+			swapFiles = new File[0];
+			slabPool = new DirectSlabPool(config.getSlabSize(), storages.length * POOLED_SLABS_PER_SHARD);
+			for (int i = 0; i < storages.length; i++) {
+				storages[i] = new DirectBufferStorage(slabPool);
+			}
+		} else {
+			swapFiles = new File[storages.length];
+			slabPool = null;
+			try {
+				if (directory.isDirectory() == false && directory.mkdirs() == false) {
+					throw new SwapException("Cannot create swap directory: " + directory);
+				}
+				if (config.isPersistent()) {
+					lock = lockDirectory(directory);
+				}
+				for (int i = 0; i < swapFiles.length; i++) {
+					if (config.isPersistent()) {
+						swapFiles[i] = SwapIndex.getDataFile(directory, i);
+					} else {
+						swapFiles[i] =
+								File.createTempFile(Swapper.SWAP_FILE_PREFIX, Swapper.SWAP_FILE_SUFFIX, directory);
+						swapFiles[i].deleteOnExit();
+					}
+					if (config.isMemoryMapped()) {
+						storages[i] = new MappedFileStorage(swapFiles[i], config.getSegmentSize());
+					} else {
+						storages[i] = new FileChannelStorage(swapFiles[i]);
+					}
+				}
+			} catch (IOException e) {
+				if (lock != null) {
+					closeQuietly(lock.channel());
+				}
+				throw new SwapException(e);
+			}
+		}
+		directoryLock = lock;
+		swapper = createSwapper(storages, config);
+		if (config.isPersistent()) {
+			index = new SwapIndex(new File(directory, SwapIndex.INDEX_FILE_NAME), swapper);
+			try {
+				index.load();
+			} catch (IOException e) {
+				swapper.close();
+				closeQuietly(lock.channel());
+				throw new SwapException(e);
+			} catch (SwapException e) {
+				swapper.close();
+				closeQuietly(lock.channel());
+				throw e;
+			}
+		} else {
+			index = null;
+		}
+		if (config.isJmxEnabled()) {
+			registerMBean(directory);
+		}
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * <p>スワップファイルはシステムの一時ディレクトリに生成される。{@link SwapStoreConfig#isOffHeap()}が{@code true}の場合は
+	 * スワップファイルを生成せず、ヒープ外のダイレクトバッファにバイト列を保持する。</p>
+	 * 
+	 * @param config 設定
+	 * @throws SwapException スワップファイルの生成に失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	public SwapStore(SwapStoreConfig config) throws SwapException {
+		this(new File(System.getProperty("java.io.tmpdir")), config);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param swapper スワップ処理を行う{@link Swapper}
+	 * @param swapFiles シャードごとのスワップファイル
+	 */
+	SwapStore(Swapper swapper, File... swapFiles) {
+		Validate.notNull(swapper);
+		Validate.noNullElements(swapFiles);
+		this.swapper = swapper;
+		this.swapFiles = swapFiles.clone();
+		slabPool = null;
+		index = null;
+		directoryLock = null;
+	}
+	
+	/**
+	 * キーに束縛された{@link SwapObject}を取得する。
+	 * 
+	 * <p>RealObject とバイト列の相互変換には Java のシリアライズ機構が用いられる。</p>
+	 * 
+	 * @param <T> RealObject の型
+	 * @param key キー
+	 * @return {@link SwapObject}。キーが束縛されていない場合は{@code null}
+	 * @throws SwapException スワップストアが破棄されている場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 * @see #attach(String, SwapCodec)
+	 */
+	public <T extends Serializable>SwapObject<T> attach(String key) throws SwapException {
+		return attach(key, SwapCodecs.<T> serializable());
+	}
+	
+	/**
+	 * キーに束縛された{@link SwapObject}を取得する。
+	 * 
+	 * <p>
+	 * 束縛された{@link SwapObject}に到達できる場合はそれを返す。到達できない場合、または JVM の再起動後で
+	 * まだ再接続されていない場合は、スワップファイル内の同じ領域を参照する{@link SwapObject}を生成して返す。
+	 * 生成された{@link SwapObject}は、最初の{@link SwapObject#get()}でスワップファイルから RealObject を読み込む。<br>
+	 * 引数{@code codec}は、束縛した時点の{@link SwapObject}と同じ形式のコーデックを与えること。
+	 * </p>
+	 * 
+	 * @param <T> RealObject の型
+	 * @param key キー
+	 * @param codec RealObject とバイト列の相互変換を行うコーデック
+	 * @return {@link SwapObject}。キーが束縛されていない場合は{@code null}
+	 * @throws SwapException スワップストアが破棄されている場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 */
+	public <T extends Serializable>SwapObject<T> attach(String key, SwapCodec<T> codec) throws SwapException {
+		Validate.notNull(key);
+		Validate.notNull(codec);
+		ensurePersistent();
+		if (swapper.closed) {
+			throw new SwapException("Swap store is closed.");
+		}
+		return index.attach(key, codec);
+	}
+	
+	/**
+	 * {@link SwapObject}をキーに束縛する。
+	 * 
+	 * <p>
+	 * キーに束縛された{@link SwapObject}は、到達不能となってもスワップファイル内の領域が解放されず、
+	 * {@link #attach(String)}で再び取得できる。束縛は{@link #sync()}でインデックスファイルに書き出され、
+	 * JVM の再起動後も有効となる。<br>
+	 * 既にキーに別の{@link SwapObject}が束縛されている場合は置き換える。
+	 * </p>
+	 * 
+	 * @param key キー
+	 * @param swapObj 束縛する{@link SwapObject}
+	 * @throws SwapException スワップストアが破棄されている場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalArgumentException このスワップストアの{@link SwapObject}でない場合
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 */
+	public void bind(String key, SwapObject<?> swapObj) throws SwapException {
+		Validate.notNull(key);
+		Validate.notNull(swapObj);
+		Validate.isTrue(swapObj.swapper == swapper);
+		ensurePersistent();
+		if (swapper.closed) {
+			throw new SwapException("Swap store is closed.");
+		}
+		index.bind(key, swapObj);
+	}
+	
+
+	/**
+	 * スワップストアを破棄し、スワップファイルを削除する。
+	 * 
+	 * <p>永続化されたスワップストアの場合は、インデックスファイルを書き出した上で閉じ、スワップファイルは削除しない。
+	 * また、ディレクトリのロックを解放する。</p>
+	 * 
+	 * @throws IllegalStateException デフォルトのスワップストアに対して呼び出した場合
+	 */
+	public void dispose() {
+		if (this == DEFAULT) {
+			throw new IllegalStateException("The default swap store cannot be disposed.");
+		}
+		if (index != null && swapper.closed == false) {
+			try {
+				sync();
+			} catch (SwapException e) {
+				logger.error(LogMarker.BOUNDARY, "Failed to write swap index.", e);
+			}
+		}
+		swapper.close();
+		if (directoryLock != null) {
+			// ロックはチャネルを閉じることで解放される
+			closeQuietly(directoryLock.channel());
+		}
+		if (mbeanName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+			} catch (JMException e) {
+				logger.warn(LogMarker.BOUNDARY, "Failed to unregister MXBean: " + mbeanName, e);
+			}
+		}
+		for (File swapFile : swapFiles) {
+			if (index == null && swapFile.delete() == false) {
+				logger.warn(LogMarker.BOUNDARY, "Failed to delete swap file: " + swapFile);
+			}
+		}
+		if (slabPool != null) {
+			slabPool.clear();
+		}
+	}
+	
+	/**
+	 * スワップファイルのコンパクションを行う。
+	 * 
+	 * <p>断片化率に関わらず、ファイル終端に近い領域を前方の空き領域へ移動し、スワップファイルを縮小する。
+	 * コンパクションは呼び出し元のスレッドで行われるが、他のスレッドからの読み書きは継続して行える。</p>
+	 * 
+	 * <p>スワップファイルをメモリマップしている場合、スワップファイルは切り詰められないため縮小しない。
+	 * 戻り値は、使用中の領域の終端位置が前方へ移動したバイト長となる。</p>
+	 * 
+	 * @return 縮小したバイト長
+	 * @throws SwapException スワップストアが破棄されている場合
+	 */
+	public long compact() throws SwapException {
+		return swapper.compact();
+	}
+	
+	/**
+	 * キーに束縛された全ての{@link SwapObject}を、ファイルへエクスポートする。
+	 * 
+	 * <p>ファイルが既に存在する場合は上書きする。
+	 * ファイルへの書き出しには{@link FileChannel#transferTo(long, long, WritableByteChannel)}が用いられるため、
+	 * OS が対応していればバイト列は Java ヒープを経由せずにコピーされる。</p>
+	 * 
+	 * @param file エクスポート先のファイル
+	 * @return エクスポートした{@link SwapObject}の数
+	 * @throws SwapException スワップストアが破棄されている場合、またはエクスポートに失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 * @see #exportTo(WritableByteChannel)
+	 */
+	public int exportTo(File file) throws SwapException {
+		Validate.notNull(file);
+		ensurePersistent();
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				int count = exportTo(out.getChannel());
+				out.getFD().sync();
+				return count;
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new SwapException(e);
+		}
+	}
+	
+	/**
+	 * キーに束縛された全ての{@link SwapObject}を、チャネルへエクスポートする。
+	 * 
+	 * <p>
+	 * 遅延書き込み中の更新を書き込んだ上で、呼び出し時点の束縛とスワップ済みのバイト列をそのまま書き出す。
+	 * RealObject のデシリアライズは行わないため、スワップファイルのサイズに関わらず Java ヒープを消費しない。
+	 * エクスポートしたデータは{@link #importFrom(ReadableByteChannel)}で、シャード数の異なるスワップストアにも取り込める。<br>
+	 * エクスポート中も{@link SwapObject}の読み書きは行えるが、キーの束縛と{@link #sync()}は完了まで待機する。
+	 * </p>
+	 * 
+	 * @param target エクスポート先のチャネル
+	 * @return エクスポートした{@link SwapObject}の数
+	 * @throws SwapException スワップストアが破棄されている場合、遅延書き込みに失敗していた場合、
+	 * またはエクスポートに失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 */
+	public int exportTo(WritableByteChannel target) throws SwapException {
+		Validate.notNull(target);
+		ensurePersistent();
+		swapper.flush();
+		try {
+			return index.exportTo(target);
+		} catch (IOException e) {
+			throw new SwapException(e);
+		}
+	}
+	
+	/**
+	 * 遅延書き込み中の全ての更新の書き込みが完了するまで待機する。
+	 * 
+	 * <p>{@link SwapObject#update(java.io.Serializable)}による更新をスワップファイルに確実に反映させたい時点で呼び出す。
+	 * 遅延書き込みが有効でない場合は何もしない。</p>
+	 * 
+	 * @throws SwapException スワップストアが破棄されている場合、
+	 * または前回の呼び出し以降にいずれかの遅延書き込みに失敗していた場合
+	 */
+	public void flush() throws SwapException {
+		swapper.flush();
+	}
+	
+	/**
+	 * キャッシュしている RealObject のバイト長（シリアライズ後のバイト長）の合計を取得する。
+	 * 
+	 * @return バイト長の合計
+	 */
+	public long getCacheBytes() {
+		return swapper.cache.getBytes();
+	}
+	
+	/**
+	 * デシリアライズを行わずに RealObject を取得できた回数を取得する。
+	 * 
+	 * @return キャッシュのヒット回数
+	 */
+	public long getCacheHitCount() {
+		return swapper.cache.getHitCount();
+	}
+	
+	/**
+	 * RealObject の取得にデシリアライズが必要となった回数を取得する。
+	 * 
+	 * @return キャッシュのミス回数
+	 */
+	public long getCacheMissCount() {
+		return swapper.cache.getMissCount();
+	}
+	
+	/**
+	 * キャッシュしている RealObject の数を取得する。
+	 * 
+	 * @return キャッシュのエントリ数
+	 */
+	public int getCacheSize() {
+		return swapper.cache.getSize();
+	}
+	
+	/**
+	 * スワップファイル内で使用中の領域のバイト数の合計を取得する。
+	 * 
+	 * <p>{@link #getSize()}との差が、断片化によって使用されていない領域のバイト数となる。</p>
+	 * 
+	 * @return 使用中の領域のバイト数
+	 */
+	public long getLiveBytes() {
+		return swapper.liveBytes();
+	}
+	
+	/**
+	 * キーに束縛されている{@link SwapObject}のキーの一覧を取得する。
+	 * 
+	 * @return キーの{@link Set}のコピー
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 */
+	public Set<String> getKeys() {
+		ensurePersistent();
+		return index.getKeys();
+	}
+	
+	/**
+	 * スワップファイルの最大バイト長を取得する。
+	 * 
+	 * @return スワップファイルの最大バイト長
+	 */
+	public long getMaxSize() {
+		return swapper.maxSize;
+	}
+	
+	/**
+	 * スワップファイルの現在のバイト長を取得する。
+	 * 
+	 * @return スワップファイルのバイト長
+	 * @throws SwapException スワップファイルのバイト長の取得に失敗した場合
+	 */
+	public long getSize() throws SwapException {
+		try {
+			return swapper.size();
+		} catch (IOException e) {
+			throw new SwapException(e);
+		}
+	}
+	
+	/**
+	 * 統計情報のスナップショットを取得する。
+	 * 
+	 * @return 統計情報
+	 * @throws SwapException 統計情報の取得に失敗した場合
+	 */
+	public SwapStatistics getStatistics() throws SwapException {
+		try {
+			return new SwapStatistics(swapper);
+		} catch (IOException e) {
+			throw new SwapException(e);
+		}
+	}
+	
+	/**
+	 * {@link #exportTo(File)}でエクスポートしたファイルから、{@link SwapObject}をインポートする。
+	 * 
+	 * @param file インポート元のファイル
+	 * @return インポートした{@link SwapObject}の数
+	 * @throws SwapException スワップストアが破棄されている場合、またはインポートに失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 * @see #importFrom(ReadableByteChannel)
+	 */
+	public int importFrom(File file) throws SwapException {
+		Validate.notNull(file);
+		ensurePersistent();
+		try {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				return importFrom(in.getChannel());
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new SwapException(e);
+		}
+	}
+	
+	/**
+	 * {@link #exportTo(WritableByteChannel)}でエクスポートしたデータを、チャネルからインポートする。
+	 * 
+	 * <p>
+	 * スワップ済みのバイト列はデシリアライズせずにスワップファイルへ直接書き込まれ、エクスポート時と同じキーに束縛される。
+	 * インポートした{@link SwapObject}は{@link #attach(String)}で取得でき、最初の{@link SwapObject#get()}で読み込まれる。
+	 * 既に同じキーが束縛されている場合は置き換える。インポートした束縛は、次の{@link #sync()}でインデックスファイルに書き出される。<br>
+	 * 圧縮の有無はバイト列ごとに記録されているため、エクスポート元と圧縮の設定が異なっていてもよい。
+	 * </p>
+	 * 
+	 * @param source インポート元のチャネル
+	 * @return インポートした{@link SwapObject}の数
+	 * @throws SwapException スワップストアが破棄されている場合、データの形式が不正な場合、
+	 * スワップファイルが最大バイト長を超える場合、またはインポートに失敗した場合
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 */
+	public int importFrom(ReadableByteChannel source) throws SwapException {
+		Validate.notNull(source);
+		ensurePersistent();
+		if (swapper.closed) {
+			throw new SwapException("Swap store is closed.");
+		}
+		try {
+			return index.importFrom(source);
+		} catch (IOException e) {
+			throw new SwapException(e);
+		}
+	}
+	
+	/**
+	 * このスワップストアが破棄されているかどうかを調べる。
+	 * 
+	 * @return 破棄されている場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public boolean isDisposed() {
+		return swapper.closed;
+	}
+	
+	/**
+	 * スワップファイルとインデックスを永続化するスワップストアかどうかを調べる。
+	 * 
+	 * @return 永続化する場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public boolean isPersistent() {
+		return index != null;
+	}
+	
+	/**
+	 * 遅延書き込み中の更新を書き込んだ上で、キーの束縛をインデックスファイルへ書き出す。
+	 * 
+	 * <p>
+	 * スワップファイルへの書き込みを記憶装置へ反映させた後にインデックスファイルを置き換えるため、
+	 * 呼び出しが完了した時点の束縛は、その後に JVM が異常終了しても再接続できる。
+	 * 前回の呼び出し以降の更新は、次の呼び出しまでインデックスに反映されない。
+	 * </p>
+	 * 
+	 * @throws SwapException スワップストアが破棄されている場合、遅延書き込みに失敗していた場合、
+	 * またはインデックスファイルの書き出しに失敗した場合
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 */
+	public void sync() throws SwapException {
+		ensurePersistent();
+		swapper.flush();
+		try {
+			index.write();
+		} catch (IOException e) {
+			throw new SwapException(e);
+		}
+	}
+	
+	/**
+	 * キーの束縛を解く。
+	 * 
+	 * <p>束縛されていた{@link SwapObject}が既に到達不能である場合は、その領域を解放する。
+	 * 束縛の解除は、次の{@link #sync()}でインデックスファイルに反映される。</p>
+	 * 
+	 * @param key キー
+	 * @return 束縛を解いた場合は{@code true}、キーが束縛されていなかった場合は{@code false}
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 * @throws IllegalStateException 永続化されたスワップストアでない場合
+	 */
+	public boolean unbind(String key) {
+		Validate.notNull(key);
+		ensurePersistent();
+		return index.unbind(key);
+	}
+	
+	private void ensurePersistent() {
+		if (index == null) {
+			throw new IllegalStateException("Swap store is not persistent.");
+		}
+	}
+	
+	/**
+	 * プラットフォーム MBean サーバに{@link SwapStoreMXBean}を登録する。
+	 * 
+	 * <p>名前にはスワップストアのディレクトリの正規パス（ダイレクトバッファを使用する場合は{@code offheap}）と、
+	 * 登録ごとに発行する番号を含める。スワップファイル名はディレクトリごとに同じであり、
+	 * 永続化しないスワップストアは同じディレクトリを共有するため、番号によって名前を一意にする。</p>
+	 * 
+	 * <p>登録に失敗した場合は警告を記録し、スワップストアはそのまま使用できる。</p>
+	 * 
+	 * @param directory スワップストアのディレクトリ
+	 */
+	private void registerMBean(File directory) {
+		String path;
+		if (swapFiles.length == 0) {
+			path = "offheap";
+		} else {
+			try {
+				path = directory.getCanonicalPath();
+			} catch (IOException e) {
+				path = directory.getAbsolutePath();
+			}
+		}
+		try {
+			ObjectName name =
+					new ObjectName("org.jiemamy.utils.swap:type=SwapStore,name=" + ObjectName.quote(path) + ",id="
+							+ MBEAN_SEQUENCE.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+					new StandardMBean(new SwapStoreMonitor(swapper), SwapStoreMXBean.class, true), name);
+			mbeanName = name;
+		} catch (JMException e) {
+			logger.warn(LogMarker.BOUNDARY, "Failed to register MXBean.", e);
+		}
+	}
+	
+}
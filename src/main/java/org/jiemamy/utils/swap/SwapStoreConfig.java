@@ -0,0 +1,436 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.util.zip.Deflater;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link SwapStore}の生成時に与える設定。
+ * 
+ * <p>設定値は{@link SwapStore}の生成時に複製されるため、生成後にこのインスタンスを変更しても{@link SwapStore}には影響しない。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class SwapStoreConfig {
+	
+	/** スワップファイルの最大バイト長 */
+	private long maxSize = Long.MAX_VALUE;
+	
+	/** スワップファイルをメモリマップするかどうか */
+	private boolean memoryMapped;
+	
+	/** メモリマップする際のセグメント長 */
+	private int segmentSize = MappedFileStorage.DEFAULT_SEGMENT_SIZE;
+	
+	/** スワップファイルの代わりにヒープ外のダイレクトバッファを使用するかどうか */
+	private boolean offHeap;
+	
+	/** ダイレクトバッファを使用する際のスラブ長 */
+	private int slabSize = DirectSlabPool.DEFAULT_SLAB_SIZE;
+	
+	/** スワップするバイト列を圧縮するかどうか */
+	private boolean compressionEnabled;
+	
+	/** 圧縮レベル */
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	
+	/** シャード数 */
+	private int shardCount = 1;
+	
+	/** キャッシュの最大エントリ数 */
+	private int cacheMaxEntries;
+	
+	/** キャッシュの最大合計バイト長 */
+	private long cacheMaxBytes;
+	
+	/** 遅延書き込みキューの容量 */
+	private int writeBehindCapacity;
+	
+	/** 自動コンパクションを行う断片化率の閾値 */
+	private double compactionThreshold;
+	
+	/** キャッシュの追い出しを開始するヒープの使用率 */
+	private double heapHighWaterMark;
+	
+	/** キャッシュの追い出しを終了するヒープの使用率 */
+	private double heapLowWaterMark;
+	
+	/** MBean サーバに登録するかどうか */
+	private boolean jmxEnabled;
+	
+	/** スワップファイルとインデックスを永続化するかどうか */
+	private boolean persistent;
+	
+
+	/**
+	 * キャッシュの最大合計バイト長を取得する。
+	 * 
+	 * @return キャッシュの最大合計バイト長。{@code 0}の場合は無制限
+	 */
+	public long getCacheMaxBytes() {
+		return cacheMaxBytes;
+	}
+	
+	/**
+	 * キャッシュの最大エントリ数を取得する。
+	 * 
+	 * @return キャッシュの最大エントリ数。{@code 0}の場合は無制限
+	 */
+	public int getCacheMaxEntries() {
+		return cacheMaxEntries;
+	}
+	
+	/**
+	 * 自動コンパクションを行う断片化率の閾値を取得する。
+	 * 
+	 * @return 断片化率の閾値。{@code 0}の場合は自動コンパクションを行わない
+	 */
+	public double getCompactionThreshold() {
+		return compactionThreshold;
+	}
+	
+	/**
+	 * 圧縮レベルを取得する。
+	 * 
+	 * @return {@link Deflater}の圧縮レベル
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+	
+	/**
+	 * キャッシュの追い出しを開始するヒープの使用率を取得する。
+	 * 
+	 * @return ヒープの使用率。{@code 0}の場合はヒープの使用率による追い出しを行わない
+	 */
+	public double getHeapHighWaterMark() {
+		return heapHighWaterMark;
+	}
+	
+	/**
+	 * キャッシュの追い出しを終了するヒープの使用率を取得する。
+	 * 
+	 * @return ヒープの使用率。{@code 0}の場合はヒープの使用率による追い出しを行わない
+	 */
+	public double getHeapLowWaterMark() {
+		return heapLowWaterMark;
+	}
+	
+	/**
+	 * スワップファイルの最大バイト長を取得する。
+	 * 
+	 * @return スワップファイルの最大バイト長
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * メモリマップする際のセグメント長を取得する。
+	 * 
+	 * @return セグメント長
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+	
+	/**
+	 * シャード数を取得する。
+	 * 
+	 * @return シャード数
+	 */
+	public int getShardCount() {
+		return shardCount;
+	}
+	
+	/**
+	 * ダイレクトバッファを使用する際のスラブ長を取得する。
+	 * 
+	 * @return スラブ長
+	 */
+	public int getSlabSize() {
+		return slabSize;
+	}
+	
+	/**
+	 * 遅延書き込みキューの容量を取得する。
+	 * 
+	 * @return 遅延書き込みキューの容量。{@code 0}の場合は遅延書き込みを行わない
+	 */
+	public int getWriteBehindCapacity() {
+		return writeBehindCapacity;
+	}
+	
+	/**
+	 * スワップするバイト列を圧縮するかどうかを取得する。
+	 * 
+	 * @return 圧縮する場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public boolean isCompressionEnabled() {
+		return compressionEnabled;
+	}
+	
+	/**
+	 * プラットフォーム MBean サーバに{@link SwapStoreMXBean}を登録するかどうかを取得する。
+	 * 
+	 * @return 登録する場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public boolean isJmxEnabled() {
+		return jmxEnabled;
+	}
+	
+	/**
+	 * スワップファイルをメモリマップするかどうかを取得する。
+	 * 
+	 * @return メモリマップする場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public boolean isMemoryMapped() {
+		return memoryMapped;
+	}
+	
+	/**
+	 * スワップファイルの代わりにヒープ外のダイレクトバッファを使用するかどうかを取得する。
+	 * 
+	 * @return ダイレクトバッファを使用する場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+	
+	/**
+	 * スワップファイルとインデックスを永続化するかどうかを取得する。
+	 * 
+	 * @return 永続化する場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public boolean isPersistent() {
+		return persistent;
+	}
+	
+	/**
+	 * キャッシュの最大合計バイト長を設定する。
+	 * 
+	 * <p>キャッシュは、最近使用された RealObject をシリアライズ後のバイト長の合計がこの値以下となるまで保持する。
+	 * この値を超えた場合は、最も長い間使用されていない数個の RealObject のうち、最も大きいものから追い出す。
+	 * そのため、使用されていない大きな RealObject ほど先に追い出される。</p>
+	 * 
+	 * <p>{@link #setCacheMaxEntries(int)}と共に{@code 0}（デフォルト）の場合、キャッシュは無効となる。</p>
+	 * 
+	 * @param cacheMaxBytes キャッシュの最大合計バイト長。{@code 0}の場合は無制限
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
+	 */
+	public void setCacheMaxBytes(long cacheMaxBytes) {
+		Validate.isTrue(cacheMaxBytes >= 0);
+		this.cacheMaxBytes = cacheMaxBytes;
+	}
+	
+	/**
+	 * キャッシュの最大エントリ数を設定する。
+	 * 
+	 * <p>キャッシュは、最近使用された RealObject をこの数まで強参照で保持し、それを超えた場合は
+	 * 最も長い間使用されていない RealObject から追い出す（LRU）。</p>
+	 * 
+	 * <p>{@link #setCacheMaxBytes(long)}と共に{@code 0}（デフォルト）の場合、キャッシュは無効となる。</p>
+	 * 
+	 * @param cacheMaxEntries キャッシュの最大エントリ数。{@code 0}の場合は無制限
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
+	 */
+	public void setCacheMaxEntries(int cacheMaxEntries) {
+		Validate.isTrue(cacheMaxEntries >= 0);
+		this.cacheMaxEntries = cacheMaxEntries;
+	}
+	
+	/**
+	 * 自動コンパクションを行う断片化率の閾値を設定する。
+	 * 
+	 * <p>断片化率は、使用中の領域の終端位置に対する空き領域の割合である。
+	 * シャードの断片化率がこの値を超えると、バックグラウンドのスレッドがファイル終端に近い領域を前方の空き領域へ移動し、
+	 * スワップファイルを縮小する。移動中も他の{@link SwapObject}の読み書きは継続して行える。</p>
+	 * 
+	 * <p>スワップファイルをメモリマップする場合（{@link #setMemoryMapped(boolean)}）はスワップファイルを縮小できないため、
+	 * この設定は無視され、自動コンパクションは行われない。</p>
+	 * 
+	 * @param compactionThreshold 断片化率の閾値。{@code 0}（デフォルト）の場合は自動コンパクションを行わない
+	 * @throws IllegalArgumentException 引数に{@code 0}以上{@code 1}未満でない値を与えた場合
+	 */
+	public void setCompactionThreshold(double compactionThreshold) {
+		Validate.isTrue(compactionThreshold >= 0.0 && compactionThreshold < 1.0);
+		this.compactionThreshold = compactionThreshold;
+	}
+	
+	/**
+	 * スワップするバイト列を圧縮するかどうかを設定する。
+	 * 
+	 * @param compressionEnabled 圧縮する場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public void setCompressionEnabled(boolean compressionEnabled) {
+		this.compressionEnabled = compressionEnabled;
+	}
+	
+	/**
+	 * 圧縮レベルを設定する。
+	 * 
+	 * @param compressionLevel {@link Deflater}の圧縮レベル。{@link Deflater#DEFAULT_COMPRESSION}、または{@code 0}から{@code 9}の値。
+	 * @throws IllegalArgumentException 圧縮レベルが範囲外の場合
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		Validate.isTrue(compressionLevel == Deflater.DEFAULT_COMPRESSION
+				|| (compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION));
+		this.compressionLevel = compressionLevel;
+	}
+	
+	/**
+	 * ヒープの使用率に応じたキャッシュの追い出しを行う水位点を設定する。
+	 * 
+	 * <p>GC 後のヒープの使用率が{@code highWaterMark}以上になると、キャッシュへの追加を停止し、
+	 * 最も長い間使用されていない RealObject から順に追い出す。使用率が{@code lowWaterMark}を下回ると、
+	 * キャッシュは通常の動作に戻る。両方に{@code 0}（デフォルト）を与えた場合は追い出しを行わない。</p>
+	 * 
+	 * @param highWaterMark 追い出しを開始するヒープの使用率
+	 * @param lowWaterMark 追い出しを終了するヒープの使用率
+	 * @throws IllegalArgumentException 水位点が{@code 0 < lowWaterMark < highWaterMark < 1}を満たさず、
+	 * 両方が{@code 0}でもない場合
+	 */
+	public void setHeapWaterMarks(double highWaterMark, double lowWaterMark) {
+		Validate.isTrue((highWaterMark == 0.0 && lowWaterMark == 0.0)
+				|| (0.0 < lowWaterMark && lowWaterMark < highWaterMark && highWaterMark < 1.0));
+		heapHighWaterMark = highWaterMark;
+		heapLowWaterMark = lowWaterMark;
+	}
+	
+	/**
+	 * シャード数を設定する。
+	 * 
+	 * <p>スワップストアはシャード数と同じ数のスワップファイルを持ち、シャードごとに独立したロックで読み書きを行う。
+	 * 複数のスレッドから同時にスワップを行う場合は、スレッド数程度のシャード数を指定するとよい。</p>
+	 * 
+	 * @param shardCount シャード数
+	 * @throws IllegalArgumentException 引数に{@code 1}未満の値を与えた場合
+	 */
+	public void setShardCount(int shardCount) {
+		Validate.isTrue(shardCount > 0);
+		this.shardCount = shardCount;
+	}
+	
+	/**
+	 * プラットフォーム MBean サーバに{@link SwapStoreMXBean}を登録するかどうかを設定する。
+	 * 
+	 * <p>登録した MXBean は、スワップストアの破棄時に登録を解除される。</p>
+	 * 
+	 * @param jmxEnabled 登録する場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public void setJmxEnabled(boolean jmxEnabled) {
+		this.jmxEnabled = jmxEnabled;
+	}
+	
+	/**
+	 * スワップファイルの最大バイト長を設定する。
+	 * 
+	 * <p>最大バイト長は全シャードのスワップファイルの合計に対して適用される。
+	 * スワップによってこの長さを超える場合、スワップは{@link SwapException}で失敗する。</p>
+	 * 
+	 * @param maxSize スワップファイルの最大バイト長
+	 * @throws IllegalArgumentException 引数に{@code 1}未満の値を与えた場合
+	 */
+	public void setMaxSize(long maxSize) {
+		Validate.isTrue(maxSize > 0);
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * スワップファイルをメモリマップするかどうかを設定する。
+	 * 
+	 * <p>メモリマップした場合、読み込みはロックもシステムコールも伴わず、マップされた領域からヒープ上のバッファへの
+	 * メモリコピーのみで行われる。ただし、スワップファイルは切り詰められなくなり、自動コンパクションも行われない。</p>
+	 * 
+	 * @param memoryMapped メモリマップする場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public void setMemoryMapped(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+	
+	/**
+	 * スワップファイルの代わりにヒープ外のダイレクトバッファを使用するかどうかを設定する。
+	 * 
+	 * <p>ダイレクトバッファを使用した場合、シリアライズしたバイト列はJavaヒープの外に保持され、
+	 * ファイル入出力は一切行われない。スワップファイルに関する設定（{@link #setMemoryMapped(boolean)}、
+	 * {@link #setSegmentSize(int)}）は無視される。ネイティブメモリの使用量は{@link #setMaxSize(long)}で制限する。</p>
+	 * 
+	 * @param offHeap ダイレクトバッファを使用する場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public void setOffHeap(boolean offHeap) {
+		this.offHeap = offHeap;
+	}
+	
+	/**
+	 * スワップファイルとインデックスを永続化するかどうかを設定する。
+	 * 
+	 * <p>永続化した場合、スワップファイルは指定したディレクトリに固定の名前で生成され、破棄しても削除されない。
+	 * キーに束縛した{@link SwapObject}の領域は{@link SwapStore#sync()}でインデックスファイルに書き出され、
+	 * 同じディレクトリで再びスワップストアを生成すると、{@link SwapStore#attach(String)}で再接続できる。
+	 * {@link #setOffHeap(boolean)}と同時に指定することはできない。</p>
+	 * 
+	 * @param persistent 永続化する場合は{@code true}、そうでない場合は{@code false}
+	 */
+	public void setPersistent(boolean persistent) {
+		this.persistent = persistent;
+	}
+	
+	/**
+	 * メモリマップする際のセグメント長を設定する。
+	 * 
+	 * @param segmentSize セグメント長
+	 * @throws IllegalArgumentException 引数に{@code 1}未満の値を与えた場合
+	 */
+	public void setSegmentSize(int segmentSize) {
+		Validate.isTrue(segmentSize > 0);
+		this.segmentSize = segmentSize;
+	}
+	
+	/**
+	 * ダイレクトバッファを使用する際のスラブ長を設定する。
+	 * 
+	 * <p>ダイレクトバッファは、この長さのスラブ単位で確保および再利用される。</p>
+	 * 
+	 * @param slabSize スラブ長
+	 * @throws IllegalArgumentException 引数に{@code 1}未満の値を与えた場合
+	 */
+	public void setSlabSize(int slabSize) {
+		Validate.isTrue(slabSize > 0);
+		this.slabSize = slabSize;
+	}
+	
+	/**
+	 * 遅延書き込みキューの容量を設定する。
+	 * 
+	 * <p>{@code 1}以上の値を設定すると、{@link SwapObject#update(java.io.Serializable)}は呼び出し元のスレッドで
+	 * 書き込みを行わず、バックグラウンドの書き込みスレッドへ委譲する。書き込み前に同じ{@link SwapObject}が
+	 * 重ねて更新された場合、書き込みは1回にまとめられる。キューが一杯の場合、更新は空きができるまで待機する。</p>
+	 * 
+	 * @param writeBehindCapacity 遅延書き込みキューの容量。{@code 0}（デフォルト）の場合は遅延書き込みを行わない
+	 * @throws IllegalArgumentException 引数に負数を与えた場合
+	 */
+	public void setWriteBehindCapacity(int writeBehindCapacity) {
+		Validate.isTrue(writeBehindCapacity >= 0);
+		this.writeBehindCapacity = writeBehindCapacity;
+	}
+	
+}
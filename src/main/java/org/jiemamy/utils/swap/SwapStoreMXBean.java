@@ -0,0 +1,93 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.IOException;
+
+/**
+ * スワップストアの管理インターフェイス（MXBean）。
+ * 
+ * <p>
+ * {@link SwapStoreConfig#setJmxEnabled(boolean)}を有効にしたスワップストアは、
+ * {@code org.jiemamy.utils.swap:type=SwapStore,name=<スワップファイル名>}という名前で
+ * プラットフォーム MBean サーバに登録される。
+ * </p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public interface SwapStoreMXBean {
+	
+	/**
+	 * スワップファイルのコンパクションを行う。
+	 * 
+	 * @return 縮小したバイト長
+	 * @throws SwapException スワップストアが破棄されている場合
+	 */
+	long compact() throws SwapException;
+	
+	/**
+	 * {@link SwapObject#get()}のうち、デシリアライズを行わずに RealObject を取得できた割合を取得する。
+	 * 
+	 * @return キャッシュのヒット率
+	 * @throws IOException 統計情報の取得に失敗した場合
+	 */
+	double getCacheHitRate() throws IOException;
+	
+	/**
+	 * スワップファイルのバイト長を取得する。
+	 * 
+	 * @return スワップファイルのバイト長
+	 * @throws IOException 統計情報の取得に失敗した場合
+	 */
+	long getFileSize() throws IOException;
+	
+	/**
+	 * スワップファイル内で使用中の領域のバイト数を取得する。
+	 * 
+	 * @return 使用中の領域のバイト数
+	 * @throws IOException 統計情報の取得に失敗した場合
+	 */
+	long getLiveBytes() throws IOException;
+	
+	/**
+	 * スワップしているオブジェクトの数を取得する。
+	 * 
+	 * @return スワップしているオブジェクトの数
+	 * @throws IOException 統計情報の取得に失敗した場合
+	 */
+	long getObjectCount() throws IOException;
+	
+	/**
+	 * 参照キューの未処理数を取得する。
+	 * 
+	 * @return 参照キューの未処理数
+	 * @throws IOException 統計情報の取得に失敗した場合
+	 */
+	int getReferenceQueueBacklog() throws IOException;
+	
+	/**
+	 * 統計情報のスナップショットを取得する。
+	 * 
+	 * @return 統計情報
+	 * @throws IOException 統計情報の取得に失敗した場合
+	 */
+	SwapStatistics getStatistics() throws IOException;
+	
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.IOException;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * {@link SwapStoreMXBean}の実装クラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class SwapStoreMonitor implements SwapStoreMXBean {
+	
+	/** 監視する{@link Swapper} */
+	private final Swapper swapper;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param swapper 監視する{@link Swapper}
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	SwapStoreMonitor(Swapper swapper) {
+		Validate.notNull(swapper);
+		this.swapper = swapper;
+	}
+	
+	public long compact() throws SwapException {
+		return swapper.compact();
+	}
+	
+	public double getCacheHitRate() throws IOException {
+		return getStatistics().getCacheHitRate();
+	}
+	
+	public long getFileSize() throws IOException {
+		return swapper.size();
+	}
+	
+	public long getLiveBytes() {
+		return swapper.liveBytes();
+	}
+	
+	public long getObjectCount() throws IOException {
+		return getStatistics().getObjectCount();
+	}
+	
+	public int getReferenceQueueBacklog() throws IOException {
+		return getStatistics().getReferenceQueueBacklog();
+	}
+	
+	public SwapStatistics getStatistics() throws IOException {
+		return new SwapStatistics(swapper);
+	}
+	
+}
@@ -14,22 +14,25 @@
  */
 package org.jiemamy.utils.swap;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
-import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.util.Comparator;
-import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +51,27 @@ import org.jiemamy.utils.LogMarker;
  * なお、{@link File#createTempFile(String, String) }による一時ファイルをスワップファイルとしている。
  * </p>
  * 
+ * <p>
+ * スワップファイルは1つ以上の{@link SwapShard}に分割され、{@link SwapObject}はそれぞれいずれかのシャードに格納される。
+ * スワップ情報の更新はシャード単位で同期をとるため、異なるシャードに対する読み書きは並行して行われる。
+ * </p>
+ * 
+ * <p>
+ * スワップファイル内の領域は{@link ExtentAllocator}によって管理されるため、スワップ済みの
+ * {@link SwapObject}の数が増えても、1回のスワップに要する領域探索のコストは増加しない。
+ * </p>
+ * 
+ * <p>
+ * スワップファイルへの読み書きは{@link SwapStorage}に委譲される。デフォルトでは{@link FileChannelStorage}を用いるが、
+ * 読み込みの多い用途では{@link MappedFileStorage}を与えてインスタンスを生成することで、メモリマップされた領域から
+ * 直接デシリアライズを行うことができる。
+ * </p>
+ * 
+ * <p>
+ * {@link #setCompressor(DeflateCompressor)}で圧縮を有効にすると、以降スワップされるバイト列は圧縮して書き込まれる。
+ * 圧縮の有無は領域ごとに記録されるため、圧縮を有効・無効に切り替えても既にスワップされた RealObject は復元できる。
+ * </p>
+ * 
  * @version $Id$
  * @author Keisuke.K
  */
@@ -62,41 +86,154 @@ final class Swapper implements ReferenceListener {
 	/** シングルトンインスタンス */
 	static final Swapper INSTANCE = new Swapper();
 	
-	private static Logger logger = LoggerFactory.getLogger(Swapper.class);
+	/** 参照の回収に伴うスワップファイルの切り詰めの最小間隔（ミリ秒） */
+	static final long TRUNCATE_INTERVAL = 100L;
+	
+	/** 参照キュー監視スレッドの停止を待機する最大時間（ミリ秒） */
+	private static final long SHUTDOWN_TIMEOUT = 1000L;
 	
-	/** スワップファイルの読み書きを行うファイルチャネル */
-	final FileChannel channel;
+	private static Logger logger = LoggerFactory.getLogger(Swapper.class);
 	
-	/** スワップ情報を一元管理する参照TreeSet */
-	final TreeSet<Reference<SwapObject<?>>> swapRefSet;
+	/** シャード */
+	final SwapShard[] shards;
 	
 	/** スワップ情報参照キュー */
 	final ReferenceQueue<SwapObject<?>> swapRefQueue;
 	
+	/** スワップするバイト列の圧縮を行うクラス。圧縮を行わない場合は{@code null} */
+	volatile DeflateCompressor compressor;
+	
+	/** 最近使用された RealObject を保持するキャッシュ */
+	volatile SwapCache cache = new SwapCache(0, 0L);
+	
+	/** スワップファイルの最大バイト長（全シャードの合計） */
+	volatile long maxSize = Long.MAX_VALUE;
+	
+	/** 全シャードの使用中の領域の終端位置の合計 */
+	final AtomicLong usedSize = new AtomicLong();
+	
+	/** 領域への書き込みごとに採番する世代番号。再起動をまたいで重複しにくいよう、乱数から開始する */
+	private final AtomicInteger generations = new AtomicInteger(new Random().nextInt());
+	
+	/** 閉じられているかどうか */
+	volatile boolean closed;
+	
+	/** 参照キュー監視スレッド */
+	private final ReferenceQueueMonitor<SwapObject<?>> monitor;
+	
+	/** 更新要求の遅延書き込みを行うキュー。同期して書き込む場合は{@code null} */
+	volatile WriteBehindQueue writeBehind;
+	
+	/** 遅延書き込みスレッド */
+	private Thread writerThread;
+	
+	/** シリアライズの処理時間 */
+	final LatencyRecorder serializeLatency = new LatencyRecorder();
+	
+	/** デシリアライズの処理時間 */
+	final LatencyRecorder deserializeLatency = new LatencyRecorder();
+	
+	/** スワップファイルの切り詰めの処理時間 */
+	final LatencyRecorder truncateLatency = new LatencyRecorder();
+	
+	/** スワップファイルのコンパクタ */
+	final SwapCompactor compactor;
+	
+	/** コンパクションスレッド。自動コンパクションを行わない場合は{@code null} */
+	private Thread compactorThread;
+	
+	/** ヒープの使用率に応じたキャッシュの追い出しを行うかどうか */
+	private boolean heapPressureEnabled;
+	
 
 	/**
-	 * インスタンスを生成する。
+	 * スワップファイルを生成する。
+	 * 
+	 * @return 生成したスワップファイル
+	 * @throws IOException スワップファイルの生成に失敗した場合
 	 */
-	private Swapper() {
+	static File createSwapFile() throws IOException {
+		File tmpFile = File.createTempFile(SWAP_FILE_PREFIX, SWAP_FILE_SUFFIX);
+		tmpFile.deleteOnExit();
+		return tmpFile;
+	}
+	
+	private static SwapStorage createDefaultStorage() {
 		try {
-			File tmpFile = File.createTempFile(SWAP_FILE_PREFIX, SWAP_FILE_SUFFIX);
-			tmpFile.deleteOnExit();
-			
-			channel = (new RandomAccessFile(tmpFile, "rw")).getChannel();
+			return new FileChannelStorage(createSwapFile());
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
+	}
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * <p>シングルトンインスタンスは、1つのシャードのみを持つ。</p>
+	 */
+	private Swapper() {
+		this(createDefaultStorage());
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param storages 各シャードのスワップファイルの読み書きを行う記憶域
+	 * @throws IllegalArgumentException 引数に{@code null}、または空の配列を与えた場合
+	 * @throws IllegalArgumentException 引数の要素に{@code null}を含む場合
+	 */
+	Swapper(SwapStorage... storages) {
+		Validate.notNull(storages);
+		Validate.isTrue(storages.length > 0);
+		Validate.noNullElements(storages);
 		
-		swapRefSet = new TreeSet<Reference<SwapObject<?>>>(new SetComparator());
+		shards = new SwapShard[storages.length];
+		for (int i = 0; i < storages.length; i++) {
+			shards[i] = new SwapShard(i, storages[i], truncateLatency);
+		}
+		compactor = new SwapCompactor(this);
 		swapRefQueue = new ReferenceQueue<SwapObject<?>>();
 		
 		// 参照キュー監視スレッドの生成
-		ReferenceQueueMonitor<SwapObject<?>> monitor = new ReferenceQueueMonitor<SwapObject<?>>(swapRefQueue);
+		monitor = new ReferenceQueueMonitor<SwapObject<?>>(swapRefQueue);
 		monitor.addReferenceListener(this);
-		
-		Thread t = new Thread(monitor, "SwapObjectReferenceQueueMonitor");
-		t.setDaemon(true);
-		t.start();
+		monitor.start("SwapObjectReferenceQueueMonitor");
+	}
+	
+	/**
+	 * スワップファイルを閉じ、参照キュー監視スレッドを停止する。
+	 * 
+	 * <p>閉じた後のスワップ要求は{@link SwapException}で失敗する。</p>
+	 */
+	void close() {
+		closed = true;
+		if (monitor.shutdown(SHUTDOWN_TIMEOUT) == false) {
+			logger.warn(LogMarker.LIFECYCLE, "Reference queue monitor did not terminate in time.");
+		}
+		synchronized (this) {
+			if (writeBehind != null) {
+				writeBehind.close();
+				writerThread.interrupt();
+			}
+			if (compactorThread != null) {
+				compactorThread.interrupt();
+			}
+			if (heapPressureEnabled) {
+				HeapPressureManager.INSTANCE.unregister(this);
+			}
+		}
+		cache.clear();
+		for (SwapShard shard : shards) {
+			synchronized (shard) {
+				shard.swapRefSet.clear();
+				try {
+					shard.storage.close();
+				} catch (IOException e) {
+					logger.error(LogMarker.BOUNDARY, "Error closing swap file channel.", e);
+				}
+			}
+		}
 	}
 	
 	/**
@@ -105,102 +242,219 @@ final class Swapper implements ReferenceListener {
 	 * <p>
 	 * 参照の切れたスワップ情報を持ち続ける必要はない上、参照が切れているのでスワップファイルに情報を持つ必要がなくなるため。
 	 * </p>
+	 * 
+	 * <p>
+	 * イベントに含まれるスワップ情報はシャードごとにまとめて処理し、ロックの取得は1つのシャードにつき1回とする。
+	 * スワップファイルの切り詰めは{@link #TRUNCATE_INTERVAL}ミリ秒に最大1回とし、それまでの切り詰めは
+	 * {@link #referenceQueueIdle()}まで保留する。
+	 * </p>
 	 */
 	public void referenceModified(ReferenceEvent event) {
-		synchronized (swapRefSet) {
-			// 参照TreeSetのクリーニング
-			swapRefSet.remove(event.getSource());
-			
-			// スワップファイルのサイズ調整
-			if (swapRefSet.size() > 0) {
-				SwapObject<?> swapObj = swapRefSet.last().get();
-				if (swapObj != null) {
-					synchronized (channel) {
-						try {
-							channel.truncate(swapObj.position + swapObj.length);
-						} catch (IOException e) {
-							logger.error(LogMarker.BOUNDARY, "Error truncating swap file channel.", e);
-						}
+		List<List<SwapReference>> swapRefsByShard = new ArrayList<List<SwapReference>>(shards.length);
+		for (int i = 0; i < shards.length; i++) {
+			swapRefsByShard.add(new ArrayList<SwapReference>());
+		}
+		for (Reference<?> ref : event.getReferences()) {
+			SwapReference swapRef = (SwapReference) ref;
+			swapRefsByShard.get(swapRef.shard.index).add(swapRef);
+		}
+		
+		for (SwapShard shard : shards) {
+			List<SwapReference> swapRefs = swapRefsByShard.get(shard.index);
+			if (swapRefs.isEmpty()) {
+				continue;
+			}
+			synchronized (shard) {
+				boolean released = false;
+				for (SwapReference swapRef : swapRefs) {
+					// 参照Setのクリーニング。キーに束縛されたスワップ情報は、再接続に備えて領域を保持する
+					if (swapRef.key == null && shard.swapRefSet.remove(swapRef)) {
+						release(shard, swapRef.extent);
+						released = true;
 					}
 				}
-			} else {
-				synchronized (channel) {
-					try {
-						channel.truncate(0L);
-					} catch (IOException e) {
-						logger.error(LogMarker.BOUNDARY, "Error truncating swap file channel.", e);
-					}
+				
+				// スワップファイルのサイズ調整
+				if (released) {
+					shard.truncateLazily(TimeUnit.MILLISECONDS.toNanos(TRUNCATE_INTERVAL));
 				}
 			}
+			for (SwapReference swapRef : swapRefs) {
+				cache.remove(swapRef);
+			}
 		}
 	}
 	
 	/**
-	 * 引数{@code swapObj}に指定されたスワップ情報を元に RealObject をデシリアライズする。
+	 * 保留しているスワップファイルの切り詰めを行う。
+	 */
+	public void referenceQueueIdle() {
+		for (SwapShard shard : shards) {
+			synchronized (shard) {
+				shard.truncateIfPending();
+			}
+		}
+	}
+	
+	/**
+	 * 全シャードの割り当て済みの領域のバイト数の合計を取得する。
+	 * 
+	 * @return 割り当て済みのバイト数
+	 */
+	long liveBytes() {
+		long liveBytes = 0L;
+		for (SwapShard shard : shards) {
+			synchronized (shard) {
+				liveBytes += shard.allocator.getLiveBytes();
+			}
+		}
+		return liveBytes;
+	}
+	
+	/**
+	 * 割り当て済みの領域を解放する。
+	 * 
+	 * <p>
+	 * 解放によって使用中の領域の終端位置が縮小した場合は、最大バイト長の判定に用いる使用量に反映する。
+	 * また、断片化率が閾値を超えた場合はバックグラウンドのコンパクションを要求する。
+	 * 永続化されたインデックスから参照されている領域の解放は、次のインデックスの書き込みまで、
+	 * 書き込み中の領域の解放は、その書き込みの完了まで保留される。
+	 * 引数{@code shard}で同期した状態で呼び出すこと。
+	 * </p>
+	 * 
+	 * @param shard 解放する領域のシャード
+	 * @param extent 解放する領域
+	 */
+	void release(SwapShard shard, Extent extent) {
+		if (shard.writingExtents.contains(extent)) {
+			// 書き込み中の領域を再利用させると、遅れて完了した書き込みが新しい内容を上書きする
+			shard.abandonedExtents.add(extent);
+			return;
+		}
+		if (shard.isPinned(extent)) {
+			// 永続化されたインデックスから参照されている領域は、次のインデックスの書き込みまで解放しない
+			shard.deferredExtents.add(extent);
+			return;
+		}
+		long before = shard.allocator.end();
+		shard.allocator.free(extent);
+		usedSize.addAndGet(shard.allocator.end() - before);
+		if (compactor.isRequired(shard)) {
+			compactor.request();
+		}
+	}
+	
+	/**
+	 * {@link #release(SwapShard, Extent)}した領域を、割り当て済みの状態に戻す。
+	 * 
+	 * <p>解放が保留されていた領域は、保留を取り消す。引数{@code shard}で同期した状態で呼び出すこと。</p>
+	 * 
+	 * @param shard 領域のシャード
+	 * @param extent 戻す領域
+	 */
+	void restore(SwapShard shard, Extent extent) {
+		if (shard.abandonedExtents.remove(extent) || shard.deferredExtents.remove(extent)) {
+			// 解放を保留していた領域は、アロケータ上では割り当て済みのまま
+			return;
+		}
+		long before = shard.allocator.end();
+		shard.allocator.reserve(extent);
+		usedSize.addAndGet(shard.allocator.end() - before);
+	}
+	
+	/**
+	 * 全シャードのスワップファイルのバイト長の合計を取得する。
+	 * 
+	 * @return スワップファイルのバイト長
+	 * @throws IOException スワップファイルのバイト長の取得に失敗した場合
+	 */
+	long size() throws IOException {
+		long size = 0L;
+		for (SwapShard shard : shards) {
+			size += shard.storage.size();
+		}
+		return size;
+	}
+	
+	/**
+	 * スワップファイルから読み込んだバイト列を検証・展開し、RealObject にデシリアライズする。
 	 * 
 	 * @param <T> 取得するスワップ済み RealObject のクラス
 	 * @param swapObj スワップ位置情報を保持している{@link SwapObject }インスタンス
+	 * @param buffer 領域から読み込んだバイト列
+	 * @param extent 読み込んだ領域
 	 * @return スワップ済み RealObject
+	 * @throws SwapCorruptedException 読み込んだバイト列がヘッダの内容と一致しない場合
 	 * @throws SwapException スワップの復元に失敗した場合
 	 */
-	@SuppressWarnings("unchecked")
-	<T extends Serializable>T deserialize(SwapObject<T> swapObj) throws SwapException {
-		if (swapRefSet.contains(new WeakReference<SwapObject<T>>(swapObj)) == false) {
-			// 管理されているSwapObjectではない
-			throw new SwapException("Unknown swap info.");
-		}
-		
-		ByteBuffer buffer = ByteBuffer.allocate(swapObj.length);
-		
-		// スワップファイルからの読込
-		int length = -1;
+	<T extends Serializable>T decode(SwapObject<T> swapObj, ByteBuffer buffer, Extent extent) throws SwapException {
+		ByteBuffer payload = ExtentHeader.verify(buffer, extent);
 		
-		try {
-			synchronized (channel) {
-				length = channel.read(buffer, swapObj.position);
+		ByteBuffer raw = payload;
+		if (extent.isCompressed()) {
+			try {
+				raw = DeflateCompressor.inflate(payload, extent.rawLength);
+			} catch (IOException e) {
+				throw new SwapException(e);
 			}
-		} catch (IOException e) {
-			throw new SwapException(e);
-		}
-		
-		if (length != swapObj.length) {
-			throw new SwapException("Loaded size is not matched.");
 		}
 		
-		buffer.flip();
-		
 		// 対象オブジェクトのデシリアライズ
-		T obj = null;
-		ObjectInputStream ois = null;
-		byte[] buf;
-		
-		if (buffer.hasArray()) {
-			buf = buffer.array();
-		} else {
-			buf = new byte[buffer.limit()];
-			buffer.get(buf);
-		}
-		
 		try {
-			ois = new ObjectInputStream(new ByteArrayInputStream(buf));
-			obj = (T) ois.readObject();
+			return swapObj.codec.decode(raw);
 		} catch (IOException e) {
 			throw new SwapException(e);
 		} catch (ClassNotFoundException e) {
 			throw new SwapException(e);
 		} catch (ClassCastException e) {
 			throw new SwapException(e);
-		} finally {
+		}
+	}
+	
+	/**
+	 * 引数{@code swapObj}に指定されたスワップ情報を元に RealObject をデシリアライズする。
+	 * 
+	 * @param <T> 取得するスワップ済み RealObject のクラス
+	 * @param swapObj スワップ位置情報を保持している{@link SwapObject }インスタンス
+	 * @return スワップ済み RealObject
+	 * @throws SwapException スワップの復元に失敗した場合
+	 */
+	@SuppressWarnings("unchecked")
+	<T extends Serializable>T deserialize(SwapObject<T> swapObj) throws SwapException {
+		ensureOpen();
+		SwapReference swapRef = swapObj.swapRef;
+		if (swapRef == null) {
+			// 管理されているSwapObjectではない
+			throw new SwapException("Unknown swap info.");
+		}
+		
+		// 書き込み待ちの RealObject
+		WriteBehindQueue queue = writeBehind;
+		if (queue != null) {
+			Object pending = queue.getPending(swapRef);
+			if (pending != null) {
+				cache.hit(swapRef, pending);
+				return (T) pending;
+			}
+		}
+		
+		// コンパクションによって領域が移動した場合は、読み直す
+		long start = System.nanoTime();
+		while (true) {
+			Extent extent = swapRef.extent;
 			try {
-				if (ois != null) {
-					ois.close();
+				T obj = load(swapObj, extent);
+				if (swapRef.extent == extent) {
+					deserializeLatency.recordSince(start);
+					cache.miss(swapRef, obj);
+					return obj;
+				}
+			} catch (SwapException e) {
+				if (swapRef.extent == extent) {
+					throw e;
 				}
-			} catch (IOException e) {
-				throw new SwapException(e);
 			}
 		}
-		
-		return obj;
 	}
 	
 	/**
@@ -217,15 +471,52 @@ final class Swapper implements ReferenceListener {
 	 * @throws SwapException スワップのに失敗した場合
 	 */
 	<T extends Serializable>void reserialize(SwapObject<T> swapObj, T obj) throws SwapException {
-		swapRefSet.remove(new WeakReference<SwapObject<?>>(swapObj));
-		serialize(swapObj, obj);
+		ensureOpen();
+		long start = System.nanoTime();
+		SwapReference swapRef = swapObj.swapRef;
+		if (swapRef == null) {
+			// 管理されているSwapObjectではない
+			throw new SwapException("Unknown swap info.");
+		}
+		
+		// オブジェクトのシリアライズを行う
+		ByteBuffer raw = encode(swapObj.codec, obj);
+		ByteBuffer buffer = compress(raw);
+		int rawLength = buffer == raw ? -1 : raw.remaining();
+		int generation = generations.incrementAndGet();
+		ByteBuffer header = ExtentHeader.create(buffer, generation);
+		
+		// 古い領域を解放し、新しい領域を割り当てる
+		SwapShard shard = swapRef.shard;
+		Extent extent;
+		synchronized (shard) {
+			Extent old = swapRef.extent;
+			release(shard, old);
+			try {
+				extent = allocate(shard, ExtentHeader.LENGTH + buffer.remaining(), rawLength, generation);
+			} catch (SwapException e) {
+				restore(shard, old);
+				throw e;
+			}
+			shard.writingExtents.add(extent);
+			swapRef.extent = extent;
+		}
+		
+		// スワップ
+		try {
+			swap(shard, header, buffer, extent.position);
+		} finally {
+			endWrite(shard, extent);
+		}
+		serializeLatency.recordSince(start);
+		cache.put(swapRef, obj);
 	}
 	
 	/**
 	 * 引数{@code obj}に指定された RealObject をスワップファイルへシリアライズする。
 	 * 
 	 * <p>
-	 * RealObject がシリアライズされた位置、およびバイト長は引数{@code swapObj }の各フィールドに代入される。
+	 * RealObject がシリアライズされた領域は、引数{@code swapObj }の{@link SwapObject#swapRef}に保持される。
 	 * </p>
 	 * 
 	 * @param <T> スワップ対象となるオブジェクトのクラス
@@ -234,110 +525,508 @@ final class Swapper implements ReferenceListener {
 	 * @throws SwapException スワップのに失敗した場合
 	 */
 	<T extends Serializable>void serialize(SwapObject<T> swapObj, T obj) throws SwapException {
+		ensureOpen();
+		long start = System.nanoTime();
+		
 		// オブジェクトのシリアライズを行う
-		ByteBuffer buffer = serialize(obj);
+		ByteBuffer raw = encode(swapObj.codec, obj);
+		ByteBuffer buffer = compress(raw);
+		int rawLength = buffer == raw ? -1 : raw.remaining();
+		int generation = generations.incrementAndGet();
+		ByteBuffer header = ExtentHeader.create(buffer, generation);
 		
-		// オブジェクトをスワップする位置を特定する
-		synchronized (swapRefSet) {
-			long pos = 0L;
-			for (Reference<SwapObject<?>> ref : swapRefSet) {
-				SwapObject<? extends Serializable> tmp = ref.get();
-				
-				if (tmp == null) {
-					// [SER-5] nullオブジェクトが残っている可能性がある。
-					continue;
-				}
-				
-				if (tmp.position - pos >= buffer.limit()) {
-					// 位置決定
-					break;
-				}
-				
-				pos = tmp.position + tmp.length;
-			}
-			
-			swapObj.position = pos;
-			swapObj.length = buffer.limit();
+		// オブジェクトをスワップする領域を割り当てる
+		SwapShard shard = shardFor(swapObj);
+		SwapReference swapRef;
+		Extent extent;
+		synchronized (shard) {
+			extent = allocate(shard, ExtentHeader.LENGTH + buffer.remaining(), rawLength, generation);
+			shard.writingExtents.add(extent);
 			
-			Reference<SwapObject<?>> ref = new WeakReference<SwapObject<?>>(swapObj, swapRefQueue);
-			swapRefSet.add(ref);
+			swapRef = new SwapReference(swapObj, swapRefQueue, shard, extent);
+			shard.swapRefSet.add(swapRef);
+			swapObj.swapRef = swapRef;
 		}
 		
 		// スワップ
-		swap(buffer, swapObj.position);
+		try {
+			swap(shard, header, buffer, extent.position);
+		} finally {
+			endWrite(shard, extent);
+		}
+		serializeLatency.recordSince(start);
+		cache.put(swapRef, obj);
 	}
 	
 	/**
-	 * オブジェクトをシリアライズして、その結果をByteBufferで取得する。
+	 * RealObject をメモリ上に保持するキャッシュを設定する。
 	 * 
-	 * @param obj シリアライズするオブジェクト
-	 * @return シリアライズ結果のバイト値を保持するByteBuffer
+	 * @param cache キャッシュ
+	 * @throws IllegalArgumentException 引数に{@code null}を与えた場合
+	 */
+	void setCache(SwapCache cache) {
+		Validate.notNull(cache);
+		this.cache = cache;
+	}
+	
+	/**
+	 * 更新要求の遅延書き込みを有効にする。
+	 * 
+	 * <p>以降の{@link SwapObject#update(Serializable)}は、呼び出し元のスレッドで書き込みを行わず、
+	 * {@link #submit(SwapObject, Serializable)}によってバックグラウンドの書き込みスレッドへ委譲される。</p>
+	 * 
+	 * @param capacity 書き込み待ちの更新要求を保持するキューの容量
+	 * @throws IllegalArgumentException 引数に{@code 1}未満の値を与えた場合
+	 * @throws IllegalStateException 既に遅延書き込みが有効である場合
+	 */
+	synchronized void enableWriteBehind(int capacity) {
+		Validate.isTrue(capacity > 0);
+		if (writeBehind != null) {
+			throw new IllegalStateException("Write-behind is already enabled.");
+		}
+		WriteBehindQueue queue = new WriteBehindQueue(this, capacity);
+		writerThread = new Thread(queue, "SwapObjectWriteBehindWriter");
+		writerThread.setDaemon(true);
+		writerThread.start();
+		writeBehind = queue;
+	}
+	
+	/**
+	 * 全シャードのコンパクションを行う。
+	 * 
+	 * <p>断片化率に関わらず、呼び出し元のスレッドでコンパクションを行う。</p>
+	 * 
+	 * @return 縮小したバイト長
+	 * @throws SwapException 閉じられている場合
+	 */
+	long compact() throws SwapException {
+		ensureOpen();
+		long reclaimed = 0L;
+		for (SwapShard shard : shards) {
+			reclaimed += compactor.compact(shard);
+		}
+		return reclaimed;
+	}
+	
+	/**
+	 * 断片化率が閾値を超えたシャードの自動コンパクションを有効にする。
+	 * 
+	 * <p>有効にした時点で、既に断片化率が閾値を超えているシャードもコンパクションの対象となる。</p>
+	 * 
+	 * @param threshold 断片化率の閾値
+	 * @throws IllegalArgumentException 引数に{@code 0}より大きく{@code 1}未満でない値を与えた場合
+	 * @throws IllegalStateException 既に自動コンパクションが有効である場合
+	 */
+	synchronized void enableCompaction(double threshold) {
+		Validate.isTrue(threshold > 0.0);
+		if (compactorThread != null) {
+			throw new IllegalStateException("Compaction is already enabled.");
+		}
+		compactor.setThreshold(threshold);
+		compactorThread = new Thread(compactor, "SwapFileCompactor");
+		compactorThread.setDaemon(true);
+		compactorThread.start();
+		
+		// 既に断片化しているシャードがあればコンパクションする
+		compactor.request();
+	}
+	
+	/**
+	 * ヒープの使用率に応じたキャッシュの追い出しを有効にする。
+	 * 
+	 * <p>GC 後のヒープの使用率が{@code highWaterMark}以上になると、キャッシュへの追加を停止し、
+	 * 最も長い間使用されていない RealObject から順にキャッシュから追い出す。
+	 * 追い出した RealObject は既にスワップファイルに書き込まれているため、書き込みは発生しない。
+	 * 使用率が{@code lowWaterMark}を下回ると、キャッシュは通常の動作に戻る。</p>
+	 * 
+	 * @param highWaterMark 追い出しを開始するヒープの使用率
+	 * @param lowWaterMark 追い出しを終了するヒープの使用率
+	 * @throws IllegalArgumentException 水位点が{@code 0 < lowWaterMark < highWaterMark < 1}を満たさない場合
+	 * @throws IllegalStateException 既に有効である場合
+	 * @see HeapPressureManager
+	 */
+	synchronized void enableHeapPressure(double highWaterMark, double lowWaterMark) {
+		if (heapPressureEnabled) {
+			throw new IllegalStateException("Heap pressure eviction is already enabled.");
+		}
+		HeapPressureManager.INSTANCE.register(this, highWaterMark, lowWaterMark);
+		heapPressureEnabled = true;
+	}
+	
+	/**
+	 * 遅延書き込み中の全ての更新要求の書き込みが完了するまで待機する。
+	 * 
+	 * <p>遅延書き込みが有効でない場合は何もしない。</p>
+	 * 
+	 * @throws SwapException 前回の呼び出し以降に、いずれかの遅延書き込みに失敗していた場合
+	 */
+	void flush() throws SwapException {
+		ensureOpen();
+		WriteBehindQueue queue = writeBehind;
+		if (queue != null) {
+			queue.flush();
+		}
+	}
+	
+	/**
+	 * 引数{@code obj}に指定された RealObject の遅延書き込みを要求する。
+	 * 
+	 * <p>更新要求を遅延書き込みキューに積み、書き込みの完了を待たずに復帰する。</p>
+	 * 
+	 * <p>デッドロックを避けるため、引数{@code swapObj}で同期した状態で呼び出してはならない。</p>
+	 * 
+	 * @param <T> スワップ対象となる RealObject のクラス
+	 * @param swapObj 更新する{@link SwapObject}
+	 * @param obj 更新する RealObject
+	 * @throws SwapException 更新要求に失敗した場合
+	 * @throws IllegalStateException 遅延書き込みが有効でない場合
+	 */
+	<T extends Serializable>void submit(SwapObject<T> swapObj, T obj) throws SwapException {
+		ensureOpen();
+		WriteBehindQueue queue = writeBehind;
+		if (queue == null) {
+			throw new IllegalStateException("Write-behind is not enabled.");
+		}
+		SwapReference swapRef = swapObj.swapRef;
+		if (swapRef == null) {
+			// 管理されているSwapObjectではない
+			throw new SwapException("Unknown swap info.");
+		}
+		queue.submit(swapObj, obj);
+		cache.put(swapRef, obj);
+	}
+	
+	/**
+	 * 複数の RealObject を、まとめてスワップファイルへシリアライズする。
+	 * 
+	 * <p>
+	 * RealObject のシリアライズ（と圧縮）は引数{@code executor}で並行して行い、
+	 * シリアライズ結果の合計バイト長の連続した1つの領域を1回のロックで割り当て、
+	 * まとめて書き込む。各 RealObject の領域は、割り当てた領域を分割したものとなる。
+	 * 全ての{@link SwapObject}は同じシャードに格納される。
+	 * </p>
+	 * 
+	 * @param <T> スワップ対象となる RealObject のクラス
+	 * @param swapObjs スワップ位置情報を代入させる{@link SwapObject }のリスト
+	 * @param objs スワップ対象となる RealObject のリスト。{@code swapObjs}と同じ順序で並んでいること
+	 * @param executor シリアライズを行う{@link ExecutorService}。呼び出し元のスレッドで行う場合は{@code null}
+	 * @param parallelism シリアライズの並列度
 	 * @throws SwapException スワップに失敗した場合
+	 * @throws IllegalArgumentException 引数{@code swapObjs}と{@code objs}の要素数が異なる場合
+	 */
+	<T extends Serializable>void serializeAll(List<SwapObject<T>> swapObjs, List<? extends T> objs,
+			ExecutorService executor, int parallelism) throws SwapException {
+		Validate.isTrue(swapObjs.size() == objs.size());
+		ensureOpen();
+		long start = System.nanoTime();
+		
+		// オブジェクトのシリアライズを行う
+		int size = swapObjs.size();
+		ByteBuffer[] frames = new ByteBuffer[size * 2];
+		int[] rawLengths = new int[size];
+		if (executor == null || parallelism <= 1 || size <= 1) {
+			encodeRange(swapObjs, objs, frames, rawLengths, 0, size);
+		} else {
+			encodeParallel(swapObjs, objs, frames, rawLengths, executor, parallelism);
+		}
+		
+		// 合計バイト長が int の範囲に収まる単位でスワップする
+		int from = 0;
+		while (from < size) {
+			long total = ExtentHeader.LENGTH + frames[from * 2 + 1].remaining();
+			int to = from + 1;
+			while (to < size && total + ExtentHeader.LENGTH + frames[to * 2 + 1].remaining() <= Integer.MAX_VALUE) {
+				total += ExtentHeader.LENGTH + frames[to * 2 + 1].remaining();
+				to++;
+			}
+			swapBatch(swapObjs, objs, frames, rawLengths, from, to, (int) total);
+			from = to;
+		}
+		serializeLatency.recordSince(start);
+	}
+	
+	/**
+	 * スワップファイルへの書き込みに用いる圧縮クラスを設定する。
+	 * 
+	 * @param compressor 圧縮クラス。圧縮を行わない場合は{@code null}
+	 */
+	void setCompressor(DeflateCompressor compressor) {
+		this.compressor = compressor;
+	}
+	
+	/**
+	 * スワップファイル内の領域を割り当てる。
+	 * 
+	 * <p>引数{@code shard}で同期した状態で呼び出すこと。</p>
+	 * 
+	 * @param shard 領域を割り当てるシャード
+	 * @param length 割り当てるバイト長
+	 * @param rawLength 圧縮されている場合は圧縮前のバイト長、圧縮されていない場合は{@code -1}
+	 * @param generation 領域に書き込む内容の世代番号
+	 * @return 割り当てた領域
+	 * @throws SwapException スワップファイルが最大バイト長を超える場合
+	 */
+	Extent allocate(SwapShard shard, int length, int rawLength, int generation) throws SwapException {
+		long before = shard.allocator.end();
+		Extent extent = shard.allocator.allocate(length);
+		long grown = shard.allocator.end() - before;
+		if (usedSize.addAndGet(grown) > maxSize) {
+			shard.allocator.free(extent);
+			usedSize.addAndGet(-grown);
+			throw new SwapException("Swap store is full.");
+		}
+		return new Extent(extent.position, extent.length, rawLength, generation);
+	}
+	
+	/**
+	 * 圧縮が有効な場合、バイト列を圧縮する。
+	 * 
+	 * @param buffer シリアライズ結果
+	 * @return 圧縮したバイト列。圧縮を行わなかった場合は引数のバッファ
+	 */
+	private ByteBuffer compress(ByteBuffer buffer) {
+		DeflateCompressor current = compressor;
+		if (current == null) {
+			return buffer;
+		}
+		ByteBuffer compressed = current.deflate(buffer);
+		return compressed == null ? buffer : compressed;
+	}
+	
+	/**
+	 * スワップファイル内の領域から RealObject を読み込む。
+	 * 
+	 * @param <T> 取得するスワップ済み RealObject のクラス
+	 * @param swapObj スワップ位置情報を保持している{@link SwapObject }インスタンス
+	 * @param extent 読み込む領域
+	 * @return スワップ済み RealObject
+	 * @throws SwapException スワップの復元に失敗した場合
 	 */
-	private ByteBuffer serialize(Serializable obj) throws SwapException {
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		ObjectOutputStream oos = null;
+	private <T extends Serializable>T load(SwapObject<T> swapObj, Extent extent) throws SwapException {
+		// スワップファイルからの読込
+		ByteBuffer buffer;
 		
 		try {
-			oos = new ObjectOutputStream(baos);
-			oos.writeObject(obj);
+			buffer = swapObj.swapRef.shard.storage.read(extent);
 		} catch (IOException e) {
 			throw new SwapException(e);
-		} finally {
-			try {
-				if (oos != null) {
-					oos.close();
+		}
+		
+		return decode(swapObj, buffer, extent);
+	}
+	
+	/**
+	 * 閉じられていないことを確認する。
+	 * 
+	 * @throws SwapException 閉じられている場合
+	 */
+	private void ensureOpen() throws SwapException {
+		if (closed) {
+			throw new SwapException("Swap store is closed.");
+		}
+	}
+	
+	/**
+	 * 領域への書き込みの完了を記録する。
+	 * 
+	 * <p>書き込み中に解放された領域は、ここで解放する。
+	 * また、書き込みの完了を待っているエクスポートへ通知する。</p>
+	 * 
+	 * @param shard 書き込んだシャード
+	 * @param extents 書き込んだ領域
+	 */
+	private void endWrite(SwapShard shard, Extent... extents) {
+		synchronized (shard) {
+			for (Extent extent : extents) {
+				shard.writingExtents.remove(extent);
+				if (shard.abandonedExtents.remove(extent)) {
+					release(shard, extent);
 				}
-			} catch (IOException e) {
-				throw new SwapException(e);
 			}
+			shard.notifyAll();
 		}
-		
-		return ByteBuffer.wrap(baos.toByteArray());
 	}
 	
 	/**
-	 * シリアライズしたオブジェクトをスワップする。
-
-	 * @param buffer シリアライズ結果
-	 * @param position スワップ位置
+	 * オブジェクトをシリアライズして、その結果をByteBufferで取得する。
+	 * 
+	 * @param <T> シリアライズするオブジェクトのクラス
+	 * @param codec シリアライズに用いるコーデック
+	 * @param obj シリアライズするオブジェクト
+	 * @return シリアライズ結果のバイト値を保持するByteBuffer
 	 * @throws SwapException スワップに失敗した場合
 	 */
-	private void swap(ByteBuffer buffer, long position) throws SwapException {
-		synchronized (channel) {
-			try {
-				channel.write(buffer, position);
-			} catch (IOException e) {
-				throw new SwapException(e);
-			}
+	private <T extends Serializable>ByteBuffer encode(SwapCodec<T> codec, T obj) throws SwapException {
+		try {
+			return codec.encode(obj);
+		} catch (IOException e) {
+			throw new SwapException(e);
 		}
 	}
 	
-
 	/**
-	 * {@code swapReferenceSet }のための比較クラス。
+	 * 指定した範囲の RealObject をシリアライズ（と圧縮）し、ヘッダを生成する。
 	 * 
-	 * <p>
-	 * {@link Swapper }内の{@code swapReferenceSet }は、スワップ位置の昇順に並べる必要があるため。
-	 * </p>
+	 * @param <T> スワップ対象となる RealObject のクラス
+	 * @param swapObjs {@link SwapObject }のリスト
+	 * @param objs RealObject のリスト
+	 * @param frames ヘッダとシリアライズ結果を交互に格納する配列
+	 * @param rawLengths 圧縮前のバイト長を格納する配列。圧縮されなかった場合は{@code -1}を格納する
+	 * @param from 範囲の開始インデックス（この位置を含む）
+	 * @param to 範囲の終了インデックス（この位置を含まない）
+	 * @throws SwapException シリアライズに失敗した場合
+	 */
+	private <T extends Serializable>void encodeRange(List<SwapObject<T>> swapObjs, List<? extends T> objs,
+			ByteBuffer[] frames, int[] rawLengths, int from, int to) throws SwapException {
+		for (int i = from; i < to; i++) {
+			ByteBuffer raw = encode(swapObjs.get(i).codec, objs.get(i));
+			ByteBuffer buffer = compress(raw);
+			rawLengths[i] = buffer == raw ? -1 : raw.remaining();
+			frames[i * 2] = ExtentHeader.create(buffer, generations.incrementAndGet());
+			frames[i * 2 + 1] = buffer;
+		}
+	}
+	
+	/**
+	 * RealObject のシリアライズ（と圧縮）を、範囲に分割して並行して行う。
+	 * 
+	 * @param <T> スワップ対象となる RealObject のクラス
+	 * @param swapObjs {@link SwapObject }のリスト
+	 * @param objs RealObject のリスト
+	 * @param frames ヘッダとシリアライズ結果を交互に格納する配列
+	 * @param rawLengths 圧縮前のバイト長を格納する配列
+	 * @param executor シリアライズを行う{@link ExecutorService}
+	 * @param parallelism 並列度
+	 * @throws SwapException シリアライズに失敗した場合
 	 */
-	private static class SetComparator implements Comparator<Reference<SwapObject<?>>> {
+	private <T extends Serializable>void encodeParallel(final List<SwapObject<T>> swapObjs,
+			final List<? extends T> objs, final ByteBuffer[] frames, final int[] rawLengths, ExecutorService executor,
+			int parallelism) throws SwapException {
+		int size = swapObjs.size();
+		int chunk = (size + parallelism - 1) / parallelism;
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int i = 0; i < size; i += chunk) {
+			final int from = i;
+			final int to = Math.min(i + chunk, size);
+			futures.add(executor.submit(new Callable<Void>() {
+				
+				public Void call() throws SwapException {
+					encodeRange(swapObjs, objs, frames, rawLengths, from, to);
+					return null;
+				}
+			}));
+		}
 		
-		public int compare(Reference<SwapObject<?>> o1, Reference<SwapObject<?>> o2) {
-			SwapObject<?> s1 = o1.get();
-			SwapObject<?> s2 = o2.get();
-			
-			if (s1 == null && s2 == null) {
-				return 0;
-			} else if (s1 == null) {
-				return 1;
-			} else if (s2 == null) {
-				return -1;
+		try {
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SwapException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SwapException) {
+				throw (SwapException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new SwapException(cause);
+		} finally {
+			for (Future<Void> future : futures) {
+				future.cancel(false);
 			}
+		}
+	}
+	
+	/**
+	 * {@link SwapObject}を格納するシャードを決定する。
+	 * 
+	 * @param swapObj 格納する{@link SwapObject}
+	 * @return シャード
+	 */
+	private SwapShard shardFor(SwapObject<?> swapObj) {
+		if (shards.length == 1) {
+			return shards[0];
+		}
+		int h = System.identityHashCode(swapObj);
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return shards[(h & Integer.MAX_VALUE) % shards.length];
+	}
+	
+	/**
+	 * シリアライズした複数のオブジェクトを、連続した1つの領域へまとめてスワップする。
+	 * 
+	 * @param <T> スワップ対象となる RealObject のクラス
+	 * @param swapObjs {@link SwapObject }のリスト
+	 * @param objs RealObject のリスト
+	 * @param frames ヘッダとシリアライズ結果
+	 * @param rawLengths 圧縮前のバイト長
+	 * @param from 範囲の開始インデックス（この位置を含む）
+	 * @param to 範囲の終了インデックス（この位置を含まない）
+	 * @param total 範囲内のシリアライズ結果の合計バイト長
+	 * @throws SwapException スワップに失敗した場合
+	 */
+	private <T extends Serializable>void swapBatch(List<SwapObject<T>> swapObjs, List<? extends T> objs,
+			ByteBuffer[] frames, int[] rawLengths, int from, int to, int total) throws SwapException {
+		SwapShard shard = shardFor(swapObjs.get(from));
+		SwapReference[] swapRefs = new SwapReference[to - from];
+		Extent[] extents = new Extent[to - from];
+		Extent whole;
+		synchronized (shard) {
+			whole = allocate(shard, total, -1, 0);
 			
-			return (int) (s1.position - s2.position);
+			long position = whole.position;
+			for (int i = from; i < to; i++) {
+				SwapObject<T> swapObj = swapObjs.get(i);
+				ByteBuffer header = frames[i * 2];
+				Extent extent =
+						new Extent(position, ExtentHeader.LENGTH + frames[i * 2 + 1].remaining(), rawLengths[i],
+								ExtentHeader.generationOf(header));
+				shard.writingExtents.add(extent);
+				SwapReference swapRef = new SwapReference(swapObj, swapRefQueue, shard, extent);
+				shard.swapRefSet.add(swapRef);
+				swapObj.swapRef = swapRef;
+				swapRefs[i - from] = swapRef;
+				extents[i - from] = extent;
+				position += extent.length;
+			}
 		}
 		
+		// スワップ
+		try {
+			shard.storage.write(Arrays.copyOfRange(frames, from * 2, to * 2), whole.position);
+		} catch (IOException e) {
+			throw new SwapException(e);
+		} finally {
+			endWrite(shard, extents);
+		}
+		for (int i = from; i < to; i++) {
+			cache.put(swapRefs[i - from], objs.get(i));
+		}
+	}
+	
+	/**
+	 * シリアライズしたオブジェクトを、ヘッダに続けてスワップする。
+	
+	 * @param shard スワップ先のシャード
+	 * @param header ヘッダ
+	 * @param buffer シリアライズ結果
+	 * @param position スワップ位置
+	 * @throws SwapException スワップに失敗した場合
+	 */
+	private void swap(SwapShard shard, ByteBuffer header, ByteBuffer buffer, long position) throws SwapException {
+		try {
+			shard.storage.write(new ByteBuffer[] {
+				header,
+				buffer
+			}, position);
+		} catch (IOException e) {
+			throw new SwapException(e);
+		}
 	}
 	
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.jiemamy.utils.LogMarker;
+
+/**
+ * {@link SwapObject#update(Serializable)}による書き込みを、バックグラウンドで遅延して行うキュー。
+ * 
+ * <p>
+ * 更新要求は容量の制限されたキューに積まれ、書き込みスレッドがキューに積まれた順に{@link Swapper}へ書き込む。
+ * 書き込み前に同じ{@link SwapObject}への更新要求が重ねて行われた場合、要求は1回の書き込みにまとめられる。
+ * キューが一杯の場合、更新要求は書き込みスレッドがキューに空きを作るまで待機する。
+ * </p>
+ * 
+ * <p>
+ * 書き込みが完了するまで、キューは更新された RealObject を強参照で保持する。
+ * {@link Swapper}はデシリアライズの際にこのキューを参照するため、書き込み前の RealObject が失われることはない。
+ * </p>
+ * 
+ * <p>このクラスはスレッドセーフである。</p>
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+final class WriteBehindQueue implements Runnable {
+	
+	private static Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+	
+	/** 書き込み先の{@link Swapper} */
+	private final Swapper swapper;
+	
+	/** キューの容量 */
+	private final int capacity;
+	
+	/** 書き込み待ちの更新要求。要求された順に並ぶ。このインスタンスで同期をとる。 */
+	private final LinkedHashMap<SwapReference, Pending> pendings = new LinkedHashMap<SwapReference, Pending>();
+	
+	/** 書き込みに失敗した際の例外。{@link #flush()}で報告した時点でクリアされる。 */
+	private SwapException failure;
+	
+	/** 閉じられているかどうか */
+	private boolean closed;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * 
+	 * @param swapper 書き込み先の{@link Swapper}
+	 * @param capacity キューの容量
+	 * @throws IllegalArgumentException 引数{@code swapper}に{@code null}を与えた場合
+	 * @throws IllegalArgumentException 引数{@code capacity}に{@code 1}未満の値を与えた場合
+	 */
+	WriteBehindQueue(Swapper swapper, int capacity) {
+		Validate.notNull(swapper);
+		Validate.isTrue(capacity > 0);
+		this.swapper = swapper;
+		this.capacity = capacity;
+	}
+	
+	public void run() {
+		try {
+			while (true) {
+				Map.Entry<SwapReference, Pending> entry = take();
+				if (entry == null) {
+					break;
+				}
+				write(entry.getKey(), entry.getValue());
+			}
+		} catch (InterruptedException e) {
+			// スレッド停止
+			logger.info(LogMarker.LIFECYCLE, "Shutting down because InterruptedException thrown.", e);
+		}
+	}
+	
+	/**
+	 * キューを閉じ、書き込み待ちの更新要求を破棄する。
+	 * 
+	 * <p>待機中の更新要求、{@link #flush()}は{@link SwapException}で失敗する。</p>
+	 */
+	synchronized void close() {
+		closed = true;
+		pendings.clear();
+		notifyAll();
+	}
+	
+	/**
+	 * キューに積まれた全ての更新要求の書き込みが完了するまで待機する。
+	 * 
+	 * @throws SwapException 待機中に割り込まれた場合、キューが閉じられた場合、
+	 * または前回の呼び出し以降にいずれかの書き込みに失敗していた場合
+	 */
+	synchronized void flush() throws SwapException {
+		try {
+			while (pendings.isEmpty() == false && closed == false) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SwapException(e);
+		}
+		if (closed) {
+			throw new SwapException("Swap store is closed.");
+		}
+		if (failure != null) {
+			SwapException e = failure;
+			failure = null;
+			throw e;
+		}
+	}
+	
+	/**
+	 * 書き込み待ちの RealObject を取得する。
+	 * 
+	 * @param swapRef スワップ情報
+	 * @return 書き込み待ちの RealObject。書き込み待ちでない場合は{@code null}
+	 */
+	synchronized Object getPending(SwapReference swapRef) {
+		Pending pending = pendings.get(swapRef);
+		return pending == null ? null : pending.obj;
+	}
+	
+	/**
+	 * 書き込み待ちの更新要求の数を取得する。
+	 * 
+	 * @return 書き込み待ちの更新要求の数
+	 */
+	synchronized int size() {
+		return pendings.size();
+	}
+	
+	/**
+	 * 更新要求をキューに積む。
+	 * 
+	 * <p>同じ{@link SwapObject}の更新要求が既に書き込み待ちである場合は、その要求の RealObject を置き換える。
+	 * キューが一杯の場合は、空きができるまで待機する。</p>
+	 * 
+	 * <p>デッドロックを避けるため、引数{@code swapObj}で同期した状態で呼び出してはならない。</p>
+	 * 
+	 * @param <T> スワップ対象となるオブジェクトのクラス
+	 * @param swapObj 更新する{@link SwapObject}
+	 * @param obj 更新する RealObject
+	 * @throws SwapException 待機中に割り込まれた場合、またはキューが閉じられた場合
+	 */
+	synchronized <T extends Serializable>void submit(SwapObject<T> swapObj, T obj) throws SwapException {
+		SwapReference swapRef = swapObj.swapRef;
+		try {
+			while (closed == false && pendings.size() >= capacity && pendings.containsKey(swapRef) == false) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SwapException(e);
+		}
+		if (closed) {
+			throw new SwapException("Swap store is closed.");
+		}
+		
+		Pending pending = pendings.get(swapRef);
+		if (pending == null) {
+			pendings.put(swapRef, new Pending(swapObj, obj));
+			notifyAll();
+		} else {
+			// 書き込み前の要求とまとめる
+			pending.obj = obj;
+		}
+	}
+	
+	/**
+	 * 書き込みが完了した更新要求をキューから取り除く。
+	 * 
+	 * <p>書き込み中に同じ{@link SwapObject}の更新要求が行われていた場合は、再度書き込むためにキューの末尾へ移す。
+	 * 先頭に残すと、頻繁に更新される{@link SwapObject}が書き込みスレッドを占有し、後続の更新要求が書き込まれなくなる。</p>
+	 * 
+	 * @param swapRef スワップ情報
+	 * @param written 書き込んだ RealObject
+	 */
+	private synchronized void complete(SwapReference swapRef, Object written) {
+		Pending pending = pendings.remove(swapRef);
+		if (pending == null) {
+			return;
+		}
+		if (pending.obj == written) {
+			notifyAll();
+		} else {
+			pendings.put(swapRef, pending);
+		}
+	}
+	
+	/**
+	 * 最も古い更新要求を取得する。キューが空の場合は、更新要求が積まれるまで待機する。
+	 * 
+	 * <p>取得した更新要求は、書き込みが完了するまでキューに残しておく。</p>
+	 * 
+	 * @return 更新要求。キューが閉じられた場合は{@code null}
+	 * @throws InterruptedException 待機中に割り込まれた場合
+	 */
+	private synchronized Map.Entry<SwapReference, Pending> take() throws InterruptedException {
+		while (closed == false && pendings.isEmpty()) {
+			wait();
+		}
+		if (closed) {
+			return null;
+		}
+		Iterator<Map.Entry<SwapReference, Pending>> itr = pendings.entrySet().iterator();
+		return itr.next();
+	}
+	
+	/**
+	 * 更新要求を書き込む。
+	 * 
+	 * <p>
+	 * 書き込み中に{@link SwapObject#get()}が古い領域を読み込むことを防ぐため、書き込みが完了するまで更新要求をキューから取り除かない。
+	 * また、{@link SwapObject#update(Serializable)}による更新と競合しないよう、{@link SwapObject}で同期して書き込む。
+	 * </p>
+	 * 
+	 * @param swapRef スワップ情報
+	 * @param pending 更新要求
+	 */
+	@SuppressWarnings("unchecked")
+	private void write(SwapReference swapRef, Pending pending) {
+		SwapObject<Serializable> swapObj = (SwapObject<Serializable>) pending.swapObj;
+		synchronized (swapObj) {
+			Serializable obj;
+			synchronized (this) {
+				obj = (Serializable) pending.obj;
+			}
+			try {
+				swapper.reserialize(swapObj, obj);
+			} catch (SwapException e) {
+				logger.error(LogMarker.BOUNDARY, "Error writing swap object in background.", e);
+				synchronized (this) {
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			}
+			complete(swapRef, obj);
+		}
+	}
+	
+
+	/**
+	 * 書き込み待ちの更新要求。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static final class Pending {
+		
+		/** 更新する{@link SwapObject} */
+		final SwapObject<?> swapObj;
+		
+		/** 更新する RealObject。書き込み前に更新要求がまとめられた場合は置き換えられる。 */
+		Object obj;
+		
+
+		Pending(SwapObject<?> swapObj, Object obj) {
+			this.swapObj = swapObj;
+			this.obj = obj;
+		}
+	}
+}
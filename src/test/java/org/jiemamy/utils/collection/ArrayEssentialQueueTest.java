@@ -0,0 +1,232 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ArrayEssentialQueue}のテストクラス。
+ * 
+ * @version $Id$
+ * @author daisuke
+ */
+public class ArrayEssentialQueueTest {
+	
+	private ArrayEssentialQueue<Element> queue;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		queue = EssentialQueues.newArrayEssentialQueue(4);
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		queue = null;
+	}
+	
+	/**
+	 * 基本キュー機能のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_基本キュー機能のテスト() throws Exception {
+		assertThat(queue.isEmpty(), is(true));
+		queue.enqueue(Element.of(0));
+		queue.enqueue(Element.of(1));
+		queue.enqueue(Element.of(2));
+		assertThat(queue.size(), is(3));
+		assertThat(queue.peek(), is(Element.of(0)));
+		assertThat(queue.dequeue(), is(Element.of(0)));
+		assertThat(queue.dequeue(), is(Element.of(1)));
+		assertThat(queue.toString(), is("[2]"));
+		queue.clear();
+		assertThat(queue.isEmpty(), is(true));
+		
+		try {
+			queue.dequeue();
+			fail();
+		} catch (NoSuchElementException e) {
+			// success
+		}
+		try {
+			queue.peek();
+			fail();
+		} catch (NoSuchElementException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * 配列の末尾で折り返した状態での拡張のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_折り返しと拡張のテスト() throws Exception {
+		int next = 0;
+		int expected = 0;
+		for (int round = 0; round < 100; round++) {
+			for (int i = 0; i < 3; i++) {
+				queue.enqueue(Element.of(next++));
+			}
+			for (int i = 0; i < 2; i++) {
+				assertThat(queue.dequeue(), is(Element.of(expected++)));
+			}
+		}
+		assertThat(queue.size(), is(100));
+		
+		int i = expected;
+		for (Element element : queue) {
+			assertThat(element, is(Element.of(i++)));
+		}
+		while (queue.isEmpty() == false) {
+			assertThat(queue.dequeue(), is(Element.of(expected++)));
+		}
+		assertThat(expected, is(next));
+	}
+	
+	/**
+	 * {@link ArrayEssentialQueue}同士の一括転送のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_一括転送のテスト() throws Exception {
+		for (int sourceHead = 0; sourceHead < 8; sourceHead++) {
+			for (int destHead = 0; destHead < 8; destHead++) {
+				ArrayEssentialQueue<Element> source = new ArrayEssentialQueue<Element>(8);
+				ArrayEssentialQueue<Element> dest = new ArrayEssentialQueue<Element>(16);
+				for (int i = 0; i < sourceHead; i++) {
+					source.enqueue(Element.of(-1));
+					source.dequeue();
+				}
+				for (int i = 0; i < destHead + 10; i++) {
+					dest.enqueue(Element.of(-1));
+				}
+				for (int i = 0; i < destHead; i++) {
+					dest.dequeue();
+				}
+				for (int i = 0; i < 6; i++) {
+					source.enqueue(Element.of(i));
+				}
+				
+				dest.enqueue(source);
+				
+				assertThat(source.isEmpty(), is(true));
+				assertThat(dest.size(), is(16));
+				for (int i = 0; i < 10; i++) {
+					assertThat(dest.dequeue(), is(Element.of(-1)));
+				}
+				for (int i = 0; i < 6; i++) {
+					assertThat(dest.dequeue(), is(Element.of(i)));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 他の実装や空のキューからの転送のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_他の実装からの転送のテスト() throws Exception {
+		EssentialQueue<Element> linked = EssentialQueues.newLinkedEssentialQueue();
+		linked.enqueue(Element.of(0));
+		linked.enqueue(Element.of(1));
+		queue.enqueue(linked);
+		assertThat(linked.isEmpty(), is(true));
+		
+		// 空のキューへの大きなキューの転送
+		ArrayEssentialQueue<Element> large = EssentialQueues.newArrayEssentialQueue();
+		for (int i = 2; i < 100; i++) {
+			large.enqueue(Element.of(i));
+		}
+		ArrayEssentialQueue<Element> empty = EssentialQueues.newArrayEssentialQueue(4);
+		empty.enqueue(large);
+		assertThat(large.isEmpty(), is(true));
+		large.enqueue(Element.of(100));
+		assertThat(large.dequeue(), is(Element.of(100)));
+		
+		queue.enqueue(empty);
+		assertThat(queue.size(), is(100));
+		for (int i = 0; i < 100; i++) {
+			assertThat(queue.dequeue(), is(Element.of(i)));
+		}
+		
+		try {
+			queue.enqueue(queue);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * {@link ArrayEssentialQueue#iterator()}のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_iteratorのテスト() throws Exception {
+		for (int i = 0; i < 6; i++) {
+			queue.enqueue(Element.of(i));
+		}
+		queue.dequeue();
+		Iterator<Element> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().value % 2 == 0) {
+				iterator.remove();
+			}
+		}
+		assertThat(queue.toString(), is("[1, 3, 5]"));
+		
+		iterator = queue.iterator();
+		iterator.next();
+		queue.enqueue(Element.of(6));
+		try {
+			iterator.next();
+			fail();
+		} catch (ConcurrentModificationException e) {
+			// success
+		}
+	}
+}
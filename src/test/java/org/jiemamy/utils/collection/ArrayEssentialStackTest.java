@@ -24,7 +24,9 @@ import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.EmptyStackException;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.After;
@@ -375,4 +377,66 @@ public class ArrayEssentialStackTest {
 			//success
 		}
 	}
+	
+	/**
+	 * 初期容量と拡張係数を指定したスタックのテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test13_容量と拡張係数のテスト() throws Exception {
+		stack = new ArrayEssentialStack<Element>(0, 2.0);
+		for (int i = 0; i < 1000; i++) {
+			stack.push(Element.of(i));
+		}
+		assertThat(stack.size(), is(1000));
+		assertThat(stack.peek(999).value, is(0));
+		stack.trimToSize();
+		stack.push(Element.of(1000));
+		assertThat(stack.pop().value, is(1000));
+		
+		try {
+			new ArrayEssentialStack<Element>(10, 1.0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * 範囲外の{@link EssentialStack#peek(int)}と、走査中の変更のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test14_範囲外のpeekと走査中の変更のテスト() throws Exception {
+		try {
+			stack.peek(0);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// success
+		}
+		stack.push(Element.of(0));
+		try {
+			stack.peek(-1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// success
+		}
+		
+		stack.push(Element.of(1));
+		stack.push(Element.of(2));
+		Iterator<Element> iterator = stack.iterator();
+		iterator.next();
+		iterator.remove();
+		assertThat(stack.toString(), is("[1, 2]"));
+		try {
+			iterator.next();
+			stack.push(Element.of(3));
+			iterator.next();
+			fail();
+		} catch (ConcurrentModificationException e) {
+			// success
+		}
+	}
 }
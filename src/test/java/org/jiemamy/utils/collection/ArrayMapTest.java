@@ -0,0 +1,299 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ArrayMap}のテストクラス。
+ * 
+ * @version $Id$
+ * @author j5ik2o
+ */
+public class ArrayMapTest {
+	
+	private ArrayMap<String, Integer> map;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		map = new ArrayMap<String, Integer>();
+	}
+	
+	/**
+	 * 挿入順に値を取得できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_挿入順() throws Exception {
+		map.put("c", 3);
+		map.put("a", 1);
+		map.put("b", 2);
+		assertThat(map.size(), is(3));
+		assertThat(map.get(0), is(3));
+		assertThat(map.get(1), is(1));
+		assertThat(map.get(2), is(2));
+		assertThat(map.get("a"), is(1));
+		assertThat(map.indexOf(2), is(2));
+		assertThat(map.containsKey("b"), is(true));
+		assertThat(map.containsKey("d"), is(false));
+		assertThat(Arrays.equals(map.toArray(new Integer[0]), new Integer[] {
+			3,
+			1,
+			2
+		}), is(true));
+	}
+	
+	/**
+	 * 既存のキーへの{@code put}は値のみを置き換え、順序を変えないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_既存のキーの上書き() throws Exception {
+		map.put("a", 1);
+		map.put("b", 2);
+		assertThat(map.put("a", 10), is(1));
+		assertThat(map.size(), is(2));
+		assertThat(map.get(0), is(10));
+		assertThat(map.get(1), is(2));
+		assertThat(map.indexOf(1), is(-1));
+	}
+	
+	/**
+	 * 削除後も位置を指定して値を取得できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_削除後の位置指定() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			map.put("k" + i, i);
+		}
+		assertThat(map.remove("k3"), is(3));
+		assertThat(map.remove("k3"), is(nullValue()));
+		assertThat(map.remove("k7"), is(7));
+		assertThat(map.size(), is(8));
+		assertThat(map.get(3), is(4));
+		assertThat(map.get(6), is(8));
+		assertThat(map.lastIndexOf(9), is(7));
+		assertThat(map.get("k3"), is(nullValue()));
+		assertThat(map.get("k8"), is(8));
+		
+		assertThat(map.values().remove(0), is(0));
+		assertThat(map.containsKey("k0"), is(false));
+		assertThat(map.get(0), is(1));
+	}
+	
+	/**
+	 * 多数の削除と再挿入の後も、検索と順序が保たれることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_多数の削除と再挿入() throws Exception {
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		for (int i = 0; i < 10000; i++) {
+			map.put("k" + i, i);
+			expected.put("k" + i, i);
+			if (i % 3 != 0) {
+				map.remove("k" + (i - 1));
+				expected.remove("k" + (i - 1));
+			}
+		}
+		assertThat(map.equals(expected), is(true));
+		assertThat(expected.equals(map), is(true));
+		assertThat(map.hashCode(), is(expected.hashCode()));
+		
+		int previous = -1;
+		for (int i = 0; i < map.size(); i++) {
+			assertThat(map.get(i) > previous, is(true));
+			previous = map.get(i);
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertThat(map.get("k" + i), is(expected.get("k" + i)));
+		}
+	}
+	
+	/**
+	 * {@code null}のキーと値を扱えることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_nullのキーと値() throws Exception {
+		map.put(null, 1);
+		map.put("a", null);
+		assertThat(map.get(null), is(1));
+		assertThat(map.containsKey(null), is(true));
+		assertThat(map.containsKey("a"), is(true));
+		assertThat(map.contains(null), is(true));
+		assertThat(map.remove(null), is(1));
+		assertThat(map.containsKey(null), is(false));
+		assertThat(map.get(0), is(nullValue()));
+	}
+	
+	/**
+	 * イテレータによる削除と、走査中の変更の検出を確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test06_イテレータ() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			map.put("k" + i, i);
+		}
+		Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, Integer> entry = iterator.next();
+			if (entry.getValue() % 2 == 0) {
+				iterator.remove();
+			} else {
+				entry.setValue(entry.getValue() * 10);
+			}
+		}
+		assertThat(map.size(), is(5));
+		assertThat(map.get(0), is(10));
+		assertThat(map.get("k9"), is(90));
+		
+		try {
+			for (String key : map.keySet()) {
+				map.put(key + "x", 0);
+			}
+			throw new AssertionError();
+		} catch (ConcurrentModificationException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * 直列化と復元で内容と順序が保たれることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test07_直列化() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			map.put("k" + i, i);
+		}
+		map.remove("k50");
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(map);
+		oos.close();
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+		@SuppressWarnings("unchecked")
+		ArrayMap<String, Integer> restored = (ArrayMap<String, Integer>) ois.readObject();
+		
+		assertThat(restored.equals(map), is(true));
+		assertThat(restored.get(50), is(51));
+		restored.put("k100", 100);
+		assertThat(restored.get(99), is(100));
+	}
+	
+	/**
+	 * 容量{@code 0}のマップと、直列化して復元した空のマップに要素を追加できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test08_空のマップへの追加() throws Exception {
+		ArrayMap<String, Integer> empty = new ArrayMap<String, Integer>(0);
+		assertThat(empty.put("a", 1), is(nullValue()));
+		assertThat(empty.get("a"), is(1));
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		oos.writeObject(new ArrayMap<String, Integer>());
+		oos.close();
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+		@SuppressWarnings("unchecked")
+		ArrayMap<String, Integer> restored = (ArrayMap<String, Integer>) ois.readObject();
+		
+		assertThat(restored.isEmpty(), is(true));
+		for (int i = 0; i < 100; i++) {
+			restored.put("k" + i, i);
+		}
+		assertThat(restored.size(), is(100));
+		assertThat(restored.get(99), is(99));
+		assertThat(restored.get("k50"), is(50));
+	}
+	
+	/**
+	 * 位置指定の読み込みがマップを変更せず、走査中のイテレータを無効にしないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test09_位置指定の読み込み中の走査() throws Exception {
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++) {
+			map.put("k" + i, i);
+			expected.add(i);
+		}
+		Random random = new Random(0L);
+		for (int i = 0; i < 30; i++) {
+			int index = random.nextInt(expected.size());
+			assertThat(map.values().remove(index), is(expected.remove(index)));
+		}
+		
+		Iterator<Map.Entry<String, Integer>> itr = map.entrySet().iterator();
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(map.get(i), is(expected.get(i)));
+			assertThat(itr.next().getValue(), is(expected.get(i)));
+		}
+		assertThat(itr.hasNext(), is(false));
+		
+		// 墓標の残ったマップへの追加、置き換え
+		for (int i = 100; i < 200; i++) {
+			map.put("k" + i, i);
+			expected.add(i);
+		}
+		map.values().set(10, -1);
+		expected.set(10, -1);
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(map.get(i), is(expected.get(i)));
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ConcurrentEssentialQueue}のテストクラス。
+ * 
+ * @version $Id$
+ * @author daisuke
+ */
+public class ConcurrentEssentialQueueTest {
+	
+	private ConcurrentEssentialQueue<Element> queue;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		queue = EssentialQueues.newConcurrentEssentialQueue();
+	}
+	
+	/**
+	 * 基本キュー機能のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_基本キュー機能のテスト() throws Exception {
+		assertThat(queue.isEmpty(), is(true));
+		queue.enqueue(Element.of(0));
+		queue.enqueue(Element.of(1));
+		queue.enqueue(Element.of(2));
+		assertThat(queue.size(), is(3));
+		assertThat(queue.peek(), is(Element.of(0)));
+		assertThat(queue.dequeue(), is(Element.of(0)));
+		assertThat(queue.toString(), is("[1, 2]"));
+		queue.clear();
+		assertThat(queue.isEmpty(), is(true));
+		
+		try {
+			queue.dequeue();
+			fail();
+		} catch (NoSuchElementException e) {
+			// success
+		}
+		try {
+			queue.peek();
+			fail();
+		} catch (NoSuchElementException e) {
+			// success
+		}
+		try {
+			queue.enqueue((Element) null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * 一括転送のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_一括転送のテスト() throws Exception {
+		EssentialQueue<Element> source = EssentialQueues.newArrayEssentialQueue();
+		source.enqueue(Element.of(1));
+		source.enqueue(Element.of(2));
+		ConcurrentEssentialQueue<Element> concurrentSource = EssentialQueues.newConcurrentEssentialQueue();
+		concurrentSource.enqueue(Element.of(3));
+		
+		queue.enqueue(Element.of(0));
+		queue.enqueue(source);
+		queue.enqueue(concurrentSource);
+		queue.enqueue(Element.of(4));
+		
+		assertThat(source.isEmpty(), is(true));
+		assertThat(concurrentSource.isEmpty(), is(true));
+		for (int i = 0; i < 5; i++) {
+			assertThat(queue.dequeue(), is(Element.of(i)));
+		}
+		
+		EssentialQueue<Element> withNull = EssentialQueues.newLinkedEssentialQueue();
+		withNull.enqueue(Element.of(5));
+		withNull.enqueue((Element) null);
+		try {
+			queue.enqueue(withNull);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+		assertThat(withNull.size(), is(2));
+	}
+	
+	/**
+	 * イテレータが弱い一貫性を持つことのテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_iteratorのテスト() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			queue.enqueue(Element.of(i));
+		}
+		Iterator<Element> iterator = queue.iterator();
+		assertThat(iterator.next(), is(Element.of(0)));
+		
+		// 走査中の変更で例外は発生しない
+		queue.dequeue();
+		queue.dequeue();
+		queue.enqueue(Element.of(3));
+		
+		// 先読み済みの要素は、取り出された後も返される
+		assertThat(iterator.hasNext(), is(true));
+		assertThat(iterator.next(), is(Element.of(1)));
+		assertThat(iterator.next(), is(Element.of(2)));
+		assertThat(iterator.next(), is(Element.of(3)));
+		assertThat(iterator.hasNext(), is(false));
+		
+		try {
+			iterator.remove();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * 複数スレッドから並行して追加・取り出しを行い、全ての要素がちょうど1回ずつ取り出されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_並行アクセスのテスト() throws Exception {
+		final int threads = 4;
+		final int perThread = 20000;
+		final AtomicIntegerArray seen = new AtomicIntegerArray(threads * perThread);
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads * 2);
+		for (int t = 0; t < threads; t++) {
+			final int offset = t * perThread;
+			new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < perThread; i++) {
+							queue.enqueue(Element.of(offset + i));
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+			new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						start.await();
+						int taken = 0;
+						while (taken < perThread) {
+							try {
+								Element element = queue.dequeue();
+								seen.incrementAndGet(element.value);
+								taken++;
+							} catch (NoSuchElementException e) {
+								Thread.yield();
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		done.await();
+		
+		assertThat(queue.isEmpty(), is(true));
+		for (int i = 0; i < seen.length(); i++) {
+			assertThat(seen.get(i), is(1));
+		}
+	}
+}
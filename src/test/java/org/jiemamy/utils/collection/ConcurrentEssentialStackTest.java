@@ -0,0 +1,204 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.EmptyStackException;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ConcurrentEssentialStack}のテストクラス。
+ * 
+ * @version $Id$
+ * @author daisuke
+ */
+public class ConcurrentEssentialStackTest {
+	
+	private ConcurrentEssentialStack<Element> stack;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		stack = EssentialStacks.newConcurrentEssentialStack();
+	}
+	
+	/**
+	 * 基本スタック機能のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_基本スタック機能のテスト() throws Exception {
+		stack.push(Element.of(0));
+		stack.push(Element.of(1));
+		stack.push(Element.of(2));
+		assertThat(stack.size(), is(3));
+		assertThat(stack.peek(), is(Element.of(2)));
+		assertThat(stack.peek(2), is(Element.of(0)));
+		assertThat(stack.get(0), is(Element.of(0)));
+		assertThat(stack.toString(), is("[0, 1, 2]"));
+		
+		assertThat(stack.pop(), is(Element.of(2)));
+		assertThat(stack.pop(), is(Element.of(1)));
+		assertThat(stack.pop(), is(Element.of(0)));
+		assertThat(stack.isEmpty(), is(true));
+		
+		try {
+			stack.pop();
+			fail();
+		} catch (EmptyStackException e) {
+			// success
+		}
+		try {
+			stack.peek(0);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * 位置を指定した操作のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_位置を指定した操作のテスト() throws Exception {
+		Element three = Element.of(3);
+		stack.push(Element.of(0));
+		stack.push(Element.of(2));
+		stack.insert(1, Element.of(1));
+		stack.push(three);
+		stack.push(Element.of(4));
+		stack.insert(5, Element.of(5));
+		assertThat(stack.toString(), is("[0, 1, 2, 3, 4, 5]"));
+		assertThat(stack.size(), is(6));
+		
+		assertThat(stack.remove(1), is(Element.of(1)));
+		assertThat(stack.remove(three), is(true));
+		assertThat(stack.remove(three), is(false));
+		assertThat(stack.toString(), is("[0, 2, 4, 5]"));
+		assertThat(stack.size(), is(4));
+		
+		EssentialStack<Element> reverse = stack.reverse();
+		assertThat(reverse.toString(), is("[5, 4, 2, 0]"));
+		
+		try {
+			stack.insert(5, Element.of(100));
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * イテレータが生成時点の内容を返すことのテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_iteratorのテスト() throws Exception {
+		stack.push(Element.of(0));
+		stack.push(Element.of(1));
+		Iterator<Element> iterator = stack.iterator();
+		stack.pop();
+		stack.push(Element.of(2));
+		
+		assertThat(iterator.next(), is(Element.of(0)));
+		assertThat(iterator.next(), is(Element.of(1)));
+		assertThat(iterator.hasNext(), is(false));
+	}
+	
+	/**
+	 * 複数スレッドから並行してpush・popを行い、全ての要素がちょうど1回ずつ取り出されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_並行アクセスのテスト() throws Exception {
+		concurrentPushPop(stack);
+	}
+	
+	/**
+	 * 消去によるバックオフを行うスタックに、複数スレッドから並行してpush・popを行い、
+	 * 全ての要素がちょうど1回ずつ取り出されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_消去を行うスタックの並行アクセスのテスト() throws Exception {
+		concurrentPushPop(EssentialStacks.<Element> newConcurrentEssentialStack(2));
+		
+		try {
+			EssentialStacks.newConcurrentEssentialStack(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+	}
+	
+	private void concurrentPushPop(final EssentialStack<Element> target) throws InterruptedException {
+		final int threads = 4;
+		final int perThread = 20000;
+		final AtomicIntegerArray seen = new AtomicIntegerArray(threads * perThread);
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			final int offset = t * perThread;
+			new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < perThread; i++) {
+							target.push(Element.of(offset + i));
+							// 少なくとも自身がpushした要素があるため、空になることはない
+							seen.incrementAndGet(target.pop().value);
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		done.await();
+		
+		assertThat(target.isEmpty(), is(true));
+		for (int i = 0; i < seen.length(); i++) {
+			assertThat(seen.get(i), is(1));
+		}
+	}
+}
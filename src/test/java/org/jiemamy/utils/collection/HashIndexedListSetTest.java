@@ -0,0 +1,102 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.collection;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link HashIndexedListSet}のテストクラス。
+ * 
+ * @version $Id$
+ * @author daisuke
+ */
+public class HashIndexedListSetTest extends AbstractListSetTest {
+	
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		alhs = new HashIndexedListSet<Element>();
+	}
+	
+	/**
+	 * 挿入、置換、削除、イテレータによる削除の後も、索引が要素の並びと一致することを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test08_索引の一貫性() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			alhs.add(Element.of(i));
+		}
+		alhs.add(0, Element.of(5));
+		alhs.add(0, Element.of(10));
+		assertThat(alhs.size(), is(11));
+		assertThat(alhs.indexOf(Element.of(10)), is(0));
+		
+		alhs.set(1, Element.of(20));
+		assertThat(alhs.contains(Element.of(0)), is(false));
+		assertThat(alhs.contains(Element.of(20)), is(true));
+		
+		Iterator<Element> iterator = alhs.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getNum() % 2 == 1) {
+				iterator.remove();
+			}
+		}
+		alhs.subList(0, 2).clear();
+		alhs.remove(Element.of(8));
+		
+		assertThat(alhs, is((Object) new HashIndexedListSet<Element>(Arrays.asList(Element.of(2), Element.of(4),
+				Element.of(6)))));
+		for (int i = 0; i < 30; i++) {
+			assertThat(alhs.contains(Element.of(i)), is(i == 2 || i == 4 || i == 6));
+			assertThat(alhs.indexOf(Element.of(i)), is(i == 2 ? 0 : i == 4 ? 1 : i == 6 ? 2 : -1));
+		}
+		
+		// 削除した要素は再び追加できる
+		assertThat(alhs.add(Element.of(1)), is(true));
+		assertThat(alhs.lastIndexOf(Element.of(1)), is(3));
+	}
+	
+	/**
+	 * 重複を含む多数の要素を追加できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test09_多数の要素の追加() throws Exception {
+		for (int i = 0; i < 200000; i++) {
+			alhs.add(Element.of(i % 100000));
+		}
+		assertThat(alhs.size(), is(100000));
+		assertThat(alhs.get(99999), is(Element.of(99999)));
+		assertThat(alhs.contains(Element.of(100000)), is(false));
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+/**
+ * {@link DeflateCompressor}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class DeflateCompressorTest {
+	
+	/**
+	 * 圧縮と展開を行い、元のバイト列に戻ることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_圧縮と展開() throws Exception {
+		byte[] raw = new byte[1024];
+		for (int i = 0; i < raw.length; i++) {
+			raw[i] = (byte) (i % 7);
+		}
+		
+		DeflateCompressor compressor = new DeflateCompressor(Deflater.BEST_SPEED);
+		ByteBuffer compressed = compressor.deflate(ByteBuffer.wrap(raw));
+		assertThat(compressed.remaining(), lessThan(raw.length));
+		
+		ByteBuffer inflated = DeflateCompressor.inflate(compressed, raw.length);
+		assertThat(inflated, is(ByteBuffer.wrap(raw)));
+	}
+	
+	/**
+	 * 圧縮によって短くならないバイト列は圧縮されないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_圧縮効果が無い場合() throws Exception {
+		DeflateCompressor compressor = new DeflateCompressor(Deflater.DEFAULT_COMPRESSION);
+		
+		// 短すぎるバイト列
+		assertThat(compressor.deflate(ByteBuffer.wrap(new byte[10])), is(nullValue()));
+		
+		// 乱数列
+		byte[] random = new byte[1024];
+		new Random(0).nextBytes(random);
+		assertThat(compressor.deflate(ByteBuffer.wrap(random)), is(nullValue()));
+	}
+	
+	/**
+	 * 圧縮を有効にした{@link Swapper}で、圧縮された領域と圧縮されていない領域が共存できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_圧縮の有無が混在したスワップ処理() throws Exception {
+		Swapper swapper = new Swapper(new FileChannelStorage(Swapper.createSwapFile()));
+		
+		ArrayList<String> model = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			model.add("column" + (i % 10) + ":" + UUID.nameUUIDFromBytes(new byte[] {
+				(byte) (i % 10)
+			}));
+		}
+		
+		SwapObject<ArrayList<String>> plain =
+				new SwapObject<ArrayList<String>>(model, SwapCodecs.<ArrayList<String>> serializable(), swapper);
+		long plainBytes = swapper.shards[0].allocator.getLiveBytes();
+		
+		swapper.setCompressor(new DeflateCompressor(Deflater.BEST_SPEED));
+		SwapObject<ArrayList<String>> compressed =
+				new SwapObject<ArrayList<String>>(model, SwapCodecs.<ArrayList<String>> serializable(), swapper);
+		long compressedBytes = swapper.shards[0].allocator.getLiveBytes() - plainBytes;
+		
+		assertThat(plain.swapRef.extent.isCompressed(), is(false));
+		assertThat(compressed.swapRef.extent.isCompressed(), is(true));
+		assertThat("plain=" + plainBytes + ", compressed=" + compressedBytes, compressedBytes, lessThan(plainBytes));
+		
+		plain.ref.clear();
+		compressed.ref.clear();
+		assertThat(plain.get(), is(model));
+		assertThat(compressed.get(), is(model));
+	}
+	
+}
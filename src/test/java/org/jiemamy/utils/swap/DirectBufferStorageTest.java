@@ -0,0 +1,223 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link DirectBufferStorage}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class DirectBufferStorageTest {
+	
+	private static final int SLAB_SIZE = 64;
+	
+	private DirectSlabPool pool;
+	
+	private DirectBufferStorage storage;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		pool = new DirectSlabPool(SLAB_SIZE, 2);
+		storage = new DirectBufferStorage(pool);
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		storage.close();
+	}
+	
+	/**
+	 * 1つのスラブに収まる領域の読み書きを行う。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_スラブ内の読み書き() throws Exception {
+		storage.write(ByteBuffer.wrap(bytes(10, 1)), 5L);
+		
+		ByteBuffer read = storage.read(new Extent(5L, 10));
+		assertThat(read.remaining(), is(10));
+		for (int i = 0; i < 10; i++) {
+			assertThat(read.get(), is((byte) (i + 1)));
+		}
+		assertThat(storage.size(), is((long) SLAB_SIZE));
+	}
+	
+	/**
+	 * 複数のスラブにまたがる領域の読み書きを行い、必要なスラブが追加で確保されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_スラブをまたがる読み書き() throws Exception {
+		storage.write(new ByteBuffer[] {
+			ByteBuffer.wrap(bytes(100, 7)),
+			ByteBuffer.wrap(bytes(50, 107))
+		}, 30L);
+		assertThat(storage.size(), is(3L * SLAB_SIZE));
+		assertThat(pool.getActiveCount(), is(3));
+		
+		ByteBuffer read = storage.read(new Extent(30L, 150));
+		assertThat(read.remaining(), is(150));
+		for (int i = 0; i < 150; i++) {
+			assertThat(read.get(), is((byte) (i + 7)));
+		}
+	}
+	
+	/**
+	 * 切り詰めたスラブがプールへ返却され、再利用されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_スラブの返却と再利用() throws Exception {
+		storage.write(ByteBuffer.wrap(bytes(SLAB_SIZE * 4, 0)), 0L);
+		assertThat(pool.getActiveCount(), is(4));
+		
+		storage.truncate(SLAB_SIZE + 1);
+		assertThat(storage.size(), is(2L * SLAB_SIZE));
+		assertThat(pool.getActiveCount(), is(2));
+		assertThat(pool.getPooledCount(), is(2));
+		
+		DirectBufferStorage other = new DirectBufferStorage(pool);
+		other.write(ByteBuffer.wrap(bytes(SLAB_SIZE, 0)), 0L);
+		assertThat(pool.getActiveCount(), is(3));
+		assertThat(pool.getPooledCount(), is(1));
+		
+		// 上限を超えて返却されたスラブは破棄される
+		other.close();
+		storage.close();
+		assertThat(pool.getActiveCount(), is(0));
+		assertThat(pool.getPooledCount(), is(2));
+	}
+	
+	/**
+	 * ダイレクトバッファを用いた{@link Swapper}でスワップ処理を行う。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_ダイレクトバッファを用いたスワップ処理() throws Exception {
+		Swapper swapper = new Swapper(storage);
+		
+		HashMap<String, String> testMap = new HashMap<String, String>();
+		testMap.put("foo", "bar");
+		testMap.put("fizz", "buzz");
+		
+		SwapObject<HashMap<String, String>> swapObj =
+				new SwapObject<HashMap<String, String>>(testMap, SwapCodecs.<HashMap<String, String>> serializable(),
+						swapper);
+		SwapObject<String> swapObj2 = new SwapObject<String>("John Doe", SwapCodecs.<String> serializable(), swapper);
+		
+		// 弱参照を切り、ダイレクトバッファから読み込ませる
+		swapObj.ref.clear();
+		swapObj2.ref.clear();
+		
+		assertThat(swapObj.get(), is(testMap));
+		assertThat(swapObj2.get(), is("John Doe"));
+		
+		testMap.put("John", "Doe");
+		swapObj.update(testMap);
+		swapObj.ref.clear();
+		
+		assertThat(swapObj.get(), is(testMap));
+		swapper.close();
+	}
+	
+	/**
+	 * スラブをまたがる領域を、チャネルとの間で転送できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_チャネルとの転送() throws Exception {
+		storage.transferFrom(Channels.newChannel(new ByteArrayInputStream(bytes(100, 3))), new Extent(40L, 100));
+		assertThat(storage.size(), is(3L * SLAB_SIZE));
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		storage.transferTo(new Extent(40L, 100), Channels.newChannel(out));
+		assertThat(Arrays.equals(out.toByteArray(), bytes(100, 3)), is(true));
+		
+		try {
+			storage.transferFrom(Channels.newChannel(new ByteArrayInputStream(bytes(10, 0))), new Extent(0L, 20));
+			fail();
+		} catch (EOFException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * 読み込んだバイト列が、スラブの返却と再利用の影響を受けないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test06_読み込み後のスラブの再利用() throws Exception {
+		storage.write(ByteBuffer.wrap(bytes(10, 1)), SLAB_SIZE + 5L);
+		ByteBuffer read = storage.read(new Extent(SLAB_SIZE + 5L, 10));
+		
+		// 読み込んだ領域のスラブが返却され、他の記憶域で上書きされる
+		storage.truncate(SLAB_SIZE);
+		DirectBufferStorage other = new DirectBufferStorage(pool);
+		other.write(ByteBuffer.wrap(new byte[SLAB_SIZE]), 0L);
+		assertThat(pool.getPooledCount(), is(0));
+		
+		for (int i = 0; i < 10; i++) {
+			assertThat(read.get(), is((byte) (i + 1)));
+		}
+		other.close();
+	}
+	
+	private byte[] bytes(int length, int seed) {
+		byte[] result = new byte[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = (byte) (i + seed);
+		}
+		return result;
+	}
+	
+}
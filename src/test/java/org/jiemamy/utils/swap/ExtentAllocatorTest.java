@@ -0,0 +1,219 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ExtentAllocator}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class ExtentAllocatorTest {
+	
+	private ExtentAllocator allocator;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		allocator = new ExtentAllocator();
+	}
+	
+	/**
+	 * 空き領域が無い場合は終端に割り当てられることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_終端への割り当て() throws Exception {
+		Extent e1 = allocator.allocate(10);
+		Extent e2 = allocator.allocate(20);
+		
+		assertThat(e1.position, is(0L));
+		assertThat(e2.position, is(10L));
+		assertThat(allocator.end(), is(30L));
+		assertThat(allocator.getLiveBytes(), is(30L));
+	}
+	
+	/**
+	 * 解放された領域のうち、要求サイズ以上で最小の領域が再利用されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_best_fit() throws Exception {
+		Extent e1 = allocator.allocate(30);
+		allocator.allocate(10);
+		Extent e3 = allocator.allocate(15);
+		allocator.allocate(10);
+		
+		allocator.free(e1);
+		allocator.free(e3);
+		assertThat(allocator.getFreeBlockCount(), is(2));
+		
+		// 15バイトの空き領域が選ばれる
+		Extent e5 = allocator.allocate(12);
+		assertThat(e5.position, is(40L));
+		
+		// 残り3バイトは空き領域として残る
+		Extent e6 = allocator.allocate(3);
+		assertThat(e6.position, is(52L));
+		
+		// 30バイトの空き領域が選ばれる
+		Extent e7 = allocator.allocate(16);
+		assertThat(e7.position, is(0L));
+		
+		// 適合する空き領域が無い場合は終端へ
+		Extent e8 = allocator.allocate(15);
+		assertThat(e8.position, is(65L));
+	}
+	
+	/**
+	 * 解放された領域が前後の空き領域と結合されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_空き領域の結合() throws Exception {
+		Extent e1 = allocator.allocate(10);
+		Extent e2 = allocator.allocate(10);
+		Extent e3 = allocator.allocate(10);
+		allocator.allocate(10);
+		
+		allocator.free(e1);
+		allocator.free(e3);
+		assertThat(allocator.getFreeBlockCount(), is(2));
+		
+		allocator.free(e2);
+		assertThat(allocator.getFreeBlockCount(), is(1));
+		
+		Extent e5 = allocator.allocate(30);
+		assertThat(e5.position, is(0L));
+		assertThat(allocator.getFreeBlockCount(), is(0));
+	}
+	
+	/**
+	 * 終端に接する領域を解放すると、終端位置が縮小されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_終端の縮小() throws Exception {
+		Extent e1 = allocator.allocate(10);
+		Extent e2 = allocator.allocate(10);
+		Extent e3 = allocator.allocate(10);
+		
+		allocator.free(e2);
+		assertThat(allocator.end(), is(30L));
+		
+		// e2の空き領域と結合された上で終端が縮小される
+		allocator.free(e3);
+		assertThat(allocator.end(), is(10L));
+		assertThat(allocator.getFreeBlockCount(), is(0));
+		
+		allocator.free(e1);
+		assertThat(allocator.end(), is(0L));
+		assertThat(allocator.getLiveBytes(), is(0L));
+	}
+	
+	/**
+	 * 指定した領域を確保できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_指定した領域の確保() throws Exception {
+		// 終端より後ろの領域
+		allocator.reserve(new Extent(20L, 10));
+		assertThat(allocator.end(), is(30L));
+		assertThat(allocator.getFreeBlockCount(), is(1));
+		
+		// 空き領域の中央
+		allocator.reserve(new Extent(5L, 5));
+		assertThat(allocator.getFreeBlockCount(), is(2));
+		assertThat(allocator.getLiveBytes(), is(15L));
+		
+		assertThat(allocator.allocate(5).position, is(0L));
+		assertThat(allocator.allocate(10).position, is(10L));
+		
+		try {
+			allocator.reserve(new Extent(0L, 1));
+			fail();
+		} catch (IllegalStateException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * 多数のエクステントを生存させた状態で割り当てと解放を繰り返しても、領域が重複しないことを確認する。
+	 * 
+	 * <p>割り当てと解放のコストが生存数に依存しないことは、ベンチマークの{@code ExtentAllocatorBenchmark}で計測する。</p>
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test06_多数の生存エクステントでの割り当てと解放() throws Exception {
+		Random random = new Random(0);
+		List<Extent> live = new ArrayList<Extent>();
+		long liveBytes = 0L;
+		for (int i = 0; i < 10000; i++) {
+			Extent extent = allocator.allocate(16 + random.nextInt(256));
+			live.add(extent);
+			liveBytes += extent.length;
+		}
+		for (int i = 0; i < 50000; i++) {
+			int index = random.nextInt(live.size());
+			allocator.free(live.get(index));
+			liveBytes -= live.get(index).length;
+			Extent extent = allocator.allocate(16 + random.nextInt(256));
+			live.set(index, extent);
+			liveBytes += extent.length;
+		}
+		assertThat(allocator.getLiveBytes(), is(liveBytes));
+		
+		Collections.sort(live, new Comparator<Extent>() {
+			
+			public int compare(Extent o1, Extent o2) {
+				return o1.position < o2.position ? -1 : (o1.position == o2.position ? 0 : 1);
+			}
+		});
+		for (int i = 1; i < live.size(); i++) {
+			assertThat(live.get(i - 1).end() <= live.get(i).position, is(true));
+		}
+		assertThat(live.get(live.size() - 1).end() <= allocator.end(), is(true));
+	}
+	
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * {@link ExtentHeader}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class ExtentHeaderTest {
+	
+	/**
+	 * ヘッダを付けたバイト列を検証し、元のバイト列が取得できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_ヘッダの検証() throws Exception {
+		ByteBuffer payload = ByteBuffer.wrap("foobar".getBytes("UTF-8"));
+		ByteBuffer framed = frame(payload, 42);
+		
+		ByteBuffer verified = ExtentHeader.verify(framed, new Extent(0L, framed.remaining(), -1, 42));
+		assertThat(verified, is(payload));
+		
+		// ダイレクトバッファでも同じチェックサムとなる
+		ByteBuffer direct = ByteBuffer.allocateDirect(framed.remaining());
+		direct.put(framed.duplicate()).flip();
+		assertThat(ExtentHeader.verify(direct, new Extent(0L, direct.remaining(), -1, 42)), is(payload));
+	}
+	
+	/**
+	 * バイト列の破損、世代番号の不一致、バイト長の不一致が検出されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_不一致の検出() throws Exception {
+		ByteBuffer framed = frame(ByteBuffer.wrap("foobar".getBytes("UTF-8")), 42);
+		int length = framed.remaining();
+		
+		assertCorrupted(framed, new Extent(0L, length, -1, 43));
+		assertCorrupted(framed, new Extent(0L, length + 1, -1, 42));
+		
+		framed.put(ExtentHeader.LENGTH + 2, (byte) 'x');
+		assertCorrupted(framed, new Extent(0L, length, -1, 42));
+	}
+	
+	/**
+	 * スワップファイル上で破損した RealObject を読み込むと、{@link SwapCorruptedException}が発生することを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_スワップファイルの破損() throws Exception {
+		Swapper swapper = new Swapper(new FileChannelStorage(Swapper.createSwapFile()));
+		try {
+			SwapObject<String> swapObj = new SwapObject<String>("foobar", SwapCodecs.<String> serializable(), swapper);
+			Extent extent = swapObj.swapRef.extent;
+			assertThat(extent.length > ExtentHeader.LENGTH, is(true));
+			
+			swapper.shards[0].storage.write(ByteBuffer.wrap(new byte[] {
+				0
+			}), extent.end() - 1);
+			swapObj.ref.clear();
+			try {
+				swapObj.get();
+				fail();
+			} catch (SwapCorruptedException e) {
+				// success
+			}
+		} finally {
+			swapper.close();
+		}
+	}
+	
+	private void assertCorrupted(ByteBuffer buffer, Extent extent) {
+		try {
+			ExtentHeader.verify(buffer.duplicate(), extent);
+			fail();
+		} catch (SwapCorruptedException e) {
+			// success
+		}
+	}
+	
+	private ByteBuffer frame(ByteBuffer payload, int generation) {
+		ByteBuffer header = ExtentHeader.create(payload, generation);
+		ByteBuffer framed = ByteBuffer.allocate(header.remaining() + payload.remaining());
+		framed.put(header).put(payload.duplicate());
+		framed.flip();
+		return framed;
+	}
+	
+}
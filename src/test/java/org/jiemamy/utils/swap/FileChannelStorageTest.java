@@ -0,0 +1,166 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link FileChannelStorage}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class FileChannelStorageTest {
+	
+	private FileChannelStorage storage;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		storage = new FileChannelStorage(Swapper.createSwapFile());
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		storage.close();
+	}
+	
+	/**
+	 * 合計バイト長の小さい複数のバッファを、連続して書き込む。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_複数バッファの書き込み() throws Exception {
+		storage.write(new ByteBuffer[] {
+			ByteBuffer.wrap(bytes(50, 0)),
+			ByteBuffer.wrap(new byte[0]),
+			ByteBuffer.wrap(bytes(50, 50))
+		}, 10L);
+		assertThat(storage.size(), is(110L));
+		
+		ByteBuffer read = storage.read(new Extent(10L, 100));
+		for (int i = 0; i < 100; i++) {
+			assertThat(read.get(), is((byte) i));
+		}
+	}
+	
+	/**
+	 * 合計バイト長の大きい複数のバッファを、連続して書き込む。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_大きな複数バッファの書き込み() throws Exception {
+		int length = 100 * 1024;
+		storage.write(new ByteBuffer[] {
+			ByteBuffer.wrap(bytes(length, 0)),
+			ByteBuffer.wrap(bytes(length, length))
+		}, 10L);
+		assertThat(storage.size(), is(10L + 2 * length));
+		
+		ByteBuffer read = storage.read(new Extent(10L, 2 * length));
+		for (int i = 0; i < 2 * length; i++) {
+			assertThat(read.get(), is((byte) i));
+		}
+	}
+	
+	/**
+	 * 複数のバッファの書き込みが、ファイルチャネルのロックを取得しないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_ロックを取得しない書き込み() throws Exception {
+		FutureTask<Long> task = new FutureTask<Long>(new Callable<Long>() {
+			
+			public Long call() throws Exception {
+				storage.write(new ByteBuffer[] {
+					ByteBuffer.wrap(bytes(8, 0)),
+					ByteBuffer.wrap(bytes(8, 8))
+				}, 0L);
+				return storage.size();
+			}
+		});
+		synchronized (storage.channel) {
+			new Thread(task).start();
+			assertThat(task.get(5, TimeUnit.SECONDS), is(16L));
+		}
+	}
+	
+	/**
+	 * 多数のバッファを、チャンクの境界をまたいで書き込む。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_チャンクをまたぐ書き込み() throws Exception {
+		List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+		int total = 0;
+		for (int i = 0; i < 3000; i++) {
+			int length = 1000 + i % 7;
+			if (i == 1500) {
+				length = 1536 * 1024;
+			}
+			buffers.add(ByteBuffer.wrap(bytes(length, total)));
+			total += length;
+		}
+		storage.write(buffers.toArray(new ByteBuffer[buffers.size()]), 10L);
+		assertThat(storage.size(), is(10L + total));
+		for (ByteBuffer buffer : buffers) {
+			assertThat(buffer.hasRemaining(), is(false));
+		}
+		
+		ByteBuffer read = storage.read(new Extent(10L, total));
+		for (int i = 0; i < total; i++) {
+			assertThat(read.get(), is((byte) i));
+		}
+	}
+	
+	private byte[] bytes(int length, int seed) {
+		byte[] result = new byte[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = (byte) (i + seed);
+		}
+		return result;
+	}
+	
+}
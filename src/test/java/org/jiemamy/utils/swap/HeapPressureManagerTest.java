@@ -0,0 +1,154 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link HeapPressureManager}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class HeapPressureManagerTest {
+	
+	private Swapper swapper;
+	
+	private HeapPressureManager manager;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		swapper = new Swapper(new FileChannelStorage(Swapper.createSwapFile()));
+		swapper.setCache(new SwapCache(1000, 0L));
+		manager =
+				new HeapPressureManager(null, Collections.<MemoryPoolMXBean> emptyList(),
+						Collections.<GarbageCollectorMXBean> emptyList());
+		manager.register(swapper, 0.8, 0.6);
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		manager.unregister(swapper);
+		swapper.close();
+	}
+	
+	/**
+	 * 高水位点を超えるとキャッシュが追い出され、低水位点を下回ると通常の動作に戻ることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_水位点による追い出し() throws Exception {
+		List<SwapObject<String>> objs = createObjects(100);
+		assertThat(swapper.cache.getSize(), is(100));
+		
+		// 高水位点未満では何もしない
+		manager.evaluate(0.7, 1L);
+		assertThat(swapper.cache.getSize(), is(100));
+		assertThat(swapper.cache.isConstrained(), is(false));
+		
+		manager.evaluate(0.9, 1L);
+		assertThat(swapper.cache.getSize(), is(75));
+		assertThat(swapper.cache.isConstrained(), is(true));
+		
+		// GC が行われるまでは追加の追い出しを行わない
+		manager.evaluate(0.9, 1L);
+		assertThat(swapper.cache.getSize(), is(75));
+		manager.evaluate(0.9, 2L);
+		assertThat(swapper.cache.getSize(), is(56));
+		
+		// 低水位点以上では逼迫状態を維持する
+		manager.evaluate(0.7, 3L);
+		assertThat(swapper.cache.getSize(), is(56));
+		assertThat(swapper.cache.isConstrained(), is(true));
+		
+		manager.evaluate(0.5, 3L);
+		assertThat(swapper.cache.isConstrained(), is(false));
+		
+		// 追い出された RealObject もスワップファイルから取得できる
+		for (int i = 0; i < objs.size(); i++) {
+			objs.get(i).ref.clear();
+			assertThat(objs.get(i).get(), is("obj" + i));
+		}
+	}
+	
+	/**
+	 * 逼迫状態の間は新たなエントリがキャッシュされないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_逼迫状態ではキャッシュしない() throws Exception {
+		manager.evaluate(0.9, 1L);
+		createObjects(10);
+		assertThat(swapper.cache.getSize(), is(0));
+		
+		manager.evaluate(0.5, 1L);
+		createObjects(10);
+		assertThat(swapper.cache.getSize(), is(10));
+	}
+	
+	/**
+	 * 登録を解除すると、逼迫状態のキャッシュが通常の動作に戻ることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_登録解除() throws Exception {
+		manager.evaluate(0.9, 1L);
+		assertThat(swapper.cache.isConstrained(), is(true));
+		
+		manager.unregister(swapper);
+		assertThat(swapper.cache.isConstrained(), is(false));
+		
+		// 登録を解除した Swapper は評価の対象とならない
+		manager.evaluate(0.9, 2L);
+		assertThat(swapper.cache.isConstrained(), is(false));
+	}
+	
+	private List<SwapObject<String>> createObjects(int count) throws Exception {
+		List<SwapObject<String>> objs = new ArrayList<SwapObject<String>>();
+		for (int i = 0; i < count; i++) {
+			objs.add(new SwapObject<String>("obj" + i, SwapCodecs.<String> serializable(), swapper));
+		}
+		return objs;
+	}
+}
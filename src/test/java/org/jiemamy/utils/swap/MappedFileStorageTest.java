@@ -0,0 +1,176 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link MappedFileStorage}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class MappedFileStorageTest {
+	
+	private static final int SEGMENT_SIZE = 64;
+	
+	private MappedFileStorage storage;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		storage = new MappedFileStorage(Swapper.createSwapFile(), SEGMENT_SIZE);
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		storage.close();
+	}
+	
+	/**
+	 * 1つのセグメントに収まる領域の読み書きを行う。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_セグメント内の読み書き() throws Exception {
+		storage.write(ByteBuffer.wrap(bytes(10, 1)), 5L);
+		
+		ByteBuffer read = storage.read(new Extent(5L, 10));
+		assertThat(read.remaining(), is(10));
+		for (int i = 0; i < 10; i++) {
+			assertThat(read.get(), is((byte) (i + 1)));
+		}
+		assertThat(storage.size(), is((long) SEGMENT_SIZE));
+	}
+	
+	/**
+	 * 複数のセグメントにまたがる領域の読み書きを行い、必要なセグメントが追加でマップされることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_セグメントをまたがる読み書き() throws Exception {
+		storage.write(ByteBuffer.wrap(bytes(150, 7)), 30L);
+		assertThat(storage.size(), is(3L * SEGMENT_SIZE));
+		
+		ByteBuffer read = storage.read(new Extent(30L, 150));
+		assertThat(read.remaining(), is(150));
+		for (int i = 0; i < 150; i++) {
+			assertThat(read.get(), is((byte) (i + 7)));
+		}
+	}
+	
+	/**
+	 * メモリマップを用いた{@link Swapper}でスワップ処理を行う。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_メモリマップを用いたスワップ処理() throws Exception {
+		Swapper swapper = new Swapper(storage);
+		
+		HashMap<String, String> testMap = new HashMap<String, String>();
+		testMap.put("foo", "bar");
+		testMap.put("fizz", "buzz");
+		
+		SwapObject<HashMap<String, String>> swapObj =
+				new SwapObject<HashMap<String, String>>(testMap, SwapCodecs.<HashMap<String, String>> serializable(),
+						swapper);
+		SwapObject<String> swapObj2 = new SwapObject<String>("John Doe", SwapCodecs.<String> serializable(), swapper);
+		
+		// 弱参照を切り、スワップファイルから読み込ませる
+		swapObj.ref.clear();
+		swapObj2.ref.clear();
+		
+		assertThat(swapObj.get(), is(testMap));
+		assertThat(swapObj2.get(), is("John Doe"));
+		
+		testMap.put("John", "Doe");
+		swapObj.update(testMap);
+		swapObj.ref.clear();
+		
+		assertThat(swapObj.get(), is(testMap));
+	}
+	
+	/**
+	 * 複数のバッファを、セグメントをまたがって連続して書き込む。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_複数バッファの書き込み() throws Exception {
+		storage.write(new ByteBuffer[] {
+			ByteBuffer.wrap(bytes(50, 0)),
+			ByteBuffer.wrap(new byte[0]),
+			ByteBuffer.wrap(bytes(50, 50))
+		}, 10L);
+		assertThat(storage.size(), is(2L * SEGMENT_SIZE));
+		
+		ByteBuffer read = storage.read(new Extent(10L, 100));
+		for (int i = 0; i < 100; i++) {
+			assertThat(read.get(), is((byte) i));
+		}
+	}
+	
+	/**
+	 * 読み込んだバイト列が、読み込み後の領域の上書きの影響を受けないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_読み込み後の上書き() throws Exception {
+		storage.write(ByteBuffer.wrap(bytes(10, 1)), 5L);
+		ByteBuffer read = storage.read(new Extent(5L, 10));
+		
+		// 解放された領域が再利用され、上書きされる
+		storage.write(ByteBuffer.wrap(new byte[10]), 5L);
+		
+		for (int i = 0; i < 10; i++) {
+			assertThat(read.get(), is((byte) (i + 1)));
+		}
+	}
+	
+	private byte[] bytes(int length, int seed) {
+		byte[] result = new byte[length];
+		for (int i = 0; i < length; i++) {
+			result[i] = (byte) (i + seed);
+		}
+		return result;
+	}
+	
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ReferenceQueueMonitor}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class ReferenceQueueMonitorTest {
+	
+	private ReferenceQueue<Object> queue;
+	
+	private ReferenceQueueMonitor<Object> monitor;
+	
+	private RecordingListener listener;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		queue = new ReferenceQueue<Object>();
+		monitor = new ReferenceQueueMonitor<Object>(queue);
+		listener = new RecordingListener();
+		monitor.addReferenceListener(listener);
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		monitor.shutdown(1000L);
+	}
+	
+	/**
+	 * キューに溜まった参照が、まとめて通知されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_まとめて通知() throws Exception {
+		int count = ReferenceQueueMonitor.MAX_BATCH_SIZE + 10;
+		List<WeakReference<Object>> refs = new ArrayList<WeakReference<Object>>();
+		for (int i = 0; i < count; i++) {
+			WeakReference<Object> ref = new WeakReference<Object>(new Object(), queue);
+			ref.enqueue();
+			refs.add(ref);
+		}
+		
+		monitor.start("TestMonitor");
+		assertThat(listener.idle.await(5, TimeUnit.SECONDS), is(true));
+		synchronized (listener) {
+			assertThat(listener.batchSizes.size(), is(2));
+			assertThat(listener.batchSizes.get(0), is(ReferenceQueueMonitor.MAX_BATCH_SIZE));
+			assertThat(listener.batchSizes.get(1), is(10));
+		}
+		assertThat(refs.size(), is(count));
+	}
+	
+	/**
+	 * 監視スレッドを停止できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_停止() throws Exception {
+		monitor.start("TestMonitor");
+		try {
+			monitor.start("TestMonitor");
+			fail();
+		} catch (IllegalStateException e) {
+			// success
+		}
+		
+		assertThat(monitor.shutdown(1000L), is(true));
+		assertThat(monitor.running, is(false));
+		assertThat(monitor.shutdown(1000L), is(true));
+		try {
+			monitor.start("TestMonitor");
+			fail();
+		} catch (IllegalStateException e) {
+			// success
+		}
+	}
+	/**
+	 * リスナが例外を投げても、監視スレッドが通知を続けることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_リスナの例外() throws Exception {
+		monitor.addReferenceListener(new ReferenceListener() {
+			
+			public void referenceModified(ReferenceEvent event) {
+				throw new IllegalStateException("modified");
+			}
+			
+			public void referenceQueueIdle() {
+				throw new IllegalStateException("idle");
+			}
+		});
+		monitor.start("TestMonitor");
+		assertThat(listener.idle.await(5, TimeUnit.SECONDS), is(true));
+		Thread.sleep(ReferenceQueueMonitor.IDLE_INTERVAL * 2);
+		
+		WeakReference<Object> ref = new WeakReference<Object>(new Object(), queue);
+		ref.enqueue();
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (System.currentTimeMillis() < deadline) {
+			synchronized (listener) {
+				if (listener.batchSizes.isEmpty() == false) {
+					break;
+				}
+			}
+			Thread.sleep(10L);
+		}
+		synchronized (listener) {
+			assertThat(listener.batchSizes.size(), is(1));
+		}
+		assertThat(monitor.running, is(true));
+	}
+	
+
+	/**
+	 * 通知を記録するリスナ。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static class RecordingListener implements ReferenceListener {
+		
+		final List<Integer> batchSizes = new ArrayList<Integer>();
+		
+		final CountDownLatch idle = new CountDownLatch(1);
+		
+
+		public synchronized void referenceModified(ReferenceEvent event) {
+			batchSizes.add(event.getReferences().size());
+		}
+		
+		public void referenceQueueIdle() {
+			idle.countDown();
+		}
+	}
+}
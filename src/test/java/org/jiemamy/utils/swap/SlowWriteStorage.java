@@ -0,0 +1,102 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 有効にした直後の1回の書き込みを、解除されるまで止める記憶域。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+class SlowWriteStorage implements SwapStorage {
+	
+	final SwapStorage delegate;
+	
+	/** 次の書き込みを止めるかどうか */
+	final AtomicBoolean armed = new AtomicBoolean();
+	
+	/** 書き込みが止まったことを通知するラッチ */
+	final CountDownLatch entered = new CountDownLatch(1);
+	
+	/** 止めた書き込みを再開させるラッチ */
+	final CountDownLatch proceed = new CountDownLatch(1);
+	
+
+	SlowWriteStorage(SwapStorage delegate) {
+		this.delegate = delegate;
+	}
+	
+	public void close() throws IOException {
+		delegate.close();
+	}
+	
+	public void force() throws IOException {
+		delegate.force();
+	}
+	
+	public ByteBuffer read(Extent extent) throws IOException {
+		return delegate.read(extent);
+	}
+	
+	public long size() throws IOException {
+		return delegate.size();
+	}
+	
+	public void transferFrom(ReadableByteChannel source, Extent extent) throws IOException {
+		delegate.transferFrom(source, extent);
+	}
+	
+	public void transferTo(Extent extent, WritableByteChannel target) throws IOException {
+		delegate.transferTo(extent, target);
+	}
+	
+	public void truncate(long size) throws IOException {
+		delegate.truncate(size);
+	}
+	
+	public void write(ByteBuffer buffer, long position) throws IOException {
+		await();
+		delegate.write(buffer, position);
+	}
+	
+	public void write(ByteBuffer[] buffers, long position) throws IOException {
+		await();
+		delegate.write(buffers, position);
+	}
+	
+	private void await() throws InterruptedIOException {
+		if (armed.compareAndSet(true, false)) {
+			entered.countDown();
+			try {
+				proceed.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+	}
+}
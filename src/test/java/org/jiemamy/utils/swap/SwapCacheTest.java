@@ -0,0 +1,245 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SwapCache}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class SwapCacheTest {
+	
+	private Swapper swapper;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		swapper = new Swapper(new FileChannelStorage(Swapper.createSwapFile()));
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		swapper.close();
+	}
+	
+	/**
+	 * 最大エントリ数を超えた場合、最も長い間使用されていないエントリが追い出されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_LRUによる追い出し() throws Exception {
+		swapper.setCache(new SwapCache(2, 0L));
+		SwapObject<String> a = new SwapObject<String>("a", SwapCodecs.<String> serializable(), swapper);
+		SwapObject<String> b = new SwapObject<String>("b", SwapCodecs.<String> serializable(), swapper);
+		assertThat(swapper.cache.getSize(), is(2));
+		
+		// aを使用した後にcを追加すると、bが追い出される
+		a.get();
+		SwapObject<String> c = new SwapObject<String>("c", SwapCodecs.<String> serializable(), swapper);
+		assertThat(swapper.cache.getSize(), is(2));
+		
+		a.ref.clear();
+		b.ref.clear();
+		c.ref.clear();
+		assertThat(a.get(), is("a"));
+		assertThat(b.get(), is("b"));
+		assertThat(c.get(), is("c"));
+		assertThat(swapper.cache.getMissCount(), is(3L));
+	}
+	
+	/**
+	 * 最大合計バイト長を超えた場合、合計バイト長が上限以下となるまでエントリが追い出されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_バイト長による追い出し() throws Exception {
+		swapper.setCache(new SwapCache(0, 1000L));
+		SwapObject<byte[]> small1 = new SwapObject<byte[]>(new byte[100], SwapCodecs.byteArray(), swapper);
+		SwapObject<byte[]> small2 = new SwapObject<byte[]>(new byte[100], SwapCodecs.byteArray(), swapper);
+		assertThat(swapper.cache.getSize(), is(2));
+		assertThat(swapper.cache.getBytes(), is(200L));
+		
+		// 大きなオブジェクトの追加で、古いエントリが追い出される
+		SwapObject<byte[]> large = new SwapObject<byte[]>(new byte[850], SwapCodecs.byteArray(), swapper);
+		assertThat(swapper.cache.getSize(), is(2));
+		assertThat(swapper.cache.getBytes(), is(950L));
+		
+		// 上限を超える単独のオブジェクトはキャッシュされない
+		new SwapObject<byte[]>(new byte[2000], SwapCodecs.byteArray(), swapper);
+		assertThat(swapper.cache.getSize(), is(0));
+		assertThat(swapper.cache.getBytes(), is(0L));
+		
+		small1.ref.clear();
+		small2.ref.clear();
+		large.ref.clear();
+		assertThat(small1.get().length, is(100));
+		assertThat(large.get().length, is(850));
+	}
+	
+	/**
+	 * キャッシュのヒット/ミス回数が記録されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_ヒットとミスの回数() throws Exception {
+		swapper.setCache(new SwapCache(10, 0L));
+		SwapObject<String> swapObj = new SwapObject<String>("fizzbuzz", SwapCodecs.<String> serializable(), swapper);
+		
+		assertThat(swapObj.get(), is("fizzbuzz"));
+		assertThat(swapObj.get(), is("fizzbuzz"));
+		assertThat(swapper.cache.getHitCount(), is(2L));
+		assertThat(swapper.cache.getMissCount(), is(0L));
+		
+		swapObj.ref.clear();
+		assertThat(swapObj.get(), is("fizzbuzz"));
+		assertThat(swapper.cache.getHitCount(), is(2L));
+		assertThat(swapper.cache.getMissCount(), is(1L));
+		
+		// キャッシュが無効の場合も回数は記録される
+		swapper.setCache(new SwapCache(0, 0L));
+		assertThat(swapObj.get(), is("fizzbuzz"));
+		assertThat(swapper.cache.getHitCount(), is(1L));
+		assertThat(swapper.cache.getSize(), is(0));
+	}
+	
+	/**
+	 * キャッシュ済みの RealObject へのヒットが、キャッシュのロックを取得しないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_ロックを取得しないヒット() throws Exception {
+		swapper.setCache(new SwapCache(2, 0L));
+		final SwapObject<String> a = new SwapObject<String>("a", SwapCodecs.<String> serializable(), swapper);
+		SwapObject<String> b = new SwapObject<String>("b", SwapCodecs.<String> serializable(), swapper);
+		
+		FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+			
+			public String call() throws Exception {
+				return a.get();
+			}
+		});
+		synchronized (swapper.cache) {
+			new Thread(task).start();
+			assertThat(task.get(5, TimeUnit.SECONDS), is("a"));
+		}
+		assertThat(swapper.cache.getHitCount(), is(1L));
+		
+		// 追加や追い出しは従来どおり行われる
+		new SwapObject<String>("c", SwapCodecs.<String> serializable(), swapper);
+		assertThat(swapper.cache.getSize(), is(2));
+		assertThat(b.get(), is("b"));
+		assertThat(swapper.cache.getSize(), is(2));
+		assertThat(swapper.cache.getHitCount(), is(2L));
+	}
+	
+	/**
+	 * 最大合計バイト長を超えた場合、使用されていないエントリのうち大きなものが先に追い出されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_大きなエントリの優先的な追い出し() throws Exception {
+		swapper.setCache(new SwapCache(0, 1000L));
+		SwapObject<byte[]> small1 = new SwapObject<byte[]>(new byte[100], SwapCodecs.byteArray(), swapper);
+		SwapObject<byte[]> large = new SwapObject<byte[]>(new byte[500], SwapCodecs.byteArray(), swapper);
+		SwapObject<byte[]> small2 = new SwapObject<byte[]>(new byte[100], SwapCodecs.byteArray(), swapper);
+		SwapObject<byte[]> small3 = new SwapObject<byte[]>(new byte[100], SwapCodecs.byteArray(), swapper);
+		assertThat(swapper.cache.getBytes(), is(800L));
+		
+		// 最も古いsmall1ではなく、largeが追い出される
+		new SwapObject<byte[]>(new byte[300], SwapCodecs.byteArray(), swapper);
+		assertThat(swapper.cache.getSize(), is(4));
+		assertThat(swapper.cache.getBytes(), is(600L));
+		
+		// 使用されたエントリは候補とならない
+		swapper.cache.clear();
+		small1.get();
+		large.get();
+		small2.get();
+		small3.get();
+		large.get();
+		new SwapObject<byte[]>(new byte[300], SwapCodecs.byteArray(), swapper);
+		assertThat(swapper.cache.getSize(), is(4));
+		assertThat(swapper.cache.getBytes(), is(1000L));
+	}
+	
+	/**
+	 * 複数のスレッドからのヒットが全て数えられ、スワップ情報の設定前のヒットで例外が発生しないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test06_並行したヒットの回数() throws Exception {
+		swapper.setCache(new SwapCache(10, 0L));
+		final SwapObject<String> swapObj = new SwapObject<String>("a", SwapCodecs.<String> serializable(), swapper);
+		
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			threads.add(new Thread(new Runnable() {
+				
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						swapper.cache.hit(swapObj.swapRef, "a");
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertThat(swapper.cache.getHitCount(), is(8000L));
+		
+		swapper.cache.hit(null, "b");
+		swapper.cache.put(null, "b");
+		assertThat(swapper.cache.getHitCount(), is(8001L));
+		assertThat(swapper.cache.getSize(), is(1));
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * {@link SwapCodecs}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class SwapCodecsTest {
+	
+	/**
+	 * プリミティブ配列のコーデックで変換と復元を行う。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_プリミティブ配列のコーデック() throws Exception {
+		byte[] bytes = new byte[] {
+			1,
+			2,
+			3
+		};
+		assertThat(Arrays.equals(roundTrip(SwapCodecs.byteArray(), bytes), bytes), is(true));
+		
+		char[] chars = "foobar".toCharArray();
+		assertThat(Arrays.equals(roundTrip(SwapCodecs.charArray(), chars), chars), is(true));
+		
+		int[] ints = new int[] {
+			Integer.MIN_VALUE,
+			0,
+			Integer.MAX_VALUE
+		};
+		assertThat(Arrays.equals(roundTrip(SwapCodecs.intArray(), ints), ints), is(true));
+		assertThat(SwapCodecs.intArray().encode(ints).remaining(), is(12));
+		
+		long[] longs = new long[] {
+			Long.MIN_VALUE,
+			0L,
+			Long.MAX_VALUE
+		};
+		assertThat(Arrays.equals(roundTrip(SwapCodecs.longArray(), longs), longs), is(true));
+		
+		double[] doubles = new double[] {
+			-1.5,
+			0.0,
+			Math.PI
+		};
+		assertThat(Arrays.equals(roundTrip(SwapCodecs.doubleArray(), doubles), doubles), is(true));
+	}
+	
+	/**
+	 * {@link Externalizable}のコーデックで変換と復元を行い、標準のコーデックより短いバイト列になることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_Externalizableのコーデック() throws Exception {
+		Point point = new Point(3, 4);
+		SwapCodec<Point> codec = SwapCodecs.externalizable(Point.class);
+		
+		Point decoded = roundTrip(codec, point);
+		assertThat(decoded.x, is(3));
+		assertThat(decoded.y, is(4));
+		
+		int compact = codec.encode(point).remaining();
+		int standard = SwapCodecs.<Point> serializable().encode(point).remaining();
+		assertThat("compact=" + compact + ", standard=" + standard, compact, lessThan(standard));
+	}
+	
+	/**
+	 * 引数なしコンストラクタを持たないクラスを与えた場合のテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_引数なしコンストラクタを持たないクラス() throws Exception {
+		try {
+			SwapCodecs.externalizable(NoDefaultConstructor.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * コーデックを指定した{@link SwapObject}のスワップ処理を行う。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_コーデックを指定したスワップ処理() throws Exception {
+		int[] ints = new int[] {
+			1,
+			2,
+			3
+		};
+		SwapObject<int[]> swapObj = new SwapObject<int[]>(ints, SwapCodecs.intArray());
+		swapObj.ref.clear();
+		assertThat(Arrays.equals(swapObj.get(), ints), is(true));
+		
+		SwapObject<Point> swapObj2 = new SwapObject<Point>(new Point(1, 2), SwapCodecs.externalizable(Point.class));
+		swapObj2.ref.clear();
+		assertThat(swapObj2.get().x, is(1));
+		assertThat(swapObj2.get().y, is(2));
+	}
+	
+	private <T extends Serializable>T roundTrip(SwapCodec<T> codec, T obj) throws Exception {
+		return codec.decode(codec.encode(obj));
+	}
+	
+
+	/**
+	 * テスト用の{@link Externalizable}実装。
+	 */
+	public static class Point implements Externalizable {
+		
+		int x;
+		
+		int y;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 */
+		public Point() {
+		}
+		
+		Point(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+		
+		public void readExternal(ObjectInput in) throws IOException {
+			x = in.readInt();
+			y = in.readInt();
+		}
+		
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeInt(x);
+			out.writeInt(y);
+		}
+	}
+	
+	/**
+	 * 引数なしコンストラクタを持たない{@link Externalizable}実装。
+	 */
+	public static class NoDefaultConstructor extends Point {
+		
+		/**
+		 * インスタンスを生成する。
+		 * 
+		 * @param x x
+		 */
+		public NoDefaultConstructor(int x) {
+			super(x, 0);
+		}
+	}
+	
+}
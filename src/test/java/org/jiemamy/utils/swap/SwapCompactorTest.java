@@ -0,0 +1,306 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SwapCompactor}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class SwapCompactorTest {
+	
+	private static final int COUNT = 100;
+	
+	private static final int LENGTH = 1000;
+	
+	/** ヘッダを含む1つの領域のバイト長 */
+	private static final int EXTENT_LENGTH = LENGTH + ExtentHeader.LENGTH;
+	
+
+	private static byte[] createBytes(int i) {
+		byte[] bytes = new byte[LENGTH];
+		Arrays.fill(bytes, (byte) i);
+		return bytes;
+	}
+	
+
+	private Swapper swapper;
+	
+	private List<SwapObject<byte[]>> swapObjs;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		swapper = new Swapper(new FileChannelStorage(Swapper.createSwapFile()));
+		swapObjs = new ArrayList<SwapObject<byte[]>>();
+		for (int i = 0; i < COUNT; i++) {
+			swapObjs.add(new SwapObject<byte[]>(createBytes(i), SwapCodecs.byteArray(), swapper));
+		}
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		swapper.close();
+	}
+	
+	/**
+	 * ファイルの途中の空き領域が、コンパクションによって回収されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_コンパクション() throws Exception {
+		// 偶数番目を解放しても、ファイルは縮小されない
+		discardEven();
+		assertThat(swapper.size(), is((long) COUNT * EXTENT_LENGTH));
+		assertThat(swapper.liveBytes(), is((long) COUNT * EXTENT_LENGTH / 2));
+		
+		assertThat(swapper.compact(), is((long) COUNT * EXTENT_LENGTH / 2));
+		assertThat(swapper.size(), is((long) COUNT * EXTENT_LENGTH / 2));
+		assertThat(swapper.shards[0].allocator.getFreeBlockCount(), is(0));
+		
+		assertOddObjects();
+	}
+	
+	/**
+	 * 断片化率が閾値を超えた場合、自動的にコンパクションが行われることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_自動コンパクション() throws Exception {
+		discardEven();
+		swapper.enableCompaction(0.3);
+		
+		long deadline = System.currentTimeMillis() + 5000;
+		while (swapper.size() > COUNT * EXTENT_LENGTH / 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(swapper.size(), is((long) COUNT * EXTENT_LENGTH / 2));
+		
+		assertOddObjects();
+	}
+	
+	/**
+	 * 断片化率が閾値以下の場合、自動コンパクションが行われないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_閾値以下の断片化() throws Exception {
+		swapper.enableCompaction(0.9);
+		discardEven();
+		
+		Thread.sleep(100);
+		assertThat(swapper.size(), is((long) COUNT * EXTENT_LENGTH));
+		synchronized (swapper.shards[0]) {
+			assertThat(SwapCompactor.getFragmentation(swapper.shards[0]), is(0.5));
+		}
+	}
+	
+	/**
+	 * コンパクション中も、他のスレッドから正しく読み込めることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_コンパクション中の読み込み() throws Exception {
+		discardEven();
+		
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicInteger errors = new AtomicInteger();
+		Thread reader = new Thread() {
+			
+			@Override
+			public void run() {
+				while (running.get()) {
+					for (int i = 1; i < COUNT; i += 2) {
+						SwapObject<byte[]> swapObj = swapObjs.get(i);
+						try {
+							synchronized (swapObj) {
+								swapObj.ref.clear();
+								if (Arrays.equals(swapObj.get(), createBytes(i)) == false) {
+									errors.incrementAndGet();
+								}
+							}
+						} catch (SwapException e) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			}
+		};
+		reader.start();
+		try {
+			swapper.compact();
+		} finally {
+			running.set(false);
+			reader.join();
+		}
+		assertThat(errors.get(), is(0));
+		assertThat(swapper.size(), lessThan((long) COUNT * EXTENT_LENGTH));
+		assertOddObjects();
+	}
+	
+	/**
+	 * 最初の書き込みが完了していない領域が、コンパクションによって移動されないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_書き込み中の領域のコンパクション() throws Exception {
+		final SlowWriteStorage storage = new SlowWriteStorage(new FileChannelStorage(Swapper.createSwapFile()));
+		final Swapper slowSwapper = new Swapper(storage);
+		try {
+			List<SwapObject<byte[]>> objs = new ArrayList<SwapObject<byte[]>>();
+			for (int i = 0; i < 10; i++) {
+				objs.add(new SwapObject<byte[]>(createBytes(i), SwapCodecs.byteArray(), slowSwapper));
+			}
+			
+			// ファイル終端に割り当てられた領域への書き込みを止める
+			storage.armed.set(true);
+			final AtomicReference<SwapObject<byte[]>> created = new AtomicReference<SwapObject<byte[]>>();
+			final AtomicReference<SwapException> failure = new AtomicReference<SwapException>();
+			Thread writer = new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						created.set(new SwapObject<byte[]>(createBytes(100), SwapCodecs.byteArray(), slowSwapper));
+					} catch (SwapException e) {
+						failure.set(e);
+					}
+				}
+			};
+			writer.start();
+			storage.entered.await();
+			
+			// 前方に空き領域を作り、書き込み中にコンパクションする
+			for (int i = 0; i < 5; i++) {
+				slowSwapper.referenceModified(new ReferenceEvent(objs.get(i).swapRef));
+			}
+			slowSwapper.compact();
+			
+			storage.proceed.countDown();
+			writer.join();
+			if (failure.get() != null) {
+				throw failure.get();
+			}
+			
+			SwapObject<byte[]> swapObj = created.get();
+			swapObj.ref.clear();
+			assertThat(Arrays.equals(swapObj.get(), createBytes(100)), is(true));
+			for (int i = 5; i < 10; i++) {
+				objs.get(i).ref.clear();
+				assertThat(Arrays.equals(objs.get(i).get(), createBytes(i)), is(true));
+			}
+		} finally {
+			storage.proceed.countDown();
+			slowSwapper.close();
+		}
+	}
+	
+	/**
+	 * コンパクション中に実行時例外が発生しても、自動コンパクションが継続されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test06_コンパクション中の実行時例外() throws Exception {
+		final AtomicBoolean broken = new AtomicBoolean(true);
+		SwapStorage storage = new SlowWriteStorage(new FileChannelStorage(Swapper.createSwapFile())) {
+			
+			@Override
+			public ByteBuffer read(Extent extent) throws IOException {
+				if (broken.compareAndSet(true, false)) {
+					throw new IllegalStateException("broken");
+				}
+				return super.read(extent);
+			}
+		};
+		Swapper brokenSwapper = new Swapper(storage);
+		try {
+			List<SwapObject<byte[]>> objs = new ArrayList<SwapObject<byte[]>>();
+			for (int i = 0; i < 10; i++) {
+				objs.add(new SwapObject<byte[]>(createBytes(i), SwapCodecs.byteArray(), brokenSwapper));
+			}
+			for (int i = 0; i < 3; i++) {
+				brokenSwapper.referenceModified(new ReferenceEvent(objs.get(i).swapRef));
+			}
+			brokenSwapper.enableCompaction(0.2);
+			
+			// 失敗した移動の取り消しによる要求で、再度コンパクションされる
+			long deadline = System.currentTimeMillis() + 5000;
+			while (brokenSwapper.size() > 7L * EXTENT_LENGTH && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertThat(broken.get(), is(false));
+			assertThat(brokenSwapper.size(), is(7L * EXTENT_LENGTH));
+			for (int i = 3; i < 10; i++) {
+				objs.get(i).ref.clear();
+				assertThat(Arrays.equals(objs.get(i).get(), createBytes(i)), is(true));
+			}
+		} finally {
+			brokenSwapper.close();
+		}
+	}
+	
+	private void assertOddObjects() throws SwapException {
+		for (int i = 1; i < COUNT; i += 2) {
+			SwapObject<byte[]> swapObj = swapObjs.get(i);
+			swapObj.ref.clear();
+			assertThat(Arrays.equals(swapObj.get(), createBytes(i)), is(true));
+		}
+	}
+	
+	private void discardEven() {
+		for (int i = 0; i < COUNT; i += 2) {
+			swapper.referenceModified(new ReferenceEvent(swapObjs.get(i).swapRef));
+		}
+	}
+	
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SwapIndex}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class SwapIndexTest {
+	
+	private File directory;
+	
+	private SwapStoreConfig config;
+	
+	private SwapStore store;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		directory = new File(System.getProperty("java.io.tmpdir"), "jiemamy-swap-" + System.nanoTime());
+		config = new SwapStoreConfig();
+		config.setPersistent(true);
+		config.setShardCount(2);
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (store != null && store.isDisposed() == false) {
+			store.dispose();
+		}
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+	
+	/**
+	 * スワップストアを開き直した後に、キーを指定して{@link SwapObject}を再接続できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_再接続() throws Exception {
+		store = new SwapStore(directory, config);
+		for (int i = 0; i < 10; i++) {
+			SwapObject<String> swapObj = new SwapObject<String>("value" + i, store);
+			if (i % 2 == 0) {
+				store.bind("key" + i, swapObj);
+			}
+		}
+		store.dispose();
+		assertThat(SwapIndex.getDataFile(directory, 0).exists(), is(true));
+		assertThat(new File(directory, SwapIndex.INDEX_FILE_NAME).exists(), is(true));
+		
+		store = new SwapStore(directory, config);
+		assertThat(store.getKeys(), is((Object) new HashSet<String>(Arrays.asList("key0", "key2", "key4", "key6",
+				"key8"))));
+		for (int i = 0; i < 10; i += 2) {
+			SwapObject<String> swapObj = store.attach("key" + i);
+			assertThat(swapObj.get(), is("value" + i));
+			assertThat(store.<String> attach("key" + i), is(swapObj));
+		}
+		assertThat(store.<String> attach("key1"), is(nullValue()));
+		assertThat(store.getStatistics().getObjectCount(), is(5L));
+	}
+	
+	/**
+	 * インデックスが参照している領域は、更新されても次のインデックスの書き込みまで上書きされないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_インデックスが参照する領域の保護() throws Exception {
+		config.setShardCount(1);
+		store = new SwapStore(directory, config);
+		SwapObject<String> swapObj = new SwapObject<String>("old", store);
+		store.bind("key", swapObj);
+		store.sync();
+		long committed = store.getLiveBytes();
+		
+		swapObj.update("new");
+		assertThat(store.getLiveBytes() > committed, is(true));
+		List<SwapObject<String>> others = new ArrayList<SwapObject<String>>();
+		for (int i = 0; i < 10; i++) {
+			others.add(new SwapObject<String>("other" + i, store));
+		}
+		
+		// インデックスを書き出さずに異常終了した状態を、ファイルの複製を開いて再現する
+		File copy = new File(System.getProperty("java.io.tmpdir"), "jiemamy-swap-" + System.nanoTime());
+		copy.mkdirs();
+		copy(SwapIndex.getDataFile(directory, 0), SwapIndex.getDataFile(copy, 0));
+		copy(new File(directory, SwapIndex.INDEX_FILE_NAME), new File(copy, SwapIndex.INDEX_FILE_NAME));
+		SwapStore crashed = new SwapStore(copy, config);
+		try {
+			assertThat(crashed.<String> attach("key").get(), is("old"));
+		} finally {
+			crashed.swapper.close();
+			for (File file : copy.listFiles()) {
+				file.delete();
+			}
+			copy.delete();
+		}
+		
+		// 書き込み後に、古い領域が解放される
+		long beforeSync = store.getLiveBytes();
+		store.sync();
+		assertThat(store.getLiveBytes(), is(beforeSync - committed));
+		assertThat(store.<String> attach("key").get(), is("new"));
+		assertThat(others.size(), is(10));
+	}
+	
+	/**
+	 * キーの束縛を解いた領域が、インデックスの書き込み後に解放されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_束縛の解除() throws Exception {
+		store = new SwapStore(directory, config);
+		SwapObject<String> swapObj = new SwapObject<String>("foo", store);
+		store.bind("foo", swapObj);
+		store.bind("bar", new SwapObject<String>("bar", store));
+		store.dispose();
+		
+		store = new SwapStore(directory, config);
+		long before = store.getLiveBytes();
+		assertThat(store.unbind("foo"), is(true));
+		assertThat(store.unbind("foo"), is(false));
+		assertThat(store.getLiveBytes(), is(before));
+		
+		store.sync();
+		assertThat(store.getLiveBytes() < before, is(true));
+		assertThat(store.getKeys(), is((Object) new HashSet<String>(Arrays.asList("bar"))));
+	}
+	
+	/**
+	 * 破損したインデックスファイルを読み込むと、{@link SwapException}が発生することを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_破損したインデックス() throws Exception {
+		store = new SwapStore(directory, config);
+		store.bind("foo", new SwapObject<String>("foo", store));
+		store.dispose();
+		
+		RandomAccessFile file = new RandomAccessFile(new File(directory, SwapIndex.INDEX_FILE_NAME), "rw");
+		try {
+			file.seek(20);
+			file.write(0xFF);
+		} finally {
+			file.close();
+		}
+		
+		try {
+			store = new SwapStore(directory, config);
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		
+		config.setShardCount(3);
+		try {
+			store = new SwapStore(directory, config);
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * エクスポートした{@link SwapObject}を、シャード数と圧縮の設定が異なるスワップストアへインポートできることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_エクスポートとインポート() throws Exception {
+		config.setCompressionEnabled(true);
+		store = new SwapStore(directory, config);
+		for (int i = 0; i < 20; i++) {
+			store.bind("key" + i, new SwapObject<String>(value(i), store));
+		}
+		new SwapObject<String>("unbound", store);
+		File exported = new File(System.getProperty("java.io.tmpdir"), "jiemamy-swap-" + System.nanoTime() + ".exp");
+		File other = new File(System.getProperty("java.io.tmpdir"), "jiemamy-swap-" + System.nanoTime());
+		try {
+			assertThat(store.exportTo(exported), is(20));
+			
+			SwapStoreConfig otherConfig = new SwapStoreConfig();
+			otherConfig.setPersistent(true);
+			otherConfig.setShardCount(3);
+			SwapStore imported = new SwapStore(other, otherConfig);
+			imported.bind("key0", new SwapObject<String>("replaced", imported));
+			assertThat(imported.importFrom(exported), is(20));
+			imported.dispose();
+			
+			// インデックスに書き出され、開き直した後も取得できる
+			imported = new SwapStore(other, otherConfig);
+			try {
+				assertThat(imported.getKeys().size(), is(20));
+				for (int i = 0; i < 20; i++) {
+					assertThat(imported.<String> attach("key" + i).get(), is(value(i)));
+				}
+			} finally {
+				imported.dispose();
+			}
+		} finally {
+			exported.delete();
+			for (File file : other.listFiles()) {
+				file.delete();
+			}
+			other.delete();
+		}
+	}
+	
+	/**
+	 * エクスポート中に更新やコンパクションが行われても、エクスポート開始時点の内容が書き出されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test06_エクスポート中の更新() throws Exception {
+		config.setShardCount(1);
+		store = new SwapStore(directory, config);
+		final SwapObject<String> swapObj = new SwapObject<String>("old", store);
+		store.bind("key", swapObj);
+		for (int i = 0; i < 10; i++) {
+			new SwapObject<String>("garbage" + i, store);
+		}
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final WritableByteChannel channel = Channels.newChannel(out);
+		WritableByteChannel updating = new WritableByteChannel() {
+			
+			private boolean updated;
+			
+
+			public void close() throws IOException {
+				channel.close();
+			}
+			
+			public boolean isOpen() {
+				return channel.isOpen();
+			}
+			
+			public int write(ByteBuffer src) throws IOException {
+				if (updated == false) {
+					updated = true;
+					try {
+						swapObj.update("new");
+						store.compact();
+					} catch (SwapException e) {
+						throw new IOException(e.getMessage());
+					}
+				}
+				return channel.write(src);
+			}
+		};
+		assertThat(store.exportTo(updating), is(1));
+		assertThat(store.<String> attach("key").get(), is("new"));
+		
+		// インポートすると、エクスポート開始時点の内容で束縛が置き換えられる
+		assertThat(store.importFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray()))), is(1));
+		assertThat(store.<String> attach("key").get(), is("old"));
+		
+		// 不正なデータはインポートできない
+		try {
+			store.importFrom(Channels.newChannel(new ByteArrayInputStream(new byte[16])));
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * メモリマップした記憶域を用いたスワップストアを開き直した後に、{@link SwapObject}を再接続できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test07_メモリマップした記憶域の再接続() throws Exception {
+		config.setMemoryMapped(true);
+		config.setSegmentSize(4096);
+		store = new SwapStore(directory, config);
+		for (int i = 0; i < 10; i++) {
+			store.bind("key" + i, new SwapObject<String>(value(i), store));
+		}
+		store.sync();
+		store.dispose();
+		
+		store = new SwapStore(directory, config);
+		for (int i = 0; i < 10; i++) {
+			assertThat(store.<String> attach("key" + i).get(), is(value(i)));
+		}
+	}
+	
+	/**
+	 * インデックスが参照している領域を持つ{@link SwapObject}の更新が失敗した場合に、
+	 * {@link SwapException}が発生し、元の内容が保たれることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test08_インデックスが参照する領域の更新の失敗() throws Exception {
+		config.setShardCount(1);
+		config.setMaxSize(400);
+		store = new SwapStore(directory, config);
+		SwapObject<String> swapObj = new SwapObject<String>("old", store);
+		store.bind("key", swapObj);
+		store.sync();
+		long committed = store.getLiveBytes();
+		
+		try {
+			swapObj.update(value(1));
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		assertThat(store.getLiveBytes(), is(committed));
+		
+		// 保留されていた解放が取り消されているため、書き込み後も領域は解放されない
+		store.sync();
+		assertThat(store.getLiveBytes(), is(committed));
+		swapObj.ref.clear();
+		assertThat(swapObj.get(), is("old"));
+		
+		swapObj.update("new");
+		store.sync();
+		assertThat(store.getLiveBytes(), is(committed));
+		assertThat(store.<String> attach("key").get(), is("new"));
+	}
+	
+	/**
+	 * 更新の書き込み中にインデックスを書き出した場合、インデックスが書き込みの完了していない領域を参照せず、
+	 * その時点で異常終了しても更新前の内容を復元できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test09_更新中のインデックスの書き出し() throws Exception {
+		config.setShardCount(1);
+		assertThat(directory.mkdirs(), is(true));
+		SlowWriteStorage storage = new SlowWriteStorage(new FileChannelStorage(SwapIndex.getDataFile(directory, 0)));
+		Swapper slowSwapper = new Swapper(storage);
+		SwapIndex index = new SwapIndex(new File(directory, SwapIndex.INDEX_FILE_NAME), slowSwapper);
+		File crashed = new File(System.getProperty("java.io.tmpdir"), "jiemamy-swap-crashed-" + System.nanoTime());
+		Thread updater = null;
+		try {
+			index.load();
+			final SwapObject<String> swapObj =
+					new SwapObject<String>("old", SwapCodecs.<String> serializable(), slowSwapper);
+			index.bind("key", swapObj);
+			index.write();
+			
+			// 更新の書き込みを止めた状態で、インデックスを書き出す
+			storage.armed.set(true);
+			final AtomicReference<SwapException> failure = new AtomicReference<SwapException>();
+			updater = new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						swapObj.update(value(1));
+					} catch (SwapException e) {
+						failure.set(e);
+					}
+				}
+			};
+			updater.start();
+			storage.entered.await();
+			index.write();
+			
+			// この時点で異常終了した場合のスワップファイルとインデックスから復元する
+			assertThat(crashed.mkdirs(), is(true));
+			copy(SwapIndex.getDataFile(directory, 0), SwapIndex.getDataFile(crashed, 0));
+			copy(new File(directory, SwapIndex.INDEX_FILE_NAME), new File(crashed, SwapIndex.INDEX_FILE_NAME));
+			SwapStore recovered = new SwapStore(crashed, config);
+			try {
+				assertThat(recovered.<String> attach("key").get(), is("old"));
+			} finally {
+				recovered.dispose();
+			}
+			
+			storage.proceed.countDown();
+			updater.join();
+			if (failure.get() != null) {
+				throw failure.get();
+			}
+			index.write();
+			swapObj.ref.clear();
+			assertThat(swapObj.get(), is(value(1)));
+		} finally {
+			storage.proceed.countDown();
+			if (updater != null) {
+				updater.join();
+			}
+			slowSwapper.close();
+			File[] files = crashed.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			crashed.delete();
+		}
+	}
+	
+	/**
+	 * 永続化されたスワップストアが使用しているディレクトリを、別のスワップストアで開けないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test10_ディレクトリのロック() throws Exception {
+		store = new SwapStore(directory, config);
+		store.bind("key", new SwapObject<String>("value", store));
+		try {
+			new SwapStore(directory, config);
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		store.dispose();
+		
+		// 破棄するとロックが解放される
+		store = new SwapStore(directory, config);
+		assertThat(store.<String> attach("key").get(), is("value"));
+	}
+	
+	/**
+	 * ヘッダのバイト長が不正なエクスポートを、バッファを確保せずに拒否することを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test11_不正なヘッダ長のインポート() throws Exception {
+		store = new SwapStore(directory, config);
+		for (int headerLength : new int[] {
+			SwapIndex.MAX_EXPORT_HEADER_LENGTH + 1,
+			Integer.MAX_VALUE - 4,
+			Integer.MAX_VALUE
+		}) {
+			ByteBuffer prefix = ByteBuffer.allocate(12);
+			prefix.putInt(0x4A535845).putInt(1).putInt(headerLength);
+			try {
+				store.importFrom(Channels.newChannel(new ByteArrayInputStream(prefix.array())));
+				fail();
+			} catch (SwapException e) {
+				// success
+			}
+		}
+	}
+	
+	private void copy(File src, File dest) throws IOException {
+		FileChannel in = new FileInputStream(src).getChannel();
+		try {
+			FileChannel out = new FileOutputStream(dest).getChannel();
+			try {
+				in.transferTo(0, in.size(), out);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+	
+	private String value(int i) {
+		StringBuilder sb = new StringBuilder();
+		for (int j = 0; j < i * 100; j++) {
+			sb.append("value").append(i);
+		}
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SwapObjects}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class SwapObjectsTest {
+	
+	private Swapper swapper;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		swapper = new Swapper(new FileChannelStorage(Swapper.createSwapFile()));
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		swapper.close();
+	}
+	
+	/**
+	 * まとめてスワップしたオブジェクトが、連続した領域に格納されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_連続した領域へのスワップ() throws Exception {
+		List<String> objs = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			objs.add("value" + i);
+		}
+		List<SwapObject<String>> swapObjs = SwapObjects.swapAll(objs, SwapCodecs.<String> serializable(), swapper);
+		assertThat(swapObjs.size(), is(objs.size()));
+		
+		long position = 0L;
+		for (SwapObject<String> swapObj : swapObjs) {
+			assertThat(swapObj.swapRef.extent.position, is(position));
+			position = swapObj.swapRef.extent.end();
+		}
+		assertThat(swapper.size(), is(position));
+		assertThat(swapper.shards[0].allocator.getFreeBlockCount(), is(0));
+		
+		for (int i = 0; i < swapObjs.size(); i++) {
+			SwapObject<String> swapObj = swapObjs.get(i);
+			swapObj.ref.clear();
+			assertThat(swapObj.get(), is("value" + i));
+		}
+	}
+	
+	/**
+	 * 圧縮を有効にした場合も、まとめてスワップできることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_圧縮したスワップ() throws Exception {
+		swapper.setCompressor(new DeflateCompressor(Deflater.BEST_SPEED));
+		List<ArrayList<String>> objs = new ArrayList<ArrayList<String>>();
+		for (int i = 0; i < 200; i++) {
+			ArrayList<String> model = new ArrayList<String>();
+			for (int j = 0; j < 50; j++) {
+				model.add("column" + (j % 5) + "-" + i);
+			}
+			objs.add(model);
+		}
+		List<SwapObject<ArrayList<String>>> swapObjs =
+				SwapObjects.swapAll(objs, SwapCodecs.<ArrayList<String>> serializable(), swapper);
+		
+		for (int i = 0; i < swapObjs.size(); i++) {
+			SwapObject<ArrayList<String>> swapObj = swapObjs.get(i);
+			assertThat(swapObj.swapRef.extent.isCompressed(), is(true));
+			swapObj.ref.clear();
+			assertThat(swapObj.get(), is(objs.get(i)));
+		}
+	}
+	
+	/**
+	 * 空のコレクションを与えた場合、空のリストが返ることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_空のコレクション() throws Exception {
+		List<SwapObject<String>> swapObjs =
+				SwapObjects.swapAll(Collections.<String> emptyList(), SwapCodecs.<String> serializable(), swapper);
+		assertThat(swapObjs.isEmpty(), is(true));
+		assertThat(swapper.size(), is(0L));
+	}
+	
+	/**
+	 * シリアライズに失敗した場合、{@link SwapException}がスローされることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_シリアライズの失敗() throws Exception {
+		List<String> objs = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			objs.add(i == 77 ? "broken" : "value" + i);
+		}
+		SwapCodec<String> codec = new SwapCodec<String>() {
+			
+			public String decode(ByteBuffer buffer) {
+				throw new UnsupportedOperationException();
+			}
+			
+			public ByteBuffer encode(String obj) throws IOException {
+				if (obj.equals("broken")) {
+					throw new IOException(obj);
+				}
+				return ByteBuffer.wrap(obj.getBytes("UTF-8"));
+			}
+		};
+		try {
+			SwapObjects.swapAll(objs, codec, swapper);
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		assertThat(swapper.size(), is(0L));
+	}
+	
+}
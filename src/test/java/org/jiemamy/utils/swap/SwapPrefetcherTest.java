@@ -0,0 +1,224 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SwapPrefetcher}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class SwapPrefetcherTest {
+	
+	private CountingStorage storage;
+	
+	private Swapper swapper;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		storage = new CountingStorage(new FileChannelStorage(Swapper.createSwapFile()));
+		swapper = new Swapper(storage);
+		swapper.setCache(new SwapCache(1000, 0L));
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		swapper.close();
+	}
+	
+	/**
+	 * 連続した領域の先読みが、1回の読み込みで行われることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_連続した領域の先読み() throws Exception {
+		List<String> objs = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			objs.add("value" + i);
+		}
+		List<SwapObject<String>> swapObjs = SwapObjects.swapAll(objs, SwapCodecs.<String> serializable(), swapper);
+		for (SwapObject<String> swapObj : swapObjs) {
+			swapObj.ref.clear();
+		}
+		
+		// 逆順に要求しても、位置順に並べて読み込む
+		List<SwapObject<?>> request = new ArrayList<SwapObject<?>>(swapObjs);
+		Collections.reverse(request);
+		assertThat(SwapPrefetcher.prefetch(swapper, request, null), is(100));
+		assertThat(storage.readCount.get(), is(1));
+		
+		for (int i = 0; i < swapObjs.size(); i++) {
+			assertThat(swapObjs.get(i).get(), is("value" + i));
+		}
+		assertThat(storage.readCount.get(), is(1));
+		assertThat(swapper.cache.getMissCount(), is(100L));
+		assertThat(swapper.cache.getHitCount(), is(100L));
+	}
+	
+	/**
+	 * 離れた領域は、別の読み込みに分けられることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_離れた領域の先読み() throws Exception {
+		List<SwapObject<?>> swapObjs = new ArrayList<SwapObject<?>>();
+		List<SwapObject<byte[]>> fillers = new ArrayList<SwapObject<byte[]>>();
+		for (int i = 0; i < 5; i++) {
+			swapObjs.add(new SwapObject<String>("value" + i, SwapCodecs.<String> serializable(), swapper));
+			fillers.add(new SwapObject<byte[]>(new byte[SwapPrefetcher.MAX_GAP + 1], SwapCodecs.byteArray(), swapper));
+		}
+		for (SwapObject<?> swapObj : swapObjs) {
+			swapObj.ref.clear();
+		}
+		
+		assertThat(SwapPrefetcher.prefetch(swapper, swapObjs, null), is(5));
+		assertThat(storage.readCount.get(), is(5));
+		assertThat(fillers.size(), is(5));
+	}
+	
+	/**
+	 * RealObject へ到達可能な{@link SwapObject}は先読みされないことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_到達可能なオブジェクト() throws Exception {
+		SwapObject<String> swapObj = new SwapObject<String>("foo", SwapCodecs.<String> serializable(), swapper);
+		
+		List<SwapObject<?>> request = new ArrayList<SwapObject<?>>();
+		request.add(swapObj);
+		assertThat(SwapPrefetcher.prefetch(swapper, request, null), is(0));
+		assertThat(storage.readCount.get(), is(0));
+	}
+	
+	/**
+	 * 複数のスワップストアにまたがる{@link SwapObject}を、並行して先読みできることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_並行した先読み() throws Exception {
+		Swapper other = new Swapper(new FileChannelStorage(Swapper.createSwapFile()));
+		try {
+			List<SwapObject<byte[]>> swapObjs = new ArrayList<SwapObject<byte[]>>();
+			for (int i = 0; i < 20; i++) {
+				byte[] bytes = new byte[SwapPrefetcher.MAX_GAP + 1];
+				Arrays.fill(bytes, (byte) i);
+				swapObjs.add(new SwapObject<byte[]>(bytes, SwapCodecs.byteArray(), i % 2 == 0 ? swapper : other));
+				new SwapObject<byte[]>(new byte[SwapPrefetcher.MAX_GAP + 1], SwapCodecs.byteArray(), swapper);
+			}
+			for (SwapObject<byte[]> swapObj : swapObjs) {
+				swapObj.ref.clear();
+			}
+			
+			assertThat(SwapObjects.prefetch(swapObjs), is(20));
+			for (int i = 0; i < swapObjs.size(); i++) {
+				assertThat(swapObjs.get(i).get()[0], is((byte) i));
+			}
+		} finally {
+			other.close();
+		}
+	}
+	
+
+	/**
+	 * 読み込み回数を数える記憶域。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static class CountingStorage implements SwapStorage {
+		
+		final SwapStorage delegate;
+		
+		final AtomicInteger readCount = new AtomicInteger();
+		
+
+		CountingStorage(SwapStorage delegate) {
+			this.delegate = delegate;
+		}
+		
+		public void close() throws IOException {
+			delegate.close();
+		}
+		
+		public void force() throws IOException {
+			delegate.force();
+		}
+		
+		public ByteBuffer read(Extent extent) throws IOException {
+			readCount.incrementAndGet();
+			return delegate.read(extent);
+		}
+		
+		public long size() throws IOException {
+			return delegate.size();
+		}
+		
+		public void transferFrom(ReadableByteChannel source, Extent extent) throws IOException {
+			delegate.transferFrom(source, extent);
+		}
+		
+		public void transferTo(Extent extent, WritableByteChannel target) throws IOException {
+			delegate.transferTo(extent, target);
+		}
+		
+		public void truncate(long size) throws IOException {
+			delegate.truncate(size);
+		}
+		
+		public void write(ByteBuffer buffer, long position) throws IOException {
+			delegate.write(buffer, position);
+		}
+		
+		public void write(ByteBuffer[] buffers, long position) throws IOException {
+			delegate.write(buffers, position);
+		}
+	}
+}
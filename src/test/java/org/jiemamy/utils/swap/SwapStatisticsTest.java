@@ -0,0 +1,210 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SwapStatistics}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class SwapStatisticsTest {
+	
+	private File directory;
+	
+	private SwapStore store;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		directory = new File(System.getProperty("java.io.tmpdir"), "jiemamy-swap-" + System.nanoTime());
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (store != null && store.isDisposed() == false) {
+			store.dispose();
+		}
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+	
+	/**
+	 * ヒストグラムのバケットが、処理時間を約12.5%の精度で集計することを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_ヒストグラムのバケット() throws Exception {
+		long[] values = {
+			0L,
+			1L,
+			7L,
+			8L,
+			15L,
+			16L,
+			1000L,
+			123456789L,
+			Long.MAX_VALUE
+		};
+		for (long value : values) {
+			int bucket = LatencyHistogram.bucketOf(value);
+			assertThat(bucket, lessThanOrEqualTo(LatencyHistogram.BUCKET_COUNT - 1));
+			long upper = LatencyHistogram.upperBoundOf(bucket);
+			assertThat(upper, greaterThanOrEqualTo(value));
+			assertThat((double) upper, lessThanOrEqualTo(value * 1.125 + 1));
+		}
+		
+		LatencyRecorder recorder = new LatencyRecorder();
+		for (int i = 1; i <= 100; i++) {
+			recorder.record(i * 1000L);
+		}
+		LatencyHistogram histogram = recorder.snapshot();
+		assertThat(histogram.getCount(), is(100L));
+		assertThat(histogram.getMaxNanos(), is(100000L));
+		assertThat(histogram.getMeanNanos(), is(50500.0));
+		assertThat(histogram.getMedianNanos(), greaterThanOrEqualTo(50000L));
+		assertThat((double) histogram.getMedianNanos(), lessThanOrEqualTo(50000 * 1.125));
+		assertThat(histogram.getPercentile99Nanos(), greaterThanOrEqualTo(99000L));
+		assertThat(histogram.getPercentileNanos(100.0), is(100000L));
+	}
+	
+	/**
+	 * スワップ処理に応じて統計情報が更新されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_統計情報() throws Exception {
+		store = new SwapStore(directory);
+		List<SwapObject<String>> swapObjs = new ArrayList<SwapObject<String>>();
+		for (int i = 0; i < 10; i++) {
+			swapObjs.add(new SwapObject<String>("value" + i, store));
+		}
+		for (SwapObject<String> swapObj : swapObjs) {
+			swapObj.get();
+		}
+		swapObjs.get(0).ref.clear();
+		swapObjs.get(0).get();
+		
+		SwapStatistics statistics = store.getStatistics();
+		assertThat(statistics.getObjectCount(), is(10L));
+		assertThat(statistics.getFileSize(), is(statistics.getLiveBytes()));
+		assertThat(statistics.getCacheHitCount(), is(10L));
+		assertThat(statistics.getCacheMissCount(), is(1L));
+		assertThat(statistics.getCacheHitRate(), is(10.0 / 11.0));
+		assertThat(statistics.getReferenceQueueBacklog(), is(0));
+		assertThat(statistics.getPendingWriteCount(), is(0));
+		assertThat(statistics.getSerializeLatency().getCount(), is(10L));
+		assertThat(statistics.getDeserializeLatency().getCount(), is(1L));
+		
+		// 弱参照が切れ、まだ解放されていないスワップ情報は未処理数に数えられる
+		swapObjs.get(1).swapRef.clear();
+		assertThat(store.getStatistics().getReferenceQueueBacklog(), is(1));
+	}
+	
+	/**
+	 * MXBean がプラットフォーム MBean サーバに登録され、破棄時に登録解除されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_MXBeanの登録() throws Exception {
+		SwapStoreConfig config = new SwapStoreConfig();
+		config.setJmxEnabled(true);
+		store = new SwapStore(directory, config);
+		new SwapObject<String>("fizzbuzz", store).get();
+		
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = store.mbeanName;
+		assertThat(name.getKeyProperty("name"), is(ObjectName.quote(directory.getCanonicalPath())));
+		assertThat(server.isRegistered(name), is(true));
+		assertThat((Long) server.getAttribute(name, "FileSize"), greaterThan(0L));
+		
+		CompositeData statistics = (CompositeData) server.getAttribute(name, "Statistics");
+		assertThat((Long) statistics.get("cacheHitCount"), is(1L));
+		CompositeData serializeLatency = (CompositeData) statistics.get("serializeLatency");
+		assertThat((Long) serializeLatency.get("count"), greaterThanOrEqualTo(1L));
+		
+		store.dispose();
+		assertThat(server.isRegistered(name), is(false));
+	}
+	
+	/**
+	 * 同じ名前のスワップファイルを持つ複数のスワップストアが、それぞれ MXBean を登録できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_複数のスワップストアのMXBean() throws Exception {
+		SwapStoreConfig config = new SwapStoreConfig();
+		config.setJmxEnabled(true);
+		config.setPersistent(true);
+		store = new SwapStore(directory, config);
+		File otherDirectory = new File(directory.getPath() + "-other");
+		SwapStore other = new SwapStore(otherDirectory, config);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertThat(server.isRegistered(store.mbeanName), is(true));
+			assertThat(server.isRegistered(other.mbeanName), is(true));
+			assertThat(store.mbeanName.equals(other.mbeanName), is(false));
+		} finally {
+			other.dispose();
+			for (File file : otherDirectory.listFiles()) {
+				file.delete();
+			}
+			otherDirectory.delete();
+		}
+	}
+	
+}
\ No newline at end of file
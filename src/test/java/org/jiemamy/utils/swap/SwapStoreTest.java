@@ -0,0 +1,280 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SwapStore}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class SwapStoreTest {
+	
+	private File directory;
+	
+	private SwapStore store;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		directory = new File(System.getProperty("java.io.tmpdir"), "jiemamy-swap-" + System.nanoTime());
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (store != null && store.isDisposed() == false) {
+			store.dispose();
+		}
+		directory.delete();
+	}
+	
+	/**
+	 * 指定したディレクトリにスワップファイルを持つスワップストアでスワップ処理を行う。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_ディレクトリを指定したスワップストア() throws Exception {
+		store = new SwapStore(directory);
+		assertThat(directory.list().length, is(1));
+		
+		SwapObject<String> swapObj = new SwapObject<String>("foobar", store);
+		assertThat(store.getSize(), greaterThan(0L));
+		assertThat(swapObj.swapper, is(store.swapper));
+		
+		swapObj.ref.clear();
+		assertThat(swapObj.get(), is("foobar"));
+		
+		// デフォルトのスワップストアとは独立している
+		assertThat(store.swapper == SwapStore.getDefault().swapper, is(false));
+	}
+	
+	/**
+	 * 最大バイト長を超えるスワップが失敗することを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_最大バイト長() throws Exception {
+		SwapStoreConfig config = new SwapStoreConfig();
+		config.setMaxSize(1024L);
+		store = new SwapStore(directory, config);
+		
+		SwapObject<String> swapObj = new SwapObject<String>("foobar", store);
+		try {
+			new SwapObject<byte[]>(new byte[1024], SwapCodecs.byteArray(), store);
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		
+		// 更新に失敗しても、元の内容は保持される
+		ArrayList<String> large = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			large.add("foobar" + i);
+		}
+		SwapObject<ArrayList<String>> swapObj2 = new SwapObject<ArrayList<String>>(new ArrayList<String>(), store);
+		try {
+			swapObj2.update(large);
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		swapObj2.ref.clear();
+		assertThat(swapObj2.get().isEmpty(), is(true));
+		
+		swapObj.ref.clear();
+		assertThat(swapObj.get(), is("foobar"));
+	}
+	
+	/**
+	 * 破棄したスワップストアのテスト。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_破棄() throws Exception {
+		store = new SwapStore(directory);
+		SwapObject<String> swapObj = new SwapObject<String>("foobar", store);
+		
+		store.dispose();
+		assertThat(store.isDisposed(), is(true));
+		assertThat(directory.list().length, is(0));
+		
+		swapObj.ref.clear();
+		try {
+			swapObj.get();
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		try {
+			new SwapObject<String>("fizzbuzz", store);
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		try {
+			SwapStore.getDefault().dispose();
+			fail();
+		} catch (IllegalStateException e) {
+			// success
+		}
+	}
+	
+	/**
+	 * メモリマップと圧縮を有効にしたスワップストアでスワップ処理を行う。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_メモリマップと圧縮() throws Exception {
+		SwapStoreConfig config = new SwapStoreConfig();
+		config.setMemoryMapped(true);
+		config.setSegmentSize(4096);
+		config.setCompressionEnabled(true);
+		store = new SwapStore(directory, config);
+		
+		ArrayList<String> model = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			model.add("column" + (i % 10));
+		}
+		SwapObject<ArrayList<String>> swapObj = new SwapObject<ArrayList<String>>(model, store);
+		assertThat(swapObj.swapRef.extent.isCompressed(), is(true));
+		assertThat(store.getSize(), is(4096L));
+		
+		swapObj.ref.clear();
+		assertThat(swapObj.get(), is(model));
+	}
+	
+	/**
+	 * 複数のシャードを持つスワップストアに対して、複数のスレッドから並行してスワップ処理を行う。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_シャード分割と並行処理() throws Exception {
+		SwapStoreConfig config = new SwapStoreConfig();
+		config.setShardCount(4);
+		store = new SwapStore(directory, config);
+		assertThat(directory.list().length, is(4));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 8; t++) {
+				final int thread = t;
+				futures.add(executor.submit(new Callable<Boolean>() {
+					
+					public Boolean call() throws Exception {
+						List<SwapObject<String>> swapObjs = new ArrayList<SwapObject<String>>();
+						for (int i = 0; i < 200; i++) {
+							swapObjs.add(new SwapObject<String>("value-" + thread + "-" + i, store));
+						}
+						for (int i = 0; i < swapObjs.size(); i++) {
+							SwapObject<String> swapObj = swapObjs.get(i);
+							swapObj.ref.clear();
+							if (swapObj.get().equals("value-" + thread + "-" + i) == false) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> future : futures) {
+				assertThat(future.get(), is(true));
+			}
+		} finally {
+			executor.shutdown();
+		}
+		
+		int used = 0;
+		for (SwapShard shard : store.swapper.shards) {
+			if (shard.allocator.getLiveBytes() > 0) {
+				used++;
+			}
+		}
+		assertThat(used, greaterThan(1));
+		
+		store.dispose();
+		assertThat(directory.list().length, is(0));
+	}
+	
+	/**
+	 * ダイレクトバッファを使用するスワップストアでは、スワップファイルを生成せずにスワップ処理を行うことを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test06_ダイレクトバッファを使用するスワップストア() throws Exception {
+		SwapStoreConfig config = new SwapStoreConfig();
+		config.setOffHeap(true);
+		config.setSlabSize(4096);
+		config.setShardCount(2);
+		store = new SwapStore(directory, config);
+		assertThat(directory.exists(), is(false));
+		
+		List<SwapObject<String>> swapObjs = new ArrayList<SwapObject<String>>();
+		for (int i = 0; i < 100; i++) {
+			swapObjs.add(new SwapObject<String>("value" + i, store));
+		}
+		assertThat(store.getSize(), is(2L * 4096));
+		for (int i = 0; i < swapObjs.size(); i++) {
+			swapObjs.get(i).ref.clear();
+			assertThat(swapObjs.get(i).get(), is("value" + i));
+		}
+		
+		store.dispose();
+		try {
+			swapObjs.get(0).update("foo");
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+	}
+	
+}
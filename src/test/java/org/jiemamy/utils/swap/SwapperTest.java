@@ -23,7 +23,17 @@ import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -95,7 +105,7 @@ public class SwapperTest {
 		@SuppressWarnings("unused")
 		SwapObject<String> swapObj2 = new SwapObject<String>(str2);
 		
-		long currentSize = Swapper.INSTANCE.channel.size();
+		long currentSize = Swapper.INSTANCE.size();
 		
 		// スワップファイルの最後に記録されているであろうswapObj2の参照を切ってGC。
 		swapObj2 = null;
@@ -109,7 +119,7 @@ public class SwapperTest {
 			// see. http://d.hatena.ne.jp/Ewigkeit/20080823/1219463052
 			Thread.sleep(1000L);
 			
-			newSize = Swapper.INSTANCE.channel.size();
+			newSize = Swapper.INSTANCE.size();
 		}
 		
 		// チェック
@@ -170,4 +180,100 @@ public class SwapperTest {
 		assertEquals(testMap, getMap);
 	}
 	
+	/**
+	 * RealObject へ到達できない1つのSwapObjectに対して複数のスレッドが同時にget()を行った場合、
+	 * デシリアライズは1度だけ行われ、全てのスレッドが同じRealObjectを取得できるべき。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test06_同時に取得した場合のデシリアライズ回数() throws Exception {
+		SlowCodec codec = new SlowCodec();
+		final SwapObject<String> swapObj = new SwapObject<String>("foo", codec);
+		swapObj.ref.clear();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			List<Future<String>> futures = new ArrayList<Future<String>>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(new Callable<String>() {
+					
+					public String call() throws Exception {
+						start.await();
+						return swapObj.get();
+					}
+				}));
+			}
+			start.countDown();
+			
+			String first = futures.get(0).get();
+			assertEquals("foo", first);
+			for (Future<String> future : futures) {
+				assertSame(first, future.get());
+			}
+			assertEquals(1, codec.decodeCount.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * デシリアライズに失敗した場合、待機していたスレッドにも例外が通知され、次のget()で再度読み込まれるべき。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test07_デシリアライズに失敗した場合() throws Exception {
+		SlowCodec codec = new SlowCodec();
+		SwapObject<String> swapObj = new SwapObject<String>("foo", codec);
+		swapObj.ref.clear();
+		
+		codec.failing = true;
+		try {
+			swapObj.get();
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		
+		codec.failing = false;
+		assertEquals("foo", swapObj.get());
+		assertEquals(2, codec.decodeCount.get());
+	}
+	
+
+	/**
+	 * デシリアライズの回数を数え、並行した呼び出しが重なるよう低速にデシリアライズするコーデック。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static class SlowCodec implements SwapCodec<String> {
+		
+		final SwapCodec<String> delegate = SwapCodecs.serializable();
+		
+		final AtomicInteger decodeCount = new AtomicInteger();
+		
+		volatile boolean failing;
+		
+
+		public String decode(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+			decodeCount.incrementAndGet();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (failing) {
+				throw new IOException("failing");
+			}
+			return delegate.decode(buffer);
+		}
+		
+		public ByteBuffer encode(String obj) throws IOException {
+			return delegate.encode(obj);
+		}
+	}
+	
 }
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2007-2012 Jiemamy Project and the Others.
+ * Created on 2026/10/17
+ *
+ * This file is part of Jiemamy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.swap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link WriteBehindQueue}のテストクラス。
+ * 
+ * @version $Id$
+ * @author Keisuke.K
+ */
+public class WriteBehindQueueTest {
+	
+	private Swapper swapper;
+	
+	private CountingCodec codec;
+	
+
+	/**
+	 * テストを初期化する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Before
+	public void setUp() throws Exception {
+		swapper = new Swapper(new FileChannelStorage(Swapper.createSwapFile()));
+		codec = new CountingCodec();
+	}
+	
+	/**
+	 * テストの情報を破棄する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@After
+	public void tearDown() throws Exception {
+		swapper.close();
+	}
+	
+	/**
+	 * 書き込み前の同じオブジェクトへの更新が、1回の書き込みにまとめられることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test01_更新のまとめ() throws Exception {
+		swapper.enableWriteBehind(16);
+		SwapObject<String> swapObj = new SwapObject<String>("0", codec, swapper);
+		assertThat(codec.encodeCount.get(), is(1));
+		
+		// SwapObjectで同期している間、書き込みスレッドは書き込みを行えない
+		synchronized (swapObj) {
+			swapObj.update("1");
+			swapObj.update("2");
+			swapObj.update("3");
+			assertThat(swapper.writeBehind.size(), is(1));
+		}
+		swapper.flush();
+		assertThat(swapper.writeBehind.size(), is(0));
+		assertThat(codec.encodeCount.get(), is(2));
+		
+		swapObj.ref.clear();
+		assertThat(swapObj.get(), is("3"));
+	}
+	
+	/**
+	 * 書き込み前の RealObject が、弱参照が切れても取得できることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test02_書き込み前の取得() throws Exception {
+		swapper.enableWriteBehind(16);
+		SwapObject<String> swapObj = new SwapObject<String>("foo", codec, swapper);
+		
+		synchronized (swapObj) {
+			swapObj.update("bar");
+			swapObj.ref.clear();
+			assertThat(swapObj.get(), is("bar"));
+			assertThat(codec.decodeCount.get(), is(0));
+		}
+		swapper.flush();
+		
+		swapObj.ref.clear();
+		assertThat(swapObj.get(), is("bar"));
+		assertThat(codec.decodeCount.get(), is(1));
+	}
+	
+	/**
+	 * キューが一杯の場合、更新が空きができるまで待機することを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test03_キューの容量() throws Exception {
+		swapper.enableWriteBehind(1);
+		SwapObject<String> a = new SwapObject<String>("a0", codec, swapper);
+		final SwapObject<String> b = new SwapObject<String>("b0", codec, swapper);
+		
+		Thread updater;
+		synchronized (a) {
+			a.update("a1");
+			
+			updater = new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						b.update("b1");
+					} catch (SwapException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			updater.start();
+			updater.join(200);
+			assertThat(updater.isAlive(), is(true));
+		}
+		updater.join(5000);
+		assertThat(updater.isAlive(), is(false));
+		
+		swapper.flush();
+		a.ref.clear();
+		b.ref.clear();
+		assertThat(a.get(), is("a1"));
+		assertThat(b.get(), is("b1"));
+	}
+	
+	/**
+	 * 遅延書き込みの失敗が{@link Swapper#flush()}で報告されることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test04_書き込み失敗の報告() throws Exception {
+		swapper.enableWriteBehind(16);
+		SwapObject<String> swapObj = new SwapObject<String>("foo", codec, swapper);
+		
+		swapObj.update(CountingCodec.BROKEN);
+		try {
+			swapper.flush();
+			fail();
+		} catch (SwapException e) {
+			// success
+		}
+		swapper.flush();
+		
+		swapObj.update("bar");
+		swapper.flush();
+		swapObj.ref.clear();
+		assertThat(swapObj.get(), is("bar"));
+	}
+	
+	/**
+	 * 同じオブジェクトへの並行した更新で、保持される RealObject と書き込まれる RealObject が一致することを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test05_並行した更新() throws Exception {
+		swapper.enableWriteBehind(1);
+		SwapObject<String> blocker = new SwapObject<String>("x0", codec, swapper);
+		final SwapObject<String> swapObj = new SwapObject<String>("0", codec, swapper);
+		
+		Thread first;
+		Thread second;
+		synchronized (blocker) {
+			// 書き込みスレッドを止めてキューを一杯にし、後続の更新要求を待機させる
+			blocker.update("x1");
+			
+			first = new UpdateThread(swapObj, "1");
+			first.start();
+			first.join(200);
+			assertThat(first.isAlive(), is(true));
+			
+			second = new UpdateThread(swapObj, "2");
+			second.start();
+			second.join(200);
+			assertThat(second.isAlive(), is(true));
+			
+			// 先の更新が要求を終えるまで、後の更新は参照を置き換えない
+			assertThat(swapObj.ref.get(), is("1"));
+		}
+		first.join(5000);
+		second.join(5000);
+		assertThat(first.isAlive(), is(false));
+		assertThat(second.isAlive(), is(false));
+		
+		swapper.flush();
+		String current = swapObj.ref.get();
+		swapObj.ref.clear();
+		assertThat(swapObj.get(), is(current));
+	}
+	/**
+	 * 書き込み中に更新された要求が、後続の要求より後に書き込まれることを確認する。
+	 * 
+	 * @throws Exception 例外が発生した場合
+	 */
+	@Test
+	public void test06_書き込み中の更新の順序() throws Exception {
+		SlowWriteStorage storage = new SlowWriteStorage(new FileChannelStorage(Swapper.createSwapFile()));
+		Swapper slowSwapper = new Swapper(storage);
+		try {
+			slowSwapper.enableWriteBehind(16);
+			SwapObject<String> a = new SwapObject<String>("a0", codec, slowSwapper);
+			SwapObject<String> b = new SwapObject<String>("b0", codec, slowSwapper);
+			
+			// 書き込みスレッドをaの書き込みの途中で止める
+			storage.armed.set(true);
+			a.update("a1");
+			assertThat(storage.entered.await(5, TimeUnit.SECONDS), is(true));
+			b.update("b1");
+			a.update("a2");
+			storage.proceed.countDown();
+			slowSwapper.flush();
+			
+			assertThat(codec.encoded.subList(2, codec.encoded.size()), is(Arrays.asList("a1", "b1", "a2")));
+			a.ref.clear();
+			b.ref.clear();
+			assertThat(a.get(), is("a2"));
+			assertThat(b.get(), is("b1"));
+		} finally {
+			slowSwapper.close();
+		}
+	}
+	
+
+	/**
+	 * エンコード、デコードの回数を数えるコーデック。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static class CountingCodec implements SwapCodec<String> {
+		
+		/** エンコードに失敗する値 */
+		static final String BROKEN = "broken";
+		
+		final AtomicInteger encodeCount = new AtomicInteger();
+		
+		final AtomicInteger decodeCount = new AtomicInteger();
+		
+		/** エンコードした値。エンコードした順に並ぶ。 */
+		final List<String> encoded = new CopyOnWriteArrayList<String>();
+		
+
+		public String decode(ByteBuffer buffer) throws IOException {
+			decodeCount.incrementAndGet();
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return new String(bytes, "UTF-8");
+		}
+		
+		public ByteBuffer encode(String obj) throws IOException {
+			encodeCount.incrementAndGet();
+			encoded.add(obj);
+			if (BROKEN.equals(obj)) {
+				throw new IOException(obj);
+			}
+			return ByteBuffer.wrap(obj.getBytes("UTF-8"));
+		}
+	}
+	
+	/**
+	 * {@link SwapObject#update(Serializable)}を呼び出すスレッド。
+	 * 
+	 * @version $Id$
+	 * @author Keisuke.K
+	 */
+	private static class UpdateThread extends Thread {
+		
+		private final SwapObject<String> swapObj;
+		
+		private final String value;
+		
+
+		UpdateThread(SwapObject<String> swapObj, String value) {
+			this.swapObj = swapObj;
+			this.value = value;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				swapObj.update(value);
+			} catch (SwapException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}